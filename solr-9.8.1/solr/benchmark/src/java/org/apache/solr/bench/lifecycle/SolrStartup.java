@@ -34,6 +34,7 @@ import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -42,7 +43,8 @@ import org.openjdk.jmh.annotations.Threads;
 
 /**
  * A simple JMH benchmark that attempts to measure approximate Solr startup behavior by measuring
- * {@link JettySolrRunner#start()}
+ * {@link JettySolrRunner#start()}, with a few or many cores sharing a configset. The phases of each
+ * startup are reported by the {@code CONTAINER.startup.phases} metric.
  */
 @BenchmarkMode(Mode.Throughput)
 @OutputTimeUnit(TimeUnit.SECONDS)
@@ -60,7 +62,8 @@ public class SolrStartup {
   @State(Scope.Thread)
   public static class PerThreadState {
 
-    private static final int NUM_CORES = 10;
+    @Param({"10", "500"})
+    public int numCores;
 
     public Path tmpSolrHome;
     public JettySolrRunner solrRunner;
@@ -79,7 +82,7 @@ public class SolrStartup {
       solrRunner = new JettySolrRunner(tmpSolrHome.toString(), buildJettyConfig("/solr"));
       solrRunner.start(false);
       try (SolrClient client = solrRunner.newClient()) {
-        for (int i = 0; i < NUM_CORES; i++) {
+        for (int i = 0; i < numCores; i++) {
           createCore(client, "core-prefix-" + i);
         }
       }
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.bench.search;
+
+import static org.apache.solr.bench.Docs.docs;
+import static org.apache.solr.bench.generators.SourceDSL.integers;
+import static org.apache.solr.bench.generators.SourceDSL.strings;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.solr.bench.BaseBenchState;
+import org.apache.solr.bench.MiniClusterState;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares platform and virtual threads for distributed search by keeping many queries in flight
+ * against a multi-shard collection. Each benchmark invocation issues {@code concurrentQueries}
+ * async queries and waits for all of them; the peak JVM thread count of each iteration is logged.
+ * Virtual threads require running the benchmark on Java 21 or later.
+ */
+@Fork(value = 1)
+@Warmup(time = 5, iterations = 3)
+@Measurement(time = 10, iterations = 5)
+@Threads(value = 1)
+public class FanOutSearch {
+
+  static final String COLLECTION = "c1";
+
+  @State(Scope.Benchmark)
+  public static class BenchState {
+
+    @Param({"false", "true"})
+    boolean virtualThreads;
+
+    @Param({"1000", "10000"})
+    int concurrentQueries;
+
+    @Param("4")
+    int numShards;
+
+    AtomicLong err = new AtomicLong();
+
+    final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    QueryRequest q = new QueryRequest(new SolrQuery("q", "*:*", "rows", "10"));
+
+    @Setup(Level.Trial)
+    public void setupTrial(MiniClusterState.MiniClusterBenchState miniClusterState)
+        throws Exception {
+      // must be set before the nodes start so that their executors pick it up
+      System.setProperty(ExecutorUtil.VIRTUAL_THREADS_ENABLED_PROP, String.valueOf(virtualThreads));
+      if (virtualThreads && !ExecutorUtil.isVirtualThreadsSupported()) {
+        BaseBenchState.log("virtual threads are not supported by this JVM, using platform threads");
+      }
+      miniClusterState.startMiniCluster(numShards);
+      miniClusterState.createCollection(COLLECTION, numShards, 1);
+      miniClusterState.index(
+          COLLECTION,
+          docs()
+              .field("id", integers().incrementing())
+              .field("term_low_s", strings().wordList().ofOne()),
+          10000,
+          false);
+    }
+
+    @Setup(Level.Iteration)
+    public void setupIteration() {
+      err = new AtomicLong();
+      threadMXBean.resetPeakThreadCount();
+    }
+
+    @TearDown(Level.Iteration)
+    public void teardownIteration() {
+      BaseBenchState.log(
+          "virtualThreads="
+              + virtualThreads
+              + " peak threads="
+              + threadMXBean.getPeakThreadCount()
+              + " errors="
+              + err.get());
+    }
+
+    @TearDown(Level.Trial)
+    public void teardownTrial() {
+      System.clearProperty(ExecutorUtil.VIRTUAL_THREADS_ENABLED_PROP);
+    }
+  }
+
+  @Benchmark
+  public long query(BenchState benchState, MiniClusterState.MiniClusterBenchState miniClusterState)
+      throws Exception {
+    CompletableFuture<?>[] futures = new CompletableFuture<?>[benchState.concurrentQueries];
+    for (int i = 0; i < futures.length; i++) {
+      futures[i] =
+          miniClusterState
+              .client
+              .requestAsync(benchState.q, COLLECTION)
+              .exceptionally(
+                  t -> {
+                    benchState.err.getAndIncrement();
+                    return null;
+                  });
+    }
+    CompletableFuture.allOf(futures).get();
+    return futures.length;
+  }
+}
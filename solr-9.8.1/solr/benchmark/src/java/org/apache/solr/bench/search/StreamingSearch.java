@@ -23,6 +23,7 @@ import static org.apache.solr.bench.generators.SourceDSL.strings;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import org.apache.solr.bench.Docs;
 import org.apache.solr.bench.MiniClusterState;
 import org.apache.solr.bench.MiniClusterState.MiniClusterBenchState;
@@ -31,9 +32,18 @@ import org.apache.solr.client.solrj.impl.Http2SolrClient;
 import org.apache.solr.client.solrj.impl.HttpClientUtil;
 import org.apache.solr.client.solrj.io.SolrClientCache;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
 import org.apache.solr.client.solrj.io.stream.CloudSolrStream;
+import org.apache.solr.client.solrj.io.stream.RollupStream;
+import org.apache.solr.client.solrj.io.stream.SelectStream;
 import org.apache.solr.client.solrj.io.stream.StreamContext;
 import org.apache.solr.client.solrj.io.stream.TupleStream;
+import org.apache.solr.client.solrj.io.stream.metrics.Bucket;
+import org.apache.solr.client.solrj.io.stream.metrics.CountMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.MaxMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.Metric;
+import org.apache.solr.client.solrj.io.stream.metrics.MinMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.SumMetric;
 import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.openjdk.jmh.annotations.Benchmark;
@@ -81,7 +91,8 @@ public class StreamingSearch {
               .field("id", integers().incrementing())
               .field("text2_ts", strings().basicLatinAlphabet().multi(312).ofLengthBetween(30, 64))
               .field("text3_ts", strings().basicLatinAlphabet().multi(312).ofLengthBetween(30, 64))
-              .field("int1_i_dv", integers().all());
+              .field("int1_i_dv", integers().all())
+              .field("bucket_i_dv", integers().between(0, 9));
       miniClusterState.index(collection, docGen, docs);
       miniClusterState.waitForMerges(collection);
 
@@ -119,6 +130,24 @@ public class StreamingSearch {
     }
   }
 
+  /** The response format of the streams that read tuples in batches. */
+  @State(Scope.Benchmark)
+  public static class BatchState {
+
+    @Param({"javabin", "columnar"})
+    String wt;
+
+    private ModifiableSolrParams params(String fl, String sort) {
+      ModifiableSolrParams params = new ModifiableSolrParams();
+      params.set(CommonParams.Q, "*:*");
+      params.set(CommonParams.FL, fl);
+      params.set(CommonParams.SORT, sort);
+      params.set(CommonParams.QT, "/export");
+      params.set(CommonParams.WT, wt);
+      return params;
+    }
+  }
+
   @Benchmark
   public Object stream(
       BenchState benchState, MiniClusterState.MiniClusterBenchState miniClusterState)
@@ -128,6 +157,63 @@ public class StreamingSearch {
     return getTuples(stream);
   }
 
+  @Benchmark
+  public Object rollup(BenchState benchState, BatchState batchState) throws IOException {
+    CloudSolrStream search =
+        new CloudSolrStream(
+            benchState.zkHost,
+            collection,
+            batchState.params("bucket_i_dv,int1_i_dv", "bucket_i_dv asc"));
+    RollupStream stream =
+        new RollupStream(
+            search,
+            new Bucket[] {new Bucket("bucket_i_dv")},
+            new Metric[] {
+              new CountMetric(),
+              new SumMetric("int1_i_dv"),
+              new MinMetric("int1_i_dv"),
+              new MaxMetric("int1_i_dv")
+            });
+    stream.setStreamContext(benchState.streamContext);
+    return getTuples(stream);
+  }
+
+  @Benchmark
+  public Object selectRows(BenchState benchState, BatchState batchState) throws IOException {
+    TupleStream stream = newSelectStream(benchState, batchState);
+    return getTuples(stream);
+  }
+
+  @Benchmark
+  public Object selectBatches(BenchState benchState, BatchState batchState) throws IOException {
+    TupleStream stream = newSelectStream(benchState, batchState);
+    long rows = 0;
+    try {
+      stream.open();
+      TupleBatch batch;
+      do {
+        batch = stream.readBatch(TupleBatch.DEFAULT_SIZE);
+        rows += batch.size();
+      } while (!batch.isEOF());
+      return rows;
+    } finally {
+      stream.close();
+    }
+  }
+
+  private static TupleStream newSelectStream(BenchState benchState, BatchState batchState)
+      throws IOException {
+    CloudSolrStream search =
+        new CloudSolrStream(
+            benchState.zkHost,
+            collection,
+            batchState.params("id,bucket_i_dv,int1_i_dv", "int1_i_dv asc"));
+    SelectStream stream =
+        new SelectStream(search, Map.of("id", "id", "int1_i_dv", "value", "bucket_i_dv", "bucket"));
+    stream.setStreamContext(benchState.streamContext);
+    return stream;
+  }
+
   private static List<Tuple> getTuples(TupleStream tupleStream) throws IOException {
     List<Tuple> tuples = new ArrayList<>();
     try {
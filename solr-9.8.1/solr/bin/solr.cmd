@@ -191,6 +191,11 @@ IF "%SOLR_GZIP_ENABLED%"=="true" (
   set "SOLR_JETTY_CONFIG=!SOLR_JETTY_CONFIG! --module=gzip"
 )
 
+REM Jetty virtual threads module disabled by default
+IF "%SOLR_VIRTUAL_THREADS_ENABLED%"=="true" (
+  set "SOLR_JETTY_CONFIG=!SOLR_JETTY_CONFIG! --module=virtual-threads"
+)
+
 REM Authentication options
 
 IF NOT DEFINED SOLR_AUTH_TYPE (
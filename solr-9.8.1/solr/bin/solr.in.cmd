@@ -218,6 +218,10 @@ REM ...
 REM Jetty GZIP module enabled by default
 REM set SOLR_GZIP_ENABLED=true
 
+REM Run request handling, shard fan-out and update distribution on virtual threads.
+REM Requires Java 21 or later; ignored with a warning on older JVMs. Disabled by default
+REM set SOLR_VIRTUAL_THREADS_ENABLED=false
+
 REM When running Solr in non-cloud mode and if planning to do distributed search (using the "shards" parameter), the
 REM list of hosts needs to be defined in an allow-list or Solr will forbid the request. The allow-list can be configured
 REM in solr.xml, or if you are using the OOTB solr.xml, can be specified using the system property "solr.allowUrls".
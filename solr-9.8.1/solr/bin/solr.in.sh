@@ -233,6 +233,10 @@
 # Jetty GZIP module enabled by default
 #SOLR_GZIP_ENABLED=true
 
+# Run request handling, shard fan-out and update distribution on virtual threads.
+# Requires Java 21 or later; ignored with a warning on older JVMs. Disabled by default
+#SOLR_VIRTUAL_THREADS_ENABLED=false
+
 # Settings for common system values that may cause operational imparement when system defaults are used.
 # Solr can use many processes and many file handles. On modern operating systems the savings by leaving
 # these settings low is minuscule, while the consequence can be Solr instability. To turn these checks off, set
@@ -48,6 +48,7 @@ import org.apache.solr.cloud.overseer.ReplicaMutator;
 import org.apache.solr.cloud.overseer.SliceMutator;
 import org.apache.solr.cloud.overseer.ZkStateWriter;
 import org.apache.solr.cloud.overseer.ZkWriteCommand;
+import org.apache.solr.common.MapWriter;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.cloud.ClusterState;
 import org.apache.solr.common.cloud.DocCollection;
@@ -58,6 +59,7 @@ import org.apache.solr.common.cloud.ZkNodeProps;
 import org.apache.solr.common.cloud.ZkStateReader;
 import org.apache.solr.common.params.CollectionParams;
 import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.util.EnvUtils;
 import org.apache.solr.common.util.Pair;
 import org.apache.solr.common.util.Utils;
 import org.apache.zookeeper.CreateMode;
@@ -80,6 +82,22 @@ public class DistributedClusterStateUpdater {
    */
   private final boolean useDistributedStateUpdate;
 
+  /**
+   * How long in milliseconds an update of an existing collection waits for other updates of the
+   * same collection to be written along with it, when no update of the collection is being written
+   * by this node. While one is, the updates that come in are always written together once it is
+   * done.
+   */
+  public static final String COALESCE_MS_PROP = "solr.cloud.distributedStateUpdate.coalesceMs";
+
+  private final long coalesceMs = EnvUtils.getPropertyAsLong(COALESCE_MS_PROP, 0L);
+
+  private final ZkWriteMetrics metrics = new ZkWriteMetrics();
+
+  // the updates of existing collections, written together by collection
+  private final ZkWriteCoalescer<String, CollectionUpdate> coalescer =
+      new ZkWriteCoalescer<>(coalesceMs, metrics, this::writeCoalescedUpdates);
+
   /**
    * Builds an instance with the specified behavior regarding distribution of state updates,
    * allowing to know distributed updates are not enabled (parameter {@code
@@ -114,7 +132,7 @@ public class DistributedClusterStateUpdater {
       throw new IllegalStateException(
           "Not expecting to create instances of StateChangeRecorder when not using distributed state update");
     }
-    return new StateChangeRecorder(collectionName, isCollectionCreation);
+    return new StateChangeRecorder(this, collectionName, isCollectionCreation);
   }
 
   /** Syntactic sugar to allow a single change to the cluster state to be made in a single call. */
@@ -130,7 +148,7 @@ public class DistributedClusterStateUpdater {
     }
     String collectionName = command.getCollectionName(message);
     final StateChangeRecorder scr =
-        new StateChangeRecorder(collectionName, command.isCollectionCreation());
+        new StateChangeRecorder(this, collectionName, command.isCollectionCreation());
     scr.record(command, message);
     scr.executeStateUpdates(scm, zkStateReader);
   }
@@ -140,7 +158,8 @@ public class DistributedClusterStateUpdater {
       throw new IllegalStateException(
           "Not expecting to execute executeNodeDownStateUpdate when not using distributed state update");
     }
-    CollectionNodeDownChangeCalculator.executeNodeDownStateUpdate(nodeName, zkStateReader);
+    CollectionNodeDownChangeCalculator.executeNodeDownStateUpdate(
+        nodeName, zkStateReader, metrics);
   }
 
   /**
@@ -151,6 +170,59 @@ public class DistributedClusterStateUpdater {
     return useDistributedStateUpdate;
   }
 
+  /** The counters of the state.json updates done by this instance. */
+  public MapWriter getMetrics() {
+    return metrics.asMapWriter();
+  }
+
+  /**
+   * Writes recorded mutations of an existing collection along with the other updates of the
+   * collection that are waiting to be written by this node, so that concurrent updates from this
+   * node do a single read-modify-write of the state.json instead of competing for it.
+   */
+  private void executeCoalescedUpdate(
+      SolrCloudManager scm,
+      ZkStateReader zkStateReader,
+      String collectionName,
+      List<Pair<MutatingCommand, ZkNodeProps>> mutations)
+      throws KeeperException, InterruptedException {
+    coalescer.write(collectionName, new CollectionUpdate(scm, zkStateReader, mutations));
+  }
+
+  private void writeCoalescedUpdates(String collectionName, List<CollectionUpdate> updates)
+      throws KeeperException, InterruptedException {
+    List<Pair<MutatingCommand, ZkNodeProps>> mutations = new ArrayList<>();
+    for (CollectionUpdate update : updates) {
+      mutations.addAll(update.mutations);
+    }
+    if (log.isDebugEnabled()) {
+      log.debug(
+          "Writing {} coalesced mutations of collection {}", mutations.size(), collectionName);
+    }
+    CollectionUpdate first = updates.get(0);
+    ZkUpdateApplicator.applyUpdate(
+        first.zkStateReader,
+        new StateChangeRecorder.RecordedMutationsPlayer(
+            first.scm, collectionName, false, mutations),
+        metrics);
+  }
+
+  /** The recorded mutations of an existing collection to write. */
+  private static class CollectionUpdate {
+    final SolrCloudManager scm;
+    final ZkStateReader zkStateReader;
+    final List<Pair<MutatingCommand, ZkNodeProps>> mutations;
+
+    CollectionUpdate(
+        SolrCloudManager scm,
+        ZkStateReader zkStateReader,
+        List<Pair<MutatingCommand, ZkNodeProps>> mutations) {
+      this.scm = scm;
+      this.zkStateReader = zkStateReader;
+      this.mutations = mutations;
+    }
+  }
+
   /**
    * Naming of enum instances are the mutator object name (e.g. {@code Cluster} for {@link
    * ClusterStateMutator} or {@code Collection} for {@link CollectionMutator}) followed by the
@@ -397,16 +469,20 @@ public class DistributedClusterStateUpdater {
 
     private final ZkStateReader zkStateReader;
     private final StateChangeCalculator updater;
+    private final ZkWriteMetrics metrics;
 
-    static void applyUpdate(ZkStateReader zkStateReader, StateChangeCalculator updater)
+    static void applyUpdate(
+        ZkStateReader zkStateReader, StateChangeCalculator updater, ZkWriteMetrics metrics)
         throws KeeperException, InterruptedException {
-      ZkUpdateApplicator zua = new ZkUpdateApplicator(zkStateReader, updater);
+      ZkUpdateApplicator zua = new ZkUpdateApplicator(zkStateReader, updater, metrics);
       zua.applyUpdate();
     }
 
-    private ZkUpdateApplicator(ZkStateReader zkStateReader, StateChangeCalculator updater) {
+    private ZkUpdateApplicator(
+        ZkStateReader zkStateReader, StateChangeCalculator updater, ZkWriteMetrics metrics) {
       this.zkStateReader = zkStateReader;
       this.updater = updater;
+      this.metrics = metrics;
     }
 
     /**
@@ -518,6 +594,7 @@ public class DistributedClusterStateUpdater {
         try {
           // Try to do a conditional update (a.k.a. CAS: compare and swap).
           doStateDotJsonCasUpdate(updatedState);
+          metrics.writes.increment();
           return; // state.json updated successfully.
         } catch (KeeperException.BadVersionException bve) {
           if (updater.isCollectionCreation()) {
@@ -525,6 +602,7 @@ public class DistributedClusterStateUpdater {
             // it up the food chain.
             throw bve;
           }
+          metrics.casConflicts.increment();
         }
         // We've tried to update an existing state.json and got a BadVersionException. We'll try
         // again a few times. When only two threads compete, no point in waiting: if we lost this
@@ -546,6 +624,7 @@ public class DistributedClusterStateUpdater {
       // behaviour, especially once Collection API is distributed (because then the Collection API
       // call will fail if the underlying cluster state update cannot be done, and that's a
       // desirable thing).
+      metrics.casFailures.increment();
       throw new KeeperException.BadVersionException(
           DocCollection.getCollectionPath(updater.getCollectionName()));
     }
@@ -660,6 +739,8 @@ public class DistributedClusterStateUpdater {
    * <p>Instances are <b>not</b> thread safe.
    */
   public static class StateChangeRecorder {
+    private final DistributedClusterStateUpdater stateUpdater;
+
     final List<Pair<MutatingCommand, ZkNodeProps>> mutations;
 
     /** The collection name for which are all recorded commands */
@@ -683,13 +764,17 @@ public class DistributedClusterStateUpdater {
      */
     boolean creationCommandRecorded = false;
 
-    private StateChangeRecorder(String collectionName, boolean isCollectionCreation) {
+    private StateChangeRecorder(
+        DistributedClusterStateUpdater stateUpdater,
+        String collectionName,
+        boolean isCollectionCreation) {
       if (collectionName == null) {
         final String err =
             "Internal bug. collectionName=null (isCollectionCreation=" + isCollectionCreation + ")";
         log.error(err);
         throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, err);
       }
+      this.stateUpdater = stateUpdater;
       mutations = new ArrayList<>();
       this.collectionName = collectionName;
       this.isCollectionCreation = isCollectionCreation;
@@ -880,9 +965,14 @@ public class DistributedClusterStateUpdater {
         throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, err);
       }
 
-      RecordedMutationsPlayer mutationPlayer =
-          new RecordedMutationsPlayer(scm, collectionName, isCollectionCreation, mutations);
-      ZkUpdateApplicator.applyUpdate(zkStateReader, mutationPlayer);
+      stateUpdater.metrics.updates.increment();
+      if (isCollectionCreation) {
+        RecordedMutationsPlayer mutationPlayer =
+            new RecordedMutationsPlayer(scm, collectionName, true, mutations);
+        ZkUpdateApplicator.applyUpdate(zkStateReader, mutationPlayer, stateUpdater.metrics);
+      } else {
+        stateUpdater.executeCoalescedUpdate(scm, zkStateReader, collectionName, mutations);
+      }
 
       // TODO update stats here for the various commands executed successfully or not?
       // This would replace the stats about cluster state updates that the Collection API currently
@@ -916,7 +1006,8 @@ public class DistributedClusterStateUpdater {
      * Entry point to mark all replicas of all collections present on a single node as being DOWN
      * (because the node is down)
      */
-    public static void executeNodeDownStateUpdate(String nodeName, ZkStateReader zkStateReader) {
+    public static void executeNodeDownStateUpdate(
+        String nodeName, ZkStateReader zkStateReader, ZkWriteMetrics metrics) {
       // This code does a version of what NodeMutator.downNode() is doing. We can't assume we have a
       // cache of the collections, so we're going to read all of them from ZK, fetch the state.json
       // for each and if it has any replicas on the failed node, do an update (conditional of
@@ -943,7 +1034,7 @@ public class DistributedClusterStateUpdater {
         for (String collectionName : collectionNames) {
           CollectionNodeDownChangeCalculator collectionUpdater =
               new CollectionNodeDownChangeCalculator(collectionName, nodeName);
-          ZkUpdateApplicator.applyUpdate(zkStateReader, collectionUpdater);
+          ZkUpdateApplicator.applyUpdate(zkStateReader, collectionUpdater, metrics);
         }
       } catch (Exception e) {
         if (e instanceof InterruptedException) {
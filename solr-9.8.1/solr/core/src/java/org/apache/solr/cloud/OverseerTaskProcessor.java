@@ -24,9 +24,13 @@ import java.io.Closeable;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -36,10 +40,15 @@ import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import org.apache.solr.cloud.Overseer.LeaderStatus;
 import org.apache.solr.cloud.OverseerTaskQueue.QueueEvent;
+import org.apache.solr.cloud.api.collections.DistributedCollectionConfigSetCommandRunner;
+import org.apache.solr.cloud.api.collections.TaskPriority;
 import org.apache.solr.common.AlreadyClosedException;
 import org.apache.solr.common.cloud.SolrZkClient;
 import org.apache.solr.common.cloud.ZkNodeProps;
 import org.apache.solr.common.cloud.ZkStateReader;
+import org.apache.solr.common.params.CollectionParams.CollectionAction;
+import org.apache.solr.common.params.CollectionParams.LockLevel;
+import org.apache.solr.common.util.EnvUtils;
 import org.apache.solr.common.util.ExecutorUtil;
 import org.apache.solr.common.util.IOUtils;
 import org.apache.solr.common.util.SolrNamedThreadFactory;
@@ -62,11 +71,31 @@ import org.slf4j.LoggerFactory;
  */
 public class OverseerTaskProcessor implements Runnable, Closeable {
 
-  /** Maximum number of overseer collection operations which can be executed concurrently */
+  /**
+   * Default maximum number of overseer collection operations which can be executed concurrently,
+   * see {@link #MAX_PARALLEL_TASKS_PROP}
+   */
   public static final int MAX_PARALLEL_TASKS = 100;
 
   public static final int MAX_BLOCKED_TASKS = 1000;
 
+  /** Maximum number of overseer collection operations which can be executed concurrently */
+  public static final String MAX_PARALLEL_TASKS_PROP = "solr.collectionApi.maxParallelTasks";
+
+  /**
+   * Maximum number of {@link TaskPriority#LOW} priority operations which can be executed
+   * concurrently, by default half of the maximum number of operations.
+   */
+  public static final String MAX_LOW_PRIORITY_TASKS_PROP =
+      "solr.collectionApi.maxLowPriorityTasks";
+
+  private final int maxParallelTasks =
+      EnvUtils.getPropertyAsLong(MAX_PARALLEL_TASKS_PROP, (long) MAX_PARALLEL_TASKS).intValue();
+
+  private final int maxLowPriorityTasks =
+      EnvUtils.getPropertyAsLong(MAX_LOW_PRIORITY_TASKS_PROP, (long) maxParallelTasks / 2)
+          .intValue();
+
   public ExecutorService tpe;
 
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
@@ -82,6 +111,12 @@ public class OverseerTaskProcessor implements Runnable, Closeable {
    */
   private final Set<String> runningTasks;
 
+  /** The running tasks of {@link TaskPriority#LOW} priority, a subset of {@link #runningTasks}. */
+  private final Set<String> runningLowPriorityTasks = ConcurrentHashMap.newKeySet();
+
+  /** When the tasks waiting to run were first read from the work queue, keyed on zk id. */
+  private final Map<String, Long> taskReadNanos = new ConcurrentHashMap<>();
+
   /** List of completed tasks. This is used to clean up workQueue in zk. */
   private final ConcurrentHashMap<String, QueueEvent> completedTasks;
 
@@ -162,6 +197,15 @@ public class OverseerTaskProcessor implements Runnable, Closeable {
     overseerTaskProcessorMetricsContext = solrMetricsContext.getChildContext(this);
     overseerTaskProcessorMetricsContext.gauge(
         () -> workQueue.getZkStats().getQueueLength(), true, "collectionWorkQueueSize", "queue");
+    overseerTaskProcessorMetricsContext.gauge(
+        () -> {
+          long now = System.nanoTime();
+          long oldest = taskReadNanos.values().stream().mapToLong(t -> now - t).max().orElse(0L);
+          return TimeUnit.NANOSECONDS.toMillis(oldest);
+        },
+        true,
+        "oldestWaitingTaskAgeMs",
+        "queue");
   }
 
   @Override
@@ -210,12 +254,10 @@ public class OverseerTaskProcessor implements Runnable, Closeable {
       }
     }
 
-    // TODO: Make maxThreads configurable.
-
     this.tpe =
         new ExecutorUtil.MDCAwareThreadPoolExecutor(
-            5,
-            MAX_PARALLEL_TASKS,
+            Math.min(5, maxParallelTasks),
+            maxParallelTasks,
             0L,
             TimeUnit.MILLISECONDS,
             new SynchronousQueue<>(),
@@ -248,7 +290,7 @@ public class OverseerTaskProcessor implements Runnable, Closeable {
 
           boolean waited = false;
 
-          while (runningTasks.size() > MAX_PARALLEL_TASKS) {
+          while (runningTasks.size() > maxParallelTasks) {
             synchronized (waitLock) {
               waitLock.wait(100); // wait for 100 ms or till a task is complete
             }
@@ -257,18 +299,17 @@ public class OverseerTaskProcessor implements Runnable, Closeable {
 
           if (waited) cleanUpWorkQueue();
 
-          ArrayList<QueueEvent> heads = new ArrayList<>(blockedTasks.size() + MAX_PARALLEL_TASKS);
+          ArrayList<QueueEvent> heads = new ArrayList<>(blockedTasks.size() + maxParallelTasks);
           heads.addAll(blockedTasks.values());
 
           // If we have enough items in the blocked tasks already, it makes
           // no sense to read more items from the work queue. it makes sense
           // to clear out at least a few items in the queue before we read more items
           if (heads.size() < MAX_BLOCKED_TASKS) {
-            // instead of reading MAX_PARALLEL_TASKS items always, we should only fetch as much as
+            // instead of reading maxParallelTasks items always, we should only fetch as much as
             // we can execute
             int toFetch =
-                Math.min(
-                    MAX_BLOCKED_TASKS - heads.size(), MAX_PARALLEL_TASKS - runningTasks.size());
+                Math.min(MAX_BLOCKED_TASKS - heads.size(), maxParallelTasks - runningTasks.size());
             List<QueueEvent> newTasks = workQueue.peekTopN(toFetch, excludedTasks, 2000L);
             if (log.isDebugEnabled()) {
               log.debug("Got {} tasks from work-queue : [{}]", newTasks.size(), newTasks);
@@ -310,10 +351,25 @@ public class OverseerTaskProcessor implements Runnable, Closeable {
           // on the OverseerCollectionMessageHandler
           batchSessionId++;
 
+          // The tasks get the locks and the threads in priority order, taking turns between the
+          // collections
+          long now = System.nanoTime();
+          Map<String, ZkNodeProps> messages = new HashMap<>();
+          for (QueueEvent head : heads) {
+            messages.put(head.getId(), ZkNodeProps.load(head.getBytes()));
+            if (!runningZKTasks.contains(head.getId())) {
+              taskReadNanos.putIfAbsent(head.getId(), now);
+            }
+          }
+          heads = orderTasks(heads, messages);
+
+          // the collections of the tasks that are kept waiting for low priority threads, the next
+          // tasks of which wait as well
+          Set<String> deferredCollections = new HashSet<>();
           boolean tooManyTasks = false;
           for (QueueEvent head : heads) {
             if (!tooManyTasks) {
-              tooManyTasks = runningTasks.size() >= MAX_PARALLEL_TASKS;
+              tooManyTasks = runningTasks.size() >= maxParallelTasks;
             }
             if (tooManyTasks) {
               // Too many tasks are running, just shove the rest into the "blocked" queue.
@@ -321,7 +377,7 @@ public class OverseerTaskProcessor implements Runnable, Closeable {
               continue;
             }
             if (runningZKTasks.contains(head.getId())) continue;
-            final ZkNodeProps message = ZkNodeProps.load(head.getBytes());
+            final ZkNodeProps message = messages.get(head.getId());
             final String asyncId = message.getStr(ASYNC);
             if (hasLeftOverItems) {
               if (head.getId().equals(oldestItemInWorkQueue)) hasLeftOverItems = false;
@@ -331,6 +387,7 @@ public class OverseerTaskProcessor implements Runnable, Closeable {
                     "Found already processed task in workQueue, cleaning up. AsyncId [{}]",
                     asyncId);
                 workQueue.remove(head);
+                taskReadNanos.remove(head.getId());
                 continue;
               }
             }
@@ -338,6 +395,21 @@ public class OverseerTaskProcessor implements Runnable, Closeable {
             if (operation == null) {
               log.error("Msg does not have required {} : {}", Overseer.QUEUE_OPERATION, message);
               workQueue.remove(head);
+              taskReadNanos.remove(head.getId());
+              continue;
+            }
+            TaskPriority priority = TaskPriority.ofOperation(operation);
+            String collection = getTaskCollection(message);
+            if ((collection != null && deferredCollections.contains(collection))
+                || (priority == TaskPriority.LOW
+                    && runningLowPriorityTasks.size() >= maxLowPriorityTasks)) {
+              if (log.isDebugEnabled()) {
+                log.debug("Waiting for low priority tasks to complete before [{}]", message);
+              }
+              if (collection != null) {
+                deferredCollections.add(collection);
+              }
+              blockedTasks.put(head.getId(), head);
               continue;
             }
             OverseerMessageHandler messageHandler = selector.selectOverseerMessageHandler(message);
@@ -351,6 +423,15 @@ public class OverseerTaskProcessor implements Runnable, Closeable {
             }
             try {
               markTaskAsRunning(head, asyncId);
+              if (priority == TaskPriority.LOW) {
+                runningLowPriorityTasks.add(head.getId());
+              }
+              Long readNanos = taskReadNanos.remove(head.getId());
+              if (readNanos != null) {
+                overseerTaskProcessorMetricsContext
+                    .timer("taskWaitTime", "queue", priority.name().toLowerCase(Locale.ROOT))
+                    .update(System.nanoTime() - readNanos, TimeUnit.NANOSECONDS);
+              }
               if (log.isDebugEnabled()) {
                 log.debug("Marked task [{}] as running", head.getId());
               }
@@ -406,12 +487,78 @@ public class OverseerTaskProcessor implements Runnable, Closeable {
     }
   }
 
+  /**
+   * Orders the tasks read from the work queue in the order they get to run: by {@link
+   * TaskPriority}, then taking turns between the collections, then in queue order. The tasks of a
+   * collection keep their queue order, a task having at most the priority of the tasks queued
+   * before it for the same collection. The tasks without a collection keep their own priority and
+   * take their turns together.
+   */
+  static ArrayList<QueueEvent> orderTasks(
+      List<QueueEvent> tasks, Map<String, ZkNodeProps> messages) {
+    Map<String, TaskPriority> collectionPriorities = new HashMap<>();
+    Map<String, Integer> collectionTurns = new HashMap<>();
+    List<OrderedTask> ordered = new ArrayList<>(tasks.size());
+    for (QueueEvent task : tasks) {
+      ZkNodeProps message = messages.get(task.getId());
+      String collection = getTaskCollection(message);
+      TaskPriority priority = TaskPriority.ofOperation(message.getStr(Overseer.QUEUE_OPERATION));
+      if (collection != null) {
+        priority =
+            collectionPriorities.merge(
+                collection,
+                priority,
+                (before, current) -> before.compareTo(current) > 0 ? before : current);
+      }
+      // the collection names can't be empty
+      int turn = collectionTurns.merge(collection == null ? "" : collection, 1, Integer::sum);
+      ordered.add(new OrderedTask(task, priority, turn, ordered.size()));
+    }
+    ordered.sort(
+        Comparator.comparing((OrderedTask t) -> t.priority)
+            .thenComparingInt(t -> t.turn)
+            .thenComparingInt(t -> t.index));
+    ArrayList<QueueEvent> result = new ArrayList<>(ordered.size());
+    for (OrderedTask task : ordered) {
+      result.add(task.task);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the collection of a task, or null for the tasks that don't lock a collection, such as
+   * the node level commands, the role and cluster property commands or the config set commands.
+   * The name of these tasks is not a collection name.
+   */
+  static String getTaskCollection(ZkNodeProps message) {
+    CollectionAction action = CollectionAction.get(message.getStr(Overseer.QUEUE_OPERATION));
+    if (action == null || action.lockLevel == LockLevel.NONE) {
+      return null;
+    }
+    return DistributedCollectionConfigSetCommandRunner.getCollectionName(message);
+  }
+
+  private static class OrderedTask {
+    final QueueEvent task;
+    final TaskPriority priority;
+    final int turn;
+    final int index;
+
+    OrderedTask(QueueEvent task, TaskPriority priority, int turn, int index) {
+      this.task = task;
+      this.priority = priority;
+      this.turn = turn;
+      this.index = index;
+    }
+  }
+
   private void cleanUpWorkQueue() throws KeeperException, InterruptedException {
     Iterator<Map.Entry<String, QueueEvent>> it = completedTasks.entrySet().iterator();
     while (it.hasNext()) {
       Map.Entry<String, QueueEvent> entry = it.next();
       workQueue.remove(entry.getValue());
       runningZKTasks.remove(entry.getKey());
+      taskReadNanos.remove(entry.getKey());
       it.remove();
     }
   }
@@ -631,6 +778,7 @@ public class OverseerTaskProcessor implements Runnable, Closeable {
         throws KeeperException, InterruptedException {
       completedTasks.put(id, head);
       runningTasks.remove(id);
+      runningLowPriorityTasks.remove(id);
 
       if (asyncId != null) {
         if (!runningMap.remove(asyncId)) {
@@ -656,6 +804,7 @@ public class OverseerTaskProcessor implements Runnable, Closeable {
         }
 
         runningTasks.remove(id);
+        runningLowPriorityTasks.remove(id);
       } catch (KeeperException e) {
         log.error("KeeperException", e);
       } catch (InterruptedException e) {
@@ -28,18 +28,20 @@ class ZkCollectionTerms implements AutoCloseable {
   private final String collection;
   private final Map<String, ZkShardTerms> terms;
   private final SolrZkClient zkClient;
+  private final ZkWriteMetrics metrics;
 
-  ZkCollectionTerms(String collection, SolrZkClient client) {
+  ZkCollectionTerms(String collection, SolrZkClient client, ZkWriteMetrics metrics) {
     this.collection = collection;
     this.terms = new HashMap<>();
     this.zkClient = client;
+    this.metrics = metrics;
     assert ObjectReleaseTracker.track(this);
   }
 
   public ZkShardTerms getShard(String shardId) {
     synchronized (terms) {
       if (!terms.containsKey(shardId))
-        terms.put(shardId, new ZkShardTerms(collection, shardId, zkClient));
+        terms.put(shardId, new ZkShardTerms(collection, shardId, zkClient, metrics));
       return terms.get(shardId);
     }
   }
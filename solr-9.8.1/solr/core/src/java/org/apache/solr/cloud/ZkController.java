@@ -224,6 +224,7 @@ public class ZkController implements Closeable {
 
   private Map<String, ReplicateFromLeader> replicateFromLeaders = new ConcurrentHashMap<>();
   private final Map<String, ZkCollectionTerms> collectionToTerms = new HashMap<>();
+  private final ZkWriteMetrics shardTermsMetrics = new ZkWriteMetrics();
 
   // for now, this can be null in tests, in which case recovery will be inactive, and other features
   // may accept defaults or use mocks rather than pulling things from a CoreContainer
@@ -863,6 +864,11 @@ public class ZkController implements Closeable {
     return distributedClusterStateUpdater;
   }
 
+  /** The counters of the changes of the shard terms made by this node. */
+  public MapWriter getShardTermsMetrics() {
+    return shardTermsMetrics.asMapWriter();
+  }
+
   public SolrCloudManager getSolrCloudManager() {
     if (cloudManager != null) {
       return cloudManager;
@@ -1800,7 +1806,8 @@ public class ZkController implements Closeable {
   private ZkCollectionTerms getCollectionTerms(String collection) {
     synchronized (collectionToTerms) {
       if (!collectionToTerms.containsKey(collection))
-        collectionToTerms.put(collection, new ZkCollectionTerms(collection, zkClient));
+        collectionToTerms.put(
+            collection, new ZkCollectionTerms(collection, zkClient, shardTermsMetrics));
       return collectionToTerms.get(collection);
     }
   }
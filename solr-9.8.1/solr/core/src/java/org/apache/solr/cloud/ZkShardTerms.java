@@ -20,16 +20,19 @@ package org.apache.solr.cloud;
 import java.lang.invoke.MethodHandles;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 import org.apache.solr.client.solrj.cloud.ShardTerms;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.cloud.SolrZkClient;
 import org.apache.solr.common.cloud.ZkStateReader;
+import org.apache.solr.common.util.EnvUtils;
 import org.apache.solr.common.util.ObjectReleaseTracker;
 import org.apache.solr.common.util.Utils;
 import org.apache.solr.core.CoreDescriptor;
@@ -62,7 +65,12 @@ import org.slf4j.LoggerFactory;
  *   <li>The leader increase its term and some other replicas by 1
  * </ul>
  *
- * This class should not be reused after {@link
+ * <p>The changes of the terms made through an instance while it is already writing the terms are
+ * written together, in a single compare and set of the term node, once that write is done. When
+ * the term node was changed by another node meanwhile, the changes are applied again to its new
+ * terms, so they are merged with the other node's change rather than overwriting it.
+ *
+ * <p>This class should not be reused after {@link
  * org.apache.zookeeper.Watcher.Event.KeeperState#Expired} event
  */
 public class ZkShardTerms implements AutoCloseable {
@@ -78,6 +86,18 @@ public class ZkShardTerms implements AutoCloseable {
 
   private final AtomicReference<ShardTerms> terms = new AtomicReference<>();
 
+  /**
+   * How long in milliseconds a change of the terms waits for other changes of the shard's terms to
+   * be written along with it, when no change of the terms is being written by this instance. While
+   * one is, the changes that come in are always written together once it is done.
+   */
+  public static final String COALESCE_MS_PROP = "solr.cloud.shardTerms.coalesceMs";
+
+  private final long coalesceMs = EnvUtils.getPropertyAsLong(COALESCE_MS_PROP, 0L);
+
+  private final ZkWriteMetrics metrics;
+  private final ZkWriteCoalescer<String, Mutation> coalescer;
+
   /** Listener of a core for shard's term change events */
   interface CoreTermWatcher {
     /**
@@ -98,6 +118,13 @@ public class ZkShardTerms implements AutoCloseable {
   }
 
   public ZkShardTerms(String collection, String shard, SolrZkClient zkClient) {
+    this(collection, shard, zkClient, new ZkWriteMetrics());
+  }
+
+  ZkShardTerms(String collection, String shard, SolrZkClient zkClient, ZkWriteMetrics metrics) {
+    this.metrics = metrics;
+    this.coalescer =
+        new ZkWriteCoalescer<>(coalesceMs, metrics, (path, mutations) -> writeMutations(mutations));
     this.znodePath = ZkStateReader.COLLECTIONS_ZKNODE + "/" + collection + "/terms/" + shard;
     this.collection = collection;
     this.shard = shard;
@@ -261,12 +288,12 @@ public class ZkShardTerms implements AutoCloseable {
 
   /**
    * Attempt to apply an action and save the results, retrying as necessary. If action returns null,
-   * then we are done and will not make additional retires.
+   * then we are done and will not make additional retires. The action is saved along with the
+   * other actions waiting to be saved by this instance.
    *
    * @param action The mutation to apply to current shard terms before saving
    */
   private void mutate(Function<ShardTerms, ShardTerms> action) {
-    ShardTerms newTerms;
     String caller =
         StackWalker.getInstance()
             .walk(
@@ -275,8 +302,54 @@ public class ZkShardTerms implements AutoCloseable {
                         .findFirst()
                         .map(StackWalker.StackFrame::getMethodName)
                         .orElse("(unknown)"));
-    while ((newTerms = action.apply(terms.get())) != null) {
-      if (forceSaveTerms(newTerms, caller)) break;
+    metrics.updates.increment();
+    Mutation mutation = new Mutation(action, caller);
+    try {
+      coalescer.write(znodePath, mutation);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SolrException(
+          SolrException.ErrorCode.SERVER_ERROR, "Interrupted while saving shard terms", e);
+    } catch (KeeperException e) {
+      throw new SolrException(
+          SolrException.ErrorCode.SERVER_ERROR, "Error while saving shard terms", e);
+    }
+    if (mutation.failure != null) {
+      throw mutation.failure;
+    }
+  }
+
+  /**
+   * Applies the actions one after the other to the current terms and saves the result, retrying
+   * with the new terms as necessary.
+   */
+  private void writeMutations(List<Mutation> mutations) {
+    for (; ; ) {
+      ShardTerms newTerms = terms.get();
+      boolean changed = false;
+      for (Mutation mutation : mutations) {
+        mutation.failure = null;
+        try {
+          ShardTerms mutated = mutation.action.apply(newTerms);
+          if (mutated != null) {
+            newTerms = mutated;
+            changed = true;
+          }
+        } catch (RuntimeException e) {
+          // only fails the caller of this action
+          mutation.failure = e;
+        }
+      }
+      if (!changed) break;
+      String callers =
+          mutations.size() == 1
+              ? mutations.get(0).caller
+              : mutations.stream().map(m -> m.caller).collect(Collectors.joining(","));
+      if (forceSaveTerms(newTerms, callers)) {
+        metrics.writes.increment();
+        break;
+      }
+      metrics.casConflicts.increment();
     }
   }
 
@@ -468,4 +541,17 @@ public class ZkShardTerms implements AutoCloseable {
       listeners.removeIf(coreTermWatcher -> !coreTermWatcher.onTermChanged(newTerms));
     }
   }
+
+  /** A change of the terms requested by a caller. */
+  private static class Mutation {
+    final Function<ShardTerms, ShardTerms> action;
+    final String caller;
+    // the failure of the action the last time it was applied
+    RuntimeException failure;
+
+    Mutation(Function<ShardTerms, ShardTerms> action, String caller) {
+      this.action = action;
+      this.caller = caller;
+    }
+  }
 }
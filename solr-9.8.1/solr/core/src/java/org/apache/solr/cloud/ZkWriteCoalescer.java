@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.cloud;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.apache.solr.common.SolrException;
+import org.apache.zookeeper.KeeperException;
+
+/**
+ * Writes the updates of a ZooKeeper node made concurrently on this node together, so that they do
+ * a single read-modify-write of the node instead of competing for it.
+ *
+ * <p>The updates of a node that come in while an update of the node is being written are written
+ * together once it is done, by the caller of one of them. The callers of the others wait for them
+ * to be written. When no update of the node is being written, an update waits {@code coalesceMs}
+ * for others before it is written.
+ *
+ * <p>When the writer is interrupted before it writes the updates, only its own update fails, the
+ * other callers write theirs again without waiting for others.
+ *
+ * @param <K> the key of the node the updates are written to
+ * @param <U> an update
+ */
+public class ZkWriteCoalescer<K, U> {
+
+  /** Writes updates of a node together. */
+  public interface Writer<K, U> {
+    void write(K key, List<U> updates) throws KeeperException, InterruptedException;
+  }
+
+  private final long coalesceMs;
+  private final ZkWriteMetrics metrics;
+  private final Writer<K, U> writer;
+
+  // The updates of each node waiting to be written, the last ones started, which the next ones
+  // wait for, and the threads writing them. All guarded by pending.
+  private final Map<K, Batch<U>> pending = new HashMap<>();
+  private final Map<K, Batch<U>> writing = new HashMap<>();
+  private final Map<K, Thread> writerThreads = new HashMap<>();
+
+  public ZkWriteCoalescer(long coalesceMs, ZkWriteMetrics metrics, Writer<K, U> writer) {
+    this.coalesceMs = coalesceMs;
+    this.metrics = metrics;
+    this.writer = writer;
+  }
+
+  /**
+   * Writes an update of a node along with the other updates of the node waiting to be written, and
+   * returns once it is written.
+   *
+   * @throws KeeperException if the updates could not be written
+   * @throws InterruptedException if the caller was interrupted before its update was written
+   */
+  public void write(K key, U update) throws KeeperException, InterruptedException {
+    boolean coalesce = true;
+    for (; ; ) {
+      Batch<U> batch;
+      boolean isWriter;
+      synchronized (pending) {
+        if (writerThreads.get(key) == Thread.currentThread()) {
+          batch = null;
+          isWriter = false;
+        } else {
+          batch = pending.get(key);
+          isWriter = batch == null;
+          if (isWriter) {
+            batch = new Batch<>(writing.get(key));
+            pending.put(key, batch);
+            writing.put(key, batch);
+          }
+          batch.updates.add(update);
+        }
+      }
+      if (batch == null) {
+        // called back while writing, e.g. by a listener, the write can't wait for itself
+        writer.write(key, List.of(update));
+        return;
+      }
+      if (isWriter) {
+        writeBatch(key, batch, coalesce);
+        return;
+      }
+      metrics.coalescedUpdates.increment();
+      if (batch.await()) {
+        return;
+      }
+      // the update tried again already waited for others to be written along with it
+      coalesce = false;
+    }
+  }
+
+  /** Writes the updates of a node once the ones written before are done. */
+  private void writeBatch(K key, Batch<U> batch, boolean coalesce)
+      throws KeeperException, InterruptedException {
+    Batch<U> previous = batch.previous;
+    try {
+      if (previous != null) {
+        // the updates coming in meanwhile are written together afterwards
+        previous.awaitQuietly();
+        // the earlier updates are not kept reachable by the later ones
+        batch.previous = null;
+      } else if (coalesce && coalesceMs > 0) {
+        Thread.sleep(coalesceMs);
+      }
+    } catch (InterruptedException e) {
+      synchronized (pending) {
+        pending.remove(key, batch);
+        // the next updates still wait for the earlier ones
+        if (previous != null && !previous.done.isDone()) {
+          writing.replace(key, batch, previous);
+        } else {
+          writing.remove(key, batch);
+        }
+      }
+      // only the writer was interrupted, the other callers write their updates themselves
+      batch.done.complete(false);
+      throw e;
+    }
+
+    synchronized (pending) {
+      pending.remove(key, batch);
+      writerThreads.put(key, Thread.currentThread());
+    }
+    try {
+      writer.write(key, batch.updates);
+      batch.done.complete(true);
+    } catch (Throwable t) {
+      batch.done.completeExceptionally(t);
+      throw t;
+    } finally {
+      synchronized (pending) {
+        writing.remove(key, batch);
+        writerThreads.remove(key, Thread.currentThread());
+      }
+    }
+  }
+
+  /** The updates of a node written together. */
+  private static class Batch<U> {
+    // the updates written before, only read and cleared by the writer of these
+    Batch<U> previous;
+    final List<U> updates = new ArrayList<>();
+    // true once written, false if they are to be written again
+    final CompletableFuture<Boolean> done = new CompletableFuture<>();
+
+    Batch(Batch<U> previous) {
+      this.previous = previous;
+    }
+
+    /** Waits for the updates to be written, returns false if they are to be written again. */
+    boolean await() throws KeeperException, InterruptedException {
+      try {
+        return done.get();
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof KeeperException) {
+          throw (KeeperException) cause;
+        } else if (cause instanceof InterruptedException) {
+          throw (InterruptedException) cause;
+        } else if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, cause);
+      }
+    }
+
+    void awaitQuietly() throws InterruptedException {
+      try {
+        done.get();
+      } catch (ExecutionException e) {
+        // the failure is reported to the updates written then
+      }
+    }
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.cloud;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.solr.common.MapWriter;
+import org.apache.solr.common.annotation.JsonProperty;
+import org.apache.solr.common.util.ReflectMapWriter;
+
+/**
+ * The counters of the updates of a kind of ZooKeeper node written with compare and set, and
+ * coalesced by a {@link ZkWriteCoalescer}.
+ */
+// the fields are public for ReflectMapWriter, the counters are only meant to be incremented
+public class ZkWriteMetrics implements ReflectMapWriter {
+  /** The updates requested. */
+  @JsonProperty public final LongAdder updates = new LongAdder();
+
+  /** The updates written along with another one. */
+  @JsonProperty public final LongAdder coalescedUpdates = new LongAdder();
+
+  /** The successful writes of a node. */
+  @JsonProperty public final LongAdder writes = new LongAdder();
+
+  /** The writes retried because the node was changed concurrently. */
+  @JsonProperty public final LongAdder casConflicts = new LongAdder();
+
+  /** The updates given up after too many conflicts. */
+  @JsonProperty public final LongAdder casFailures = new LongAdder();
+
+  /** A view of the counters which can't be used to modify them. */
+  // a method reference rather than this object itself, which is a MapWriter too
+  @SuppressWarnings("UnnecessaryMethodReference")
+  public MapWriter asMapWriter() {
+    return this::writeMap;
+  }
+
+  @Override
+  public void writeMap(EntryWriter ew) throws IOException {
+    ReflectMapWriter.super.writeMap(
+        new EntryWriter() {
+          @Override
+          public EntryWriter put(CharSequence k, Object v) throws IOException {
+            if (v instanceof LongAdder) {
+              ew.put(k, ((LongAdder) v).longValue());
+            } else {
+              ew.put(k, v);
+            }
+            return this;
+          }
+        });
+  }
+}
@@ -32,6 +32,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -41,6 +42,7 @@ import org.apache.solr.cloud.ConfigSetCmds;
 import org.apache.solr.cloud.DistributedApiAsyncTracker;
 import org.apache.solr.cloud.DistributedMultiLock;
 import org.apache.solr.cloud.OverseerSolrResponse;
+import org.apache.solr.cloud.OverseerTaskProcessor;
 import org.apache.solr.cloud.ZkDistributedCollectionLockFactory;
 import org.apache.solr.cloud.ZkDistributedConfigSetLockFactory;
 import org.apache.solr.common.SolrException;
@@ -48,6 +50,7 @@ import org.apache.solr.common.cloud.ZkNodeProps;
 import org.apache.solr.common.params.CollectionParams;
 import org.apache.solr.common.params.ConfigSetParams;
 import org.apache.solr.common.params.CoreAdminParams;
+import org.apache.solr.common.util.EnvUtils;
 import org.apache.solr.common.util.ExecutorUtil;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.Pair;
@@ -74,7 +77,7 @@ public class DistributedCollectionConfigSetCommandRunner {
   private static final String ZK_DISTRIBUTED_API_ROOT = "/distributedapi";
 
   /** Zookeeper node below which the locking hierarchy is anchored */
-  private static final String ZK_COLLECTION_LOCKS = ZK_DISTRIBUTED_API_ROOT + "/collectionlocks";
+  static final String ZK_COLLECTION_LOCKS = ZK_DISTRIBUTED_API_ROOT + "/collectionlocks";
 
   private static final String ZK_CONFIG_SET_LOCKS = ZK_DISTRIBUTED_API_ROOT + "/configsetlocks";
 
@@ -99,6 +102,14 @@ public class DistributedCollectionConfigSetCommandRunner {
    */
   private final ExecutorService commandsExecutor;
 
+  /**
+   * Permits to run {@link TaskPriority#LOW} priority commands, so that long running commands do not
+   * take all the threads of {@link #commandsExecutor}. Null unless {@link
+   * OverseerTaskProcessor#MAX_LOW_PRIORITY_TASKS_PROP} is set: the commands above the limit are
+   * rejected rather than queued, which clients not retrying them would not expect by default.
+   */
+  private final Semaphore lowPriorityCommands;
+
   private final CoreContainer coreContainer;
   private final CollApiCmds.CommandMap commandMapper;
   private final CollectionCommandContext ccc;
@@ -131,10 +142,16 @@ public class DistributedCollectionConfigSetCommandRunner {
             new SynchronousQueue<>(),
             new SolrNamedThreadFactory("DistributedCollectionApiExecutorService"));
 
+    int maxCommands =
+        EnvUtils.getPropertyAsLong(OverseerTaskProcessor.MAX_PARALLEL_TASKS_PROP, 20L).intValue();
+    Integer maxLowPriorityCommands =
+        EnvUtils.getPropertyAsInteger(OverseerTaskProcessor.MAX_LOW_PRIORITY_TASKS_PROP);
+    lowPriorityCommands =
+        maxLowPriorityCommands == null ? null : new Semaphore(maxLowPriorityCommands);
     commandsExecutor =
         new ExecutorUtil.MDCAwareThreadPoolExecutor(
-            5,
-            20,
+            Math.min(5, maxCommands),
+            maxCommands,
             0L,
             TimeUnit.MILLISECONDS,
             new SynchronousQueue<>(),
@@ -282,13 +299,26 @@ public class DistributedCollectionConfigSetCommandRunner {
           "Task with the same requestid already exists. (" + asyncId + ")");
     }
 
-    CollectionCommandRunner commandRunner = new CollectionCommandRunner(message, action, asyncId);
+    final boolean lowPriority =
+        lowPriorityCommands != null && TaskPriority.of(action) == TaskPriority.LOW;
+    if (lowPriority && !lowPriorityCommands.tryAcquire()) {
+      asyncTaskTracker.cancelAsyncId(asyncId);
+      throw new SolrException(
+          SolrException.ErrorCode.SERVICE_UNAVAILABLE,
+          "Too many executing low priority commands, " + action + " can be retried later");
+    }
+
+    CollectionCommandRunner commandRunner =
+        new CollectionCommandRunner(message, action, asyncId, lowPriority);
     final Future<OverseerSolrResponse> taskFuture;
     try {
       taskFuture = commandsExecutor.submit(commandRunner);
     } catch (RejectedExecutionException ree) {
       // The command will not run, need to cancel the async ID so it can be reused on a subsequent
       // attempt by the client
+      if (lowPriority) {
+        lowPriorityCommands.release();
+      }
       asyncTaskTracker.cancelAsyncId(asyncId);
       throw new SolrException(
           SolrException.ErrorCode.SERVICE_UNAVAILABLE, "Too many executing commands", ree);
@@ -366,12 +396,17 @@ public class DistributedCollectionConfigSetCommandRunner {
     private final ZkNodeProps message;
     private final CollectionParams.CollectionAction action;
     private final String asyncId;
+    private final boolean lowPriority;
 
     private CollectionCommandRunner(
-        ZkNodeProps message, CollectionParams.CollectionAction action, String asyncId) {
+        ZkNodeProps message,
+        CollectionParams.CollectionAction action,
+        String asyncId,
+        boolean lowPriority) {
       this.message = message;
       this.action = action;
       this.asyncId = asyncId;
+      this.lowPriority = lowPriority;
     }
 
     /**
@@ -455,6 +490,10 @@ public class DistributedCollectionConfigSetCommandRunner {
         }
         logFailedOperation(action, e, collName);
         addExceptionToNamedList(action, e, results);
+      } finally {
+        if (lowPriority) {
+          lowPriorityCommands.release();
+        }
       }
 
       OverseerSolrResponse res = new OverseerSolrResponse(results);
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.cloud.api.collections;
+
+import java.lang.invoke.MethodHandles;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import org.apache.solr.common.params.CollectionParams.CollectionAction;
+import org.apache.solr.common.util.EnvUtils;
+import org.apache.solr.common.util.StrUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The priority of a Collection API command, deciding which of the commands waiting to run starts
+ * first. Commands that only change the cluster state are quick and run first, commands that copy
+ * index data around can run for hours and run last, and the number of them running at once can be
+ * limited so that they do not take all the threads.
+ *
+ * <p>The priority of a command can be changed with the {@value #PRIORITIES_PROP} system property,
+ * for instance {@code backup:normal,restore:normal}.
+ */
+public enum TaskPriority {
+  HIGH,
+  NORMAL,
+  LOW;
+
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /** Comma separated list of command:priority overriding the default priority of commands. */
+  public static final String PRIORITIES_PROP = "solr.collectionApi.taskPriorities";
+
+  private static final Map<CollectionAction, TaskPriority> PRIORITIES = loadPriorities();
+
+  /** The priority of an action, {@link #NORMAL} for the ones that are not Collection API ones. */
+  public static TaskPriority of(CollectionAction action) {
+    return action == null ? NORMAL : PRIORITIES.getOrDefault(action, NORMAL);
+  }
+
+  /** The priority of the operation of a message in the Overseer work queue. */
+  public static TaskPriority ofOperation(String operation) {
+    return of(CollectionAction.get(operation));
+  }
+
+  private static Map<CollectionAction, TaskPriority> loadPriorities() {
+    Map<CollectionAction, TaskPriority> priorities = new EnumMap<>(CollectionAction.class);
+    for (CollectionAction action :
+        new CollectionAction[] {
+          CollectionAction.ADDREPLICA,
+          CollectionAction.DELETEREPLICA,
+          CollectionAction.ADDREPLICAPROP,
+          CollectionAction.DELETEREPLICAPROP,
+          CollectionAction.CREATEALIAS,
+          CollectionAction.DELETEALIAS,
+          CollectionAction.ALIASPROP,
+          CollectionAction.COLLECTIONPROP,
+          CollectionAction.CLUSTERPROP,
+          CollectionAction.ADDROLE,
+          CollectionAction.REMOVEROLE,
+          CollectionAction.FORCELEADER,
+          CollectionAction.MODIFYCOLLECTION,
+          CollectionAction.OVERSEERSTATUS
+        }) {
+      priorities.put(action, HIGH);
+    }
+    for (CollectionAction action :
+        new CollectionAction[] {
+          CollectionAction.SPLITSHARD,
+          CollectionAction.MIGRATE,
+          CollectionAction.MOVEREPLICA,
+          CollectionAction.BACKUP,
+          CollectionAction.RESTORE,
+          CollectionAction.INSTALLSHARDDATA,
+          CollectionAction.REPLACENODE,
+          CollectionAction.MIGRATE_REPLICAS,
+          CollectionAction.BALANCE_REPLICAS,
+          CollectionAction.DELETENODE,
+          CollectionAction.REINDEXCOLLECTION
+        }) {
+      priorities.put(action, LOW);
+    }
+
+    String overrides = EnvUtils.getProperty(PRIORITIES_PROP);
+    if (overrides != null) {
+      for (String override : StrUtils.splitSmart(overrides, ',')) {
+        String[] parts = override.trim().split(":");
+        CollectionAction action = parts.length == 2 ? CollectionAction.get(parts[0].trim()) : null;
+        try {
+          if (action != null) {
+            priorities.put(action, valueOf(parts[1].trim().toUpperCase(Locale.ROOT)));
+            continue;
+          }
+        } catch (IllegalArgumentException e) {
+          // not a priority
+        }
+        log.warn("Ignoring {} entry {}, expected command:priority", PRIORITIES_PROP, override);
+      }
+    }
+    return priorities;
+  }
+}
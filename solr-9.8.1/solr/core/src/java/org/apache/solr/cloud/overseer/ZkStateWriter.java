@@ -22,18 +22,23 @@ import com.codahale.metrics.Timer;
 import java.lang.invoke.MethodHandles;
 import java.time.Instant;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import org.apache.solr.cloud.Overseer;
 import org.apache.solr.cloud.Stats;
 import org.apache.solr.common.cloud.ClusterState;
+import org.apache.solr.common.cloud.CollectionStateDelta;
 import org.apache.solr.common.cloud.DocCollection;
 import org.apache.solr.common.cloud.PerReplicaStatesOps;
+import org.apache.solr.common.cloud.SolrZkClient;
 import org.apache.solr.common.cloud.ZkStateReader;
 import org.apache.solr.common.util.Compressor;
+import org.apache.solr.common.util.EnvUtils;
 import org.apache.solr.common.util.Utils;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
@@ -85,6 +90,15 @@ public class ZkStateWriter {
 
   protected Compressor compressor;
 
+  // Whether to write the delta of each state.json update, see CollectionStateDelta
+  private final boolean writeDeltas =
+      EnvUtils.getPropertyAsBool(CollectionStateDelta.ENABLED_PROP, true);
+
+  // The collections as last written by this instance, to compute the delta of the next write, and
+  // whether their delta node is known to exist
+  private final Map<String, DocCollection> writtenCollections = new HashMap<>();
+  private final Set<String> deltaNodes = new HashSet<>();
+
   public ZkStateWriter(
       ZkStateReader zkStateReader,
       Stats stats,
@@ -286,6 +300,8 @@ public class ZkStateWriter {
             // delete collection cmd
             log.debug("going to delete state.json {}", path);
             reader.getZkClient().clean(path);
+            writtenCollections.remove(name);
+            deltaNodes.remove(name);
           } else {
             byte[] data = Utils.toJSON(singletonMap(c.getName(), c));
             if (minStateByteLenForCompression > -1 && data.length > minStateByteLenForCompression) {
@@ -296,7 +312,7 @@ public class ZkStateWriter {
               if (log.isDebugEnabled()) {
                 log.debug("going to update_collection {} version: {}", path, c.getZNodeVersion());
               }
-              Stat stat = reader.getZkClient().setData(path, data, c.getZNodeVersion(), true);
+              Stat stat = writeState(name, path, data, c);
               DocCollection newCollection =
                   DocCollection.create(
                       name,
@@ -307,10 +323,15 @@ public class ZkStateWriter {
                       Instant.ofEpochMilli(stat.getCtime()),
                       PerReplicaStatesOps.getZkClientPrsSupplier(reader.getZkClient(), path));
               clusterState = clusterState.copyWith(name, newCollection);
+              writtenCollections.put(name, newCollection);
             } else {
               log.debug("going to create_collection {}", path);
               Stat stat = new Stat();
               reader.getZkClient().create(path, data, CreateMode.PERSISTENT, true, stat);
+              if (writeDeltas) {
+                CollectionStateDelta.ensureExists(reader.getZkClient(), name);
+                deltaNodes.add(name);
+              }
               DocCollection newCollection =
                   DocCollection.create(
                       name,
@@ -321,6 +342,7 @@ public class ZkStateWriter {
                       Instant.ofEpochMilli(stat.getCtime()),
                       PerReplicaStatesOps.getZkClientPrsSupplier(reader.getZkClient(), path));
               clusterState = clusterState.copyWith(name, newCollection);
+              writtenCollections.put(name, newCollection);
             }
           }
 
@@ -361,6 +383,30 @@ public class ZkStateWriter {
     return clusterState;
   }
 
+  /**
+   * Writes the state.json of a collection, along with the delta from the version this instance
+   * last wrote when it is the one being replaced.
+   */
+  private Stat writeState(String name, String path, byte[] data, DocCollection c)
+      throws KeeperException, InterruptedException {
+    SolrZkClient zkClient = reader.getZkClient();
+    DocCollection previous = writtenCollections.get(name);
+    if (!writeDeltas) {
+      return zkClient.setData(path, data, c.getZNodeVersion(), true);
+    } else if (previous != null
+        && previous.getZNodeVersion() == c.getZNodeVersion()
+        && deltaNodes.contains(name)) {
+      byte[] delta = CollectionStateDelta.diff(previous, c);
+      return CollectionStateDelta.write(zkClient, name, data, c.getZNodeVersion(), delta);
+    } else {
+      // the nodes read the whole state.json, the deltas start with the next write
+      Stat stat = zkClient.setData(path, data, c.getZNodeVersion(), true);
+      CollectionStateDelta.ensureExists(zkClient, name);
+      deltaNodes.add(name);
+      return stat;
+    }
+  }
+
   public void resetPendingUpdateCounters() {
     lastUpdatedTime = System.nanoTime();
     numUpdates = 0;
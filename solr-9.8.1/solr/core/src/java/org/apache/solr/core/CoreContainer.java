@@ -43,6 +43,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -53,6 +54,7 @@ import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -135,6 +137,7 @@ import org.apache.solr.jersey.InjectionFactories;
 import org.apache.solr.jersey.JerseyAppHandlerCache;
 import org.apache.solr.logging.LogWatcher;
 import org.apache.solr.logging.MDCLoggingContext;
+import org.apache.solr.metrics.MetricsMap;
 import org.apache.solr.metrics.SolrCoreMetricManager;
 import org.apache.solr.metrics.SolrMetricManager;
 import org.apache.solr.metrics.SolrMetricProducer;
@@ -190,6 +193,14 @@ public class CoreContainer {
     return indexSearcherExecutor;
   }
 
+  /**
+   * The executor sorting the segments of the exports of the cores of the node, with one thread per
+   * available processor. Each export limits the number of threads it uses.
+   */
+  public ExecutorService getExportSortExecutor() {
+    return exportSortExecutor;
+  }
+
   public static class CoreLoadFailure {
 
     public final CoreDescriptor cd;
@@ -297,6 +308,13 @@ public class CoreContainer {
 
   private final ExecutorService indexSearcherExecutor;
 
+  // the threads sorting the segments of the exports with sortMode=runs, shared by all the cores
+  private final ExecutorService exportSortExecutor =
+      ExecutorUtil.newMDCAwareCachedThreadPool(
+          Runtime.getRuntime().availableProcessors(),
+          Integer.MAX_VALUE,
+          new SolrNamedThreadFactory("exportSort"));
+
   private final ClusterSingletons clusterSingletons =
       new ClusterSingletons(
           () ->
@@ -322,9 +340,17 @@ public class CoreContainer {
   public static final long INITIAL_CORE_LOAD_COMPLETE = 0x4L;
   private volatile long status = 0L;
 
+  // the milliseconds from the start of load() to the end of each of its phases, in order
+  private final Map<String, Long> startupPhases = new LinkedHashMap<>();
+  private volatile long loadStartNanos;
+
   private ExecutorService coreContainerAsyncTaskExecutor =
       ExecutorUtil.newMDCAwareCachedThreadPool("Core Container Async Task");
 
+  // the threads downloading index files in parallel, shared by the index fetches of all the cores
+  private final ExecutorService indexFetchExecutor =
+      ExecutorUtil.newMDCAwareCachedThreadPool(new SolrNamedThreadFactory("indexFetcher"));
+
   /**
    * Non-empty if the Collection API is executed in a distributed way and not on Overseer, once the
    * CoreContainer has been initialized properly, i.e. method {@link #load()} called. Until then it
@@ -789,6 +815,7 @@ public class CoreContainer {
 
   /** Load the cores defined for this CoreContainer */
   private void loadInternal() {
+    loadStartNanos = System.nanoTime();
     if (log.isDebugEnabled()) {
       log.debug("Loading cores into CoreContainer [instanceDir={}]", getSolrHome());
     }
@@ -858,6 +885,7 @@ public class CoreContainer {
     hostName = cfg.getNodeName();
 
     zkSys.initZooKeeper(this, cfg.getCloudConfig());
+    startupPhaseDone("zkInitialized");
     if (isZooKeeperAware()) {
       solrClientCache.setDefaultZKHost(getZkController().getZkServerAddress());
       // initialize ZkClient metrics
@@ -1029,6 +1057,18 @@ public class CoreContainer {
         "implementation",
         SolrInfoBean.Category.CONTAINER.toString(),
         "version");
+    // the startup timeline
+    solrMetricsContext.gauge(
+        new MetricsMap(
+            map -> {
+              synchronized (startupPhases) {
+                startupPhases.forEach(map::putNoEx);
+              }
+            }),
+        true,
+        "phases",
+        SolrInfoBean.Category.CONTAINER.toString(),
+        "startup");
 
     SolrFieldCacheBean fieldCacheBean = new SolrFieldCacheBean();
     fieldCacheBean.initializeMetrics(solrMetricsContext, null);
@@ -1060,6 +1100,7 @@ public class CoreContainer {
       cds = coreSorter.sort(cds);
       checkForDuplicateCoreNames(cds);
       status |= CORE_DISCOVERY_COMPLETE;
+      startupPhaseDone("coresDiscovered");
 
       for (final CoreDescriptor cd : cds) {
         if (cd.isTransient() || !cd.isLoadOnStartup()) {
@@ -1106,9 +1147,13 @@ public class CoreContainer {
     } finally {
       if (asyncSolrCoreLoad) {
         coreContainerWorkExecutor.execute(
-            () -> ExecutorUtil.shutdownAndAwaitTerminationForever(coreLoadExecutor));
+            () -> {
+              ExecutorUtil.shutdownAndAwaitTerminationForever(coreLoadExecutor);
+              startupPhaseDone("coresLoaded");
+            });
       } else {
         ExecutorUtil.shutdownAndAwaitTerminationForever(coreLoadExecutor);
+        startupPhaseDone("coresLoaded");
       }
     }
 
@@ -1205,6 +1250,28 @@ public class CoreContainer {
     // This is a bit redundant but these are two distinct concepts for all they're accomplished at
     // the same time.
     status |= LOAD_COMPLETE | INITIAL_CORE_LOAD_COMPLETE;
+    startupPhaseDone("loadComplete");
+  }
+
+  private void startupPhaseDone(String phase) {
+    long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - loadStartNanos);
+    synchronized (startupPhases) {
+      startupPhases.put(phase, elapsedMs);
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Startup phase {} done after {} ms", phase, elapsedMs);
+    }
+  }
+
+  /**
+   * The milliseconds from the start of {@link #load()} to the end of each of its phases, in order:
+   * zkInitialized, coresDiscovered, coresLoaded and loadComplete. With asynchronous core loading,
+   * the cores may be loaded after the load is complete.
+   */
+  public Map<String, Long> getStartupPhases() {
+    synchronized (startupPhases) {
+      return new LinkedHashMap<>(startupPhases);
+    }
   }
 
   public void securityNodeChanged() {
@@ -1284,6 +1351,7 @@ public class CoreContainer {
 
     ExecutorUtil.shutdownAndAwaitTermination(coreContainerAsyncTaskExecutor);
     ExecutorUtil.shutdownAndAwaitTermination(indexSearcherExecutor);
+    ExecutorUtil.shutdownAndAwaitTermination(exportSortExecutor);
     ExecutorService customThreadPool =
         ExecutorUtil.newMDCAwareCachedThreadPool(new SolrNamedThreadFactory("closeThreadPool"));
 
@@ -1353,6 +1421,8 @@ public class CoreContainer {
       }
 
       customThreadPool.execute(replayUpdatesExecutor::shutdownAndAwaitTermination);
+      // the fetches of the cores are aborted once they are closed
+      customThreadPool.execute(() -> ExecutorUtil.shutdownAndAwaitTermination(indexFetchExecutor));
 
       if (metricManager != null) {
         metricManager.closeReporters(SolrMetricManager.getRegistryName(SolrInfoBean.Group.node));
@@ -2597,6 +2667,14 @@ public class CoreContainer {
     coreContainerAsyncTaskExecutor.execute(r);
   }
 
+  /**
+   * The executor downloading the index files of the replication of the cores of the node, when
+   * they are downloaded several at once. Each fetch limits the number of threads it uses.
+   */
+  public ExecutorService getIndexFetchExecutor() {
+    return indexFetchExecutor;
+  }
+
   public static void setWeakStringInterner() {
     boolean enable = "true".equals(System.getProperty("solr.use.str.intern", "true"));
     if (!enable) return;
@@ -311,6 +311,7 @@ public class SolrConfig implements MapSerializable {
       //    filtOptThreshold = getFloat("query/boolTofilterOptimizer/@threshold",.05f);
 
       useFilterForSortedQuery = get("query").get("useFilterForSortedQuery").boolVal(false);
+      coalesceQueries = get("query").get("coalesceQueries").boolVal(false);
       queryResultWindowSize = Math.max(1, get("query").get("queryResultWindowSize").intVal(1));
       queryResultMaxDocsCached =
           get("query").get("queryResultMaxDocsCached").intVal(Integer.MAX_VALUE);
@@ -688,6 +689,7 @@ public class SolrConfig implements MapSerializable {
   public final Map<String, CacheConfig> userCacheConfigs;
   // SolrIndexSearcher - more...
   public final boolean useFilterForSortedQuery;
+  public final boolean coalesceQueries;
   public final int queryResultWindowSize;
   public final int queryResultMaxDocsCached;
   public final boolean enableLazyFieldLoading;
@@ -1040,6 +1042,7 @@ public class SolrConfig implements MapSerializable {
     Map<String, Object> m = new LinkedHashMap<>();
     result.put("query", m);
     m.put("useFilterForSortedQuery", useFilterForSortedQuery);
+    m.put("coalesceQueries", coalesceQueries);
     m.put("queryResultWindowSize", queryResultWindowSize);
     m.put("queryResultMaxDocsCached", queryResultMaxDocsCached);
     m.put("enableLazyFieldLoading", enableLazyFieldLoading);
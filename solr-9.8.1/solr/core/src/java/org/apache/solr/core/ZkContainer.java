@@ -30,6 +30,7 @@ import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.apache.solr.client.solrj.impl.SolrZkClientTimeout;
+import org.apache.solr.cloud.DistributedClusterStateUpdater;
 import org.apache.solr.cloud.SolrZkServer;
 import org.apache.solr.cloud.ZkController;
 import org.apache.solr.common.AlreadyClosedException;
@@ -159,6 +160,9 @@ public class ZkContainer {
 
         this.zkController = zkController;
         MetricsMap metricsMap = new MetricsMap(zkController.getZkClient().getMetrics());
+        MetricsMap shardTermsMetricsMap = new MetricsMap(zkController.getShardTermsMetrics());
+        DistributedClusterStateUpdater stateUpdater =
+            zkController.getDistributedClusterStateUpdater();
         metricProducer =
             new SolrMetricProducer() {
               SolrMetricsContext ctx;
@@ -168,6 +172,20 @@ public class ZkContainer {
                 ctx = parentContext.getChildContext(this);
                 ctx.gauge(
                     metricsMap, true, scope, null, SolrInfoBean.Category.CONTAINER.toString());
+                ctx.gauge(
+                    shardTermsMetricsMap,
+                    true,
+                    "shardTermsUpdates",
+                    null,
+                    SolrInfoBean.Category.CONTAINER.toString());
+                if (stateUpdater.isDistributedStateUpdate()) {
+                  ctx.gauge(
+                      new MetricsMap(stateUpdater.getMetrics()),
+                      true,
+                      "distributedClusterStateUpdates",
+                      null,
+                      SolrInfoBean.Category.CONTAINER.toString());
+                }
               }
 
               @Override
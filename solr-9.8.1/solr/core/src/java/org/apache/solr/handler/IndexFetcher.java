@@ -37,6 +37,7 @@ import static org.apache.solr.handler.admin.api.ReplicationAPIBase.CONF_FILE_SHO
 import static org.apache.solr.handler.admin.api.ReplicationAPIBase.FILE;
 import static org.apache.solr.handler.admin.api.ReplicationAPIBase.FILE_STREAM;
 import static org.apache.solr.handler.admin.api.ReplicationAPIBase.GENERATION;
+import static org.apache.solr.handler.admin.api.ReplicationAPIBase.LEN;
 import static org.apache.solr.handler.admin.api.ReplicationAPIBase.OFFSET;
 
 import java.io.File;
@@ -71,11 +72,15 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BooleanSupplier;
 import java.util.function.Function;
@@ -105,9 +110,12 @@ import org.apache.solr.cloud.ZkController;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrException.ErrorCode;
 import org.apache.solr.common.cloud.ClusterState;
+import org.apache.solr.common.cloud.DocCollection;
 import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.common.cloud.Slice;
 import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.EnvUtils;
 import org.apache.solr.common.util.ExecutorUtil;
 import org.apache.solr.common.util.FastInputStream;
 import org.apache.solr.common.util.IOUtils;
@@ -116,6 +124,7 @@ import org.apache.solr.common.util.SolrNamedThreadFactory;
 import org.apache.solr.common.util.StrUtils;
 import org.apache.solr.common.util.SuppressForbidden;
 import org.apache.solr.common.util.URLUtil;
+import org.apache.solr.common.util.Utils;
 import org.apache.solr.core.DirectoryFactory;
 import org.apache.solr.core.DirectoryFactory.DirContext;
 import org.apache.solr.core.IndexDeletionPolicyWrapper;
@@ -146,8 +155,30 @@ public class IndexFetcher {
 
   public static final String INDEX_PROPERTIES = "index.properties";
 
+  /** The number of index files a replica downloads at once, 1 by default. */
+  public static final String FETCH_THREADS_PROP = "solr.replication.fetchThreads";
+
+  /**
+   * The size in MB of the ranges in which the files larger than it are downloaded, by several
+   * threads at once, when {@link #FETCH_THREADS_PROP} is more than 1. 256MB by default, and 1GB at
+   * most.
+   */
+  public static final String FETCH_RANGE_SIZE_MB_PROP = "solr.replication.fetchRangeSizeMB";
+
+  /** The bandwidth in MB/s shared by all the index fetches of the node, unlimited by default. */
+  public static final String MAX_FETCH_MB_PER_SEC_PROP = "solr.replication.maxFetchMBPerSec";
+
+  /**
+   * Whether the replicas of SolrCloud download the index files from another replica of their shard
+   * which already has the commit of the leader, rather than from the leader. False by default.
+   */
+  public static final String PEER_FETCH_PROP = "solr.replication.peerFetch";
+
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+  private static final ReplicationRateLimiter fetchRateLimiter =
+      new ReplicationRateLimiter(EnvUtils.getPropertyAsInteger(MAX_FETCH_MB_PER_SEC_PROP, 0));
+
   private String leaderCoreUrl;
   // Derived from 'leaderCoreUrl' but kept around to avoid recomputing
   private String leaderBaseUrl;
@@ -168,9 +199,23 @@ public class IndexFetcher {
 
   private volatile List<Map<String, Object>> confFilesDownloaded;
 
+  // the conf file being downloaded
   private volatile Map<String, Object> currentFile;
 
-  private volatile DirectoryFileFetcher dirFileFetcher;
+  // the fetchers of the index files being downloaded, for the progress of the fetch
+  private final Set<FileFetcher> activeFetchers = ConcurrentHashMap.newKeySet();
+
+  // the download directory of the last fetch, kept when it failed so that the next one resumes
+  private volatile PartialFetch partialFetch;
+
+  private final int fetchThreads;
+
+  private final long fetchRangeSize;
+
+  private final boolean peerFetch;
+
+  // the core the index files are downloaded from, the leader when null
+  private volatile Replica sourcePeer;
 
   private volatile LocalFsFileFetcher localFileFetcher;
 
@@ -306,6 +351,11 @@ public class IndexFetcher {
     useExternalCompression = ReplicationHandler.EXTERNAL.equals(compress);
     connTimeout = getParameter(initArgs, HttpClientUtil.PROP_CONNECTION_TIMEOUT, 30000, null);
     soTimeout = getParameter(initArgs, HttpClientUtil.PROP_SO_TIMEOUT, 120000, null);
+    fetchThreads = Math.max(1, EnvUtils.getPropertyAsInteger(FETCH_THREADS_PROP, 1));
+    int rangeSizeMB = EnvUtils.getPropertyAsInteger(FETCH_RANGE_SIZE_MB_PROP, 256);
+    // a multiple of the packet size, so that the ranges start at the packets sent by the leader
+    fetchRangeSize = (long) Math.min(Math.max(rangeSizeMB, 1), 1024) * ReplicationAPIBase.PACKET_SZ;
+    peerFetch = this.fetchFromLeader && EnvUtils.getPropertyAsBool(PEER_FETCH_PROP, false);
 
     String httpBasicAuthUser = (String) initArgs.get(HttpClientUtil.PROP_BASIC_AUTH_USER);
     String httpBasicAuthPassword = (String) initArgs.get(HttpClientUtil.PROP_BASIC_AUTH_PASS);
@@ -375,21 +425,26 @@ public class IndexFetcher {
     }
   }
 
-  /**
-   * Fetches the list of files in a given index commit point and updates internal list of files to
-   * download.
-   */
-  @SuppressWarnings({"unchecked"})
-  private void fetchFileList(long gen) throws IOException {
+  /** Gets the list of files in a given index commit point of a core. */
+  private NamedList<?> getFileList(String baseUrl, String coreName, long gen)
+      throws SolrServerException, IOException {
     ModifiableSolrParams params = new ModifiableSolrParams();
     params.set(COMMAND, CMD_GET_FILE_LIST);
     params.set(GENERATION, String.valueOf(gen));
     params.set(CommonParams.WT, JAVABIN);
     params.set(CommonParams.QT, ReplicationHandler.PATH);
     QueryRequest req = new QueryRequest(params);
+    return solrClient.requestWithBaseUrl(baseUrl, coreName, req).getResponse();
+  }
+
+  /**
+   * Fetches the list of files in a given index commit point and updates internal list of files to
+   * download.
+   */
+  @SuppressWarnings({"unchecked"})
+  private void fetchFileList(long gen) throws IOException {
     try {
-      NamedList<?> response =
-          solrClient.requestWithBaseUrl(leaderBaseUrl, leaderCoreName, req).getResponse();
+      NamedList<?> response = getFileList(leaderBaseUrl, leaderCoreName, gen);
 
       List<Map<String, Object>> files = (List<Map<String, Object>>) response.get(CMD_GET_FILE_LIST);
       if (files != null) filesToDownload = Collections.synchronizedList(files);
@@ -432,6 +487,7 @@ public class IndexFetcher {
     String indexDirPath;
     boolean deleteTmpIdxDir = true;
     File tmpTlogDir = null;
+    PartialFetch download = null;
 
     if (!solrCore.getSolrCoreState().getLastReplicateIndexSuccess()) {
       // if the last replication was not a success, we force a full replication
@@ -597,8 +653,13 @@ public class IndexFetcher {
               || forceReplication;
 
       String timestamp = new SimpleDateFormat(SnapShooter.DATE_FMT, Locale.ROOT).format(new Date());
-      String tmpIdxDirName = "index." + timestamp;
+      String tmpIdxDirName = resumePartialFetch(latestGeneration);
+      if (tmpIdxDirName == null) {
+        tmpIdxDirName = "index." + timestamp;
+      }
       tmpIndexDirPath = solrCore.getDataDir() + tmpIdxDirName;
+      download =
+          new PartialFetch(tmpIdxDirName, tmpIndexDirPath, latestGeneration, leaderCoreUrl);
 
       tmpIndexDir =
           solrCore
@@ -676,7 +737,7 @@ public class IndexFetcher {
           successfulInstall = false;
 
           long bytesDownloaded =
-              downloadIndexFiles(
+              downloadIndexFilesFromPeerOrLeader(
                   isFullCopyNeeded,
                   indexDir,
                   tmpIndexDir,
@@ -768,6 +829,7 @@ public class IndexFetcher {
         }
 
         if (!isFullCopyNeeded && !forceReplication && !successfulInstall) {
+          deleteTmpIdxDir = deleteTmpIdxDir && !keepPartialFetch(download, tmpIndexDir);
           cleanup(solrCore, tmpIndexDir, indexDir, deleteTmpIdxDir, tmpTlogDir, successfulInstall);
           cleanupDone = true;
           // we try with a full copy of the index
@@ -794,11 +856,61 @@ public class IndexFetcher {
       }
     } finally {
       if (!cleanupDone) {
+        if (!successfulInstall && deleteTmpIdxDir) {
+          deleteTmpIdxDir = !keepPartialFetch(download, tmpIndexDir);
+        }
         cleanup(solrCore, tmpIndexDir, indexDir, deleteTmpIdxDir, tmpTlogDir, successfulInstall);
       }
     }
   }
 
+  /**
+   * Keeps the download directory of a failed fetch, so that the next fetch of the same commit only
+   * downloads the files that are not in it yet.
+   *
+   * @return whether the directory is kept, false if there is none
+   */
+  private boolean keepPartialFetch(PartialFetch download, Directory tmpIndexDir) {
+    if (download == null || tmpIndexDir == null) {
+      return false;
+    }
+    log.info(
+        "Keeping {} to resume the fetch of generation {}", download.dirPath, download.generation);
+    partialFetch = download;
+    return true;
+  }
+
+  /**
+   * Returns the name of the download directory of the last fetch, if it failed and was fetching the
+   * same commit from the same leader, and deletes it otherwise.
+   */
+  private String resumePartialFetch(long generation) {
+    PartialFetch partial = partialFetch;
+    partialFetch = null;
+    if (partial == null) {
+      return null;
+    }
+    if (partial.generation == generation && partial.leaderCoreUrl.equals(leaderCoreUrl)) {
+      log.info("Resuming the fetch of generation {} in {}", generation, partial.dirPath);
+      return partial.dirName;
+    }
+    DirectoryFactory directoryFactory = solrCore.getDirectoryFactory();
+    try {
+      Directory dir =
+          directoryFactory.get(
+              partial.dirPath, DirContext.DEFAULT, solrCore.getSolrConfig().indexConfig.lockType);
+      try {
+        directoryFactory.doneWithDirectory(dir);
+        directoryFactory.remove(dir);
+      } finally {
+        directoryFactory.release(dir);
+      }
+    } catch (Exception e) {
+      log.warn("Could not delete {} of an earlier fetch", partial.dirPath, e);
+    }
+    return null;
+  }
+
   private Replica getLeaderReplica() throws InterruptedException {
     ZkController zkController = solrCore.getCoreContainer().getZkController();
     CloudDescriptor cd = solrCore.getCoreDescriptor().getCloudDescriptor();
@@ -833,7 +945,7 @@ public class IndexFetcher {
 
       filesToDownload = filesDownloaded = confFilesDownloaded = confFilesToDownload = null;
       markReplicationStop();
-      dirFileFetcher = null;
+      activeFetchers.clear();
       localFileFetcher = null;
       if (fsyncService != null && !ExecutorUtil.isShutdown(fsyncService)) fsyncService.shutdown();
       fsyncService = null;
@@ -992,12 +1104,9 @@ public class IndexFetcher {
       bytesDownloaded += (Long) file.get(SIZE);
     }
 
-    // get size from current file being downloaded
-    Map<String, Object> currentFile = getCurrentFile();
-    if (currentFile != null) {
-      if (currentFile.containsKey("bytesDownloaded")) {
-        bytesDownloaded += (Long) currentFile.get("bytesDownloaded");
-      }
+    // get size from the files being downloaded
+    for (FileFetcher fetcher : activeFetchers) {
+      bytesDownloaded += fetcher.getBytesDownloaded();
     }
     return bytesDownloaded;
   }
@@ -1105,6 +1214,124 @@ public class IndexFetcher {
     }
   }
 
+  /**
+   * Downloads the index files from another replica of the shard which has the commit of the leader,
+   * if {@link #PEER_FETCH_PROP} is set and there is one, and from the leader otherwise, or when the
+   * download from the replica fails.
+   *
+   * @return number of bytes downloaded
+   */
+  private long downloadIndexFilesFromPeerOrLeader(
+      boolean downloadCompleteIndex,
+      Directory indexDir,
+      Directory tmpIndexDir,
+      String indexDirPath,
+      String tmpIndexDirPath,
+      long latestGeneration)
+      throws Exception {
+    Replica peer = peerFetch ? findPeer(latestGeneration) : null;
+    if (peer != null) {
+      log.info(
+          "Downloading index files of generation {} from {}",
+          latestGeneration,
+          peer.getCoreUrl());
+      sourcePeer = peer;
+      try {
+        return downloadIndexFiles(
+            downloadCompleteIndex,
+            indexDir,
+            tmpIndexDir,
+            indexDirPath,
+            tmpIndexDirPath,
+            latestGeneration);
+      } catch (ReplicationHandlerException e) {
+        throw e;
+      } catch (Exception e) {
+        log.warn(
+            "Could not download index files from {}, downloading them from the leader",
+            peer.getCoreUrl(),
+            e);
+        // the files downloaded so far are checked and kept
+        stop = false;
+        filesDownloaded = Collections.synchronizedList(new ArrayList<>());
+      } finally {
+        sourcePeer = null;
+      }
+    }
+    return downloadIndexFiles(
+        downloadCompleteIndex,
+        indexDir,
+        tmpIndexDir,
+        indexDirPath,
+        tmpIndexDirPath,
+        latestGeneration);
+  }
+
+  /**
+   * Returns an active replica of the shard, other than the leader, which has the commit of the
+   * leader being fetched with the same files, picked at random so that the replicas which have the
+   * commit share the load of the ones which do not, or null if there is none.
+   */
+  private Replica findPeer(long generation) {
+    ZkController zkController = solrCore.getCoreContainer().getZkController();
+    CloudDescriptor cd = solrCore.getCoreDescriptor().getCloudDescriptor();
+    ClusterState clusterState = zkController.getClusterState();
+    DocCollection collection = clusterState.getCollectionOrNull(cd.getCollectionName());
+    Slice slice = collection == null ? null : collection.getSlice(cd.getShardId());
+    if (slice == null) {
+      return null;
+    }
+    List<Replica> peers = new ArrayList<>();
+    for (Replica replica : slice.getReplicas()) {
+      if (!replica.getName().equals(cd.getCoreNodeName())
+          && !replica.getCoreUrl().equals(leaderCoreUrl)
+          && replica.getState() == Replica.State.ACTIVE
+          && clusterState.liveNodesContain(replica.getNodeName())) {
+        peers.add(replica);
+      }
+    }
+    Collections.shuffle(peers, Utils.RANDOM);
+    for (Replica peer : peers) {
+      try {
+        if (hasSameFiles(peer, generation)) {
+          return peer;
+        }
+      } catch (Exception e) {
+        log.debug(
+            "Could not get the files of generation {} from {}", generation, peer.getCoreUrl(), e);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns whether a replica has a commit of the given generation with the files of the leader,
+   * the same names, sizes and checksums.
+   */
+  @SuppressWarnings({"unchecked"})
+  private boolean hasSameFiles(Replica peer, long generation)
+      throws SolrServerException, IOException {
+    NamedList<?> response = getFileList(peer.getBaseUrl(), peer.getCoreName(), generation);
+    List<Map<String, Object>> files = (List<Map<String, Object>>) response.get(CMD_GET_FILE_LIST);
+    if (files == null) {
+      return false;
+    }
+    Map<String, Map<String, Object>> peerFiles = new HashMap<>();
+    for (Map<String, Object> file : files) {
+      peerFiles.put((String) file.get(NAME), file);
+    }
+    for (Map<String, Object> file : filesToDownload) {
+      Map<String, Object> peerFile = peerFiles.get((String) file.get(NAME));
+      if (peerFile == null
+          || file.get(CHECKSUM) == null
+          || !file.get(SIZE).equals(peerFile.get(SIZE))
+          || !file.get(CHECKSUM).equals(peerFile.get(CHECKSUM))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Download the index files. If a new index is needed, download all the files.
    *
@@ -1153,6 +1380,9 @@ public class IndexFetcher {
       deleteFilesInAdvance(indexDir, indexDirPath, totalSpaceRequired, usableSpace);
     }
 
+    // the files left by an earlier attempt to fetch the same commit
+    Set<String> downloaded = new HashSet<>(Arrays.asList(tmpIndexDir.listAll()));
+    List<Map<String, Object>> filesToFetch = new ArrayList<>();
     for (Map<String, Object> file : filesToDownload) {
       String filename = (String) file.get(NAME);
       long size = (Long) file.get(SIZE);
@@ -1169,7 +1399,11 @@ public class IndexFetcher {
       }
       if (!compareResult.equal || downloadCompleteIndex || alwaysDownload) {
         File localFile = new File(indexDirPath, filename);
-        if (downloadCompleteIndex
+        if (downloaded.contains(filename) && isDownloaded(tmpIndexDir, file)) {
+          log.info("Don't need to download {}, it was downloaded by an earlier attempt", filename);
+          bytesSkippedCopying += size;
+          filesDownloaded.add(new HashMap<>(file));
+        } else if (downloadCompleteIndex
             && doDifferentialCopy
             && compareResult.equal
             && compareResult.checkSummed
@@ -1184,21 +1418,29 @@ public class IndexFetcher {
           // efficient as compared to a file copy. TODO: Maybe we could do a move safely here?
           Files.createLink(Path.of(tmpIndexDirPath, filename), localFile.toPath());
           bytesSkippedCopying += localFile.length();
+          filesDownloaded.add(new HashMap<>(file));
         } else {
-          dirFileFetcher =
-              new DirectoryFileFetcher(
-                  tmpIndexDir, file, (String) file.get(NAME), FILE, latestGeneration);
-          currentFile = file;
-          dirFileFetcher.fetchFile();
-          bytesDownloaded += dirFileFetcher.getBytesDownloaded();
+          filesToFetch.add(file);
         }
-        filesDownloaded.add(new HashMap<>(file));
       } else {
         if (log.isDebugEnabled()) {
           log.debug("Skipping download for {} because it already exists", file.get(NAME));
         }
       }
     }
+    if (fetchThreads == 1) {
+      for (Map<String, Object> file : filesToFetch) {
+        DirectoryFileFetcher fetcher =
+            new DirectoryFileFetcher(
+                tmpIndexDir, file, (String) file.get(NAME), FILE, latestGeneration);
+        fetchIndexFile(fetcher);
+        bytesDownloaded += fetcher.getBytesDownloaded();
+        filesDownloaded.add(new HashMap<>(file));
+        activeFetchers.remove(fetcher);
+      }
+    } else {
+      bytesDownloaded += fetchIndexFilesInParallel(tmpIndexDir, filesToFetch, latestGeneration);
+    }
     log.info(
         "Bytes downloaded: {}, Bytes skipped downloading: {}",
         bytesDownloaded,
@@ -1206,6 +1448,207 @@ public class IndexFetcher {
     return bytesDownloaded;
   }
 
+  /**
+   * Downloads index files {@link #fetchThreads} at a time, with the threads of the {@link
+   * org.apache.solr.core.CoreContainer#getIndexFetchExecutor() executor} of the node. The files
+   * larger than {@link #fetchRangeSize} are downloaded in ranges, each to a part file, by several
+   * threads at once, and then put together and checked against the checksum of the leader.
+   *
+   * @return number of bytes downloaded
+   */
+  private long fetchIndexFilesInParallel(
+      Directory tmpIndexDir, List<Map<String, Object>> files, long latestGeneration)
+      throws Exception {
+    // the downloads are taken in order by the threads of this fetch
+    Queue<FutureTask<FileFetcher>> queue = new ConcurrentLinkedQueue<>();
+    List<List<FutureTask<FileFetcher>>> fetches = new ArrayList<>(files.size());
+    for (Map<String, Object> file : files) {
+      String name = (String) file.get(NAME);
+      long size = (Long) file.get(SIZE);
+      List<FutureTask<FileFetcher>> ranges = new ArrayList<>();
+      if (size <= fetchRangeSize) {
+        ranges.add(
+            new FutureTask<>(
+                () ->
+                    fetchIndexFile(
+                        new DirectoryFileFetcher(
+                            tmpIndexDir, file, name, FILE, latestGeneration))));
+      } else {
+        for (long start = 0; start < size; start += fetchRangeSize) {
+          long rangeStart = start;
+          long rangeLength = Math.min(fetchRangeSize, size - start);
+          String partName = getPartName(name, ranges.size());
+          ranges.add(
+              new FutureTask<>(
+                  () -> {
+                    long partLength = fileLength(tmpIndexDir, partName);
+                    if (partLength == rangeLength) {
+                      // checked once the file is put together
+                      log.info(
+                          "Don't need to download {}, it was downloaded by an earlier attempt",
+                          partName);
+                      return null;
+                    } else if (partLength != -1) {
+                      tmpIndexDir.deleteFile(partName);
+                    }
+                    assert TestInjection.injectFailIndexFetchRange(rangeStart);
+                    return fetchIndexFile(
+                        new DirectoryFileFetcher(
+                            tmpIndexDir,
+                            file,
+                            partName,
+                            FILE,
+                            latestGeneration,
+                            rangeStart,
+                            rangeLength));
+                  }));
+        }
+      }
+      queue.addAll(ranges);
+      fetches.add(ranges);
+    }
+
+    ExecutorService executor = solrCore.getCoreContainer().getIndexFetchExecutor();
+    List<Future<?>> workers = new ArrayList<>(fetchThreads);
+    boolean success = false;
+    try {
+      for (int i = 0; i < Math.min(fetchThreads, queue.size()); i++) {
+        workers.add(
+            executor.submit(
+                () -> {
+                  FutureTask<FileFetcher> download;
+                  while ((download = queue.poll()) != null) {
+                    download.run();
+                  }
+                }));
+      }
+
+      long bytesDownloaded = 0;
+      for (int i = 0; i < files.size(); i++) {
+        List<FileFetcher> fetchers = new ArrayList<>();
+        for (Future<FileFetcher> range : fetches.get(i)) {
+          FileFetcher fetcher = getFetcher(range);
+          if (fetcher != null) {
+            bytesDownloaded += fetcher.getBytesDownloaded();
+            fetchers.add(fetcher);
+          }
+        }
+        if (fetches.get(i).size() > 1) {
+          assembleParts(tmpIndexDir, files.get(i), fetches.get(i).size());
+        }
+        filesDownloaded.add(new HashMap<>(files.get(i)));
+        activeFetchers.removeAll(fetchers);
+      }
+      success = true;
+      return bytesDownloaded;
+    } finally {
+      if (!success) {
+        // the other downloads are stopped as if the fetch was aborted, or not started
+        stop = true;
+        queue.clear();
+      }
+      // the threads of the fetch are done with the download directory before it is cleaned up
+      awaitWorkers(workers);
+    }
+  }
+
+  private static void awaitWorkers(List<Future<?>> workers) {
+    for (Future<?> worker : workers) {
+      try {
+        worker.get();
+      } catch (ExecutionException e) {
+        // the failures of the downloads are reported by their own futures
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  private FileFetcher fetchIndexFile(DirectoryFileFetcher fetcher) throws Exception {
+    activeFetchers.add(fetcher);
+    fetcher.fetchFile();
+    return fetcher;
+  }
+
+  private static FileFetcher getFetcher(Future<FileFetcher> future) throws Exception {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private static String getPartName(String fileName, int part) {
+    return fileName + ".part" + part;
+  }
+
+  private static long fileLength(Directory dir, String fileName) throws IOException {
+    try {
+      return dir.fileLength(fileName);
+    } catch (FileNotFoundException | NoSuchFileException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Puts together the parts of a file downloaded in ranges, and checks that the file matches the
+   * checksum of the leader.
+   */
+  private void assembleParts(Directory dir, Map<String, Object> file, int numParts)
+      throws IOException {
+    String name = (String) file.get(NAME);
+    try (IndexOutput out = dir.createOutput(name, DirectoryFactory.IOCONTEXT_NO_CACHE)) {
+      for (int part = 0; part < numParts; part++) {
+        try (IndexInput in = dir.openInput(getPartName(name, part), IOContext.READONCE)) {
+          out.copyBytes(in, in.length());
+        }
+      }
+    }
+    for (int part = 0; part < numParts; part++) {
+      dir.deleteFile(getPartName(name, part));
+    }
+    if (file.get(CHECKSUM) != null && !isDownloaded(dir, file)) {
+      throw new SolrException(
+          ErrorCode.SERVER_ERROR, "Downloaded file " + name + " does not match its checksum");
+    }
+    fsyncService.execute(
+        () -> {
+          try {
+            dir.sync(Collections.singleton(name));
+          } catch (IOException | AlreadyClosedException e) {
+            fsyncException = e;
+          }
+        });
+  }
+
+  /**
+   * Returns whether a file in the download directory is complete, checking its length and its
+   * whole content against the checksum of the leader, and deletes it if not.
+   */
+  private static boolean isDownloaded(Directory dir, Map<String, Object> file) {
+    String name = (String) file.get(NAME);
+    Long checksum = (Long) file.get(CHECKSUM);
+    try {
+      try (IndexInput in = dir.openInput(name, IOContext.READONCE)) {
+        if (checksum != null
+            && in.length() == (Long) file.get(SIZE)
+            && CodecUtil.checksumEntireFile(in) == checksum) {
+          return true;
+        }
+      } catch (IOException e) {
+        log.warn("Downloaded file {} is not valid", name, e);
+      }
+      dir.deleteFile(name);
+    } catch (IOException e) {
+      log.warn("Could not delete downloaded file {}", name, e);
+    }
+    return false;
+  }
+
   // only for testing purposes. do not use this anywhere else
   // -----------START----------------------
   static BooleanSupplier testWait = () -> true;
@@ -1299,6 +1742,21 @@ public class IndexFetcher {
             || size < _100K);
   }
 
+  /** The download directory of a fetch, and the commit it fetches. */
+  private static class PartialFetch {
+    final String dirName;
+    final String dirPath;
+    final long generation;
+    final String leaderCoreUrl;
+
+    PartialFetch(String dirName, String dirPath, long generation, String leaderCoreUrl) {
+      this.dirName = dirName;
+      this.dirPath = dirPath;
+      this.generation = generation;
+      this.leaderCoreUrl = leaderCoreUrl;
+    }
+  }
+
   protected static class CompareResult {
     boolean equal = false;
     boolean checkSummed = false;
@@ -1693,13 +2151,27 @@ public class IndexFetcher {
     return tmp == null ? Collections.emptyList() : new ArrayList<>(tmp);
   }
 
-  // TODO: currently does not reflect conf files
+  /**
+   * Returns one of the index files being downloaded, with the bytes downloaded by all the fetchers
+   * of its ranges, or else the conf file being downloaded.
+   */
   Map<String, Object> getCurrentFile() {
-    Map<String, Object> tmp = currentFile;
-    DirectoryFileFetcher tmpFileFetcher = dirFileFetcher;
-    if (tmp == null) return null;
-    tmp = new HashMap<>(tmp);
-    if (tmpFileFetcher != null) tmp.put("bytesDownloaded", tmpFileFetcher.getBytesDownloaded());
+    Map<String, Object> file = null;
+    long bytesDownloaded = 0;
+    for (FileFetcher fetcher : activeFetchers) {
+      if (file == null) {
+        file = fetcher.fileDetails;
+      }
+      if (fetcher.fileDetails == file) {
+        bytesDownloaded += fetcher.getBytesDownloaded();
+      }
+    }
+    if (file == null) {
+      Map<String, Object> tmp = currentFile;
+      return tmp == null ? null : new HashMap<>(tmp);
+    }
+    Map<String, Object> tmp = new HashMap<>(file);
+    tmp.put("bytesDownloaded", bytesDownloaded);
     return tmp;
   }
 
@@ -1727,14 +2199,22 @@ public class IndexFetcher {
    */
   private class FileFetcher {
     private final FileInterface file;
+    // the details of the file sent by the leader
+    private final Map<String, Object> fileDetails;
     private boolean includeChecksum = true;
     private final String fileName;
     private final String saveAs;
     private final String solrParamOutput;
     private final Long indexGen;
+    // the core the file is downloaded from
+    private final String baseUrl;
+    private final String coreName;
 
+    // the range of the file to download, the whole file unless ranged
+    private final long rangeStart;
     private final long size;
-    private long bytesDownloaded = 0;
+    private final boolean ranged;
+    private volatile long bytesDownloaded = 0;
     private byte[] buf;
     private final Checksum checksum;
     private int errorCount = 0;
@@ -1747,9 +2227,35 @@ public class IndexFetcher {
         String solrParamOutput,
         long latestGen)
         throws IOException {
+      this(
+          file,
+          fileDetails,
+          saveAs,
+          solrParamOutput,
+          latestGen,
+          0,
+          (Long) fileDetails.get(SIZE),
+          false);
+    }
+
+    FileFetcher(
+        FileInterface file,
+        Map<String, Object> fileDetails,
+        String saveAs,
+        String solrParamOutput,
+        long latestGen,
+        long rangeStart,
+        long size,
+        boolean ranged) {
       this.file = file;
+      this.fileDetails = fileDetails;
       this.fileName = (String) fileDetails.get(NAME);
-      this.size = (Long) fileDetails.get(SIZE);
+      this.rangeStart = rangeStart;
+      this.size = size;
+      this.ranged = ranged;
+      Replica peer = sourcePeer;
+      this.baseUrl = peer == null ? leaderBaseUrl : peer.getBaseUrl();
+      this.coreName = peer == null ? leaderCoreName : peer.getCoreName();
       buf = new byte[(int) Math.min(this.size, ReplicationAPIBase.PACKET_SZ)];
       this.solrParamOutput = solrParamOutput;
       this.saveAs = saveAs;
@@ -1796,15 +2302,18 @@ public class IndexFetcher {
         }
       } finally {
         cleanup();
-        // if cleanup succeeds . The file is downloaded fully. do an fsync
-        fsyncService.execute(
-            () -> {
-              try {
-                file.sync();
-              } catch (IOException | AlreadyClosedException e) {
-                fsyncException = e;
-              }
-            });
+        // if cleanup succeeds . The file is downloaded fully. do an fsync, unless it is a part of a
+        // file which is synced once put together
+        if (!ranged) {
+          fsyncService.execute(
+              () -> {
+                try {
+                  file.sync();
+                } catch (IOException | AlreadyClosedException e) {
+                  fsyncException = e;
+                }
+              });
+        }
       }
     }
 
@@ -1813,6 +2322,10 @@ public class IndexFetcher {
       byte[] longbytes = new byte[8];
       try {
         while (true) {
+          if (ranged && bytesDownloaded == size) {
+            // the rest of the stream, if any, is past the range
+            return 0;
+          }
           if (fis.peek() == -1) {
             if (bytesDownloaded == 0) {
               log.warn("No content received for file: {}", fileName);
@@ -1821,7 +2334,7 @@ public class IndexFetcher {
             return 0;
           }
           if (stop) {
-            stop = false;
+            // reset once the fetch is cleaned up, so that all the downloads in progress stop
             aborted = true;
             throw new ReplicationHandlerException("User aborted replication");
           }
@@ -1862,6 +2375,7 @@ public class IndexFetcher {
           // if everything is fine, write down the packet to the file
           file.write(buf, packetSize);
           bytesDownloaded += packetSize;
+          fetchRateLimiter.pause(packetSize);
           log.debug("Fetched and wrote {} bytes of file: {}", bytesDownloaded, fileName);
           // errorCount is always set to zero after a successful packet
           errorCount = 0;
@@ -1970,8 +2484,11 @@ public class IndexFetcher {
       params.set(CommonParams.WT, FILE_STREAM);
       // This happen if there is a failure there is a retry. the offset=<sizedownloaded> ensures
       // that the server starts from the offset
-      if (bytesDownloaded > 0) {
-        params.set(OFFSET, Long.toString(bytesDownloaded));
+      if (rangeStart + bytesDownloaded > 0) {
+        params.set(OFFSET, Long.toString(rangeStart + bytesDownloaded));
+      }
+      if (ranged) {
+        params.set(LEN, Long.toString(size - bytesDownloaded));
       }
 
       NamedList<?> response;
@@ -1981,7 +2498,7 @@ public class IndexFetcher {
         QueryRequest req = new QueryRequest(params);
         req.setResponseParser(new InputStreamResponseParser(FILE_STREAM));
         if (useExternalCompression) req.addHeader("Accept-Encoding", "gzip");
-        response = solrClient.requestWithBaseUrl(leaderBaseUrl, leaderCoreName, req).getResponse();
+        response = solrClient.requestWithBaseUrl(baseUrl, coreName, req).getResponse();
         final var responseStatus = (Integer) response.get("responseStatus");
         is = (InputStream) response.get("stream");
 
@@ -2060,6 +2577,27 @@ public class IndexFetcher {
       super(
           new DirectoryFile(tmpIndexDir, saveAs), fileDetails, saveAs, solrParamOutput, latestGen);
     }
+
+    /** Downloads a range of a file to its own file. */
+    DirectoryFileFetcher(
+        Directory tmpIndexDir,
+        Map<String, Object> fileDetails,
+        String saveAs,
+        String solrParamOutput,
+        long latestGen,
+        long rangeStart,
+        long rangeLength)
+        throws IOException {
+      super(
+          new DirectoryFile(tmpIndexDir, saveAs),
+          fileDetails,
+          saveAs,
+          solrParamOutput,
+          latestGen,
+          rangeStart,
+          rangeLength,
+          true);
+    }
   }
 
   private static class LocalFsFile implements FileInterface {
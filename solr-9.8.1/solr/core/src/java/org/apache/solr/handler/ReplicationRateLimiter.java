@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.lucene.store.RateLimiter;
+import org.apache.lucene.util.ThreadInterruptedException;
+
+/**
+ * A rate limiter shared by all the threads fetching index files on a node, so that the replicas
+ * recovering at the same time share the bandwidth given to replication instead of each of them
+ * using all of it. Every call reserves the time needed to transfer its bytes after the bytes
+ * reserved before it, so the streams are served in turn, and a limit of 0 or less disables it.
+ */
+class ReplicationRateLimiter extends RateLimiter {
+  private static final int MIN_PAUSE_CHECK_MSEC = 5;
+
+  private volatile double mbPerSec;
+  // the time at which the bytes reserved so far are transferred, guarded by this
+  private long nextNanos;
+
+  ReplicationRateLimiter(double mbPerSec) {
+    this.mbPerSec = mbPerSec;
+    this.nextNanos = System.nanoTime();
+  }
+
+  boolean isEnabled() {
+    return mbPerSec > 0;
+  }
+
+  @Override
+  public void setMBPerSec(double mbPerSec) {
+    this.mbPerSec = mbPerSec;
+  }
+
+  @Override
+  public double getMBPerSec() {
+    return mbPerSec;
+  }
+
+  @Override
+  public long getMinPauseCheckBytes() {
+    return (long) ((MIN_PAUSE_CHECK_MSEC / 1000.0) * mbPerSec * 1024 * 1024);
+  }
+
+  @Override
+  public long pause(long bytes) {
+    double rate = mbPerSec;
+    if (rate <= 0) {
+      return 0;
+    }
+    long costNanos = (long) (bytes / (rate * 1024 * 1024) * TimeUnit.SECONDS.toNanos(1));
+    long waitNanos;
+    synchronized (this) {
+      long now = System.nanoTime();
+      long target = nextNanos + costNanos;
+      if (target - now <= 0) {
+        // idle long enough, nothing to wait for
+        nextNanos = now;
+        return 0;
+      }
+      nextNanos = target;
+      waitNanos = target - now;
+    }
+    try {
+      TimeUnit.NANOSECONDS.sleep(waitNanos);
+    } catch (InterruptedException e) {
+      throw new ThreadInterruptedException(e);
+    }
+    return waitNanos;
+  }
+}
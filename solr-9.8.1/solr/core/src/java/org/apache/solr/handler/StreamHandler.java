@@ -29,6 +29,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 import org.apache.solr.client.solrj.io.ModelCache;
 import org.apache.solr.client.solrj.io.SolrClientCache;
 import org.apache.solr.client.solrj.io.Tuple;
@@ -57,6 +58,7 @@ import org.apache.solr.core.CoreContainer;
 import org.apache.solr.core.PluginInfo;
 import org.apache.solr.core.SolrConfig;
 import org.apache.solr.core.SolrCore;
+import org.apache.solr.metrics.SolrMetricsContext;
 import org.apache.solr.pkg.PackagePluginHolder;
 import org.apache.solr.pkg.SolrPackageLoader;
 import org.apache.solr.request.SolrQueryRequest;
@@ -88,12 +90,21 @@ public class StreamHandler extends RequestHandlerBase
   private String coreName;
   private SolrClientCache solrClientCache;
   private Map<String, DaemonStream> daemons = new ConcurrentHashMap<>();
+  // the bytes the streams of this handler spilled to disk because of their maxRamMB
+  private final LongAdder spilledBytes = new LongAdder();
 
   @Override
   public PermissionNameProvider.Name getPermissionName(AuthorizationContext request) {
     return PermissionNameProvider.Name.READ_PERM;
   }
 
+  @Override
+  public void initializeMetrics(SolrMetricsContext parentContext, String scope) {
+    super.initializeMetrics(parentContext, scope);
+    solrMetricsContext.gauge(
+        spilledBytes::sum, true, "spilledBytes", getCategory().toString(), scope);
+  }
+
   @Override
   @SuppressWarnings("unchecked")
   public void inform(SolrCore core) {
@@ -233,6 +244,7 @@ public class StreamHandler extends RequestHandlerBase
     context.put("core", this.coreName);
     context.put("solr-core", req.getCore());
     context.setLocal(local);
+    context.setSpilledBytes(spilledBytes);
     tupleStream.setStreamContext(context);
 
     // if asking for explanation then go get it
@@ -383,6 +383,10 @@ public abstract class ReplicationAPIBase extends JerseyResource {
         if (offset != -1) in.seek(offset);
 
         long filelen = dir.fileLength(fileName);
+        if (len != -1) {
+          // only send the range of the file that was asked for
+          filelen = Math.min(filelen, Math.max(offset, 0) + len);
+        }
         long maxBytesBeforePause = 0;
 
         while (true) {
@@ -47,7 +47,6 @@ import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.common.util.ExecutorUtil;
 import org.apache.solr.common.util.IOUtils;
 import org.apache.solr.common.util.NamedList;
-import org.apache.solr.common.util.SolrNamedThreadFactory;
 import org.apache.solr.common.util.StrUtils;
 import org.apache.solr.common.util.URLUtil;
 import org.apache.solr.core.PluginInfo;
@@ -284,7 +283,7 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
             this.keepAliveTime,
             TimeUnit.SECONDS,
             blockingQueue,
-            new SolrNamedThreadFactory("httpShardExecutor"),
+            ExecutorUtil.newRequestThreadFactory("httpShardExecutor"),
             // the Runnable added to this executor handles all exceptions so we disable stack trace
             // collection as an optimization. see SOLR-11880 for more details
             false);
@@ -27,6 +27,7 @@ import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -34,8 +35,10 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import org.apache.lucene.index.ExitableDirectoryReader;
 import org.apache.lucene.index.IndexReaderContext;
+import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.Term;
@@ -91,6 +94,7 @@ import org.apache.solr.search.QueryResult;
 import org.apache.solr.search.QueryUtils;
 import org.apache.solr.search.RankQuery;
 import org.apache.solr.search.ReturnFields;
+import org.apache.solr.search.SolrCache;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.search.SolrReturnFields;
 import org.apache.solr.search.SortSpec;
@@ -129,6 +133,13 @@ import org.slf4j.LoggerFactory;
  */
 public class QueryComponent extends SearchComponent {
   public static final String COMPONENT_NAME = "query";
+
+  /**
+   * Name of the optional user cache (configured with {@code <cache name="shardIdCache" .../>}) that
+   * maps unique key values to Lucene docids for distributed {@link ShardParams#IDS} requests.
+   */
+  public static final String SHARD_ID_CACHE_NAME = "shardIdCache";
+
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
   @Override
@@ -778,7 +789,7 @@ public class QueryComponent extends SearchComponent {
     ReturnFields fields = rb.rsp.getReturnFields();
 
     // distrib.singlePass=true forces a one-pass query regardless of requested fields
-    boolean distribSinglePass = rb.req.getParams().getBool(ShardParams.DISTRIB_SINGLE_PASS, false);
+    boolean distribSinglePass = isDistribSinglePass(rb);
 
     if (distribSinglePass
         || (fields != null
@@ -862,6 +873,27 @@ public class QueryComponent extends SearchComponent {
     rb.addRequest(this, sreq);
   }
 
+  /**
+   * Whether shards should return all requested fields in the first phase. This is either forced
+   * with {@link ShardParams#DISTRIB_SINGLE_PASS}, or chosen when the page is small enough per
+   * {@link ShardParams#DISTRIB_SINGLE_PASS_MAX_ROWS}: fetching a few extra stored documents from
+   * each shard is cheaper than a second round of shard requests.
+   */
+  protected boolean isDistribSinglePass(ResponseBuilder rb) {
+    SolrParams params = rb.req.getParams();
+    Boolean singlePass = params.getBool(ShardParams.DISTRIB_SINGLE_PASS);
+    if (singlePass != null) {
+      return singlePass;
+    }
+    int maxRows = params.getInt(ShardParams.DISTRIB_SINGLE_PASS_MAX_ROWS, 0);
+    if (maxRows <= 0 || rb.shards_rows > -1) {
+      return false;
+    }
+    SortSpec ss = rb.getSortSpec();
+    long rows = (long) ss.getOffset() + ss.getCount();
+    return ss.getCount() >= 0 && rows <= maxRows;
+  }
+
   protected boolean addFL(StringBuilder fl, String field, boolean additionalAdded) {
     if (additionalAdded) fl.append(",");
     fl.append(field);
@@ -1428,24 +1460,30 @@ public class QueryComponent extends SearchComponent {
     IndexSchema schema = searcher.getSchema();
     SchemaField idField = schema.getUniqueKeyField();
     List<String> idArr = StrUtils.splitSmart(ids, ",", true);
+    @SuppressWarnings({"unchecked"})
+    SolrCache<String, Integer> idCache = searcher.getCache(SHARD_ID_CACHE_NAME);
     int[] luceneIds = new int[idArr.size()];
     int docs = 0;
-    if (idField.getType().isPointField()) {
-      for (int i = 0; i < idArr.size(); i++) {
-        int id =
-            searcher.search(idField.getType().getFieldQuery(null, idField, idArr.get(i)), 1)
+    for (String idStr : idArr) {
+      Integer cached = idCache == null ? null : idCache.get(idStr);
+      int id;
+      if (cached != null) {
+        id = cached;
+      } else if (idField.getType().isPointField()) {
+        id =
+            searcher.search(idField.getType().getFieldQuery(null, idField, idStr), 1)
                 .scoreDocs[0]
                 .doc;
-        if (id >= 0) {
-          luceneIds[docs++] = id;
-        }
-      }
-    } else {
-      for (int i = 0; i < idArr.size(); i++) {
-        int id =
+      } else {
+        id =
             searcher.getFirstMatch(
-                new Term(idField.getName(), idField.getType().toInternal(idArr.get(i))));
-        if (id >= 0) luceneIds[docs++] = id;
+                new Term(idField.getName(), idField.getType().toInternal(idStr)));
+      }
+      if (id >= 0) {
+        luceneIds[docs++] = id;
+        if (idCache != null && cached == null) {
+          idCache.put(idStr, id);
+        }
       }
     }
 
@@ -1720,6 +1758,43 @@ public class QueryComponent extends SearchComponent {
     }
 
     doPrefetch(rb);
+    cacheShardTopIds(rb);
+  }
+
+  /**
+   * On a shard answering the first phase of a two-phase distributed query, remember the Lucene
+   * docids of the top documents by unique key in the {@value #SHARD_ID_CACHE_NAME} cache (if
+   * configured). The follow-up {@link ShardParams#IDS} request can then skip the unique key lookups
+   * and go straight to the document cache for the stored fields.
+   */
+  protected void cacheShardTopIds(ResponseBuilder rb) throws IOException {
+    SolrQueryRequest req = rb.req;
+    SolrParams params = req.getParams();
+    int purpose = params.getInt(ShardParams.SHARDS_PURPOSE, 0);
+    if (!params.getBool(ShardParams.IS_SHARD, false)
+        || (purpose & ShardRequest.PURPOSE_GET_TOP_IDS) == 0
+        || (purpose & ShardRequest.PURPOSE_GET_FIELDS) != 0
+        || rb.getResults().docList == null) {
+      return;
+    }
+    SolrIndexSearcher searcher = req.getSearcher();
+    @SuppressWarnings({"unchecked"})
+    SolrCache<String, Integer> idCache = searcher.getCache(SHARD_ID_CACHE_NAME);
+    if (idCache == null) {
+      return;
+    }
+    SchemaField idField = req.getSchema().getUniqueKeyField();
+    Set<String> idFieldNames = Collections.singleton(idField.getName());
+    DocIterator iter = rb.getResults().docList.iterator();
+    while (iter.hasNext()) {
+      int docid = iter.nextDoc();
+      // goes through the document cache, so the response writer gets the same document for free
+      IndexableField idValue =
+          searcher.getDocFetcher().doc(docid, idFieldNames).getField(idField.getName());
+      if (idValue != null) {
+        idCache.put(idField.getType().toExternal(idValue), docid);
+      }
+    }
   }
 
   private static String generateQueryID(SolrQueryRequest req) {
@@ -26,6 +26,7 @@ import com.carrotsearch.hppc.LongSet;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -95,6 +96,7 @@ import org.apache.solr.update.IndexFingerprint;
 import org.apache.solr.update.PeerSync;
 import org.apache.solr.update.PeerSyncWithLeader;
 import org.apache.solr.update.UpdateLog;
+import org.apache.solr.update.VersionRangeFingerprint;
 import org.apache.solr.update.processor.AtomicUpdateDocumentMerger;
 import org.apache.solr.util.RefCounted;
 import org.apache.solr.util.TestInjection;
@@ -156,6 +158,18 @@ public class RealTimeGetComponent extends SearchComponent {
       return;
     }
 
+    val = params.get("getRangeFingerprints");
+    if (val != null) {
+      processGetRangeFingerprints(rb);
+      return;
+    }
+
+    val = params.get("getInputDocuments");
+    if (val != null) {
+      processGetInputDocuments(rb);
+      return;
+    }
+
     val = params.get("getVersions");
     if (val != null) {
       processGetVersions(rb);
@@ -402,6 +416,33 @@ public class RealTimeGetComponent extends SearchComponent {
     rb.rsp.add("version", version.get());
   }
 
+  /**
+   * Returns the documents with the given ids as add commands in the format of the update log, so
+   * that {@link PeerSyncWithLeader} can fetch the documents that are no longer in the update log.
+   * Documents that are not found are skipped.
+   */
+  void processGetInputDocuments(ResponseBuilder rb) throws IOException {
+    SolrQueryRequest req = rb.req;
+    SolrParams params = req.getParams();
+
+    if (!params.getBool(COMPONENT_NAME, true)) {
+      return;
+    }
+
+    String[] ids = params.getParams("getInputDocuments");
+    List<Object> updates = new ArrayList<>(ids.length);
+    for (String id : ids) {
+      BytesRef idBytes = req.getSchema().indexableUniqueKey(id);
+      AtomicLong version = new AtomicLong();
+      SolrInputDocument doc =
+          getInputDocument(req.getCore(), idBytes, idBytes, version, null, Resolution.DOC);
+      if (doc != null) {
+        updates.add(Arrays.asList(UpdateLog.ADD, version.get(), doc));
+      }
+    }
+    rb.rsp.add("inputDocuments", updates);
+  }
+
   /**
    * A SearcherInfo provides mechanism for obtaining RT searcher, from a SolrCore, and closing it,
    * while taking care of the RefCounted references.
@@ -1216,6 +1257,18 @@ public class RealTimeGetComponent extends SearchComponent {
     rb.rsp.add("fingerprint", fingerprint);
   }
 
+  public void processGetRangeFingerprints(ResponseBuilder rb) throws IOException {
+    SolrQueryRequest req = rb.req;
+    SolrParams params = req.getParams();
+
+    List<long[]> ranges = VersionRangeFingerprint.parseRanges(params.get("getRangeFingerprints"));
+    int splits = params.getInt("rangeSplits", 16);
+    int maxListed = params.getInt("rangeMaxListed", 64);
+    rb.rsp.add(
+        "rangeFingerprints",
+        VersionRangeFingerprint.getFingerprints(req.getCore(), ranges, splits, maxListed));
+  }
+
   ///////////////////////////////////////////////////////////////////////////////////
   // Returns last versions added to index
   ///////////////////////////////////////////////////////////////////////////////////
@@ -24,8 +24,10 @@ import org.apache.solr.search.DocValuesIteratorCache;
 
 class DateFieldWriter extends LongFieldWriter {
   public DateFieldWriter(
-      String field, DocValuesIteratorCache.FieldDocValuesSupplier docValuesCache) {
-    super(field, docValuesCache);
+      String field,
+      DocValuesIteratorCache.FieldDocValuesSupplier docValuesCache,
+      ExportColumnCache.FieldColumns columns) {
+    super(field, docValuesCache, columns);
   }
 
   @Override
@@ -26,11 +26,15 @@ import org.apache.solr.search.DocValuesIteratorCache;
 class DoubleFieldWriter extends FieldWriter {
   private final String field;
   private final DocValuesIteratorCache.FieldDocValuesSupplier docValuesCache;
+  private final ExportColumnCache.FieldColumns columns;
 
   public DoubleFieldWriter(
-      String field, DocValuesIteratorCache.FieldDocValuesSupplier docValuesCache) {
+      String field,
+      DocValuesIteratorCache.FieldDocValuesSupplier docValuesCache,
+      ExportColumnCache.FieldColumns columns) {
     this.field = field;
     this.docValuesCache = docValuesCache;
+    this.columns = columns;
   }
 
   @Override
@@ -47,13 +51,22 @@ class DoubleFieldWriter extends FieldWriter {
       }
     } else {
       // field is not part of 'sort' param, but part of 'fl' param
-      NumericDocValues vals =
-          docValuesCache.getNumericDocValues(
-              sortDoc.docId, readerContext.reader(), readerContext.ord);
-      if (vals != null) {
-        val = Double.longBitsToDouble(vals.longValue());
+      ExportColumnCache.Column column = columns.get(readerContext);
+      if (column != null) {
+        if (column.exists(sortDoc.docId)) {
+          val = Double.longBitsToDouble(column.get(sortDoc.docId));
+        } else {
+          return false;
+        }
       } else {
-        return false;
+        NumericDocValues vals =
+            docValuesCache.getNumericDocValues(
+                sortDoc.docId, readerContext.reader(), readerContext.ord);
+        if (vals != null) {
+          val = Double.longBitsToDouble(vals.longValue());
+        } else {
+          return false;
+        }
       }
     }
     ew.put(this.field, val);
@@ -18,7 +18,6 @@
 package org.apache.solr.handler.export;
 
 import java.io.IOException;
-import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.NumericDocValues;
@@ -59,7 +58,7 @@ class DoubleValue implements SortValue {
   @Override
   public void setNextReader(LeafReaderContext context) throws IOException {
     this.reader = context.reader();
-    this.vals = DocValues.getNumeric(this.reader, this.field);
+    this.vals = ExportColumnCache.getInstance().getNumeric(this.reader, this.field);
     lastDocID = 0;
   }
 
@@ -0,0 +1,323 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.handler.export;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.solr.common.util.EnvUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cache of the decoded values of single valued numeric docValues fields, per segment, shared by
+ * the exports of all the cores of the node. The values of a segment are held off-heap, one long per
+ * document, so that repeated exports of the same index sort and write them without decoding the
+ * docValues again. Segments never change, so a column is only dropped when its segment is closed
+ * or when it is evicted, least recently used first, to keep the cache under its memory budget. The
+ * docValues of a field updated in place do change without a new segment core, such fields are
+ * never cached.
+ *
+ * <p>The cache is disabled unless the {@value #MAX_RAM_MB_PROP} system property sets a budget. A
+ * column is loaded in full the first time an export reads the field in a segment.
+ */
+class ExportColumnCache {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /** The memory budget of the cache in megabytes, 0 (the default) disables it. */
+  public static final String MAX_RAM_MB_PROP = "solr.export.columnCache.maxRamMB";
+
+  // the values of a column are held in a single direct buffer
+  private static final int MAX_DOCS = Integer.MAX_VALUE / Long.BYTES;
+
+  private static volatile ExportColumnCache instance =
+      new ExportColumnCache(EnvUtils.getPropertyAsLong(MAX_RAM_MB_PROP, 0L) * 1024 * 1024);
+
+  private final long maxRamBytes;
+  private final Map<ColumnKey, Column> columns = new LinkedHashMap<>(16, 0.75f, true);
+  private final Set<IndexReader.CacheKey> closeListeners = new HashSet<>();
+  private long ramBytesUsed;
+
+  ExportColumnCache(long maxRamBytes) {
+    this.maxRamBytes = maxRamBytes;
+  }
+
+  static ExportColumnCache getInstance() {
+    return instance;
+  }
+
+  /** Replaces the cache of the node and returns the previous one, for tests. */
+  static ExportColumnCache setInstance(ExportColumnCache cache) {
+    ExportColumnCache previous = instance;
+    instance = cache;
+    return previous;
+  }
+
+  boolean isEnabled() {
+    return maxRamBytes > 0;
+  }
+
+  /**
+   * Returns the values of a field in a segment, from the cache when the field can be cached, and
+   * otherwise from the docValues of the segment.
+   */
+  NumericDocValues getNumeric(LeafReader reader, String field) throws IOException {
+    Column column = getColumn(reader, field);
+    return column == null ? DocValues.getNumeric(reader, field) : column.iterator();
+  }
+
+  /**
+   * Returns the cached values of a field in a segment, loading them if needed, or null if the field
+   * is not a single valued numeric docValues field or does not fit in the cache.
+   */
+  Column getColumn(LeafReader reader, String field) throws IOException {
+    if (!isEnabled()) {
+      return null;
+    }
+    IndexReader.CacheHelper cacheHelper = reader.getCoreCacheHelper();
+    FieldInfo fieldInfo = reader.getFieldInfos().fieldInfo(field);
+    if (cacheHelper == null
+        || fieldInfo == null
+        || fieldInfo.getDocValuesType() != DocValuesType.NUMERIC
+        // updated in place, the values change under the same core cache key
+        || fieldInfo.getDocValuesGen() != -1
+        || reader.maxDoc() > MAX_DOCS
+        || Column.estimateRamBytesUsed(reader.maxDoc()) > maxRamBytes) {
+      return null;
+    }
+
+    ColumnKey key = new ColumnKey(cacheHelper.getKey(), field);
+    synchronized (this) {
+      Column column = columns.get(key);
+      if (column != null) {
+        return column;
+      }
+    }
+
+    // loaded outside the lock, two exports may load the same column but only one is kept
+    Column loaded = Column.load(reader, field);
+    synchronized (this) {
+      Column column = columns.get(key);
+      if (column != null) {
+        return column;
+      }
+      Iterator<Map.Entry<ColumnKey, Column>> eldest = columns.entrySet().iterator();
+      while (ramBytesUsed + loaded.ramBytesUsed() > maxRamBytes && eldest.hasNext()) {
+        ramBytesUsed -= eldest.next().getValue().ramBytesUsed();
+        eldest.remove();
+      }
+      columns.put(key, loaded);
+      ramBytesUsed += loaded.ramBytesUsed();
+      if (closeListeners.add(key.segment)) {
+        cacheHelper.addClosedListener(this::onSegmentClosed);
+      }
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Cached {} of {} docs, {} bytes", field, reader.maxDoc(), loaded.ramBytesUsed());
+    }
+    return loaded;
+  }
+
+  /** Returns a lookup of the columns of a field, one per segment, for a single thread. */
+  FieldColumns getFieldColumns(String field, int numLeaves) {
+    return new FieldColumns(field, numLeaves);
+  }
+
+  private synchronized void onSegmentClosed(IndexReader.CacheKey segment) {
+    closeListeners.remove(segment);
+    Iterator<Map.Entry<ColumnKey, Column>> it = columns.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<ColumnKey, Column> entry = it.next();
+      if (entry.getKey().segment == segment) {
+        ramBytesUsed -= entry.getValue().ramBytesUsed();
+        it.remove();
+      }
+    }
+  }
+
+  synchronized int size() {
+    return columns.size();
+  }
+
+  synchronized long ramBytesUsed() {
+    return ramBytesUsed;
+  }
+
+  /**
+   * The columns of a field looked up once per segment, for the field writers that read the values
+   * of documents one at a time.
+   */
+  class FieldColumns {
+    private final String field;
+    private final Column[] columns;
+    private final boolean[] looked;
+
+    private FieldColumns(String field, int numLeaves) {
+      this.field = field;
+      this.columns = new Column[numLeaves];
+      this.looked = new boolean[numLeaves];
+    }
+
+    Column get(LeafReaderContext context) throws IOException {
+      if (!isEnabled()) {
+        return null;
+      }
+      if (!looked[context.ord]) {
+        columns[context.ord] = getColumn(context.reader(), field);
+        looked[context.ord] = true;
+      }
+      return columns[context.ord];
+    }
+  }
+
+  /** The values of a field in a segment, with the documents that have one. */
+  static final class Column {
+    private final int maxDoc;
+    private final LongBuffer values;
+    // null if all the documents have a value
+    private final FixedBitSet docsWithField;
+
+    private Column(int maxDoc, LongBuffer values, FixedBitSet docsWithField) {
+      this.maxDoc = maxDoc;
+      this.values = values;
+      this.docsWithField = docsWithField;
+    }
+
+    static Column load(LeafReader reader, String field) throws IOException {
+      int maxDoc = reader.maxDoc();
+      LongBuffer values =
+          ByteBuffer.allocateDirect(maxDoc * Long.BYTES)
+              .order(ByteOrder.nativeOrder())
+              .asLongBuffer();
+      FixedBitSet docsWithField = new FixedBitSet(maxDoc);
+      NumericDocValues docValues = DocValues.getNumeric(reader, field);
+      int count = 0;
+      for (int doc = docValues.nextDoc();
+          doc != DocIdSetIterator.NO_MORE_DOCS;
+          doc = docValues.nextDoc()) {
+        values.put(doc, docValues.longValue());
+        docsWithField.set(doc);
+        count++;
+      }
+      return new Column(maxDoc, values, count == maxDoc ? null : docsWithField);
+    }
+
+    static long estimateRamBytesUsed(int maxDoc) {
+      return (long) maxDoc * Long.BYTES + FixedBitSet.bits2words(maxDoc) * (long) Long.BYTES;
+    }
+
+    long ramBytesUsed() {
+      long bits = docsWithField == null ? 0 : docsWithField.ramBytesUsed();
+      return (long) maxDoc * Long.BYTES + bits;
+    }
+
+    boolean exists(int doc) {
+      return docsWithField == null || docsWithField.get(doc);
+    }
+
+    /** The raw docValues value of a document, only meaningful if it {@link #exists(int)}. */
+    long get(int doc) {
+      return values.get(doc);
+    }
+
+    /**
+     * Returns an iterator over the values. Unlike docValues it can also go back to an earlier
+     * document with {@link NumericDocValues#advanceExact(int)}.
+     */
+    NumericDocValues iterator() {
+      return new NumericDocValues() {
+        int doc = -1;
+
+        @Override
+        public long longValue() {
+          return values.get(doc);
+        }
+
+        @Override
+        public boolean advanceExact(int target) {
+          doc = target;
+          return exists(target);
+        }
+
+        @Override
+        public int docID() {
+          return doc;
+        }
+
+        @Override
+        public int nextDoc() {
+          return advance(doc + 1);
+        }
+
+        @Override
+        public int advance(int target) {
+          if (target >= maxDoc) {
+            return doc = NO_MORE_DOCS;
+          }
+          return doc = docsWithField == null ? target : docsWithField.nextSetBit(target);
+        }
+
+        @Override
+        public long cost() {
+          return docsWithField == null ? maxDoc : docsWithField.cardinality();
+        }
+      };
+    }
+  }
+
+  private static final class ColumnKey {
+    final IndexReader.CacheKey segment;
+    final String field;
+
+    ColumnKey(IndexReader.CacheKey segment, String field) {
+      this.segment = segment;
+      this.field = field;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof ColumnKey)) {
+        return false;
+      }
+      ColumnKey other = (ColumnKey) o;
+      return segment == other.segment && field.equals(other.field);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(segment, field);
+    }
+  }
+}
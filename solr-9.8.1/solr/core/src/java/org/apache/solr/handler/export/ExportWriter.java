@@ -27,10 +27,18 @@ import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.lang.invoke.MethodHandles;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedDocValues;
@@ -41,6 +49,7 @@ import org.apache.lucene.util.BitSetIterator;
 import org.apache.lucene.util.FixedBitSet;
 import org.apache.solr.client.solrj.impl.BinaryResponseParser;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter;
 import org.apache.solr.client.solrj.io.stream.StreamContext;
 import org.apache.solr.client.solrj.io.stream.TupleStream;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
@@ -60,6 +69,7 @@ import org.apache.solr.metrics.SolrMetricsContext;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.request.SolrRequestInfo;
 import org.apache.solr.response.BinaryResponseWriter;
+import org.apache.solr.response.ColumnarResponseWriter;
 import org.apache.solr.response.JSONResponseWriter;
 import org.apache.solr.response.JacksonJsonWriter;
 import org.apache.solr.response.QueryResponseWriter;
@@ -93,12 +103,26 @@ import org.slf4j.LoggerFactory;
  * that haven't been sent yet and stores them in a Priority Queue. They are then exported (written
  * across the wire) and marked as sent (unset in the bitmap). This process repeats until all
  * matching documents have been sent.
+ *
+ * <p>With {@code sortMode=runs} the segments are instead sorted into "sorted runs" in parallel, by
+ * up to {@code sortThreads} threads of an executor shared by the node, and the runs are merged.
+ * Each run is sorted in chunks of the size of the queue of its segment, the next chunk being sorted
+ * while the current one is merged, so that the memory used stays bounded whatever the number of
+ * matching documents.
  */
 public class ExportWriter implements SolrCore.RawWriter, Closeable {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
   public static final String BATCH_SIZE_PARAM = "batchSize";
   public static final String QUEUE_SIZE_PARAM = "queueSize";
+  public static final String SORT_MODE_PARAM = "sortMode";
+  public static final String SORT_THREADS_PARAM = "sortThreads";
+
+  /** Sort by repeated passes over the bitmap of matching documents, the default. */
+  public static final String SORT_MODE_STREAM = "stream";
+
+  /** Sort each segment into a sorted run in parallel and merge the runs. */
+  public static final String SORT_MODE_RUNS = "runs";
 
   public static final int DEFAULT_BATCH_SIZE = 30000;
   public static final int DEFAULT_QUEUE_SIZE = 150000;
@@ -121,6 +145,10 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
   final int batchSize;
   // The max combined size of the segment level priority queues.
   private int priorityQueueSize;
+  // Whether to sort the segments into sorted runs, and with how many threads.
+  private boolean sortedRuns;
+  private int sortThreads;
+  private RunSorter runSorter;
   StreamExpression streamExpression;
   StreamContext streamContext;
   List<FieldWriter> fieldWriters;
@@ -148,13 +176,16 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
 
   @Override
   public String getContentType() {
-    if ("javabin".equals(wt)) {
+    if ("javabin".equals(wt) || ColumnarTupleWriter.WT.equals(wt)) {
       return BinaryResponseParser.BINARY_CONTENT_TYPE;
     } else return "json";
   }
 
   @Override
   public void close() throws IOException {
+    if (runSorter != null) {
+      runSorter.cancel();
+    }
     if (writer != null) {
       try {
         writer.close();
@@ -202,6 +233,8 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
     } else if (rw instanceof BinaryResponseWriter) {
       // todo add support for other writers after testing
       writer = new JavaBinCodec(os, null);
+    } else if (rw instanceof ColumnarResponseWriter) {
+      writer = new ColumnarTupleWriter(os);
     } else {
       respWriter = new OutputStreamWriter(os, StandardCharsets.UTF_8);
       writer = JSONResponseWriter.getPushWriter(respWriter, req, res);
@@ -294,6 +327,27 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
       }
     }
 
+    String sortMode = params.get(SORT_MODE_PARAM, SORT_MODE_STREAM);
+    if (SORT_MODE_RUNS.equals(sortMode)) {
+      sortedRuns = true;
+      sortThreads = params.getInt(SORT_THREADS_PARAM, Runtime.getRuntime().availableProcessors());
+      if (sortThreads < 1) {
+        writeException(
+            (new IOException(new SyntaxError(SORT_THREADS_PARAM + " must be positive."))),
+            writer,
+            true);
+        return;
+      }
+      // the exports of the node share one sorting thread per processor
+      sortThreads = Math.min(sortThreads, Runtime.getRuntime().availableProcessors());
+    } else if (!SORT_MODE_STREAM.equals(sortMode)) {
+      writeException(
+          (new IOException(new SyntaxError("Unknown " + SORT_MODE_PARAM + ": " + sortMode))),
+          writer,
+          true);
+      return;
+    }
+
     try {
       fieldWriters = getFieldWriters(fields, req);
     } catch (Exception e) {
@@ -493,6 +547,8 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
   public List<FieldWriter> getFieldWriters(String[] fields, SolrQueryRequest req)
       throws IOException {
     DocValuesIteratorCache dvIterCache = new DocValuesIteratorCache(req.getSearcher(), false);
+    ExportColumnCache columnCache = ExportColumnCache.getInstance();
+    int numLeaves = req.getSearcher().getTopReaderContext().leaves().size();
 
     SolrReturnFields solrReturnFields = new SolrReturnFields(fields, req);
 
@@ -523,6 +579,7 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
       }
 
       DocValuesIteratorCache.FieldDocValuesSupplier docValuesCache = dvIterCache.getSupplier(field);
+      ExportColumnCache.FieldColumns columns = columnCache.getFieldColumns(field, numLeaves);
 
       if (docValuesCache == null) {
         writer = EMPTY_FIELD_WRITER;
@@ -530,25 +587,25 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
         if (multiValued) {
           writer = new MultiFieldWriter(field, fieldType, schemaField, true, docValuesCache);
         } else {
-          writer = new IntFieldWriter(field, docValuesCache);
+          writer = new IntFieldWriter(field, docValuesCache, columns);
         }
       } else if (fieldType instanceof LongValueFieldType) {
         if (multiValued) {
           writer = new MultiFieldWriter(field, fieldType, schemaField, true, docValuesCache);
         } else {
-          writer = new LongFieldWriter(field, docValuesCache);
+          writer = new LongFieldWriter(field, docValuesCache, columns);
         }
       } else if (fieldType instanceof FloatValueFieldType) {
         if (multiValued) {
           writer = new MultiFieldWriter(field, fieldType, schemaField, true, docValuesCache);
         } else {
-          writer = new FloatFieldWriter(field, docValuesCache);
+          writer = new FloatFieldWriter(field, docValuesCache, columns);
         }
       } else if (fieldType instanceof DoubleValueFieldType) {
         if (multiValued) {
           writer = new MultiFieldWriter(field, fieldType, schemaField, true, docValuesCache);
         } else {
-          writer = new DoubleFieldWriter(field, docValuesCache);
+          writer = new DoubleFieldWriter(field, docValuesCache, columns);
         }
       } else if (fieldType instanceof StrField || fieldType instanceof SortableTextField) {
         if (multiValued) {
@@ -560,7 +617,7 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
         if (multiValued) {
           writer = new MultiFieldWriter(field, fieldType, schemaField, false, docValuesCache);
         } else {
-          writer = new DateFieldWriter(field, docValuesCache);
+          writer = new DateFieldWriter(field, docValuesCache, columns);
         }
       } else if (fieldType instanceof BoolField) {
         if (multiValued) {
@@ -665,12 +722,19 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
     return new SortDoc(sortValues);
   }
 
+  /** Iterates over the matching documents of a segment, in sort order. */
+  interface SortedSegmentIterator {
+    /** Returns the next doc, or null when all docs are iterated. */
+    SortDoc next() throws IOException;
+  }
+
   static class MergeIterator {
     private TreeSet<SortDoc> set = new TreeSet<>();
-    private SegmentIterator[] segmentIterators;
+    private SortedSegmentIterator[] segmentIterators;
     private SortDoc outDoc;
 
-    public MergeIterator(SegmentIterator[] segmentIterators, SortDoc proto) throws IOException {
+    public MergeIterator(SortedSegmentIterator[] segmentIterators, SortDoc proto)
+        throws IOException {
       outDoc = proto.copy();
       this.segmentIterators = segmentIterators;
       for (int i = 0; i < segmentIterators.length; i++) {
@@ -750,11 +814,19 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
         log.debug("Combined priority queue size {}:", combineQueueSize);
       }
 
-      SegmentIterator[] segmentIterators = new SegmentIterator[leaves.size()];
+      SortedSegmentIterator[] segmentIterators = new SortedSegmentIterator[leaves.size()];
+      if (sortedRuns) {
+        runSorter = new RunSorter(req.getCoreContainer().getExportSortExecutor(), sortThreads);
+      }
       for (int i = 0; i < segmentIterators.length; i++) {
-        SortQueue sortQueue = new SortQueue(sizes[i], sortDoc.copy());
-        segmentIterators[i] =
-            new SegmentIterator(bits[i], leaves.get(i), sortQueue, sortDoc.copy());
+        if (sortedRuns) {
+          segmentIterators[i] =
+              new SortedRun(bits[i], leaves.get(i), sizes[i], sortDoc.copy(), runSorter);
+        } else {
+          SortQueue sortQueue = new SortQueue(sizes[i], sortDoc.copy());
+          segmentIterators[i] =
+              new SegmentIterator(bits[i], leaves.get(i), sortQueue, sortDoc.copy());
+        }
       }
 
       return new MergeIterator(segmentIterators, sortDoc);
@@ -762,7 +834,187 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
     }
   }
 
-  private static class SegmentIterator {
+  /** Runs the chunk sorts of an export on the shared executor, up to sortThreads at a time. */
+  static class RunSorter {
+    private final Executor executor;
+    private final int maxRunning;
+    // guarded by this
+    private final Deque<FutureTask<?>> pending = new ArrayDeque<>();
+    private int running;
+    private boolean cancelled;
+
+    RunSorter(Executor executor, int maxRunning) {
+      this.executor = executor;
+      this.maxRunning = maxRunning;
+    }
+
+    <T> Future<T> submit(Callable<T> sort) {
+      FutureTask<T> task = new FutureTask<>(sort);
+      synchronized (this) {
+        if (cancelled) {
+          task.cancel(false);
+          return task;
+        }
+        if (running == maxRunning) {
+          pending.add(task);
+          return task;
+        }
+        running++;
+      }
+      try {
+        executor.execute(() -> runAll(task));
+      } catch (RuntimeException e) {
+        synchronized (this) {
+          running--;
+        }
+        throw e;
+      }
+      return task;
+    }
+
+    /** Runs the task, then the pending ones, in the same thread */
+    private void runAll(FutureTask<?> task) {
+      while (task != null) {
+        task.run();
+        synchronized (this) {
+          task = pending.poll();
+          if (task == null) {
+            running--;
+          }
+        }
+      }
+    }
+
+    /** Drops the sorts which haven't started yet, once the export is over */
+    synchronized void cancel() {
+      cancelled = true;
+      for (FutureTask<?> task : pending) {
+        task.cancel(false);
+      }
+      pending.clear();
+    }
+
+    static <T> T await(Future<T> future) throws IOException {
+      try {
+        return future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException(e);
+      } catch (CancellationException e) {
+        throw new IOException("The export was closed", e);
+      } catch (ExecutionException e) {
+        log.error("Sorted run error:", e.getCause());
+        if (e.getCause() instanceof IOException) {
+          throw (IOException) e.getCause();
+        }
+        throw new IOException(e.getCause());
+      }
+    }
+  }
+
+  /** The docs of a sorted run loaded at once, in the order they are merged from the last. */
+  private static class Chunk {
+    private final SortQueue queue;
+    private final SortDoc[] docs;
+    private int index = -1;
+    // whether the segment may have more docs than the ones of this chunk
+    private boolean full = true;
+
+    Chunk(int size, SortDoc proto) {
+      this.queue = new SortQueue(size, proto.copy());
+      this.docs = new SortDoc[size];
+    }
+  }
+
+  /**
+   * Iterates over the matching docs of a segment in chunks of the size of its queue, like {@link
+   * SegmentIterator}, but each chunk is sorted by the {@link RunSorter} while the previous one is
+   * merged. The docs of a chunk are cleared from the bitmap as soon as it is sorted, so that the
+   * next one can be sorted right away.
+   */
+  private static class SortedRun implements SortedSegmentIterator {
+
+    private final FixedBitSet bits;
+    private final LeafReaderContext context;
+    private final SortDoc sortDoc;
+    private final RunSorter sorter;
+    private Chunk current;
+    private Future<Chunk> next;
+    private SortDoc nextDoc;
+
+    public SortedRun(
+        FixedBitSet bits,
+        LeafReaderContext context,
+        int chunkSize,
+        SortDoc sortDoc,
+        RunSorter sorter) {
+      this.bits = bits;
+      this.context = context;
+      this.sortDoc = sortDoc;
+      this.sorter = sorter;
+      this.nextDoc = sortDoc.copy();
+      this.current = new Chunk(chunkSize, sortDoc);
+      Chunk first = new Chunk(chunkSize, sortDoc);
+      this.next = sorter.submit(() -> sort(first));
+    }
+
+    @Override
+    public SortDoc next() throws IOException {
+      if (current.index < 0) {
+        if (next == null) {
+          nextDoc = null;
+          return null;
+        }
+        Chunk merged = current;
+        current = RunSorter.await(next);
+        next = null;
+        if (current.full) {
+          next = sorter.submit(() -> sort(merged));
+        }
+        if (current.index < 0) {
+          nextDoc = null;
+          return null;
+        }
+      }
+      SortDoc doc = current.docs[current.index--];
+
+      // Load the global ordinal (only matters for strings)
+      doc.setGlobalValues(nextDoc);
+      nextDoc.setValues(doc);
+      // We are now done with this doc.
+      doc.reset();
+      return nextDoc;
+    }
+
+    private Chunk sort(Chunk chunk) throws IOException {
+      SortQueue queue = chunk.queue;
+      queue.reset();
+      SortDoc top = queue.top();
+      sortDoc.setNextReader(context);
+      DocIdSetIterator it = new BitSetIterator(bits, 0); // cost is not useful here
+      int docId;
+      while ((docId = it.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+        sortDoc.setValues(docId);
+        if (top.lessThan(sortDoc) || top.docId == -1) {
+          top.setValues(sortDoc);
+          top = queue.updateTop();
+        }
+      }
+
+      chunk.index = -1;
+      SortDoc doc;
+      while ((doc = queue.pop()) != null) {
+        if (doc.docId > -1) {
+          chunk.docs[++chunk.index] = doc;
+          bits.clear(doc.docId);
+        }
+      }
+      chunk.full = chunk.index + 1 == queue.maxSize;
+      return chunk;
+    }
+  }
+
+  private static class SegmentIterator implements SortedSegmentIterator {
 
     private final FixedBitSet bits;
     private final SortQueue queue;
@@ -785,6 +1037,7 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
       topDocs();
     }
 
+    @Override
     public SortDoc next() throws IOException {
       SortDoc _sortDoc = null;
       if (index > -1) {
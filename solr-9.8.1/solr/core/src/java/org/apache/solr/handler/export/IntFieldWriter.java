@@ -26,11 +26,15 @@ import org.apache.solr.search.DocValuesIteratorCache;
 class IntFieldWriter extends FieldWriter {
   private final String field;
   private final DocValuesIteratorCache.FieldDocValuesSupplier docValuesCache;
+  private final ExportColumnCache.FieldColumns columns;
 
   public IntFieldWriter(
-      String field, DocValuesIteratorCache.FieldDocValuesSupplier docValuesCache) {
+      String field,
+      DocValuesIteratorCache.FieldDocValuesSupplier docValuesCache,
+      ExportColumnCache.FieldColumns columns) {
     this.field = field;
     this.docValuesCache = docValuesCache;
+    this.columns = columns;
   }
 
   @Override
@@ -47,13 +51,22 @@ class IntFieldWriter extends FieldWriter {
       }
     } else {
       // field is not part of 'sort' param, but part of 'fl' param
-      NumericDocValues vals =
-          docValuesCache.getNumericDocValues(
-              sortDoc.docId, readerContext.reader(), readerContext.ord);
-      if (vals != null) {
-        val = (int) vals.longValue();
+      ExportColumnCache.Column column = columns.get(readerContext);
+      if (column != null) {
+        if (column.exists(sortDoc.docId)) {
+          val = (int) column.get(sortDoc.docId);
+        } else {
+          return false;
+        }
       } else {
-        return false;
+        NumericDocValues vals =
+            docValuesCache.getNumericDocValues(
+                sortDoc.docId, readerContext.reader(), readerContext.ord);
+        if (vals != null) {
+          val = (int) vals.longValue();
+        } else {
+          return false;
+        }
       }
     }
     ew.put(this.field, val);
@@ -18,7 +18,6 @@
 package org.apache.solr.handler.export;
 
 import java.io.IOException;
-import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.NumericDocValues;
 
@@ -56,7 +55,7 @@ public class IntValue implements SortValue {
 
   @Override
   public void setNextReader(LeafReaderContext context) throws IOException {
-    this.vals = DocValues.getNumeric(context.reader(), field);
+    this.vals = ExportColumnCache.getInstance().getNumeric(context.reader(), field);
     lastDocID = 0;
   }
 
@@ -27,11 +27,15 @@ class LongFieldWriter extends FieldWriter {
   protected final String field;
 
   private final DocValuesIteratorCache.FieldDocValuesSupplier docValuesCache;
+  private final ExportColumnCache.FieldColumns columns;
 
   public LongFieldWriter(
-      String field, DocValuesIteratorCache.FieldDocValuesSupplier docValuesCache) {
+      String field,
+      DocValuesIteratorCache.FieldDocValuesSupplier docValuesCache,
+      ExportColumnCache.FieldColumns columns) {
     this.field = field;
     this.docValuesCache = docValuesCache;
+    this.columns = columns;
   }
 
   @Override
@@ -48,13 +52,22 @@ class LongFieldWriter extends FieldWriter {
       }
     } else {
       // field is not part of 'sort' param, but part of 'fl' param
-      NumericDocValues vals =
-          docValuesCache.getNumericDocValues(
-              sortDoc.docId, readerContext.reader(), readerContext.ord);
-      if (vals != null) {
-        val = vals.longValue();
+      ExportColumnCache.Column column = columns.get(readerContext);
+      if (column != null) {
+        if (column.exists(sortDoc.docId)) {
+          val = column.get(sortDoc.docId);
+        } else {
+          return false;
+        }
       } else {
-        return false;
+        NumericDocValues vals =
+            docValuesCache.getNumericDocValues(
+                sortDoc.docId, readerContext.reader(), readerContext.ord);
+        if (vals != null) {
+          val = vals.longValue();
+        } else {
+          return false;
+        }
       }
     }
     doWrite(ew, val);
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Iterator;
+import org.apache.solr.client.solrj.impl.BinaryResponseParser;
+import org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter;
+import org.apache.solr.common.IteratorWriter;
+import org.apache.solr.common.MapWriter;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.StreamParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.request.SolrQueryRequest;
+
+/**
+ * Writes the documents or tuples of a response in the columnar binary format of {@link
+ * ColumnarTupleWriter} when wt=columnar. Meant for /export and /stream, whose results are read
+ * back with {@link org.apache.solr.client.solrj.io.stream.ColumnarTupleStreamParser}; the parts
+ * of the response that are not documents or tuples are not written.
+ */
+public class ColumnarResponseWriter implements BinaryQueryResponseWriter {
+
+  @Override
+  public void write(OutputStream out, SolrQueryRequest req, SolrQueryResponse response)
+      throws IOException {
+    try (ColumnarTupleWriter writer = new ColumnarTupleWriter(out)) {
+      writer.writeMap(new DocsWriter(response.getValues()));
+    }
+  }
+
+  @Override
+  public void write(Writer writer, SolrQueryRequest request, SolrQueryResponse response)
+      throws IOException {
+    throw new RuntimeException("This is a binary writer , Cannot write to a characterstream");
+  }
+
+  @Override
+  public String getContentType(SolrQueryRequest request, SolrQueryResponse response) {
+    return BinaryResponseParser.BINARY_CONTENT_TYPE;
+  }
+
+  /** Exposes the documents of the search results of a response under "docs" keys. */
+  private static class DocsWriter implements MapWriter {
+    private final NamedList<?> values;
+
+    DocsWriter(NamedList<?> values) {
+      this.values = values;
+    }
+
+    @Override
+    public void writeMap(EntryWriter ew) throws IOException {
+      for (int i = 0; i < values.size(); i++) {
+        Object v = values.getVal(i);
+        if (v instanceof ResultContext) {
+          Iterator<SolrDocument> docs = ((ResultContext) v).getProcessedDocuments();
+          ew.put(values.getName(i), (MapWriter) m -> m.put(StreamParams.DOCS, iterate(docs)));
+        } else if (v instanceof SolrDocumentList) {
+          Iterator<SolrDocument> docs = ((SolrDocumentList) v).iterator();
+          ew.put(values.getName(i), (MapWriter) m -> m.put(StreamParams.DOCS, iterate(docs)));
+        } else {
+          ew.put(values.getName(i), v);
+        }
+      }
+    }
+
+    private static IteratorWriter iterate(Iterator<SolrDocument> docs) {
+      return iw -> {
+        while (docs.hasNext()) {
+          iw.add(docs.next());
+        }
+      };
+    }
+  }
+}
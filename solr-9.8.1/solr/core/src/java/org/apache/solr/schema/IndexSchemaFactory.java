@@ -18,9 +18,15 @@ package org.apache.solr.schema;
 
 import static org.apache.solr.schema.IndexSchema.SCHEMA;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
@@ -126,7 +132,11 @@ public abstract class IndexSchemaFactory implements NamedListInitializedPlugin {
                 name,
                 loader,
                 () -> {
-                  if (!(configSetService instanceof ZkConfigSetService)) return null;
+                  if (!(configSetService instanceof ZkConfigSetService)) {
+                    return loader.getCoreContainer() == null
+                        ? null
+                        : loader.getCoreContainer().getObjectCache();
+                  }
                   return ((ZkConfigSetService) configSetService)
                       .getSolrCloudManager()
                       .getObjectCache();
@@ -153,6 +163,10 @@ public abstract class IndexSchemaFactory implements NamedListInitializedPlugin {
   // for testing purposes
   public static volatile Consumer<String> CACHE_MISS_LISTENER = null;
 
+  // the most parsed files of the configsets on the file system kept, the least recently used are
+  // evicted
+  private static final int MAX_CACHED_FILE_CONFIGS = 64;
+
   @SuppressWarnings("unchecked")
   public static VersionedConfig getFromCache(
       String name,
@@ -187,8 +201,94 @@ public abstract class IndexSchemaFactory implements NamedListInitializedPlugin {
         return confCache.computeIfAbsent(res.first(), k -> cfgLoader.get());
       }
     } else {
-      // it's a file system loader, no caching necessary
-      return cfgLoader.get();
+      // a file system loader, the cores of a configset read the same files
+      ObjectCache objectCache = objectCacheSupplier.get();
+      if (objectCache == null) return cfgLoader.get();
+      Path path = getConfigFilePath(loader, name);
+      if (path == null) return cfgLoader.get();
+      Map<Path, FileConfig> fileCache =
+          (Map<Path, FileConfig>)
+              objectCache.computeIfAbsent(
+                  FileConfig.class.getName(),
+                  k ->
+                      Caffeine.newBuilder()
+                          .maximumSize(MAX_CACHED_FILE_CONFIGS)
+                          .<Path, FileConfig>build()
+                          .asMap());
+      return fileCache
+          .compute(
+              path,
+              (k, cached) ->
+                  cached != null && cached.isCurrent()
+                      ? cached
+                      : FileConfig.load(loader, path, cfgLoader))
+          .config;
+    }
+  }
+
+  /** The file a resource of a file system loader is read from, or null if not a file. */
+  private static Path getConfigFilePath(SolrResourceLoader loader, String name) {
+    String location = loader.resourceLocation(name);
+    if (location == null || location.startsWith("classpath:")) {
+      return null;
+    }
+    try {
+      Path path = Path.of(location);
+      return path.isAbsolute() && Files.isRegularFile(path) ? path : null;
+    } catch (InvalidPathException e) {
+      return null;
+    }
+  }
+
+  /**
+   * A parsed config file, with the attributes of the files it was parsed from, including the ones
+   * it includes, when they were opened.
+   */
+  private static class FileConfig {
+    // null for the files which could not be read, then the config is not reused
+    final Map<Path, BasicFileAttributes> files;
+    final VersionedConfig config;
+
+    private FileConfig(Map<Path, BasicFileAttributes> files, VersionedConfig config) {
+      this.files = files;
+      this.config = config;
+    }
+
+    static FileConfig load(
+        SolrResourceLoader loader, Path path, Supplier<VersionedConfig> cfgLoader) {
+      Map<Path, BasicFileAttributes> files = new HashMap<>();
+      files.put(path, readAttributes(path));
+      VersionedConfig config =
+          SystemIdResolver.withResolvedListener(
+              name -> {
+                Path included = getConfigFilePath(loader, name);
+                if (included != null) {
+                  files.computeIfAbsent(included, FileConfig::readAttributes);
+                }
+              },
+              cfgLoader);
+      return new FileConfig(files, config);
+    }
+
+    private static BasicFileAttributes readAttributes(Path path) {
+      try {
+        return Files.readAttributes(path, BasicFileAttributes.class);
+      } catch (IOException e) {
+        return null;
+      }
+    }
+
+    boolean isCurrent() {
+      for (Map.Entry<Path, BasicFileAttributes> file : files.entrySet()) {
+        BasicFileAttributes attributes = readAttributes(file.getKey());
+        if (file.getValue() == null
+            || attributes == null
+            || !file.getValue().lastModifiedTime().equals(attributes.lastModifiedTime())
+            || file.getValue().size() != attributes.size()) {
+          return false;
+        }
+      }
+      return true;
     }
   }
 
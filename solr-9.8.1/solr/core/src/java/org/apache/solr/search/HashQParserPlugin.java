@@ -18,12 +18,21 @@ package org.apache.solr.search;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.DoublePredicate;
 import java.util.stream.Collectors;
 import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.DocValuesType;
 import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.index.SortedDocValues;
@@ -33,17 +42,35 @@ import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.LongValues;
 import org.apache.lucene.search.LongValuesSource;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.common.util.Hash;
 import org.apache.solr.request.SolrQueryRequest;
 
-/** syntax fq={!hash workers=11 worker=4 keys=field1,field2} */
+/**
+ * syntax fq={!hash workers=11 worker=4 keys=field1,field2}
+ *
+ * <p>The workers of a parallel stream all send the same query with a different worker and {@code
+ * share=true}, so when the filter is computed as a {@link DocSet}, the partitions of all the
+ * workers are computed in a single pass over the index, and kept for the requests of the other
+ * workers to pick up instead of each scanning the index again. Each worker takes its own partition
+ * out, and the partitions are dropped once all were taken, when they were not all taken within
+ * {@link #SHARED_PARTITIONS_TTL_MS}, or when the index reader is closed. Without {@code share} only
+ * the partition of the worker is computed.
+ */
 public class HashQParserPlugin extends QParserPlugin {
 
   public static final String NAME = "hash";
 
+  /** How long the partitions computed for the other workers are kept for them to take. */
+  static final long SHARED_PARTITIONS_TTL_MS = 10_000;
+
   @Override
   public QParser createParser(
       String query, SolrParams localParams, SolrParams params, SolrQueryRequest request) {
@@ -65,15 +92,244 @@ public class HashQParserPlugin extends QParserPlugin {
             SolrException.ErrorCode.BAD_REQUEST, "workers needs to be more than 1");
       }
       int worker = localParams.getInt("worker", 0);
+      boolean share = localParams.getBool("share", false);
       String keyParam = params.get("partitionKeys");
       String[] keys = keyParam.replace(" ", "").split(",");
       // validate all fields exist
       Arrays.stream(keys).forEach(field -> req.getSchema().getField(field));
 
+      return new HashPartitionQuery(keys, workers, worker, share);
+    }
+  }
+
+  /** The partition of a hash, or -1 if it is not in any, like {@link HashPartitionPredicate}. */
+  private static int partition(double hashAsDouble, int workers) {
+    long partition = Math.abs((long) hashAsDouble) % workers;
+    return partition < 0 ? -1 : (int) partition;
+  }
+
+  /** Matches the documents of the partition of a worker. */
+  static class HashPartitionQuery extends Query implements DocSetProducer {
+
+    // the partitions computed for the requests of the other workers to pick up, by index reader
+    // cache key, and dropped when the reader is closed
+    private static final Map<IndexReader.CacheKey, Map<PartitionsKey, Partitions>>
+        sharedPartitions = new ConcurrentHashMap<>();
+
+    private final String[] keys;
+    private final int workers;
+    private final int worker;
+    // whether the other workers will ask for their partitions too
+    private final boolean share;
+
+    HashPartitionQuery(String[] keys, int workers, int worker, boolean share) {
+      this.keys = keys;
+      this.workers = workers;
+      this.worker = worker;
+      this.share = share;
+    }
+
+    @Override
+    public DocSet createDocSet(SolrIndexSearcher searcher) throws IOException {
+      if (worker < 0 || worker >= workers) {
+        return DocSet.empty();
+      }
+      Map<PartitionsKey, Partitions> readerPartitions =
+          share ? getSharedPartitions(searcher) : null;
+      if (readerPartitions == null) {
+        return computePartitions(searcher, worker)[worker];
+      }
+      PartitionsKey key = new PartitionsKey(keys, workers);
+      Partitions partitions = readerPartitions.computeIfAbsent(key, k -> new Partitions(workers));
+      if (partitions.started.compareAndSet(false, true)) {
+        try {
+          partitions.future.complete(new AtomicReferenceArray<>(computePartitions(searcher, -1)));
+        } catch (Throwable t) {
+          readerPartitions.remove(key, partitions);
+          partitions.future.completeExceptionally(t);
+          throw t;
+        }
+        // the workers which never ask must not pin their partitions until the reader is closed
+        CompletableFuture.delayedExecutor(SHARED_PARTITIONS_TTL_MS, TimeUnit.MILLISECONDS)
+            .execute(() -> readerPartitions.remove(key, partitions));
+      }
+
+      DocSet set;
+      try {
+        // each worker takes its partition out, the last one drops the partitions
+        set = partitions.future.get().getAndSet(worker, null);
+        if (set != null && partitions.unclaimed.decrementAndGet() == 0) {
+          readerPartitions.remove(key, partitions);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, e);
+      } catch (ExecutionException e) {
+        // the error may be specific to the request that computed them
+        set = null;
+      }
+      // the partition was already taken, e.g. the request is retried or the filter was evicted from
+      // the filterCache: compute it alone rather than keeping all partitions around for this
+      return set != null ? set : computePartitions(searcher, worker)[worker];
+    }
+
+    /**
+     * Returns the partitions shared by the requests on the index reader of the searcher, or null if
+     * the reader can't tell when it is closed.
+     */
+    private static Map<PartitionsKey, Partitions> getSharedPartitions(SolrIndexSearcher searcher) {
+      IndexReader.CacheHelper cacheHelper = searcher.getIndexReader().getReaderCacheHelper();
+      if (cacheHelper == null) {
+        return null;
+      }
+      return sharedPartitions.computeIfAbsent(
+          cacheHelper.getKey(),
+          readerKey -> {
+            cacheHelper.addClosedListener(sharedPartitions::remove);
+            return new ConcurrentHashMap<>();
+          });
+    }
+
+    /** The number of partitions computed on the reader of this searcher not taken yet */
+    static int getNumSharedPartitions(SolrIndexSearcher searcher, String[] keys, int workers) {
+      IndexReader.CacheHelper cacheHelper = searcher.getIndexReader().getReaderCacheHelper();
+      Map<PartitionsKey, Partitions> readerPartitions = sharedPartitions.get(cacheHelper.getKey());
+      Partitions partitions =
+          readerPartitions == null ? null : readerPartitions.get(new PartitionsKey(keys, workers));
+      if (partitions == null
+          || !partitions.future.isDone()
+          || partitions.future.isCompletedExceptionally()) {
+        return 0;
+      }
+      AtomicReferenceArray<DocSet> sets = partitions.future.join();
+      int count = 0;
+      for (int i = 0; i < sets.length(); i++) {
+        if (sets.get(i) != null) {
+          count++;
+        }
+      }
+      return count;
+    }
+
+    /** Whether partitions were shared on the index reader with this cache key */
+    static boolean hasSharedPartitions(IndexReader.CacheKey readerKey) {
+      return sharedPartitions.containsKey(readerKey);
+    }
+
+    /**
+     * Computes the partitions of all the workers, or only of one, reading the hash of each document
+     * once.
+     *
+     * @param onlyWorker the worker to compute the partition of, or -1 for all of them
+     */
+    private DocSet[] computePartitions(SolrIndexSearcher searcher, int onlyWorker)
+        throws IOException {
+      int maxDoc = searcher.maxDoc();
+      FixedBitSet[] bits = new FixedBitSet[workers];
+      for (int i = 0; i < workers; i++) {
+        if (onlyWorker == -1 || onlyWorker == i) {
+          bits[i] = new FixedBitSet(maxDoc);
+        }
+      }
+      HashCodeValuesSource hashes = new HashCodeValuesSource(keys);
+      for (LeafReaderContext ctx : searcher.getTopReaderContext().leaves()) {
+        LongValues values = hashes.getValues(ctx, null);
+        Bits liveDocs = ctx.reader().getLiveDocs();
+        int leafMaxDoc = ctx.reader().maxDoc();
+        for (int doc = 0; doc < leafMaxDoc; doc++) {
+          if (liveDocs != null && !liveDocs.get(doc)) {
+            continue;
+          }
+          values.advanceExact(doc);
+          int partition = partition(values.longValue(), workers);
+          if (partition >= 0 && bits[partition] != null) {
+            bits[partition].set(ctx.docBase + doc);
+          }
+        }
+      }
+      DocSet[] partitions = new DocSet[workers];
+      for (int i = 0; i < workers; i++) {
+        if (bits[i] != null) {
+          partitions[i] = new BitDocSet(bits[i]);
+        }
+      }
+      return partitions;
+    }
+
+    @Override
+    public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost)
+        throws IOException {
       // TODO wish to provide matchCost on FunctionMatchQuery's TwoPhaseIterator -- LUCENE-9373
       return new FunctionMatchQuery(
-          new HashCodeValuesSource(keys).toDoubleValuesSource(),
-          new HashPartitionPredicate(workers, worker));
+              new HashCodeValuesSource(keys).toDoubleValuesSource(),
+              new HashPartitionPredicate(workers, worker))
+          .createWeight(searcher, scoreMode, boost);
+    }
+
+    @Override
+    public void visit(QueryVisitor visitor) {
+      visitor.visitLeaf(this);
+    }
+
+    @Override
+    public String toString(String field) {
+      return "{!hash workers="
+          + workers
+          + " worker="
+          + worker
+          + (share ? " share=true" : "")
+          + "}"
+          + Arrays.stream(keys).collect(Collectors.joining(","));
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return sameClassAs(other) && equalsTo(getClass().cast(other));
+    }
+
+    private boolean equalsTo(HashPartitionQuery other) {
+      return workers == other.workers && worker == other.worker && Arrays.equals(keys, other.keys);
+    }
+
+    @Override
+    public int hashCode() {
+      return classHash() * 31 + Objects.hash(Arrays.hashCode(keys), workers, worker);
+    }
+  }
+
+  /** The partitions of all the workers, computed by the request of the first one. */
+  static class Partitions {
+    final AtomicBoolean started = new AtomicBoolean();
+    final CompletableFuture<AtomicReferenceArray<DocSet>> future = new CompletableFuture<>();
+    // the number of partitions not taken yet
+    final AtomicInteger unclaimed;
+
+    Partitions(int workers) {
+      this.unclaimed = new AtomicInteger(workers);
+    }
+  }
+
+  /** Identifies the partitions of the workers of an index reader. */
+  static class PartitionsKey {
+    final String[] keys;
+    final int workers;
+
+    PartitionsKey(String[] keys, int workers) {
+      this.keys = keys;
+      this.workers = workers;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof PartitionsKey)) return false;
+      PartitionsKey that = (PartitionsKey) o;
+      return workers == that.workers && Arrays.equals(keys, that.keys);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(Arrays.hashCode(keys), workers);
     }
   }
 
@@ -234,7 +490,7 @@ public class HashQParserPlugin extends QParserPlugin {
 
     @Override
     public boolean test(double hashAsDouble) {
-      return Math.abs((long) hashAsDouble) % workers == worker;
+      return partition(hashAsDouble, workers) == worker;
     }
 
     @Override
@@ -33,6 +33,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.TimeUnit;
@@ -164,6 +165,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
   private final int queryResultWindowSize;
   private final int queryResultMaxDocsCached;
   private final boolean useFilterForSortedQuery;
+  private final boolean coalesceQueries;
 
   private final boolean cachingEnabled;
   private final SolrCache<Query, DocSet> filterCache;
@@ -171,10 +173,15 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
   private final SolrCache<String, UnInvertedField> fieldValueCache;
   private final LongAdder fullSortCount = new LongAdder();
   private final LongAdder skipSortCount = new LongAdder();
+  private final LongAdder coalescedQueryCount = new LongAdder();
   private final LongAdder liveDocsNaiveCacheHitCount = new LongAdder();
   private final LongAdder liveDocsInsertsCount = new LongAdder();
   private final LongAdder liveDocsHitCount = new LongAdder();
 
+  // uncached query results being computed, for coalescing identical concurrent queries
+  private final Map<QueryResultKey, PendingQueryResult> pendingQueryResults =
+      new ConcurrentHashMap<>();
+
   // map of generic caches - not synchronized since it's read-only after the constructor.
   private final Map<String, SolrCache<?, ?>> cacheMap;
 
@@ -427,6 +434,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     this.queryResultWindowSize = solrConfig.queryResultWindowSize;
     this.queryResultMaxDocsCached = solrConfig.queryResultMaxDocsCached;
     this.useFilterForSortedQuery = solrConfig.useFilterForSortedQuery;
+    this.coalesceQueries = solrConfig.coalesceQueries;
 
     this.docFetcher = new SolrDocumentFetcher(this, solrConfig, enableCache);
 
@@ -1619,7 +1627,6 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     // check for overflow, and check for # docs in index
     if (maxDocRequested < 0 || maxDocRequested > maxDoc()) maxDocRequested = maxDoc();
     int supersetMaxDoc = maxDocRequested;
-    DocList superset = null;
 
     int flags = cmd.getFlags();
     Query q = cmd.getQuery();
@@ -1647,30 +1654,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
               cmd.getMinExactCount(),
               cmd.isDistribStatsDisabled());
       if ((flags & NO_CHECK_QCACHE) == 0) {
-        superset = queryResultCache.get(key);
-
-        if (superset != null) {
-          // check that the cache entry has scores recorded if we need them
-          if ((flags & GET_SCORES) == 0 || superset.hasScores()) {
-            // NOTE: subset() returns null if the DocList has fewer docs than
-            // requested
-            out.docList = superset.subset(cmd.getOffset(), cmd.getLen());
-          }
-        }
-        if (out.docList != null) {
-          // found the docList in the cache... now check if we need the docset too.
-          // OPT: possible future optimization - if the doclist contains all the matches,
-          // use it to make the docset instead of rerunning the query.
-          if (out.docSet == null && ((flags & GET_DOCSET) != 0)) {
-            if (cmd.getFilterList() == null) {
-              out.docSet = getDocSet(cmd.getQuery());
-            } else {
-              List<Query> newList = new ArrayList<>(cmd.getFilterList().size() + 1);
-              newList.add(cmd.getQuery());
-              newList.addAll(cmd.getFilterList());
-              out.docSet = getDocSet(newList);
-            }
-          }
+        if (useCachedDocList(out, queryResultCache.get(key), cmd, flags)) {
           return qr;
         }
       }
@@ -1693,6 +1677,75 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     }
     cmd.setSupersetMaxDoc(supersetMaxDoc);
 
+    PendingQueryResult pending = null;
+    if (coalesceQueries && key != null && (flags & NO_CHECK_QCACHE) == 0) {
+      pending = new PendingQueryResult();
+      PendingQueryResult inFlight = pendingQueryResults.putIfAbsent(key, pending);
+      if (inFlight != null) {
+        // an identical query is already being computed, wait for it to populate the cache
+        pending = null;
+        if (inFlight.await() && useCachedDocList(out, queryResultCache.get(key), cmd, flags)) {
+          coalescedQueryCount.increment();
+          return qr;
+        }
+      }
+    }
+    try {
+      getDocListC(qr, cmd, key, flags);
+    } finally {
+      if (pending != null) {
+        pendingQueryResults.remove(key, pending);
+        pending.done.countDown();
+      }
+    }
+    return qr;
+  }
+
+  /**
+   * Sets the requested slice of a cached DocList on {@code out}, along with the DocSet if needed.
+   *
+   * @return false if the cached DocList is null or can't satisfy the request
+   */
+  private boolean useCachedDocList(
+      DocListAndSet out, DocList superset, QueryCommand cmd, int flags) throws IOException {
+    if (superset != null) {
+      // check that the cache entry has scores recorded if we need them
+      if ((flags & GET_SCORES) == 0 || superset.hasScores()) {
+        // NOTE: subset() returns null if the DocList has fewer docs than
+        // requested
+        out.docList = superset.subset(cmd.getOffset(), cmd.getLen());
+      }
+    }
+    if (out.docList == null) {
+      return false;
+    }
+    // found the docList in the cache... now check if we need the docset too.
+    // OPT: possible future optimization - if the doclist contains all the matches,
+    // use it to make the docset instead of rerunning the query.
+    if (out.docSet == null && ((flags & GET_DOCSET) != 0)) {
+      if (cmd.getFilterList() == null) {
+        out.docSet = getDocSet(cmd.getQuery());
+      } else {
+        List<Query> newList = new ArrayList<>(cmd.getFilterList().size() + 1);
+        newList.add(cmd.getQuery());
+        newList.addAll(cmd.getFilterList());
+        out.docSet = getDocSet(newList);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Generates the answer of {@link #getDocListC(QueryResult, QueryCommand)} after a cache miss, and
+   * caches it under the given key if not null.
+   */
+  private void getDocListC(QueryResult qr, QueryCommand cmd, QueryResultKey key, int flags)
+      throws IOException {
+    final DocListAndSet out = qr.getDocListAndSet();
+    final Query q = cmd.getQuery();
+    final int supersetMaxDoc = cmd.getSupersetMaxDoc();
+    DocList superset = null;
+
     // OK, so now we need to generate an answer.
     // One way to do that would be to check if we have an unordered list
     // of results for the base query. If so, we can apply the filters and then
@@ -1808,7 +1861,45 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     if (key != null && superset.size() <= queryResultMaxDocsCached && !qr.isPartialResults()) {
       queryResultCache.put(key, superset);
     }
-    return qr;
+  }
+
+  /** A query result being computed, that identical concurrent queries can wait for. */
+  private static final class PendingQueryResult {
+    // how often a waiting query checks its own limits (timeAllowed...)
+    private static final long LIMITS_CHECK_INTERVAL_MS = 10;
+
+    final Thread thread = Thread.currentThread();
+    final CountDownLatch done = new CountDownLatch(1);
+
+    /**
+     * Waits for the computation to complete, for no longer than the {@link QueryLimits} of the
+     * current request allow.
+     *
+     * @return false if it can't be waited for, or the limits of the request were reached first
+     */
+    boolean await() {
+      if (thread == Thread.currentThread()) {
+        // nested identical query, waiting would deadlock
+        return false;
+      }
+      QueryLimits queryLimits = QueryLimits.getCurrentLimits();
+      try {
+        if (!queryLimits.isLimitsEnabled()) {
+          done.await();
+          return true;
+        }
+        while (!done.await(LIMITS_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+          if (queryLimits.shouldExit()) {
+            // compute the result here instead, which handles the exceeded limits as usual
+            return false;
+          }
+        }
+        return true;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
   }
 
   private Relation populateScoresIfNeeded(
@@ -2709,6 +2800,12 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
         fullSortCount::sum, true, "fullSortCount", Category.SEARCHER.toString(), scope);
     parentContext.gauge(
         skipSortCount::sum, true, "skipSortCount", Category.SEARCHER.toString(), scope);
+    parentContext.gauge(
+        coalescedQueryCount::sum,
+        true,
+        "coalescedQueryCount",
+        Category.SEARCHER.toString(),
+        scope);
     final MetricsMap liveDocsCacheMetrics =
         new MetricsMap(
             (map) -> {
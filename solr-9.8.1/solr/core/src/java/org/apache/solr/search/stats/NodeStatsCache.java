@@ -0,0 +1,446 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.stats;
+
+import static org.apache.solr.common.params.CommonParams.PATH;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.CollectionStatistics;
+import org.apache.lucene.search.TermStatistics;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.params.ShardParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.ObjectCache;
+import org.apache.solr.core.CloseHook;
+import org.apache.solr.core.PluginInfo;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.handler.component.ResponseBuilder;
+import org.apache.solr.handler.component.ShardHandler;
+import org.apache.solr.handler.component.ShardRequest;
+import org.apache.solr.handler.component.ShardResponse;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.search.SolrCache;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Node-level global statistics cache. Unlike {@link LRUStatsCache}, whose caches live and die with
+ * each {@link SolrIndexSearcher}, the global term and collection statistics gathered by this
+ * implementation are kept per collection (and set of queried shards) on the node, in the {@link
+ * ObjectCache} of the {@link org.apache.solr.core.CoreContainer}, and survive commits.
+ *
+ * <p>A distributed query only makes the extra stats round trip when the global stats of some of its
+ * terms are not known yet, or were gathered before a searcher of this collection was reopened on
+ * this node. Otherwise the aggregator serves the stats from memory and sends them to the shards
+ * along with the main query, so that distributed scoring stays consistent.
+ *
+ * <p>The cached statistics are refreshed lazily, there is no refresh without queries: the first
+ * distributed query which finds that a local searcher of the collection was reopened, or that the
+ * stats were last refreshed more than {@link #DEFAULT_REFRESH_INTERVAL_SECS} seconds ago, schedules
+ * a background re-fetch of the stats of all cached terms and fields. That query doesn't wait for
+ * it, but since the stats gathered before the searcher was reopened aren't served anymore, it makes
+ * the stats round trip for its own terms.
+ *
+ * <p>The number of cached terms is bounded by the {@code size} attribute (by default {@link
+ * #DEFAULT_MAX_SIZE}) and the refresh interval can be set with the {@code refreshIntervalSecs}
+ * attribute.
+ */
+public class NodeStatsCache extends ExactStatsCache {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  public static final int DEFAULT_MAX_SIZE = 10000;
+  public static final int DEFAULT_REFRESH_INTERVAL_SECS = 60;
+  public static final String REFRESH_INTERVAL_PARAM = "refreshIntervalSecs";
+
+  private static final String OBJECT_CACHE_PREFIX = NodeStatsCache.class.getName() + ".";
+  private static final String NODE_STATS_KEY = "solr.stats.node";
+  private static final String NODE_STATS_GENERATION_KEY = "solr.stats.nodeGeneration";
+  private static final String NODE_STATS_CACHED_KEY = "solr.stats.nodeCached";
+
+  private int maxSize = DEFAULT_MAX_SIZE;
+  private long refreshIntervalNanos = TimeUnit.SECONDS.toNanos(DEFAULT_REFRESH_INTERVAL_SECS);
+
+  @Override
+  public void init(PluginInfo info) {
+    super.init(info);
+    if (info != null && info.attributes != null) {
+      String size = info.attributes.get(SolrCache.SIZE_PARAM);
+      if (size != null) {
+        maxSize = Integer.parseInt(size);
+      }
+      String interval = info.attributes.get(REFRESH_INTERVAL_PARAM);
+      if (interval != null) {
+        refreshIntervalNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(interval));
+      }
+    }
+  }
+
+  @Override
+  protected ShardRequest doRetrieveStatsRequest(ResponseBuilder rb) {
+    NodeStats nodeStats = getNodeStats(rb);
+    if (nodeStats == null) {
+      // can't tell which shards this query goes to
+      return super.doRetrieveStatsRequest(rb);
+    }
+    long generation = nodeStats.checkSearcher(rb.req.getCore(), rb.req.getSearcher());
+    rb.req.getContext().put(NODE_STATS_KEY, nodeStats);
+    rb.req.getContext().put(NODE_STATS_GENERATION_KEY, generation);
+    maybeRefresh(rb, nodeStats);
+
+    // NOTE: as with LRUStatsCache, the query is rewritten against the local index only, so
+    // terms missing from the local index are not checked (and shards use local stats for them)
+    Set<Term> queryTerms = new HashSet<>();
+    try {
+      int missing =
+          approxCheckMissingStats(
+              rb, new NodeStatsSource(nodeStats, generation, queryTerms), t -> {}, f -> {});
+      if (missing == 0) {
+        // serve the stats from the node cache, they're sent to shards with the main query
+        rb.req.getContext().put(TERMS_KEY, StatsUtil.termsToEncodedString(queryTerms));
+        rb.req.getContext().put(NODE_STATS_CACHED_KEY, Boolean.TRUE);
+        statsCacheMetrics.retrieveStats.decrement();
+        statsCacheMetrics.useCachedGlobalStats.increment();
+        return null;
+      }
+    } catch (IOException e) {
+      log.warn(
+          "Exception checking missing stats for query {}, forcing retrieving stats",
+          rb.getQuery(),
+          e);
+    }
+    return super.doRetrieveStatsRequest(rb);
+  }
+
+  @Override
+  protected void doMergeToGlobalStats(SolrQueryRequest req, List<ShardResponse> responses) {
+    super.doMergeToGlobalStats(req, responses);
+    NodeStats nodeStats = (NodeStats) req.getContext().get(NODE_STATS_KEY);
+    if (nodeStats != null) {
+      long generation = (Long) req.getContext().get(NODE_STATS_GENERATION_KEY);
+      cacheGlobalStats(nodeStats, generation, responses);
+    }
+  }
+
+  /** Sums up the shard stats of the responses and caches them, if all shards responded. */
+  private void cacheGlobalStats(
+      NodeStats nodeStats, long generation, List<ShardResponse> responses) {
+    Map<String, TermStats> globalTermStats = new HashMap<>();
+    Map<String, CollectionStats> globalColStats = new HashMap<>();
+    int numResponses = 0;
+    for (ShardResponse r : responses) {
+      if (r.getException() != null || r.getSolrResponse().getException() != null) {
+        continue;
+      }
+      numResponses++;
+      NamedList<Object> nl = r.getSolrResponse().getResponse();
+      Map<String, TermStats> termStats =
+          StatsUtil.termStatsMapFromString((String) nl.get(TERM_STATS_KEY));
+      if (termStats != null) {
+        for (TermStats stats : termStats.values()) {
+          if (stats.docFreq > 0) {
+            globalTermStats.computeIfAbsent(stats.term, k -> new TermStats(k)).add(stats);
+          }
+        }
+      }
+      Map<String, CollectionStats> colStats =
+          StatsUtil.colStatsMapFromString((String) nl.get(COL_STATS_KEY));
+      if (colStats != null) {
+        for (CollectionStats stats : colStats.values()) {
+          globalColStats.computeIfAbsent(stats.field, k -> new CollectionStats(k)).add(stats);
+        }
+      }
+    }
+    if (numResponses < nodeStats.numShards) {
+      // partial results (shards.tolerant), don't cache them
+      log.debug("Not caching stats of {} out of {} shards", numResponses, nodeStats.numShards);
+      return;
+    }
+    nodeStats.update(globalTermStats, globalColStats, generation);
+  }
+
+  @Override
+  protected void doSendGlobalStats(ResponseBuilder rb, ShardRequest outgoing) {
+    if (!rb.req.getContext().containsKey(NODE_STATS_CACHED_KEY)) {
+      // stats were retrieved for this request
+      super.doSendGlobalStats(rb, outgoing);
+      return;
+    }
+    NodeStats nodeStats = (NodeStats) rb.req.getContext().get(NODE_STATS_KEY);
+    Set<Term> terms = StatsUtil.termsFromEncodedString((String) rb.req.getContext().get(TERMS_KEY));
+    if (terms.isEmpty()) {
+      return;
+    }
+    Map<String, TermStats> globalTermStats = new HashMap<>();
+    Map<String, CollectionStats> globalColStats = new HashMap<>();
+    for (Term t : terms) {
+      TermStats termStats = nodeStats.getTermStats(t.toString(), Long.MIN_VALUE);
+      if (termStats != null) {
+        globalTermStats.put(termStats.term, termStats);
+      }
+      CollectionStats colStats = nodeStats.getColStats(t.field(), Long.MIN_VALUE);
+      if (colStats != null) {
+        globalColStats.put(colStats.field, colStats);
+      }
+    }
+    ModifiableSolrParams params = outgoing.params;
+    params.add(COL_STATS_KEY, StatsUtil.colStatsMapToString(globalColStats));
+    params.add(TERMS_KEY, StatsUtil.termsToEncodedString(terms));
+    params.add(TERM_STATS_KEY, StatsUtil.termStatsMapToString(globalTermStats));
+  }
+
+  /** Returns the node-level stats for the collection and shards of this query, or null */
+  private NodeStats getNodeStats(ResponseBuilder rb) {
+    SolrCore core = rb.req.getCore();
+    if (rb.shards == null || rb.shards.length == 0 || core == null) {
+      return null;
+    }
+    String collectionName = core.getCoreDescriptor().getCollectionName();
+    if (collectionName == null) {
+      collectionName = core.getCoreDescriptor().getName();
+    }
+    Set<String> shardNames = new TreeSet<>();
+    for (String shardUrl : rb.shards) {
+      String shard = StatsUtil.shardUrlToShard(collectionName, shardUrl);
+      if (shard == null) {
+        return null;
+      }
+      shardNames.add(shard);
+    }
+    String key = OBJECT_CACHE_PREFIX + collectionName + "/" + String.join(",", shardNames);
+    ObjectCache objectCache = core.getCoreContainer().getObjectCache();
+    NodeStats nodeStats =
+        objectCache.computeIfAbsent(
+            key, NodeStats.class, k -> new NodeStats(k, shardNames.size(), maxSize));
+    nodeStats.register(core, objectCache);
+    return nodeStats;
+  }
+
+  /** Schedules a background refresh of all cached stats if they may be out of date. */
+  private void maybeRefresh(ResponseBuilder rb, NodeStats nodeStats) {
+    if (!nodeStats.needsRefresh(refreshIntervalNanos)
+        || !nodeStats.refreshing.compareAndSet(false, true)) {
+      return;
+    }
+    SolrCore core = rb.req.getCore();
+    String[] shards = rb.shards.clone();
+    String path = (String) rb.req.getContext().get(PATH);
+    String shardsQt = rb.req.getParams().get(ShardParams.SHARDS_QT);
+    long generation = nodeStats.generation.get();
+    try {
+      core.runAsync(
+          () -> {
+            try {
+              refresh(core, nodeStats, generation, shards, shardsQt != null ? shardsQt : path);
+            } catch (Exception e) {
+              log.warn("Failed refreshing global stats {}", nodeStats.key, e);
+            } finally {
+              nodeStats.refreshing.set(false);
+            }
+          });
+    } catch (RuntimeException e) {
+      // e.g. the core is closing
+      nodeStats.refreshing.set(false);
+      log.debug("Could not schedule global stats refresh", e);
+    }
+  }
+
+  private void refresh(
+      SolrCore core, NodeStats nodeStats, long generation, String[] shards, String qt) {
+    nodeStats.lastRefreshNanos = System.nanoTime();
+    nodeStats.refreshedGeneration = generation;
+    Set<String> terms = nodeStats.termStats.asMap().keySet();
+    Set<String> fields = nodeStats.colStats.keySet();
+    if (terms.isEmpty() && fields.isEmpty()) {
+      return;
+    }
+    ModifiableSolrParams params = new ModifiableSolrParams();
+    params.set(CommonParams.Q, "*:*");
+    params.set(TERMS_KEY, StatsUtil.termsToEncodedString(new ArrayList<>(terms)));
+    params.set(FIELDS_KEY, StatsUtil.fieldsToString(new ArrayList<>(fields)));
+    if (qt != null && !"/select".equals(qt)) {
+      params.set(CommonParams.QT, qt);
+    }
+    ShardRequest sreq = new ShardRequest();
+    sreq.purpose = ShardRequest.PURPOSE_GET_TERM_STATS;
+    sreq.actualShards = shards;
+    sreq.responses = new ArrayList<>(shards.length);
+    ShardHandler shardHandler = core.getCoreContainer().getShardHandlerFactory().getShardHandler();
+    for (String shard : shards) {
+      ModifiableSolrParams shardParams = new ModifiableSolrParams(params);
+      ShardHandler.setShardAttributesToParams(shardParams, sreq.purpose);
+      shardHandler.submit(sreq, shard, shardParams);
+    }
+    while (shardHandler.takeCompletedIncludingErrors() != null) {
+      // wait until all shards responded
+    }
+
+    cacheGlobalStats(nodeStats, generation, sreq.responses);
+    if (log.isDebugEnabled()) {
+      log.debug(
+          "Refreshed global stats {}: {} terms, {} fields",
+          nodeStats.key,
+          terms.size(),
+          fields.size());
+    }
+  }
+
+  /** Global stats of a collection (and set of shards) shared by all its cores on this node. */
+  static final class NodeStats {
+    final String key;
+    final int numShards;
+    // global stats of terms and fields, with the generation they were gathered at
+    final Cache<String, Versioned<TermStats>> termStats;
+    final Map<String, Versioned<CollectionStats>> colStats = new ConcurrentHashMap<>();
+    // bumped whenever a local searcher of the collection changes
+    final AtomicLong generation = new AtomicLong();
+    final Map<String, Object> searcherKeys = new ConcurrentHashMap<>();
+    final AtomicBoolean refreshing = new AtomicBoolean();
+    volatile long lastRefreshNanos = System.nanoTime();
+    volatile long refreshedGeneration;
+
+    NodeStats(String key, int numShards, int maxSize) {
+      this.key = key;
+      this.numShards = numShards;
+      this.termStats = Caffeine.newBuilder().maximumSize(maxSize).build();
+    }
+
+    /** Tracks the core so that the stats are discarded once the last core is closed. */
+    void register(SolrCore core, ObjectCache objectCache) {
+      if (searcherKeys.putIfAbsent(core.getName(), new Object()) != null) {
+        return;
+      }
+      core.addCloseHook(
+          new CloseHook() {
+            @Override
+            public void postClose(SolrCore core) {
+              searcherKeys.remove(core.getName());
+              if (searcherKeys.isEmpty()) {
+                objectCache.remove(key);
+              }
+            }
+          });
+    }
+
+    /**
+     * Bumps the generation if the given core opened a new searcher since the last call, which
+     * makes all stats gathered before stale.
+     *
+     * @return the current generation
+     */
+    long checkSearcher(SolrCore core, SolrIndexSearcher searcher) {
+      Object searcherKey = searcher.getIndexReader().getReaderCacheHelper().getKey();
+      Object previous = searcherKeys.put(core.getName(), searcherKey);
+      if (previous != searcherKey) {
+        return generation.incrementAndGet();
+      }
+      return generation.get();
+    }
+
+    boolean needsRefresh(long refreshIntervalNanos) {
+      return refreshedGeneration != generation.get()
+          || System.nanoTime() - lastRefreshNanos > refreshIntervalNanos;
+    }
+
+    TermStats getTermStats(String term, long minGeneration) {
+      Versioned<TermStats> v = termStats.getIfPresent(term);
+      return v != null && v.generation >= minGeneration ? v.value : null;
+    }
+
+    CollectionStats getColStats(String field, long minGeneration) {
+      Versioned<CollectionStats> v = colStats.get(field);
+      return v != null && v.generation >= minGeneration ? v.value : null;
+    }
+
+    void update(
+        Map<String, TermStats> globalTermStats,
+        Map<String, CollectionStats> globalColStats,
+        long generation) {
+      for (Map.Entry<String, TermStats> e : globalTermStats.entrySet()) {
+        termStats.put(e.getKey(), new Versioned<>(e.getValue(), generation));
+      }
+      for (Map.Entry<String, CollectionStats> e : globalColStats.entrySet()) {
+        colStats.put(e.getKey(), new Versioned<>(e.getValue(), generation));
+      }
+    }
+  }
+
+  static final class Versioned<T> {
+    final T value;
+    final long generation;
+
+    Versioned(T value, long generation) {
+      this.value = value;
+      this.generation = generation;
+    }
+  }
+
+  /** Serves global stats from the node cache, falling back to local stats of missing ones. */
+  private class NodeStatsSource extends StatsSource {
+    private final NodeStats nodeStats;
+    private final long minGeneration;
+    private final Set<Term> seenTerms;
+
+    NodeStatsSource(NodeStats nodeStats, long minGeneration, Set<Term> seenTerms) {
+      this.nodeStats = nodeStats;
+      this.minGeneration = minGeneration;
+      this.seenTerms = seenTerms;
+    }
+
+    @Override
+    public TermStatistics termStatistics(
+        SolrIndexSearcher localSearcher, Term term, int docFreq, long totalTermFreq)
+        throws IOException {
+      if (seenTerms != null) {
+        seenTerms.add(term);
+      }
+      TermStats termStats = nodeStats.getTermStats(term.toString(), minGeneration);
+      if (termStats == null) {
+        return localSearcher != null
+            ? localSearcher.localTermStatistics(term, docFreq, totalTermFreq)
+            : null;
+      }
+      return termStats.toTermStatistics();
+    }
+
+    @Override
+    public CollectionStatistics collectionStatistics(SolrIndexSearcher localSearcher, String field)
+        throws IOException {
+      CollectionStats colStats = nodeStats.getColStats(field, minGeneration);
+      if (colStats == null) {
+        return localSearcher != null ? localSearcher.localCollectionStatistics(field) : null;
+      }
+      return colStats.toCollectionStatistics();
+    }
+  }
+}
@@ -18,6 +18,7 @@
 package org.apache.solr.update;
 
 import static org.apache.solr.common.params.CommonParams.DISTRIB;
+import static org.apache.solr.common.params.CommonParams.VERSION_FIELD;
 import static org.apache.solr.update.PeerSync.MissedUpdatesRequest;
 import static org.apache.solr.update.PeerSync.absComparator;
 import static org.apache.solr.update.PeerSync.percentile;
@@ -26,8 +27,13 @@ import com.codahale.metrics.Counter;
 import com.codahale.metrics.Timer;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import org.apache.lucene.index.FieldInfo;
 import org.apache.solr.client.solrj.SolrRequest;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.Http2SolrClient;
@@ -36,12 +42,17 @@ import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.cloud.ZkController;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.EnvUtils;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.URLUtil;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.core.SolrInfoBean;
 import org.apache.solr.metrics.SolrMetricProducer;
 import org.apache.solr.metrics.SolrMetricsContext;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.util.RefCounted;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,6 +60,19 @@ public class PeerSyncWithLeader implements SolrMetricProducer {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private boolean debug = log.isDebugEnabled();
 
+  /**
+   * The maximum number of documents fetched from the index of the leader when the updates we missed
+   * are not all in its recent updates. The documents are found by comparing the fingerprints of
+   * ranges of versions with the leader, see {@link VersionRangeFingerprint}. 0, the default, falls
+   * back to replication instead.
+   */
+  public static final String RANGE_SYNC_MAX_DOCS_PROP = "solr.peerSync.rangeSyncMaxDocs";
+
+  private static final int RANGE_SPLITS = 16;
+  private static final int RANGE_MAX_LISTED = 64;
+  private static final int RANGE_MAX_ROUNDS = 16;
+  private static final int RANGE_FETCH_BATCH_SIZE = 100;
+
   private String leaderUrl;
   private int nUpdates;
 
@@ -59,6 +83,7 @@ public class PeerSyncWithLeader implements SolrMetricProducer {
   private final String leaderBaseUrl;
 
   private boolean doFingerprint;
+  private final int rangeSyncMaxDocs;
 
   private SolrCore core;
   private PeerSync.Updater updater;
@@ -69,6 +94,7 @@ public class PeerSyncWithLeader implements SolrMetricProducer {
   private Timer syncTime;
   private Counter syncErrors;
   private Counter syncSkipped;
+  private Counter rangeSyncs;
   private SolrMetricsContext solrMetricsContext;
 
   public PeerSyncWithLeader(SolrCore core, String leaderUrl, int nUpdates) {
@@ -77,6 +103,7 @@ public class PeerSyncWithLeader implements SolrMetricProducer {
     this.nUpdates = nUpdates;
 
     this.doFingerprint = !"true".equals(System.getProperty("solr.disableFingerprint"));
+    this.rangeSyncMaxDocs = EnvUtils.getPropertyAsInteger(RANGE_SYNC_MAX_DOCS_PROP, 0);
     this.uhandler = core.getUpdateHandler();
     this.ulog = uhandler.getUpdateLog();
 
@@ -103,6 +130,7 @@ public class PeerSyncWithLeader implements SolrMetricProducer {
     syncTime = solrMetricsContext.timer("time", scope, METRIC_SCOPE);
     syncErrors = solrMetricsContext.counter("errors", scope, METRIC_SCOPE);
     syncSkipped = solrMetricsContext.counter("skipped", scope, METRIC_SCOPE);
+    rangeSyncs = solrMetricsContext.counter("rangeSyncs", scope, METRIC_SCOPE);
   }
 
   // start of peersync related debug messages.  includes the core name for correlation.
@@ -224,10 +252,167 @@ public class PeerSyncWithLeader implements SolrMetricProducer {
         }
         return true;
       }
+    } else if (doFingerprint && rangeSyncMaxDocs > 0) {
+      // the recent updates do not tell what we missed, compare the indexes instead
+      if (syncVersionRanges(leaderFingerprint)) {
+        return compareFingerprint(leaderFingerprint);
+      }
     }
     return false;
   }
 
+  /**
+   * Finds the documents of the leader we do not have by comparing the fingerprints of ranges of
+   * versions, and splitting the ranges that differ until they have few enough documents to list
+   * them, then fetches these documents from the leader.
+   */
+  private boolean syncVersionRanges(IndexFingerprint leaderFingerprint) {
+    try {
+      if (!canRebuildDocuments(core)) {
+        log.info("{} Not syncing version ranges, fields are neither stored nor docValues", msg());
+        return false;
+      }
+
+      Map<String, Long> missed = new HashMap<>();
+      Set<String> extra = new HashSet<>();
+      List<long[]> ranges = new ArrayList<>();
+      ranges.add(new long[] {0, leaderFingerprint.getMaxVersionEncountered()});
+      for (int round = 0; !ranges.isEmpty(); round++) {
+        if (round == RANGE_MAX_ROUNDS) {
+          log.info("{} Could not find the differing versions in {} rounds", msg(), round);
+          return false;
+        }
+        List<VersionRangeFingerprint> leaderRanges = getRangeFingerprints(ranges);
+        List<VersionRangeFingerprint> ourRanges =
+            VersionRangeFingerprint.getFingerprints(core, ranges, RANGE_SPLITS, RANGE_MAX_LISTED);
+        if (leaderRanges == null || leaderRanges.size() != ourRanges.size()) {
+          log.warn("{} Could not get version range fingerprints from the leader", msg());
+          return false;
+        }
+
+        List<long[]> differing = new ArrayList<>();
+        for (int i = 0; i < ourRanges.size(); i++) {
+          VersionRangeFingerprint leaderRange = leaderRanges.get(i);
+          VersionRangeFingerprint ourRange = ourRanges.get(i);
+          if (leaderRange.sameVersions(ourRange)) continue;
+          if (leaderRange.getVersions() != null && ourRange.getVersions() != null) {
+            if (!compareVersions(leaderRange, ourRange, missed, extra)) {
+              return false;
+            }
+          } else {
+            long lo = Math.min(leaderRange.getMinVersion(), ourRange.getMinVersion());
+            long hi = Math.max(leaderRange.getMaxVersion(), ourRange.getMaxVersion());
+            if (lo == hi) {
+              log.info("{} Too many documents with version {}", msg(), lo);
+              return false;
+            }
+            differing.add(new long[] {lo, hi});
+          }
+        }
+        // every differing range has at least one document we are missing or have in excess
+        if (missed.size() + extra.size() + differing.size() > rangeSyncMaxDocs) {
+          log.info(
+              "{} PeerSync will fail because more than {} documents differ from the leader",
+              msg(),
+              rangeSyncMaxDocs);
+          return false;
+        }
+        ranges = differing;
+      }
+
+      // our documents the leader does not have must have been updated since, else deleted
+      extra.removeAll(missed.keySet());
+      if (!extra.isEmpty()) {
+        log.info("{} {} of our documents were deleted on the leader", msg(), extra.size());
+        return false;
+      }
+
+      List<String> ids = new ArrayList<>(missed.keySet());
+      List<Object> updates = new ArrayList<>(ids.size());
+      for (int i = 0; i < ids.size(); i += RANGE_FETCH_BATCH_SIZE) {
+        updates.addAll(
+            getInputDocuments(ids.subList(i, Math.min(ids.size(), i + RANGE_FETCH_BATCH_SIZE))));
+      }
+      if (log.isInfoEnabled()) {
+        log.info(
+            "{} Fetched {} of the {} documents found missing from {}",
+            msg(),
+            updates.size(),
+            ids.size(),
+            leaderUrl);
+      }
+      updater.applyUpdates(updates, leaderUrl);
+      rangeSyncs.inc();
+      return true;
+    } catch (Exception e) {
+      log.warn("{} Error while syncing version ranges with the leader", msg(), e);
+      return false;
+    }
+  }
+
+  private boolean compareVersions(
+      VersionRangeFingerprint leaderRange,
+      VersionRangeFingerprint ourRange,
+      Map<String, Long> missed,
+      Set<String> extra) {
+    Map<Long, String> leaderDocs = getDocsByVersion(leaderRange);
+    Map<Long, String> ourDocs = getDocsByVersion(ourRange);
+    if (leaderDocs == null || ourDocs == null) {
+      // nested documents share the version of their root
+      log.info("{} Can't sync version ranges with several documents per version", msg());
+      return false;
+    }
+    for (Map.Entry<Long, String> doc : leaderDocs.entrySet()) {
+      if (!ourDocs.containsKey(doc.getKey())) {
+        missed.put(doc.getValue(), doc.getKey());
+      }
+    }
+    for (Map.Entry<Long, String> doc : ourDocs.entrySet()) {
+      if (!leaderDocs.containsKey(doc.getKey())) {
+        extra.add(doc.getValue());
+      }
+    }
+    return true;
+  }
+
+  private static Map<Long, String> getDocsByVersion(VersionRangeFingerprint range) {
+    Map<Long, String> docs = new HashMap<>();
+    for (int i = 0; i < range.getVersions().size(); i++) {
+      if (docs.put(range.getVersions().get(i), range.getIds().get(i)) != null) {
+        return null;
+      }
+    }
+    return docs;
+  }
+
+  /**
+   * Whether the documents of the index of the leader can be fetched as they were indexed, which is
+   * the case when the fields of our index are all stored or docValues, as for atomic updates.
+   */
+  private static boolean canRebuildDocuments(SolrCore core) {
+    IndexSchema schema = core.getLatestSchema();
+    RefCounted<SolrIndexSearcher> searcher = core.getRealtimeSearcher();
+    try {
+      for (FieldInfo fieldInfo : searcher.get().getFieldInfos()) {
+        SchemaField field = schema.getFieldOrNull(fieldInfo.name);
+        if (field == null
+            || field.getName().equals(VERSION_FIELD)
+            || field.getName().equals(IndexSchema.ROOT_FIELD_NAME)
+            || field.getName().equals(IndexSchema.NEST_PATH_FIELD_NAME)) {
+          continue;
+        }
+        if (!field.stored()
+            && !(field.hasDocValues() && field.useDocValuesAsStored())
+            && !schema.isCopyFieldTarget(field)) {
+          return false;
+        }
+      }
+      return true;
+    } finally {
+      searcher.decref();
+    }
+  }
+
   private MissedUpdatesRequest buildMissedUpdatesRequest(NamedList<Object> rsp) {
     // we retrieved the last N updates from the replica
     @SuppressWarnings({"unchecked"})
@@ -355,6 +540,40 @@ public class PeerSyncWithLeader implements SolrMetricProducer {
     return request(params, "Failed to get recent versions from leader");
   }
 
+  private List<VersionRangeFingerprint> getRangeFingerprints(List<long[]> ranges) {
+    ModifiableSolrParams params = new ModifiableSolrParams();
+    params.set("qt", "/get");
+    params.set(DISTRIB, false);
+    params.set("getRangeFingerprints", VersionRangeFingerprint.formatRanges(ranges));
+    params.set("rangeSplits", RANGE_SPLITS);
+    params.set("rangeMaxListed", RANGE_MAX_LISTED);
+
+    NamedList<Object> rsp = request(params, "Failed to get version range fingerprints from leader");
+    List<?> fingerprints = (List<?>) rsp.get("rangeFingerprints");
+    if (fingerprints == null) return null;
+    List<VersionRangeFingerprint> result = new ArrayList<>(fingerprints.size());
+    for (Object fingerprint : fingerprints) {
+      result.add(VersionRangeFingerprint.fromObject(fingerprint));
+    }
+    return result;
+  }
+
+  private List<Object> getInputDocuments(List<String> ids) {
+    ModifiableSolrParams params = new ModifiableSolrParams();
+    params.set("qt", "/get");
+    params.set(DISTRIB, false);
+    params.set("getInputDocuments", ids.toArray(new String[0]));
+
+    NamedList<Object> rsp = request(params, "Failed to get missed documents from leader");
+    @SuppressWarnings({"unchecked"})
+    List<Object> updates = (List<Object>) rsp.get("inputDocuments");
+    if (updates == null) {
+      throw new SolrException(
+          SolrException.ErrorCode.SERVER_ERROR, "Failed to get missed documents from leader");
+    }
+    return updates;
+  }
+
   private boolean alreadyInSync() {
     ModifiableSolrParams params = new ModifiableSolrParams();
     params.set("qt", "/get");
@@ -26,17 +26,21 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.lucene.index.CodecReader;
 import org.apache.lucene.index.FilterCodecReader;
-import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.FilterLeafReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.SegmentCommitInfo;
+import org.apache.lucene.index.SegmentReader;
 import org.apache.lucene.index.SlowCodecReaderWrapper;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
@@ -64,7 +68,10 @@ import org.apache.solr.common.cloud.CompositeIdRouter;
 import org.apache.solr.common.cloud.DocRouter;
 import org.apache.solr.common.cloud.HashBasedRouter;
 import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.util.EnvUtils;
+import org.apache.solr.common.util.ExecutorUtil;
 import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
 import org.apache.solr.core.DirectoryFactory;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.handler.IndexFetcher;
@@ -83,6 +90,12 @@ public class SolrIndexSplitter {
 
   private static final String INDEX_PREFIX = "index.";
 
+  /**
+   * The number of threads finding the documents of each sub-shard in the segments of the parent
+   * shard in 'link' mode, half the processors by default.
+   */
+  public static final String SPLIT_THREADS_PROP = "solr.index.splitThreads";
+
   public enum SplitMethod {
     REWRITE,
     LINK;
@@ -260,7 +273,13 @@ public class SolrIndexSplitter {
       t.stop();
     }
 
-    Map<IndexReader.CacheKey, FixedBitSet[]> docsToDeleteCache = new ConcurrentHashMap<>();
+    Map<Object, FixedBitSet[]> docsToDeleteCache = new ConcurrentHashMap<>();
+    if (splitMethod == SplitMethod.LINK && rangesArr != null) {
+      t = timings.sub("findDocsToDelete");
+      t.resume();
+      findDocsToDelete(leaves, docsToDeleteCache);
+      t.pause();
+    }
 
     // would it be more efficient to write segment-at-a-time to each new index?
     // - need to worry about number of open descriptors
@@ -510,6 +529,67 @@ public class SolrIndexSplitter {
     }
   }
 
+  /**
+   * Finds the documents each partition deletes from the segments of the parent shard, several
+   * segments at once, so that the partitions only have to hard-link the segments and write their
+   * deletions. Reading the ids of all the documents takes most of the time of a 'link' split.
+   */
+  private void findDocsToDelete(
+      List<LeafReaderContext> leaves, Map<Object, FixedBitSet[]> docsToDelete) throws IOException {
+    int defaultThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    int numThreads =
+        Math.min(
+            leaves.size(), EnvUtils.getPropertyAsInteger(SPLIT_THREADS_PROP, defaultThreads));
+    if (numThreads <= 1) {
+      // found one segment after another when the deletions are applied
+      return;
+    }
+    ExecutorService executor =
+        ExecutorUtil.newMDCAwareFixedThreadPool(
+            numThreads, new SolrNamedThreadFactory("indexSplitter"));
+    try {
+      List<Future<?>> futures = new ArrayList<>(leaves.size());
+      for (LeafReaderContext leaf : leaves) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  FixedBitSet[] perPartition =
+                      split(leaf, numPieces, field, rangesArr, splitKey, hashRouter, null, true);
+                  docsToDelete.put(getSegmentKey(leaf.reader()), perPartition);
+                  return null;
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SolrException(
+          SolrException.ErrorCode.SERVER_ERROR, "Interrupted while splitting the index", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new SolrException(
+          SolrException.ErrorCode.SERVER_ERROR, "Error while splitting the index", e.getCause());
+    } finally {
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+    }
+  }
+
+  /**
+   * The key of the documents to delete from a segment. The readers of the parent core and of the
+   * sub-shard index writers share it when they read the same segment with the same deletions.
+   */
+  private static Object getSegmentKey(LeafReader reader) {
+    LeafReader unwrapped = FilterLeafReader.unwrap(reader);
+    if (unwrapped instanceof SegmentReader) {
+      SegmentCommitInfo info = ((SegmentReader) unwrapped).getSegmentInfo();
+      return info.info.name + "_" + info.getDelGen() + "_" + reader.numDeletedDocs();
+    }
+    return reader.getCoreCacheHelper().getKey();
+  }
+
   private void openNewSearcher(SolrCore core) throws Exception {
     @SuppressWarnings("unchecked")
     Future<Void>[] waitSearcher = (Future<Void>[]) Array.newInstance(Future.class, 1);
@@ -525,7 +605,7 @@ public class SolrIndexSplitter {
     private final DocRouter.Range[] rangesArr;
     private final HashBasedRouter hashRouter;
     private final String splitKey;
-    private final Map<IndexReader.CacheKey, FixedBitSet[]> docsToDelete;
+    private final Map<Object, FixedBitSet[]> docsToDelete;
     private final AtomicInteger currentPartition;
 
     SplittingQuery(
@@ -534,7 +614,7 @@ public class SolrIndexSplitter {
         DocRouter.Range[] rangesArr,
         HashBasedRouter hashRouter,
         String splitKey,
-        Map<IndexReader.CacheKey, FixedBitSet[]> docsToDelete,
+        Map<Object, FixedBitSet[]> docsToDelete,
         AtomicInteger currentPartition) {
       this.partition = partition;
       this.field = field;
@@ -594,13 +674,13 @@ public class SolrIndexSplitter {
 
     private FixedBitSet findDocsToDelete(LeafReaderContext readerContext) throws IOException {
       // check whether a cached copy of bitsets already exists for this reader
-      FixedBitSet[] perPartition =
-          docsToDelete.get(readerContext.reader().getCoreCacheHelper().getKey());
+      Object segmentKey = getSegmentKey(readerContext.reader());
+      FixedBitSet[] perPartition = docsToDelete.get(segmentKey);
       if (perPartition != null) {
         return perPartition[partition];
       }
       synchronized (docsToDelete) {
-        perPartition = docsToDelete.get(readerContext.reader().getCoreCacheHelper().getKey());
+        perPartition = docsToDelete.get(segmentKey);
         if (perPartition != null) {
           return perPartition[partition];
         }
@@ -615,7 +695,7 @@ public class SolrIndexSplitter {
                 hashRouter,
                 currentPartition,
                 true);
-        docsToDelete.put(readerContext.reader().getCoreCacheHelper().getKey(), perPartition);
+        docsToDelete.put(segmentKey, perPartition);
         return perPartition[partition];
       }
     }
@@ -65,7 +65,7 @@ public class UpdateShardHandler implements SolrInfoBean {
           60L,
           TimeUnit.SECONDS,
           new SynchronousQueue<>(),
-          new SolrNamedThreadFactory("updateExecutor"),
+          ExecutorUtil.newRequestThreadFactory("updateExecutor"),
           // the Runnable added to this executor handles all exceptions so we disable stack trace
           // collection as an optimization
           // see SOLR-11880 for more details
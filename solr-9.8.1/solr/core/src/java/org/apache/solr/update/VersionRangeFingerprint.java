@@ -0,0 +1,325 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.queries.function.FunctionValues;
+import org.apache.lucene.queries.function.ValueSource;
+import org.apache.lucene.util.Bits;
+import org.apache.solr.common.MapSerializable;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.util.Hash;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.StrUtils;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.util.RTimer;
+import org.apache.solr.util.RefCounted;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The fingerprint of the versions of the documents of an index falling in a range of versions. The
+ * hash of a range is the sum of the hashes of its sub ranges, the same way the hash of an {@link
+ * IndexFingerprint} is the sum of the hashes of its segments, so two replicas can compare a few
+ * ranges, then split the ranges that differ, and find the documents that only one of them has
+ * without exchanging all their versions. The versions of the documents of a range and their ids are
+ * only given when the range has few documents.
+ *
+ * @lucene.internal
+ */
+public class VersionRangeFingerprint implements MapSerializable {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private long lo;
+  private long hi;
+  private long numVersions;
+  private long versionsHash;
+  private long minVersion = Long.MAX_VALUE;
+  private long maxVersion = Long.MIN_VALUE;
+  private List<Long> versions;
+  private List<String> ids;
+  // the lucene doc ids of the versions, only used while computing
+  private List<Integer> docs;
+
+  public VersionRangeFingerprint() {
+    // default constructor
+  }
+
+  VersionRangeFingerprint(long lo, long hi) {
+    this.lo = lo;
+    this.hi = hi;
+    this.versions = new ArrayList<>();
+    this.docs = new ArrayList<>();
+  }
+
+  /** The lowest version of the range, inclusive */
+  public long getLo() {
+    return lo;
+  }
+
+  /** The highest version of the range, inclusive */
+  public long getHi() {
+    return hi;
+  }
+
+  public long getNumVersions() {
+    return numVersions;
+  }
+
+  public long getVersionsHash() {
+    return versionsHash;
+  }
+
+  /** The lowest version found in the range, {@link Long#MAX_VALUE} if it is empty */
+  public long getMinVersion() {
+    return minVersion;
+  }
+
+  /** The highest version found in the range, {@link Long#MIN_VALUE} if it is empty */
+  public long getMaxVersion() {
+    return maxVersion;
+  }
+
+  /** The versions found in the range, or null if there are too many of them */
+  public List<Long> getVersions() {
+    return versions;
+  }
+
+  /** The ids of the documents of {@link #getVersions()}, in the same order */
+  public List<String> getIds() {
+    return ids;
+  }
+
+  /** Whether both fingerprints are for the same range and the same versions */
+  public boolean sameVersions(VersionRangeFingerprint other) {
+    return lo == other.lo
+        && hi == other.hi
+        && numVersions == other.numVersions
+        && versionsHash == other.versionsHash;
+  }
+
+  private void add(long version, int doc, int maxListed) {
+    numVersions++;
+    versionsHash += Hash.fmix64(version);
+    minVersion = Math.min(minVersion, version);
+    maxVersion = Math.max(maxVersion, version);
+    if (versions != null) {
+      if (numVersions > maxListed) {
+        versions = null;
+        docs = null;
+      } else {
+        versions.add(version);
+        docs.add(doc);
+      }
+    }
+  }
+
+  /**
+   * Splits each of the ranges in at most {@code splits} ranges of the same width, and returns their
+   * fingerprints in the order of the ranges.
+   *
+   * @param ranges the lowest and highest versions of each range, the ranges must not overlap
+   * @param maxListed ranges with at most that many documents list their versions and ids
+   */
+  public static List<VersionRangeFingerprint> getFingerprints(
+      SolrCore core, List<long[]> ranges, int splits, int maxListed) throws IOException {
+    RTimer timer = new RTimer();
+    core.getUpdateHandler().getUpdateLog().openRealtimeSearcher();
+    RefCounted<SolrIndexSearcher> newestSearcher = core.getRealtimeSearcher();
+    try {
+      List<VersionRangeFingerprint> fingerprints =
+          getFingerprints(newestSearcher.get(), ranges, splits, maxListed);
+      if (log.isInfoEnabled()) {
+        log.info("VersionRangeFingerprint millis:{} ranges:{}", timer.stop(), fingerprints.size());
+      }
+      return fingerprints;
+    } finally {
+      newestSearcher.decref();
+    }
+  }
+
+  static List<VersionRangeFingerprint> getFingerprints(
+      SolrIndexSearcher searcher, List<long[]> ranges, int splits, int maxListed)
+      throws IOException {
+    List<VersionRangeFingerprint> fingerprints = split(ranges, splits);
+    List<VersionRangeFingerprint> sorted = new ArrayList<>(fingerprints);
+    sorted.sort(Comparator.comparingLong(VersionRangeFingerprint::getLo));
+    long[] los = new long[sorted.size()];
+    for (int i = 0; i < los.length; i++) {
+      los[i] = sorted.get(i).lo;
+    }
+
+    SchemaField versionField = VersionInfo.getAndCheckVersionField(searcher.getSchema());
+    ValueSource vs = versionField.getType().getValueSource(versionField, null);
+    Map<Object, Object> funcContext = ValueSource.newContext(searcher);
+    vs.createWeight(funcContext, searcher);
+    for (LeafReaderContext ctx : searcher.getTopReaderContext().leaves()) {
+      int maxDoc = ctx.reader().maxDoc();
+      Bits liveDocs = ctx.reader().getLiveDocs();
+      FunctionValues fv = vs.getValues(funcContext, ctx);
+      for (int doc = 0; doc < maxDoc; doc++) {
+        if (liveDocs != null && !liveDocs.get(doc)) continue;
+        long v = fv.longVal(doc);
+        int i = Arrays.binarySearch(los, v);
+        if (i < 0) i = -i - 2;
+        if (i < 0 || v > sorted.get(i).hi) continue;
+        sorted.get(i).add(v, ctx.docBase + doc, maxListed);
+      }
+    }
+
+    IndexSchema schema = searcher.getSchema();
+    Set<String> idField = Collections.singleton(schema.getUniqueKeyField().getName());
+    for (VersionRangeFingerprint f : fingerprints) {
+      if (f.docs == null) continue;
+      f.ids = new ArrayList<>(f.docs.size());
+      for (int doc : f.docs) {
+        String id = schema.printableUniqueKey(searcher.getDocFetcher().doc(doc, idField));
+        if (id == null) {
+          // the ids are not stored, the documents can't be told apart
+          f.versions = null;
+          f.ids = null;
+          break;
+        }
+        f.ids.add(id);
+      }
+      f.docs = null;
+    }
+    return fingerprints;
+  }
+
+  private static List<VersionRangeFingerprint> split(List<long[]> ranges, int splits) {
+    if (splits < 1) {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST, "Invalid number of splits " + splits);
+    }
+    List<VersionRangeFingerprint> fingerprints = new ArrayList<>(ranges.size() * splits);
+    for (long[] range : ranges) {
+      long lo = range[0];
+      long hi = range[1];
+      if (lo > hi) {
+        throw new SolrException(
+            SolrException.ErrorCode.BAD_REQUEST, "Invalid version range " + lo + "..." + hi);
+      }
+      long width = (hi - lo) / splits + 1;
+      for (long subLo = lo; ; ) {
+        long subHi = hi - subLo < width ? hi : subLo + width - 1;
+        fingerprints.add(new VersionRangeFingerprint(subLo, subHi));
+        if (subHi == hi) break;
+        subLo = subHi + 1;
+      }
+    }
+    return fingerprints;
+  }
+
+  /** Parses ranges in the {@code lo...hi,lo...hi} format of version ranges */
+  public static List<long[]> parseRanges(String ranges) {
+    List<long[]> parsed = new ArrayList<>();
+    for (String range : StrUtils.splitSmart(ranges, ",", true)) {
+      String[] bounds = range.split("\\.{3}");
+      if (bounds.length != 2) {
+        throw new SolrException(
+            SolrException.ErrorCode.BAD_REQUEST, "Invalid version range " + range);
+      }
+      parsed.add(new long[] {Long.parseLong(bounds[0]), Long.parseLong(bounds[1])});
+    }
+    return parsed;
+  }
+
+  /** Formats ranges in the format read by {@link #parseRanges(String)} */
+  public static String formatRanges(List<long[]> ranges) {
+    StringBuilder sb = new StringBuilder();
+    for (long[] range : ranges) {
+      if (sb.length() > 0) sb.append(',');
+      sb.append(range[0]).append("...").append(range[1]);
+    }
+    return sb.toString();
+  }
+
+  @Override
+  public Map<String, Object> toMap(Map<String, Object> map) {
+    map.put("lo", lo);
+    map.put("hi", hi);
+    map.put("numVersions", numVersions);
+    map.put("versionsHash", versionsHash);
+    map.put("minVersion", minVersion);
+    map.put("maxVersion", maxVersion);
+    if (versions != null && ids != null) {
+      map.put("versions", versions);
+      map.put("ids", ids);
+    }
+    return map;
+  }
+
+  private static long getLong(Map<String, Object> m, String key, long def) {
+    Object oval = m.get(key);
+    return oval != null ? ((Number) oval).longValue() : def;
+  }
+
+  /**
+   * Create a VersionRangeFingerprint object from a deserialized generic object (Map or NamedList)
+   */
+  @SuppressWarnings("unchecked")
+  public static VersionRangeFingerprint fromObject(Object o) {
+    if (o instanceof VersionRangeFingerprint) return (VersionRangeFingerprint) o;
+    Map<String, Object> map = null;
+    if (o instanceof Map) {
+      map = (Map<String, Object>) o;
+    } else if (o instanceof NamedList) {
+      map = ((NamedList<Object>) o).asShallowMap();
+    } else {
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, "Unknown type " + o);
+    }
+    VersionRangeFingerprint f = new VersionRangeFingerprint();
+    f.lo = getLong(map, "lo", 0);
+    f.hi = getLong(map, "hi", -1);
+    f.numVersions = getLong(map, "numVersions", -1);
+    f.versionsHash = getLong(map, "versionsHash", -1);
+    f.minVersion = getLong(map, "minVersion", Long.MAX_VALUE);
+    f.maxVersion = getLong(map, "maxVersion", Long.MIN_VALUE);
+    List<?> versions = (List<?>) map.get("versions");
+    List<?> ids = (List<?>) map.get("ids");
+    if (versions != null && ids != null) {
+      f.versions = new ArrayList<>(versions.size());
+      for (Object version : versions) {
+        f.versions.add(((Number) version).longValue());
+      }
+      f.ids = new ArrayList<>(ids.size());
+      for (Object id : ids) {
+        f.ids.add(id.toString());
+      }
+    }
+    return f;
+  }
+
+  @Override
+  public String toString() {
+    return toMap(new LinkedHashMap<>()).toString();
+  }
+}
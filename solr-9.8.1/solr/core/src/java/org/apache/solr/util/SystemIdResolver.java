@@ -20,6 +20,8 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import javax.xml.stream.XMLResolver;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.Source;
@@ -55,8 +57,29 @@ public final class SystemIdResolver implements EntityResolver, EntityResolver2 {
   public static final String RESOURCE_LOADER_URI_SCHEME = "solrres";
   public static final String RESOURCE_LOADER_AUTHORITY_ABSOLUTE = "@";
 
+  // receives the names of the resources resolved on this thread, if set
+  private static final ThreadLocal<Consumer<String>> resolvedListener = new ThreadLocal<>();
+
   private final ResourceLoader loader;
 
+  /**
+   * Runs an action, passing the name of each resource it resolves on this thread, e.g. the files of
+   * an xi:include, to a listener. The listener is called before the resource is read.
+   */
+  public static <T> T withResolvedListener(Consumer<String> listener, Supplier<T> action) {
+    Consumer<String> previous = resolvedListener.get();
+    resolvedListener.set(listener);
+    try {
+      return action.get();
+    } finally {
+      if (previous == null) {
+        resolvedListener.remove();
+      } else {
+        resolvedListener.set(previous);
+      }
+    }
+  }
+
   public SystemIdResolver(ResourceLoader loader) {
     this.loader = loader;
   }
@@ -141,6 +164,10 @@ public final class SystemIdResolver implements EntityResolver, EntityResolver2 {
           path = path.substring(1);
         }
         try {
+          Consumer<String> listener = resolvedListener.get();
+          if (listener != null) {
+            listener.accept(path);
+          }
           final InputSource is = new InputSource(loader.openResource(path));
           is.setSystemId(uri.toASCIIString());
           is.setPublicId(publicId);
@@ -155,6 +155,9 @@ public class TestInjection {
 
   public static volatile Integer delayBeforeFollowerCommitRefresh = null;
 
+  /** Fails the download of the ranges of the index files but their first ones. */
+  public static volatile boolean failIndexFetchRanges = false;
+
   public static volatile Integer delayInExecutePlanAction = null;
 
   public static volatile Integer delayBeforeCreatingNewDocSet = null;
@@ -219,6 +222,7 @@ public class TestInjection {
     failIndexFingerprintRequests = null;
     wrongIndexFingerprint = null;
     delayBeforeFollowerCommitRefresh = null;
+    failIndexFetchRanges = false;
     delayInExecutePlanAction = null;
     delayBeforeCreatingNewDocSet = null;
     countDocSetDelays.set(0);
@@ -657,6 +661,14 @@ public class TestInjection {
     return true;
   }
 
+  public static boolean injectFailIndexFetchRange(long rangeStart) {
+    if (failIndexFetchRanges && rangeStart > 0) {
+      log.info("Test injection failure of the download of a range of an index file");
+      throw new SolrException(ErrorCode.SERVER_ERROR, "Test injection failure");
+    }
+    return true;
+  }
+
   public static boolean injectUIFOutOfMemoryError() {
     if (uifOutOfMemoryError) {
       throw new OutOfMemoryError("Test Injection");
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.cloud;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.solr.client.solrj.request.CollectionAdminRequest;
+import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.embedded.JettySolrRunner;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Checks the state updates of a collection are right when they are coalesced. */
+public class DistributedClusterStateUpdaterTest extends SolrCloudTestCase {
+
+  @BeforeClass
+  public static void setupCluster() throws Exception {
+    System.setProperty(DistributedClusterStateUpdater.COALESCE_MS_PROP, "200");
+    configureCluster(2)
+        .withDistributedClusterStateUpdates(false, true)
+        .addConfig("conf", configset("cloud-minimal"))
+        .configure();
+  }
+
+  @AfterClass
+  public static void clearProperty() {
+    System.clearProperty(DistributedClusterStateUpdater.COALESCE_MS_PROP);
+  }
+
+  @Test
+  public void testCoalescedUpdates() throws Exception {
+    String collection = "coalesced";
+    CollectionAdminRequest.createCollection(collection, "conf", 4, 3)
+        .process(cluster.getSolrClient());
+    cluster.waitForActiveCollection(collection, 4, 12);
+
+    long updates = 0;
+    long writes = 0;
+    long coalescedUpdates = 0;
+    for (JettySolrRunner jetty : cluster.getJettySolrRunners()) {
+      DistributedClusterStateUpdater stateUpdater =
+          jetty.getCoreContainer().getZkController().getDistributedClusterStateUpdater();
+      assertTrue(stateUpdater.isDistributedStateUpdate());
+      Map<String, Object> metrics = stateUpdater.getMetrics().toMap(new HashMap<>());
+      updates += (Long) metrics.get("updates");
+      writes += (Long) metrics.get("writes");
+      coalescedUpdates += (Long) metrics.get("coalescedUpdates");
+      assertEquals(0L, metrics.get("casFailures"));
+    }
+    assertTrue("updates: " + updates, updates > 0);
+    // the replicas of each node register concurrently, some of their updates are written together
+    assertTrue("coalesced updates: " + coalescedUpdates, coalescedUpdates > 0);
+    assertTrue("updates: " + updates + ", writes: " + writes, writes < updates);
+
+    for (Replica replica : getCollectionState(collection).getReplicas()) {
+      assertEquals(Replica.State.ACTIVE, replica.getState());
+    }
+  }
+}
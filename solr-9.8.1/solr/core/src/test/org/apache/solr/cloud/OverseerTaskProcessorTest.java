@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.cloud;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.cloud.OverseerTaskQueue.QueueEvent;
+import org.apache.solr.cloud.api.collections.TaskPriority;
+import org.apache.solr.common.cloud.ZkNodeProps;
+import org.apache.solr.common.params.CollectionParams.CollectionAction;
+import org.apache.solr.common.util.Utils;
+import org.junit.Test;
+
+public class OverseerTaskProcessorTest extends SolrTestCase {
+
+  private final List<QueueEvent> tasks = new ArrayList<>();
+  private final Map<String, ZkNodeProps> messages = new HashMap<>();
+
+  private void addTask(String id, CollectionAction action, String collection) {
+    addTask(id, action, "collection", collection);
+  }
+
+  private void addTask(String id, CollectionAction action, String key, String value) {
+    ZkNodeProps message = new ZkNodeProps(Overseer.QUEUE_OPERATION, action.toLower(), key, value);
+    tasks.add(new QueueEvent(id, Utils.toJSON(message), null));
+    messages.put(id, message);
+  }
+
+  private List<String> orderedIds() {
+    List<String> ids = new ArrayList<>();
+    for (QueueEvent task : OverseerTaskProcessor.orderTasks(tasks, messages)) {
+      ids.add(task.getId());
+    }
+    return ids;
+  }
+
+  @Test
+  public void testPriorities() {
+    assertEquals(TaskPriority.HIGH, TaskPriority.ofOperation("addreplica"));
+    assertEquals(TaskPriority.NORMAL, TaskPriority.ofOperation("create"));
+    assertEquals(TaskPriority.LOW, TaskPriority.ofOperation("splitshard"));
+    assertEquals(TaskPriority.NORMAL, TaskPriority.ofOperation("configsets:create"));
+  }
+
+  @Test
+  public void testHigherPriorityFirst() {
+    addTask("split", CollectionAction.SPLITSHARD, "a");
+    addTask("backup", CollectionAction.BACKUP, "b");
+    addTask("reload", CollectionAction.RELOAD, "c");
+    addTask("addreplica", CollectionAction.ADDREPLICA, "d");
+    assertEquals(List.of("addreplica", "reload", "split", "backup"), orderedIds());
+  }
+
+  @Test
+  public void testCollectionOrderKept() {
+    addTask("create", CollectionAction.CREATE, "a");
+    addTask("split", CollectionAction.SPLITSHARD, "a");
+    addTask("addreplica-a", CollectionAction.ADDREPLICA, "a");
+    addTask("addreplica-b", CollectionAction.ADDREPLICA, "b");
+    // the replica of a is added once its shard is split
+    assertEquals(List.of("addreplica-b", "create", "split", "addreplica-a"), orderedIds());
+  }
+
+  @Test
+  public void testTurnsBetweenCollections() {
+    for (int i = 0; i < 3; i++) {
+      addTask("a" + i, CollectionAction.RELOAD, "a");
+    }
+    addTask("b0", CollectionAction.RELOAD, "b");
+    addTask("b1", CollectionAction.RELOAD, "b");
+    addTask("c0", CollectionAction.RELOAD, "c");
+    assertEquals(List.of("a0", "b0", "c0", "a1", "b1", "a2"), orderedIds());
+  }
+
+  @Test
+  public void testNodeLevelTasksNotOrderedWithCollections() {
+    addTask("replacenode", CollectionAction.REPLACENODE, "sourceNode", "node1");
+    addTask("deletenode", CollectionAction.DELETENODE, "node", "node2");
+    addTask("addrole", CollectionAction.ADDROLE, "node", "node3");
+    addTask("clusterprop", CollectionAction.CLUSTERPROP, "name", "a");
+    addTask("split", CollectionAction.SPLITSHARD, "a");
+    addTask("addreplica", CollectionAction.ADDREPLICA, "a");
+    // the role and the property aren't held back by the node commands, the property named "a"
+    // doesn't take a turn of the collection a
+    assertEquals(
+        List.of("addrole", "clusterprop", "replacenode", "split", "deletenode", "addreplica"),
+        orderedIds());
+    assertNull(OverseerTaskProcessor.getTaskCollection(messages.get("clusterprop")));
+    assertNull(OverseerTaskProcessor.getTaskCollection(messages.get("replacenode")));
+    assertEquals("a", OverseerTaskProcessor.getTaskCollection(messages.get("split")));
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.cloud;
+
+import java.util.EnumSet;
+import java.util.List;
+import org.apache.solr.client.solrj.request.CollectionAdminRequest;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.handler.IndexFetcher;
+import org.apache.solr.util.LogListener;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Checks that PULL replicas can get the index from each other rather than from the leader. */
+public class PeerIndexFetchTest extends SolrCloudTestCase {
+
+  @BeforeClass
+  public static void setupCluster() throws Exception {
+    System.setProperty(IndexFetcher.PEER_FETCH_PROP, "true");
+    configureCluster(3).addConfig("conf", configset("cloud-minimal")).configure();
+  }
+
+  @AfterClass
+  public static void clearProperty() {
+    System.clearProperty(IndexFetcher.PEER_FETCH_PROP);
+  }
+
+  @Test
+  public void testPullReplicasFetchFromPeers() throws Exception {
+    String collection = "peerFetch";
+    CollectionAdminRequest.createCollection(collection, "conf", 1, 1, 0, 1)
+        .process(cluster.getSolrClient());
+    cluster.waitForActiveCollection(collection, 1, 2);
+
+    int numDocs = 100;
+    UpdateRequest update = new UpdateRequest();
+    for (int i = 0; i < numDocs; i++) {
+      SolrInputDocument doc = new SolrInputDocument();
+      doc.addField("id", Integer.toString(i));
+      update.add(doc);
+    }
+    update.commit(cluster.getSolrClient(), collection);
+    TestPullReplica.waitForNumDocsInAllReplicas(
+        numDocs, getPullReplicas(collection), "*:*", null, null);
+
+    // the new replicas get the index from the first one, or from each other
+    try (LogListener peerFetches =
+            LogListener.info(IndexFetcher.class).substring("Downloading index files of generation");
+        LogListener leaderFallbacks =
+            LogListener.warn(IndexFetcher.class).substring("downloading them from the leader")) {
+      CollectionAdminRequest.addReplicaToShard(collection, "shard1", Replica.Type.PULL)
+          .process(cluster.getSolrClient());
+      CollectionAdminRequest.addReplicaToShard(collection, "shard1", Replica.Type.PULL)
+          .process(cluster.getSolrClient());
+      cluster.waitForActiveCollection(collection, 1, 4);
+      TestPullReplica.waitForNumDocsInAllReplicas(
+          numDocs, getPullReplicas(collection), "*:*", null, null);
+
+      assertTrue("peer fetches: " + peerFetches.getCount(), peerFetches.getCount() >= 2);
+      assertEquals(0, leaderFallbacks.getCount());
+      String leaderUrl = getCollectionState(collection).getLeader("shard1").getCoreUrl();
+      String message;
+      while ((message = peerFetches.pollMessage()) != null) {
+        assertFalse(message, message.contains(leaderUrl));
+      }
+    }
+  }
+
+  private List<Replica> getPullReplicas(String collection) {
+    return getCollectionState(collection).getReplicas(EnumSet.of(Replica.Type.PULL));
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.cloud;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.request.CollectionAdminRequest;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.search.stats.NodeStatsCache;
+import org.junit.Test;
+
+public class TestNodeStatsCacheCloud extends TestBaseStatsCacheCloud {
+  @Override
+  protected boolean assertSameScores() {
+    return true;
+  }
+
+  @Override
+  protected String getImplementationName() {
+    return NodeStatsCache.class.getName();
+  }
+
+  @Test
+  public void testStatsRequestsAcrossQueriesAndCommits() throws Exception {
+    String collection = "stats_requests";
+    CollectionAdminRequest.createCollection(collection, "conf", 2, 1).process(solrClient);
+    cluster.waitForActiveCollection(collection, 2, 2);
+    indexDocs(solrClient, collection, NUM_DOCS, 0, generator);
+
+    // always aggregate on the same core, the node stats are refreshed when its searcher changes
+    Replica aggregator =
+        solrClient.getClusterState().getCollection(collection).getReplicas().get(0);
+    try (SolrClient client = getHttpSolrClient(aggregator.getBaseUrl(), aggregator.getCoreName())) {
+      // the first query fetches the stats from the shards, the next ones use the cached stats
+      assertTrue(fetchedStats(client, "foo_t:bar"));
+      assertFalse(fetchedStats(client, "foo_t:bar"));
+      assertFalse(fetchedStats(client, "foo_t:bar"));
+      // stats of terms which aren't cached yet are fetched
+      assertTrue(fetchedStats(client, "foo_t:baz"));
+      assertFalse(fetchedStats(client, "foo_t:baz"));
+      assertFalse(fetchedStats(client, "foo_t:bar foo_t:baz"));
+
+      // once the index changed, the first query fetches the stats again
+      indexDocs(solrClient, collection, NUM_DOCS, NUM_DOCS, generator);
+      assertTrue(fetchedStats(client, "foo_t:bar"));
+      assertFalse(fetchedStats(client, "foo_t:bar"));
+    }
+  }
+
+  /** Runs the query and returns whether stats were requested from the shards to score it */
+  private boolean fetchedStats(SolrClient client, String query) throws Exception {
+    QueryResponse rsp = client.query(params("q", query, "fl", "id,score", "debug", "track"));
+    assertTrue(rsp.getResults().getNumFound() > 0);
+    NamedList<?> track = (NamedList<?>) rsp.getDebugMap().get("track");
+    assertNotNull(track.get("EXECUTE_QUERY"));
+    // the stats request is the only shard request of the PARSE_QUERY stage
+    return track.get("PARSE_QUERY") != null;
+  }
+}
@@ -26,12 +26,15 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.request.CollectionAdminRequest;
+import org.apache.solr.common.SolrException;
 import org.apache.solr.common.util.TimeSource;
 import org.apache.solr.util.TimeOut;
 import org.junit.BeforeClass;
@@ -329,6 +332,89 @@ public class ZkShardTermsTest extends SolrCloudTestCase {
     replicaTerms.close();
   }
 
+  @Test
+  public void testCoalescedUpdates() throws Exception {
+    String collection = "coalescedUpdates";
+    System.setProperty(ZkShardTerms.COALESCE_MS_PROP, "200");
+    ZkWriteMetrics metrics = new ZkWriteMetrics();
+    try (ZkShardTerms zkShardTerms =
+        new ZkShardTerms(collection, "shard1", cluster.getZkClient(), metrics)) {
+      int numReplicas = 10;
+      CyclicBarrier barrier = new CyclicBarrier(numReplicas);
+      Thread[] threads = new Thread[numReplicas];
+      for (int i = 0; i < numReplicas; i++) {
+        String replica = "replica" + i;
+        threads[i] =
+            new Thread(
+                () -> {
+                  try {
+                    barrier.await();
+                  } catch (Exception e) {
+                    throw new RuntimeException(e);
+                  }
+                  zkShardTerms.registerTerm(replica);
+                });
+        threads[i].start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      assertEquals(numReplicas, zkShardTerms.getTerms().size());
+      assertEquals(numReplicas, metrics.updates.sum());
+      assertTrue(metrics.coalescedUpdates.sum() > 0);
+      // one write per change but the coalesced ones
+      assertEquals(numReplicas, metrics.writes.sum() + metrics.coalescedUpdates.sum());
+
+      // a failing change only fails its caller
+      expectThrows(
+          SolrException.class,
+          () -> zkShardTerms.ensureTermsIsHigher("unknown", Collections.singleton("replica0")));
+      zkShardTerms.ensureTermsIsHigher("replica1", Collections.singleton("replica0"));
+      assertEquals(0L, zkShardTerms.getTerm("replica0"));
+      assertEquals(1L, zkShardTerms.getTerm("replica1"));
+    } finally {
+      System.clearProperty(ZkShardTerms.COALESCE_MS_PROP);
+    }
+  }
+
+  @Test
+  public void testInterruptedWriter() throws Exception {
+    String collection = "interruptedWriter";
+    System.setProperty(ZkShardTerms.COALESCE_MS_PROP, "60000");
+    ZkWriteMetrics metrics = new ZkWriteMetrics();
+    try (ZkShardTerms zkShardTerms =
+        new ZkShardTerms(collection, "shard1", cluster.getZkClient(), metrics)) {
+      AtomicReference<Exception> writerFailure = new AtomicReference<>();
+      Thread writer =
+          new Thread(
+              () -> {
+                try {
+                  zkShardTerms.registerTerm("writer");
+                } catch (Exception e) {
+                  writerFailure.set(e);
+                }
+              });
+      writer.start();
+      // the writer sleeps until more changes are written along with its own
+      waitFor(Thread.State.TIMED_WAITING, writer::getState);
+      assertEquals(1L, metrics.updates.sum());
+      Thread joined = new Thread(() -> zkShardTerms.registerTerm("joined"));
+      joined.start();
+      waitFor(1L, metrics.coalescedUpdates::sum);
+
+      writer.interrupt();
+      writer.join();
+      assertTrue(writerFailure.get() instanceof SolrException);
+      // the change of the other caller is written by itself, without waiting for others again
+      joined.join(30000);
+      assertFalse(joined.isAlive());
+      assertEquals(0L, zkShardTerms.getTerm("joined"));
+      assertEquals(-1L, zkShardTerms.getTerm("writer"));
+    } finally {
+      System.clearProperty(ZkShardTerms.COALESCE_MS_PROP);
+    }
+  }
+
   private <T> void waitFor(T expected, Supplier<T> supplier) throws InterruptedException {
     TimeOut timeOut = new TimeOut(10, TimeUnit.SECONDS, new TimeSource.CurrentTimeSource());
     while (!timeOut.hasTimedOut()) {
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.cloud;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.common.util.TimeSource;
+import org.apache.solr.util.TimeOut;
+import org.junit.Test;
+
+public class ZkWriteCoalescerTest extends SolrTestCase {
+
+  private final ZkWriteMetrics metrics = new ZkWriteMetrics();
+  private final List<List<String>> written = Collections.synchronizedList(new ArrayList<>());
+
+  @Test
+  public void testWriterInterruptedWhileCoalescing() throws Exception {
+    ZkWriteCoalescer<String, String> coalescer =
+        new ZkWriteCoalescer<>(60000, metrics, (key, updates) -> written.add(List.copyOf(updates)));
+    AtomicReference<Exception> writerFailure = new AtomicReference<>();
+    Thread writer = writeInThread(coalescer, "writer", writerFailure);
+    // the writer sleeps until more updates are written along with its own
+    waitFor(Thread.State.TIMED_WAITING, writer::getState);
+    Thread joined = writeInThread(coalescer, "joined", new AtomicReference<>());
+    waitFor(1L, metrics.coalescedUpdates::sum);
+
+    writer.interrupt();
+    writer.join();
+    assertTrue(writerFailure.get() instanceof InterruptedException);
+    // the update of the other caller is written by itself, without waiting for others again
+    joined.join(30000);
+    assertFalse(joined.isAlive());
+    assertEquals(List.of(List.of("joined")), written);
+  }
+
+  @Test
+  public void testWriterInterruptedWhileWaitingForEarlierWrite() throws Exception {
+    CountDownLatch firstWrite = new CountDownLatch(1);
+    ZkWriteCoalescer<String, String> coalescer =
+        new ZkWriteCoalescer<>(
+            0,
+            metrics,
+            (key, updates) -> {
+              if (updates.contains("first")) {
+                firstWrite.await();
+              }
+              written.add(List.copyOf(updates));
+            });
+    Thread first = writeInThread(coalescer, "first", new AtomicReference<>());
+    waitFor(Thread.State.WAITING, first::getState);
+    AtomicReference<Exception> writerFailure = new AtomicReference<>();
+    Thread writer = writeInThread(coalescer, "writer", writerFailure);
+    waitFor(Thread.State.WAITING, writer::getState);
+    Thread joined = writeInThread(coalescer, "joined", new AtomicReference<>());
+    waitFor(1L, metrics.coalescedUpdates::sum);
+
+    writer.interrupt();
+    writer.join();
+    assertTrue(writerFailure.get() instanceof InterruptedException);
+    // the other caller still waits for the earlier write
+    Thread.sleep(100);
+    assertTrue(joined.isAlive());
+    firstWrite.countDown();
+    joined.join(30000);
+    assertFalse(joined.isAlive());
+    assertEquals(List.of(List.of("first"), List.of("joined")), written);
+  }
+
+  private static Thread writeInThread(
+      ZkWriteCoalescer<String, String> coalescer,
+      String update,
+      AtomicReference<Exception> failure) {
+    Thread thread =
+        new Thread(
+            () -> {
+              try {
+                coalescer.write("node", update);
+              } catch (Exception e) {
+                failure.set(e);
+              }
+            });
+    thread.start();
+    return thread;
+  }
+
+  private static <T> void waitFor(T expected, Supplier<T> supplier) throws InterruptedException {
+    TimeOut timeOut = new TimeOut(10, TimeUnit.SECONDS, new TimeSource.CurrentTimeSource());
+    while (!timeOut.hasTimedOut()) {
+      if (expected.equals(supplier.get())) return;
+      Thread.sleep(100);
+    }
+    assertEquals(expected, supplier.get());
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.cloud.api.collections;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.request.CollectionAdminRequest;
+import org.apache.solr.client.solrj.response.RequestStatusState;
+import org.apache.solr.cloud.DistributedLock;
+import org.apache.solr.cloud.OverseerTaskProcessor;
+import org.apache.solr.cloud.SolrCloudTestCase;
+import org.apache.solr.cloud.ZkDistributedCollectionLockFactory;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.CollectionParams;
+import org.apache.solr.embedded.JettySolrRunner;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Checks the limit of the low priority commands running at once with a distributed API. */
+public class DistributedLowPriorityCommandsTest extends SolrCloudTestCase {
+
+  @BeforeClass
+  public static void setupCluster() throws Exception {
+    System.setProperty(OverseerTaskProcessor.MAX_LOW_PRIORITY_TASKS_PROP, "1");
+    configureCluster(2)
+        .withDistributedClusterStateUpdates(true, true)
+        .addConfig("conf", configset("cloud-minimal"))
+        .configure();
+  }
+
+  @AfterClass
+  public static void clearProperty() {
+    System.clearProperty(OverseerTaskProcessor.MAX_LOW_PRIORITY_TASKS_PROP);
+  }
+
+  @Test
+  public void testLowPriorityCommandsLimit() throws Exception {
+    JettySolrRunner jetty = cluster.getJettySolrRunner(0);
+    String targetNode = cluster.getJettySolrRunner(1).getNodeName();
+    for (String collection : new String[] {"locked", "other"}) {
+      CollectionAdminRequest.createCollection(collection, "conf", 1, 1)
+          .setCreateNodeSet(jetty.getNodeName())
+          .process(cluster.getSolrClient());
+      cluster.waitForActiveCollection(collection, 1, 1);
+    }
+
+    // the first move holds the only low priority permit of the node while it waits for the lock
+    String lockRoot = DistributedCollectionConfigSetCommandRunner.ZK_COLLECTION_LOCKS;
+    DistributedLock lock =
+        new ZkDistributedCollectionLockFactory(cluster.getZkClient(), lockRoot)
+            .createLock(true, CollectionParams.LockLevel.COLLECTION, "locked", null, null);
+    lock.waitUntilAcquired();
+    String asyncId;
+    try (SolrClient client = getHttpSolrClient(jetty.getBaseUrl().toString())) {
+      try {
+        asyncId =
+            CollectionAdminRequest.moveReplica("locked", replicaName("locked"), targetNode)
+                .processAsync(client);
+        SolrException e =
+            expectThrows(
+                SolrException.class,
+                () ->
+                    CollectionAdminRequest.moveReplica("other", replicaName("other"), targetNode)
+                        .process(client));
+        assertEquals(SolrException.ErrorCode.SERVICE_UNAVAILABLE.code, e.code());
+
+        // other commands are not limited
+        CollectionAdminRequest.reloadCollection("other").process(client);
+      } finally {
+        lock.release();
+      }
+
+      assertEquals(
+          RequestStatusState.COMPLETED,
+          CollectionAdminRequest.requestStatus(asyncId).waitFor(client, 120));
+      CollectionAdminRequest.moveReplica("other", replicaName("other"), targetNode).process(client);
+    }
+    cluster.waitForActiveCollection("other", 1, 1);
+    assertEquals(targetNode, getCollectionState("other").getReplicas().get(0).getNodeName());
+  }
+
+  private String replicaName(String collection) {
+    return getCollectionState(collection).getReplicas().get(0).getName();
+  }
+}
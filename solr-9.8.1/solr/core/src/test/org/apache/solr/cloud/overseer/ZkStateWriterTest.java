@@ -21,6 +21,7 @@ import java.nio.file.Path;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -32,6 +33,7 @@ import org.apache.solr.cloud.Stats;
 import org.apache.solr.cloud.ZkController;
 import org.apache.solr.cloud.ZkTestServer;
 import org.apache.solr.common.cloud.ClusterState;
+import org.apache.solr.common.cloud.CollectionStateDelta;
 import org.apache.solr.common.cloud.DocCollection;
 import org.apache.solr.common.cloud.DocRouter;
 import org.apache.solr.common.cloud.PerReplicaStatesOps;
@@ -524,6 +526,89 @@ public class ZkStateWriterTest extends SolrTestCaseJ4 {
     }
   }
 
+  public void testCollectionStateDelta() throws Exception {
+    Path zkDir = createTempDir("testCollectionStateDelta");
+
+    ZkTestServer server = new ZkTestServer(zkDir);
+
+    SolrZkClient zkClient = null;
+
+    try {
+      server.run();
+
+      zkClient =
+          new SolrZkClient.Builder()
+              .withUrl(server.getZkAddress())
+              .withTimeout(OverseerTest.DEFAULT_CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS)
+              .build();
+      ZkController.createClusterZkNodes(zkClient);
+
+      try (ZkStateReader reader = new ZkStateReader(zkClient)) {
+        reader.createClusterStateWatchersAndUpdate();
+
+        ZkStateWriter writer =
+            new ZkStateWriter(reader, new Stats(), -1, STATE_COMPRESSION_PROVIDER);
+
+        zkClient.makePath(ZkStateReader.COLLECTIONS_ZKNODE + "/c3", true);
+
+        Map<String, Slice> slices = new LinkedHashMap<>();
+        for (int i = 1; i <= 3; i++) {
+          slices.put("shard" + i, createSlice("c3", "shard" + i, "node1:8983_solr"));
+        }
+        ZkWriteCommand create =
+            new ZkWriteCommand(
+                "c3",
+                DocCollection.create(
+                    "c3", slices, new HashMap<>(), DocRouter.DEFAULT, 0, Instant.now(), null));
+        writer.enqueueUpdate(reader.getClusterState(), Collections.singletonList(create), null);
+        DocCollection first = writer.writePendingUpdates().getCollection("c3");
+        assertEquals(0, first.getZNodeVersion());
+
+        // move shard2 and remove shard3, shard1 is left alone
+        Map<String, Slice> updated = new LinkedHashMap<>(first.getSlicesMap());
+        updated.put("shard2", createSlice("c3", "shard2", "node2:8983_solr"));
+        updated.remove("shard3");
+        ZkWriteCommand update = new ZkWriteCommand("c3", first.copyWithSlices(updated));
+        writer.enqueueUpdate(writer.getClusterState(), Collections.singletonList(update), null);
+        DocCollection second = writer.writePendingUpdates().getCollection("c3");
+        assertEquals(1, second.getZNodeVersion());
+
+        byte[] delta =
+            zkClient.getData(CollectionStateDelta.getDeltaPath("c3"), null, null, true);
+        Map<?, ?> map = (Map<?, ?>) Utils.fromJSON(delta);
+        assertEquals(0L, ((Number) map.get("fromVersion")).longValue());
+        assertEquals(1L, ((Number) map.get("toVersion")).longValue());
+        assertEquals(Collections.singleton("shard2"), ((Map<?, ?>) map.get("shards")).keySet());
+        assertEquals(Collections.singletonList("shard3"), map.get("removedShards"));
+
+        DocCollection applied = CollectionStateDelta.apply(first, delta, 1, null);
+        assertNotNull(applied);
+        assertEquals(1, applied.getZNodeVersion());
+        assertEquals(second.getSlicesMap().keySet(), applied.getSlicesMap().keySet());
+        assertEquals("node2:8983_solr", applied.getReplica("core_node_shard2").getNodeName());
+        assertSame(first.getSlice("shard1"), applied.getSlice("shard1"));
+
+        // a delta only applies to the version it was written from, and to the version it produces
+        assertNull(CollectionStateDelta.apply(applied, delta, 2, null));
+        assertNull(CollectionStateDelta.apply(first, delta, 2, null));
+      }
+    } finally {
+      IOUtils.close(zkClient);
+      server.shutdown();
+    }
+  }
+
+  private Slice createSlice(String collection, String shard, String node) {
+    String coreNode = "core_node_" + shard;
+    Map<String, Object> replicaProps = new HashMap<>();
+    replicaProps.put(ZkStateReader.NODE_NAME_PROP, node);
+    replicaProps.put(ZkStateReader.CORE_NAME_PROP, collection + "_" + shard + "_replica_n1");
+    replicaProps.put(ZkStateReader.REPLICA_TYPE, "NRT");
+    Map<String, Replica> replicas = new HashMap<>();
+    replicas.put(coreNode, new Replica(coreNode, replicaProps, collection, shard));
+    return new Slice(shard, replicas, new HashMap<>(), collection);
+  }
+
   private DocCollection createDocCollection(String name, Map<String, Object> props) {
     return DocCollection.create(
         name, new HashMap<>(), props, DocRouter.DEFAULT, 0, Instant.now(), null);
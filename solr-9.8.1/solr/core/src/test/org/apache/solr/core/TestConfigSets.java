@@ -27,6 +27,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import org.apache.commons.io.file.PathUtils;
 import org.apache.solr.SolrTestCaseJ4;
@@ -89,6 +92,62 @@ public class TestConfigSets extends SolrTestCaseJ4 {
     }
   }
 
+  @Test
+  public void testCoresShareParsedConfigFiles() {
+    CoreContainer container = null;
+    try {
+      container = setupContainer(TEST_PATH().resolve("configsets").toString());
+      assertEquals(
+          List.of("zkInitialized", "coresDiscovered", "coresLoaded", "loadComplete"),
+          new ArrayList<>(container.getStartupPhases().keySet()));
+
+      SolrCore core1 = container.create("core1", Map.of("configSet", "configset-2"));
+      SolrCore core2 = container.create("core2", Map.of("configSet", "configset-2"));
+      assertSame(core1.getSolrConfig().root, core2.getSolrConfig().root);
+      assertNotSame(core1.getSolrConfig(), core2.getSolrConfig());
+    } finally {
+      if (container != null) container.shutdown();
+    }
+  }
+
+  @Test
+  public void testParsedConfigFileReloadedWhenIncludedFileChanges() throws IOException {
+    Path testDirectory = createTempDir("included-file");
+    Path configSetsDir = testDirectory.resolve("configsets");
+    PathUtils.copyDirectory(getFile("solr/configsets").toPath(), configSetsDir);
+    Path confDir = configSetsDir.resolve("configset-2/conf");
+    Path solrconfig = confDir.resolve("solrconfig.xml");
+    Files.writeString(
+        solrconfig,
+        Files.readString(solrconfig)
+            .replace(
+                "</config>",
+                "<xi:include href=\"handlers.xml\" xmlns:xi=\"http://www.w3.org/2001/XInclude\"/>"
+                    + "</config>"));
+    Path handlers = confDir.resolve("handlers.xml");
+    Files.writeString(handlers, "<requestHandler name=\"/other\" class=\"solr.SearchHandler\"/>");
+
+    System.setProperty("configsets", configSetsDir.toAbsolutePath().toString());
+    CoreContainer container = new CoreContainer(SolrXmlConfig.fromString(testDirectory, solrxml));
+    try {
+      container.load();
+      SolrCore core1 = container.create("core1", Map.of("configSet", "configset-2"));
+      assertThat(core1.getRequestHandler("/dump"), is(nullValue()));
+
+      // only the included file changes
+      Files.writeString(
+          handlers, "<requestHandler name=\"/dump\" class=\"solr.DumpRequestHandler\"/>");
+      Files.setLastModifiedTime(
+          handlers,
+          FileTime.fromMillis(Files.getLastModifiedTime(handlers).toMillis() + 10000));
+      SolrCore core2 = container.create("core2", Map.of("configSet", "configset-2"));
+      assertThat(core2.getRequestHandler("/dump"), is(notNullValue()));
+      assertNotSame(core1.getSolrConfig().root, core2.getSolrConfig().root);
+    } finally {
+      container.shutdown();
+    }
+  }
+
   @Test
   public void testNonExistentConfigSetThrowsException() {
     final CoreContainer container = setupContainer(getFile("solr/configsets").getAbsolutePath());
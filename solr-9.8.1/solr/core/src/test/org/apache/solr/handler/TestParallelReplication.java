@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.handler;
+
+import static org.apache.solr.handler.ReplicationHandler.CMD_FETCH_INDEX;
+import static org.apache.solr.handler.ReplicationHandler.CMD_GET_FILE_LIST;
+import static org.apache.solr.handler.ReplicationTestHelper.invokeReplicationCommand;
+import static org.apache.solr.handler.TestReplicationHandler.createAndStartJetty;
+
+import java.util.List;
+import java.util.Map;
+import org.apache.lucene.tests.util.TestUtil;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.embedded.JettySolrRunner;
+import org.apache.solr.util.LogListener;
+import org.apache.solr.util.TestInjection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Checks that a follower downloads an index with several threads and files in ranges. */
+@SolrTestCaseJ4.SuppressSSL
+public class TestParallelReplication extends SolrTestCaseJ4 {
+
+  JettySolrRunner leaderJetty, followerJetty;
+  SolrClient leaderClient, followerClient;
+  ReplicationTestHelper.SolrInstance leader = null, follower = null;
+
+  @Override
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    System.setProperty(IndexFetcher.FETCH_THREADS_PROP, "4");
+    System.setProperty(IndexFetcher.FETCH_RANGE_SIZE_MB_PROP, "1");
+    leader =
+        new ReplicationTestHelper.SolrInstance(
+            createTempDir("solr-instance").toFile(), "leader", null);
+    leader.setUp();
+    leaderJetty = createAndStartJetty(leader);
+    leaderClient =
+        ReplicationTestHelper.createNewSolrClient(
+            TestReplicationHandler.buildUrl(leaderJetty.getLocalPort()), DEFAULT_TEST_CORENAME);
+    System.setProperty(TEST_URL_ALLOW_LIST, leaderJetty.getBaseUrl().toString());
+
+    follower =
+        new ReplicationTestHelper.SolrInstance(
+            createTempDir("solr-instance").toFile(), "follower", leaderJetty.getLocalPort());
+    follower.setUp();
+    followerJetty = createAndStartJetty(follower);
+    followerClient =
+        ReplicationTestHelper.createNewSolrClient(
+            TestReplicationHandler.buildUrl(followerJetty.getLocalPort()), DEFAULT_TEST_CORENAME);
+  }
+
+  @Override
+  @After
+  public void tearDown() throws Exception {
+    TestInjection.reset();
+    super.tearDown();
+    if (null != leaderJetty) {
+      leaderJetty.stop();
+      leaderJetty = null;
+    }
+    if (null != followerJetty) {
+      followerJetty.stop();
+      followerJetty = null;
+    }
+    leader = follower = null;
+    if (null != leaderClient) {
+      leaderClient.close();
+      leaderClient = null;
+    }
+    if (null != followerClient) {
+      followerClient.close();
+      followerClient = null;
+    }
+    System.clearProperty(TEST_URL_ALLOW_LIST);
+    System.clearProperty(IndexFetcher.FETCH_THREADS_PROP);
+    System.clearProperty(IndexFetcher.FETCH_RANGE_SIZE_MB_PROP);
+  }
+
+  @Test
+  public void testParallelFetch() throws Exception {
+    int numDocs = indexLargeFiles();
+
+    fetchIndex();
+
+    assertFetched(numDocs);
+  }
+
+  @Test
+  public void testResumeRangedFetch() throws Exception {
+    int numDocs = indexLargeFiles();
+
+    // the first ranges of the files are downloaded, the fetch fails on the others
+    TestInjection.failIndexFetchRanges = true;
+    fetchIndex();
+    QueryResponse response = followerClient.query(new SolrQuery().setQuery("*:*").setRows(0));
+    assertEquals("docs in follower", 0, response.getResults().getNumFound());
+
+    TestInjection.failIndexFetchRanges = false;
+    try (LogListener resumed =
+            LogListener.info(IndexFetcher.class).substring("Resuming the fetch of generation");
+        LogListener skippedParts =
+            LogListener.info(IndexFetcher.class).substring(".part0, it was downloaded by")) {
+      fetchIndex();
+      assertEquals(1, resumed.getCount());
+      assertTrue(skippedParts.getCount() > 0);
+      resumed.getQueue().clear();
+      skippedParts.getQueue().clear();
+    }
+    assertFetched(numDocs);
+  }
+
+  /** Indexes documents on the leader until at least one of its files is downloaded in ranges. */
+  private int indexLargeFiles() throws Exception {
+    invokeReplicationCommand(
+        TestReplicationHandler.buildUrl(followerJetty.getLocalPort()) + "/" + DEFAULT_TEST_CORENAME,
+        "disablepoll");
+    int numDocs = 1000;
+    for (int i = 0; i < numDocs; i++) {
+      ReplicationTestHelper.index(
+          leaderClient, "id", i, "name", TestUtil.randomSimpleString(random(), 2000, 5000));
+    }
+    leaderClient.commit(true, true);
+    long largest = 0;
+    for (Map<?, ?> file : getFileList(leaderClient)) {
+      largest = Math.max(largest, (Long) file.get(ReplicationHandler.SIZE));
+    }
+    assertTrue("largest file: " + largest, largest > 1024 * 1024);
+    return numDocs;
+  }
+
+  private void fetchIndex() throws Exception {
+    QueryResponse response =
+        followerClient.query(
+            new SolrQuery()
+                .add("qt", "/replication")
+                .add("command", CMD_FETCH_INDEX)
+                .add("wait", "true"));
+    assertEquals("Replication command status", "OK", response._getStr("status", null));
+  }
+
+  private void assertFetched(int numDocs) throws Exception {
+    QueryResponse response = followerClient.query(new SolrQuery().setQuery("*:*").setRows(0));
+    assertEquals("docs in follower", numDocs, response.getResults().getNumFound());
+    ReplicationTestHelper.assertVersions(leaderClient, followerClient);
+    for (Map<?, ?> file : getFileList(followerClient)) {
+      assertFalse(file.toString(), ((String) file.get("name")).contains(".part"));
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Map<?, ?>> getFileList(SolrClient client) throws Exception {
+    QueryResponse response =
+        client.query(
+            new SolrQuery()
+                .add("qt", "/replication")
+                .add("command", "filelist")
+                .add("generation", "-1"));
+    return (List<Map<?, ?>>) response.getResponse().get(CMD_GET_FILE_LIST);
+  }
+}
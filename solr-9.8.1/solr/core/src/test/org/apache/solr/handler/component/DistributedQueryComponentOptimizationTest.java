@@ -432,6 +432,76 @@ public class DistributedQueryComponentOptimizationTest extends SolrCloudTestCase
         rsp, nonDistribRsp); // make sure distrib and distrib.singlePass return the same thing
   }
 
+  @Test
+  public void testDistribSinglePassMaxRows() throws Exception {
+    // small pages are fetched in a single pass
+    assertNull(
+        getTrack("rows", "5", ShardParams.DISTRIB_SINGLE_PASS_MAX_ROWS, "10").get("GET_FIELDS"));
+    assertNull(
+        getTrack("start", "5", "rows", "5", ShardParams.DISTRIB_SINGLE_PASS_MAX_ROWS, "10")
+            .get("GET_FIELDS"));
+    // but not once start + rows exceeds the threshold
+    assertNotNull(
+        getTrack("rows", "20", ShardParams.DISTRIB_SINGLE_PASS_MAX_ROWS, "10").get("GET_FIELDS"));
+    assertNotNull(
+        getTrack("start", "6", "rows", "5", ShardParams.DISTRIB_SINGLE_PASS_MAX_ROWS, "10")
+            .get("GET_FIELDS"));
+    // an explicit distrib.singlePass wins
+    assertNotNull(
+        getTrack(
+                "rows",
+                "5",
+                ShardParams.DISTRIB_SINGLE_PASS_MAX_ROWS,
+                "10",
+                ShardParams.DISTRIB_SINGLE_PASS,
+                "false")
+            .get("GET_FIELDS"));
+    // and there is no threshold by default
+    assertNotNull(getTrack("rows", "5").get("GET_FIELDS"));
+
+    QueryResponse rsp =
+        cluster
+            .getSolrClient()
+            .query(
+                COLLECTION,
+                new SolrQuery(
+                    "q",
+                    "*:*",
+                    "fl",
+                    "id,test_sS,score",
+                    "sort",
+                    "payload asc",
+                    "rows",
+                    "5",
+                    ShardParams.DISTRIB_SINGLE_PASS_MAX_ROWS,
+                    "10"));
+    assertFieldValues(rsp.getResults(), id, "7", "1", "6", "4", "2");
+    assertFieldValues(rsp.getResults(), "test_sS", "27", "21", "26", "24", "22");
+
+    QueryResponse twoPassRsp =
+        cluster
+            .getSolrClient()
+            .query(
+                COLLECTION,
+                new SolrQuery(
+                    "q", "*:*", "fl", "id,test_sS,score", "sort", "payload asc", "rows", "5"));
+    compareResponses(rsp, twoPassRsp);
+  }
+
+  private SimpleOrderedMap<Object> getTrack(String... params) throws Exception {
+    SolrQuery query =
+        new SolrQuery("q", "*:*", "fl", "id,test_sS", "sort", "payload asc", "debug", "track");
+    for (int i = 0; i < params.length; i += 2) {
+      query.set(params[i], params[i + 1]);
+    }
+    QueryResponse rsp = cluster.getSolrClient().query(COLLECTION, query);
+    @SuppressWarnings({"unchecked"})
+    SimpleOrderedMap<Object> track = (SimpleOrderedMap<Object>) rsp.getDebugMap().get("track");
+    assertNotNull(track);
+    assertNotNull(track.get("EXECUTE_QUERY"));
+    return track;
+  }
+
   @Test
   public void testOptimizations() throws Exception {
 
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler.component;
+
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.params.ShardParams;
+import org.apache.solr.search.SolrCache;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Tests the {@value QueryComponent#SHARD_ID_CACHE_NAME} used by distributed searches. */
+public class QueryComponentShardIdCacheTest extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    initCore("solrconfig-shardidcache.xml", "schema.xml");
+  }
+
+  @Before
+  public void indexDocs() {
+    clearIndex();
+    for (int i = 0; i < 10; i++) {
+      assertU(adoc("id", Integer.toString(i), "name", "doc" + i));
+    }
+    assertU(commit());
+  }
+
+  @Test
+  public void testTopIdsPhasePopulatesCache() throws Exception {
+    assertQ(
+        req(
+            "q",
+            "*:*",
+            "sort",
+            "id asc",
+            "rows",
+            "3",
+            "fl",
+            "id",
+            ShardParams.IS_SHARD,
+            "true",
+            ShardParams.SHARDS_PURPOSE,
+            String.valueOf(ShardRequest.PURPOSE_GET_TOP_IDS)),
+        "//result[@numFound='10']");
+
+    h.getCore()
+        .withSearcher(
+            searcher -> {
+              @SuppressWarnings({"unchecked"})
+              SolrCache<String, Integer> cache =
+                  searcher.getCache(QueryComponent.SHARD_ID_CACHE_NAME);
+              assertNotNull(cache);
+              assertEquals(3, cache.size());
+              for (String id : new String[] {"0", "1", "2"}) {
+                Integer docid = cache.get(id);
+                assertNotNull("id " + id + " not cached", docid);
+                assertEquals(id, searcher.getDocFetcher().doc(docid).get("id"));
+              }
+              return null;
+            });
+
+    // the stored fields request resolves the cached ids, and caches the ones it had to look up
+    assertQ(
+        req(
+            "q",
+            "*:*",
+            "fl",
+            "id,name",
+            ShardParams.IDS,
+            "2,0,7",
+            ShardParams.IS_SHARD,
+            "true",
+            ShardParams.SHARDS_PURPOSE,
+            String.valueOf(ShardRequest.PURPOSE_GET_FIELDS)),
+        "//result[@numFound='3']",
+        "//result/doc[1]/str[@name='name'][.='doc2']",
+        "//result/doc[2]/str[@name='name'][.='doc0']",
+        "//result/doc[3]/str[@name='name'][.='doc7']");
+
+    h.getCore()
+        .withSearcher(
+            searcher -> {
+              assertEquals(4, searcher.getCache(QueryComponent.SHARD_ID_CACHE_NAME).size());
+              return null;
+            });
+  }
+
+  @Test
+  public void testCacheNotPopulatedForNonShardRequests() throws Exception {
+    assertQ(req("q", "*:*", "rows", "3", "fl", "id"), "//result[@numFound='10']");
+    assertQ(
+        req(
+            "q",
+            "*:*",
+            "rows",
+            "3",
+            "fl",
+            "id",
+            ShardParams.IS_SHARD,
+            "true",
+            ShardParams.SHARDS_PURPOSE,
+            String.valueOf(ShardRequest.PURPOSE_GET_TOP_IDS | ShardRequest.PURPOSE_GET_FIELDS)),
+        "//result[@numFound='10']");
+
+    h.getCore()
+        .withSearcher(
+            searcher -> {
+              assertEquals(0, searcher.getCache(QueryComponent.SHARD_ID_CACHE_NAME).size());
+              return null;
+            });
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.handler.export;
+
+import org.apache.solr.JSONTestUtil;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.index.NoMergePolicyFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Tests that exports don't read stale cached values of the fields updated in place. */
+public class TestExportColumnCacheInPlaceUpdates extends SolrTestCaseJ4 {
+  private static ExportColumnCache cache;
+  private static ExportColumnCache previousCache;
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    // the in-place updates must stay in the segment of the documents
+    systemSetPropertySolrTestsMergePolicyFactory(NoMergePolicyFactory.class.getName());
+    initCore("solrconfig-tlog.xml", "schema-inplace-updates.xml");
+    cache = new ExportColumnCache(1024 * 1024);
+    previousCache = ExportColumnCache.setInstance(cache);
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    if (previousCache != null) {
+      ExportColumnCache.setInstance(previousCache);
+      previousCache = null;
+    }
+    cache = null;
+  }
+
+  @Test
+  public void testInPlaceUpdateIsExported() throws Exception {
+    assertU(adoc("id", "1", "inplace_updatable_int", "10"));
+    assertU(adoc("id", "2", "inplace_updatable_int", "20"));
+    assertU(adoc("id", "3", "inplace_updatable_int", "30"));
+    assertU(commit());
+
+    assertExported(
+        "[{'id':'1','inplace_updatable_int':10},"
+            + "{'id':'2','inplace_updatable_int':20},"
+            + "{'id':'3','inplace_updatable_int':30}]");
+    assertTrue(cache.size() > 0);
+
+    assertU(adoc(sdoc("id", "1", "inplace_updatable_int", map("set", 40))));
+    assertU(commit());
+
+    assertExported(
+        "[{'id':'2','inplace_updatable_int':20},"
+            + "{'id':'3','inplace_updatable_int':30},"
+            + "{'id':'1','inplace_updatable_int':40}]");
+  }
+
+  private void assertExported(String expectedDocs) throws Exception {
+    String resp =
+        h.query(
+            req(
+                "q",
+                "*:*",
+                "qt",
+                "/export",
+                "fl",
+                "id,inplace_updatable_int",
+                "sort",
+                "inplace_updatable_int asc"));
+    String error = JSONTestUtil.match(resp, "/response/docs==" + expectedDocs);
+    if (error != null) {
+      fail(error + " in " + resp);
+    }
+  }
+}
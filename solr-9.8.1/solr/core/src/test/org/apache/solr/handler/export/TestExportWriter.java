@@ -27,6 +27,11 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.tests.util.TestUtil;
 import org.apache.solr.SolrTestCaseJ4;
 import org.apache.solr.common.SolrInputDocument;
@@ -1172,6 +1177,163 @@ public class TestExportWriter extends SolrTestCaseJ4 {
     validateSort(numDocs);
   }
 
+  @Test
+  public void testSortedRuns() throws Exception {
+    assertU(delQ("*:*"));
+    assertU(commit());
+
+    int numDocs = 1000;
+    String[] str_vals = new String[10];
+    for (int i = 0; i < str_vals.length; i++) {
+      str_vals[i] = TestUtil.randomSimpleString(random(), 10);
+    }
+    for (int i = 0; i < numDocs; i++) {
+      int number = TestUtil.nextInt(random(), 0, 9);
+      assertU(
+          adoc(
+              "id",
+              String.valueOf(i),
+              "intdv",
+              String.valueOf(number),
+              "stringdv",
+              str_vals[TestUtil.nextInt(random(), 0, 9)],
+              "longdv",
+              String.valueOf(random().nextLong()),
+              "booleandv",
+              String.valueOf(random().nextBoolean())));
+      if (i % 100 == 99) {
+        // several segments, to be sorted into several runs
+        assertU(commit());
+      }
+    }
+    assertU(commit());
+
+    String[] sorts = {
+      "intdv asc", "stringdv desc,intdv asc", "booleandv asc,stringdv asc,longdv desc", "longdv asc"
+    };
+    // with the small queue, each run is sorted in several chunks
+    for (String queueSize : new String[] {"100", String.valueOf(ExportWriter.DEFAULT_QUEUE_SIZE)}) {
+      for (String sort : sorts) {
+        String fl = "id,intdv,stringdv,longdv,booleandv";
+        List<?> streamDocs =
+            queryJsonReturnDocs(
+                req(
+                    "q",
+                    "*:*",
+                    "qt",
+                    "/export",
+                    "fl",
+                    fl,
+                    "sort",
+                    sort,
+                    ExportWriter.QUEUE_SIZE_PARAM,
+                    queueSize));
+        assertEquals(numDocs, streamDocs.size());
+        List<?> runsDocs =
+            queryJsonReturnDocs(
+                req(
+                    "q",
+                    "*:*",
+                    "qt",
+                    "/export",
+                    "fl",
+                    fl,
+                    "sort",
+                    sort,
+                    ExportWriter.QUEUE_SIZE_PARAM,
+                    queueSize,
+                    ExportWriter.SORT_MODE_PARAM,
+                    ExportWriter.SORT_MODE_RUNS,
+                    ExportWriter.SORT_THREADS_PARAM,
+                    String.valueOf(TestUtil.nextInt(random(), 1, 4))));
+        // same order, including ties
+        assertEquals("queueSize=" + queueSize + ", sort=" + sort, streamDocs, runsDocs);
+      }
+    }
+
+    String s =
+        h.query(
+            req(
+                "q",
+                "*:*",
+                "qt",
+                "/export",
+                "fl",
+                "id",
+                "sort",
+                "intdv asc",
+                ExportWriter.SORT_MODE_PARAM,
+                "unknown"));
+    assertTrue(s, s.contains("Unknown sortMode: unknown"));
+  }
+
+  @Test
+  public void testColumnCache() throws Exception {
+    assertU(delQ("*:*"));
+    assertU(commit());
+
+    int numDocs = 300;
+    for (int i = 0; i < numDocs; i++) {
+      if (i % 7 == 0) {
+        // some docs without a value
+        assertU(adoc("id", String.valueOf(i)));
+      } else {
+        assertU(
+            adoc(
+                "id",
+                String.valueOf(i),
+                "longdv",
+                String.valueOf(random().nextLong()),
+                "doubledv",
+                String.valueOf(random().nextDouble())));
+      }
+      if (i % 100 == 99) {
+        assertU(commit());
+      }
+    }
+    assertU(commit());
+
+    h.getCore()
+        .withSearcher(
+            searcher -> {
+              List<LeafReaderContext> leaves = searcher.getTopReaderContext().leaves();
+              assertTrue(leaves.size() > 1);
+              ExportColumnCache cache = new ExportColumnCache(1024 * 1024);
+              for (LeafReaderContext leaf : leaves) {
+                for (String field : new String[] {"longdv", "doubledv"}) {
+                  NumericDocValues expected = DocValues.getNumeric(leaf.reader(), field);
+                  NumericDocValues cached = cache.getNumeric(leaf.reader(), field);
+                  for (int doc = expected.nextDoc();
+                      doc != DocIdSetIterator.NO_MORE_DOCS;
+                      doc = expected.nextDoc()) {
+                    assertEquals(doc, cached.nextDoc());
+                    assertEquals(expected.longValue(), cached.longValue());
+                  }
+                  assertEquals(DocIdSetIterator.NO_MORE_DOCS, cached.nextDoc());
+                  assertSame(
+                      cache.getColumn(leaf.reader(), field),
+                      cache.getColumn(leaf.reader(), field));
+                }
+                // only single valued numeric fields are cached
+                assertNull(cache.getColumn(leaf.reader(), "stringdv"));
+                assertNull(cache.getColumn(leaf.reader(), "intdv_m"));
+              }
+              assertEquals(2 * leaves.size(), cache.size());
+
+              // a budget that only fits one column evicts the others
+              LeafReader reader = leaves.get(0).reader();
+              long columnBytes = ExportColumnCache.Column.estimateRamBytesUsed(reader.maxDoc());
+              ExportColumnCache small = new ExportColumnCache(columnBytes);
+              assertNotNull(small.getColumn(reader, "longdv"));
+              assertNotNull(small.getColumn(reader, "doubledv"));
+              assertEquals(1, small.size());
+              assertTrue(small.ramBytesUsed() <= 8L * reader.maxDoc() + 1024);
+
+              assertNull(new ExportColumnCache(0).getColumn(reader, "longdv"));
+              return null;
+            });
+  }
+
   private void createLargeIndex() throws Exception {
     int BATCH_SIZE = 5000;
     int NUM_BATCHES = 20;
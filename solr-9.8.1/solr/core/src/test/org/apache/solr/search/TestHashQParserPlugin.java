@@ -16,10 +16,13 @@
  */
 package org.apache.solr.search;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Random;
 import java.util.Set;
+import javax.xml.xpath.XPathConstants;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.tests.util.LuceneTestCase;
 import org.apache.solr.SolrTestCaseJ4;
 import org.apache.solr.common.SolrException;
@@ -113,6 +116,74 @@ public class TestHashQParserPlugin extends SolrTestCaseJ4 {
     BaseTestHarness.validateXPath(response, "//*[@numFound='4']");
   }
 
+  @Test
+  public void testPartitionsComputedTogether() throws Exception {
+    for (int i = 0; i < 30; i++) {
+      assertU(adoc("id", Integer.toString(i), "a_s", "value" + i));
+    }
+    assertU(commit());
+
+    String[] keys = new String[] {"a_s"};
+    int[] numFound = new int[3];
+    for (int worker = 0; worker < 3; worker++) {
+      ModifiableSolrParams params = new ModifiableSolrParams();
+      params.add("q", "*:*");
+      params.add("fq", "{!hash worker=" + worker + " workers=3 share=true}");
+      params.add("partitionKeys", "a_s");
+      params.add("rows", "0");
+      params.add("wt", "xml");
+      String response = h.query(req(params));
+      numFound[worker] =
+          Integer.parseInt(
+              BaseTestHarness.evaluateXPath(response, "//result/@numFound", XPathConstants.STRING)
+                  .toString());
+      // the first request computes the partitions of all the workers, each takes its own out and
+      // the last one drops them
+      int remaining = 2 - worker;
+      assertEquals(
+          remaining,
+          (int)
+              h.getCore()
+                  .withSearcher(
+                      searcher ->
+                          HashQParserPlugin.HashPartitionQuery.getNumSharedPartitions(
+                              searcher, keys, 3)));
+    }
+    assertEquals(30, Arrays.stream(numFound).sum());
+
+    IndexReader.CacheKey readerKey =
+        h.getCore()
+            .withSearcher(
+                searcher -> {
+                  // without share only the partition of the worker is computed
+                  DocSet partition =
+                      new HashQParserPlugin.HashPartitionQuery(keys, 3, 0, false)
+                          .createDocSet(searcher);
+                  assertEquals(numFound[0], partition.size());
+                  assertEquals(
+                      0,
+                      HashQParserPlugin.HashPartitionQuery.getNumSharedPartitions(
+                          searcher, keys, 3));
+
+                  // a worker asking alone leaves the partitions of the others to pick up
+                  partition =
+                      new HashQParserPlugin.HashPartitionQuery(keys, 3, 1, true)
+                          .createDocSet(searcher);
+                  assertEquals(numFound[1], partition.size());
+                  assertEquals(
+                      2,
+                      HashQParserPlugin.HashPartitionQuery.getNumSharedPartitions(
+                          searcher, keys, 3));
+                  return searcher.getIndexReader().getReaderCacheHelper().getKey();
+                });
+    assertTrue(HashQParserPlugin.HashPartitionQuery.hasSharedPartitions(readerKey));
+
+    // the partitions are dropped along with the index reader
+    assertU(adoc("id", "30", "a_s", "value30"));
+    assertU(commit());
+    assertFalse(HashQParserPlugin.HashPartitionQuery.hasSharedPartitions(readerKey));
+  }
+
   @Test
   @SuppressWarnings({"unchecked", "rawtypes"})
   public void testHashPartition() throws Exception {
@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Weight;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.metrics.SolrMetricManager;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.request.SolrRequestInfo;
+import org.apache.solr.response.SolrQueryResponse;
+import org.apache.solr.util.RefCounted;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Verify that identical concurrent queries are computed only once */
+public class TestQueryCoalescing extends SolrTestCaseJ4 {
+
+  private static final String TEST_COALESCE_PROPNAME = "solr.test.coalesceQueries";
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    System.setProperty(TEST_COALESCE_PROPNAME, "true");
+    initCore("solrconfig.xml", "schema.xml");
+    for (int i = 0; i < 20; i++) {
+      assertU(adoc("id", Integer.toString(i)));
+    }
+    assertU(commit());
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    System.clearProperty(TEST_COALESCE_PROPNAME);
+  }
+
+  @Test
+  public void testIdenticalConcurrentQueriesAreCoalesced() throws Exception {
+    final SolrCore core = h.getCore();
+    final BlockingQuery query = new BlockingQuery();
+    final long coalescedBefore = coalescedQueryCount(core);
+    final ExecutorService executor =
+        ExecutorUtil.newMDCAwareCachedThreadPool(new SolrNamedThreadFactory("TestQueryCoalescing"));
+    final RefCounted<SolrIndexSearcher> searcher = core.getSearcher();
+    try {
+      final AtomicReference<Thread> secondThread = new AtomicReference<>();
+      Future<DocList> first = executor.submit(() -> search(searcher.get(), query));
+      assertTrue(query.entered.await(30, TimeUnit.SECONDS));
+
+      Future<DocList> second =
+          executor.submit(
+              () -> {
+                secondThread.set(Thread.currentThread());
+                return search(searcher.get(), query);
+              });
+      // the second query must wait for the first one instead of computing its own result
+      waitUntilWaiting(secondThread);
+      query.release.countDown();
+
+      DocList firstResult = first.get(30, TimeUnit.SECONDS);
+      DocList secondResult = second.get(30, TimeUnit.SECONDS);
+      assertEquals(20, firstResult.matches());
+      assertEquals(20, secondResult.matches());
+      assertEquals(1, query.computations.get());
+      assertEquals(coalescedBefore + 1, coalescedQueryCount(core));
+    } finally {
+      query.release.countDown();
+      searcher.decref();
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+    }
+  }
+
+  @Test
+  public void testWaitIsBoundedByTimeAllowed() throws Exception {
+    final SolrCore core = h.getCore();
+    final BlockingQuery query = new BlockingQuery();
+    final long coalescedBefore = coalescedQueryCount(core);
+    final ExecutorService executor =
+        ExecutorUtil.newMDCAwareCachedThreadPool(new SolrNamedThreadFactory("TestQueryCoalescing"));
+    final RefCounted<SolrIndexSearcher> searcher = core.getSearcher();
+    try {
+      Future<DocList> first = executor.submit(() -> search(searcher.get(), query));
+      assertTrue(query.entered.await(30, TimeUnit.SECONDS));
+
+      // the second query stops waiting once its time is up, while the first one is still blocked
+      Future<DocList> second =
+          executor.submit(
+              () -> {
+                SolrQueryRequest req = req("timeAllowed", "100");
+                SolrRequestInfo.setRequestInfo(new SolrRequestInfo(req, new SolrQueryResponse()));
+                try {
+                  return search(searcher.get(), query);
+                } finally {
+                  SolrRequestInfo.clearRequestInfo();
+                  req.close();
+                }
+              });
+      assertNotNull(second.get(30, TimeUnit.SECONDS));
+      assertFalse(first.isDone());
+      assertEquals(2, query.computations.get());
+      assertEquals(coalescedBefore, coalescedQueryCount(core));
+
+      query.release.countDown();
+      assertEquals(20, first.get(30, TimeUnit.SECONDS).matches());
+    } finally {
+      query.release.countDown();
+      searcher.decref();
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+    }
+  }
+
+  @Test
+  public void testNonCacheableQueriesAreNotCoalesced() throws Exception {
+    final SolrCore core = h.getCore();
+    final long coalescedBefore = coalescedQueryCount(core);
+    final BlockingQuery query = new BlockingQuery();
+    query.release.countDown();
+    final RefCounted<SolrIndexSearcher> searcher = core.getSearcher();
+    try {
+      searcher.get().getDocList(query, null, null, 0, 10, SolrIndexSearcher.NO_CHECK_QCACHE);
+      searcher.get().getDocList(query, null, null, 0, 10, SolrIndexSearcher.NO_CHECK_QCACHE);
+      assertEquals(2, query.computations.get());
+      assertEquals(coalescedBefore, coalescedQueryCount(core));
+    } finally {
+      searcher.decref();
+    }
+  }
+
+  private static DocList search(SolrIndexSearcher searcher, Query query) throws IOException {
+    return searcher.getDocList(query, null, null, 0, 10, 0);
+  }
+
+  private static void waitUntilWaiting(AtomicReference<Thread> thread) throws Exception {
+    // the first query blocks with a timeout (TIMED_WAITING), the second one waits for it
+    final long timeout = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+    while (thread.get() == null || thread.get().getState() != Thread.State.WAITING) {
+      assertTrue("second query never waited", System.nanoTime() < timeout);
+      Thread.sleep(10);
+    }
+  }
+
+  private static long coalescedQueryCount(SolrCore core) {
+    return (long)
+        ((SolrMetricManager.GaugeWrapper<?>)
+                core.getCoreMetricManager()
+                    .getRegistry()
+                    .getMetrics()
+                    .get("SEARCHER.searcher.coalescedQueryCount"))
+            .getGauge()
+            .getValue();
+  }
+
+  /** Matches all docs, blocking the first weight creation until released */
+  private static final class BlockingQuery extends Query {
+    final CountDownLatch entered = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger computations = new AtomicInteger();
+
+    @Override
+    public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost)
+        throws IOException {
+      if (computations.incrementAndGet() == 1) {
+        entered.countDown();
+        try {
+          release.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return new MatchAllDocsQuery().createWeight(searcher, scoreMode, boost);
+    }
+
+    @Override
+    public void visit(QueryVisitor visitor) {
+      visitor.visitLeaf(this);
+    }
+
+    @Override
+    public String toString(String field) {
+      return "BlockingQuery";
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return this == other;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(this);
+    }
+  }
+}
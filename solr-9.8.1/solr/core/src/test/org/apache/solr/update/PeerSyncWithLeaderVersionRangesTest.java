@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import static org.apache.solr.update.processor.DistributingUpdateProcessorFactory.DISTRIB_UPDATE_PARAM;
+
+import java.io.IOException;
+import java.util.Set;
+import org.apache.solr.BaseDistributedSearchTestCase;
+import org.apache.solr.SolrTestCaseJ4.SuppressSSL;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.update.processor.DistributedUpdateProcessor.DistribPhase;
+import org.junit.Test;
+
+/**
+ * Checks that a replica missing updates older than the recent updates syncs with the leader by
+ * comparing the fingerprints of version ranges.
+ */
+@SuppressSSL(bugUrl = "https://issues.apache.org/jira/browse/SOLR-5776")
+public class PeerSyncWithLeaderVersionRangesTest extends BaseDistributedSearchTestCase {
+  private static final int numVersions = 100;
+  private static final String FROM_LEADER = DistribPhase.FROMLEADER.toString();
+  private static final ModifiableSolrParams seenLeader = params(DISTRIB_UPDATE_PARAM, FROM_LEADER);
+
+  public PeerSyncWithLeaderVersionRangesTest() {
+    stress = 0;
+    configString = "solrconfig-tlog.xml";
+    schemaString = "schema.xml";
+  }
+
+  @Test
+  @ShardsFixed(num = 2)
+  public void test() throws Exception {
+    handle.clear();
+    handle.put("timestamp", SKIPVAL);
+    handle.put("score", SKIPVAL);
+    handle.put("maxScore", SKIPVAL);
+
+    SolrClient leader = clients.get(0);
+    SolrClient replica = clients.get(1);
+
+    // enough documents for the ranges to be split more than once
+    int numDocs = 1200;
+    Set<Integer> missed = Set.of(10, 400, 401, 850);
+    int v = 0;
+    for (int i = 0; i < numDocs; i++) {
+      String id = Integer.toString(i);
+      add(leader, seenLeader, sdoc("id", id, "name", "doc" + i, "_version_", ++v));
+      if (!missed.contains(i)) {
+        add(replica, seenLeader, sdoc("id", id, "name", "doc" + i, "_version_", v));
+      }
+    }
+
+    // the recent updates are the same, the missed ones can only be found in the index
+    assertSyncWithLeader(replica, false);
+    System.setProperty(PeerSyncWithLeader.RANGE_SYNC_MAX_DOCS_PROP, "10");
+    try {
+      assertSyncWithLeader(replica, true);
+      leader.commit();
+      replica.commit();
+      queryAndCompare(
+          params("q", "*:*", "rows", "10000", "sort", "_version_ desc,id desc"), leader, replica);
+
+      // a document deleted on the leader can't be found in its index
+      del(
+          leader,
+          params(DISTRIB_UPDATE_PARAM, FROM_LEADER, "_version_", Long.toString(- ++v)),
+          "5");
+      for (int i = numDocs; i < numDocs + numVersions; i++) {
+        add(leader, seenLeader, sdoc("id", Integer.toString(i), "_version_", ++v));
+        add(replica, seenLeader, sdoc("id", Integer.toString(i), "_version_", v));
+      }
+      assertSyncWithLeader(replica, false);
+    } finally {
+      System.clearProperty(PeerSyncWithLeader.RANGE_SYNC_MAX_DOCS_PROP);
+    }
+  }
+
+  private void assertSyncWithLeader(SolrClient client, boolean expectedResult)
+      throws IOException, SolrServerException {
+    QueryRequest qr =
+        new QueryRequest(
+            params(
+                "qt",
+                "/get",
+                "getVersions",
+                Integer.toString(numVersions),
+                "syncWithLeader",
+                shardsArr[0]));
+    NamedList<?> rsp = client.request(qr);
+    assertEquals(expectedResult, rsp.get("syncWithLeader"));
+  }
+}
@@ -246,12 +246,30 @@ public class SolrIndexSplitterTest extends SolrTestCaseJ4 {
     doTestSplitByCores(SolrIndexSplitter.SplitMethod.LINK);
   }
 
+  @Test
+  public void testSplitByCoresLinkInParallel() throws Exception {
+    // the documents of each segment are found by a different thread
+    System.setProperty(SolrIndexSplitter.SPLIT_THREADS_PROP, "4");
+    try {
+      doTestSplitByCores(SolrIndexSplitter.SplitMethod.LINK, true);
+    } finally {
+      System.clearProperty(SolrIndexSplitter.SPLIT_THREADS_PROP);
+    }
+  }
+
   private void doTestSplitByCores(SolrIndexSplitter.SplitMethod splitMethod) throws Exception {
+    doTestSplitByCores(splitMethod, false);
+  }
+
+  private void doTestSplitByCores(SolrIndexSplitter.SplitMethod splitMethod, boolean segmentPerDoc)
+      throws Exception {
     // add three docs and 1 delete
     String id1 = "dorothy";
     assertU(adoc("id", id1));
+    if (segmentPerDoc) assertU(commit());
     String id2 = "kansas";
     assertU(adoc("id", id2));
+    if (segmentPerDoc) assertU(commit());
     String id3 = "wizard";
     assertU(adoc("id", id3));
     assertU(commit());
@@ -21,6 +21,7 @@ import static org.apache.solr.client.solrj.io.stream.metrics.CountDistinctMetric
 import static org.apache.solr.common.params.CommonParams.SORT;
 
 import java.io.IOException;
+import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -47,6 +48,7 @@ import org.apache.calcite.schema.SchemaPlus;
 import org.apache.calcite.schema.TranslatableTable;
 import org.apache.calcite.schema.impl.AbstractTableQueryable;
 import org.apache.calcite.util.Pair;
+import org.apache.solr.client.solrj.io.Tuple;
 import org.apache.solr.client.solrj.io.comp.ComparatorOrder;
 import org.apache.solr.client.solrj.io.comp.FieldComparator;
 import org.apache.solr.client.solrj.io.comp.MultipleFieldComparator;
@@ -87,11 +89,24 @@ import org.apache.solr.client.solrj.io.stream.metrics.MinMetric;
 import org.apache.solr.client.solrj.io.stream.metrics.SumMetric;
 import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /** Table based on a Solr collection */
 class SolrTable extends AbstractQueryableTable implements TranslatableTable {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
   private static final String DEFAULT_QUERY = "*:*";
 
+  /**
+   * The aggregation mode that picks facet or map_reduce for each GROUP BY query, from an estimate
+   * of its number of groups.
+   */
+  static final String AGGREGATION_MODE_AUTO = "auto";
+
+  /** The default number of groups past which the auto aggregation mode uses map_reduce. */
+  static final long DEFAULT_AUTO_AGGREGATION_THRESHOLD = 100000;
+
   private final String collection;
   private final SolrSchema schema;
   private RelProtoDataType protoRowType;
@@ -149,7 +164,8 @@ class SolrTable extends AbstractQueryableTable implements TranslatableTable {
       final String havingPredicate,
       final String offset) {
     // SolrParams should be a ModifiableParams instead of a map
-    boolean mapReduce = "map_reduce".equals(properties.getProperty("aggregationMode"));
+    String aggregationMode = properties.getProperty("aggregationMode");
+    boolean mapReduce = "map_reduce".equals(aggregationMode);
     boolean negative = Boolean.parseBoolean(negativeQuery);
 
     String q = null;
@@ -173,6 +189,9 @@ class SolrTable extends AbstractQueryableTable implements TranslatableTable {
         if (buckets.isEmpty()) {
           tupleStream = handleStats(zk, collection, q, metricPairs, fields);
         } else {
+          if (AGGREGATION_MODE_AUTO.equals(aggregationMode)) {
+            mapReduce = isHighCardinality(zk, q, buckets, properties);
+          }
           if (mapReduce) {
             tupleStream =
                 handleGroupByMapReduce(
@@ -650,6 +669,62 @@ class SolrTable extends AbstractQueryableTable implements TranslatableTable {
     return bucketsArray;
   }
 
+  /**
+   * Estimates the number of groups of a GROUP BY query, from the number of matching documents and
+   * the number of distinct values of each bucket field in them, which are counted with HyperLogLog
+   * sketches in a single stats request. Past the threshold the groups are better computed by
+   * rolling up the exported tuples on the workers than by faceting on the shards, which have to
+   * hold all the groups in memory and refine them across shards.
+   *
+   * @return true if the query has more groups than the threshold
+   */
+  private boolean isHighCardinality(
+      String zk, String query, List<String> bucketFields, Properties properties)
+      throws IOException {
+    long threshold =
+        Long.parseLong(
+            properties.getProperty(
+                "autoAggregationThreshold", String.valueOf(DEFAULT_AUTO_AGGREGATION_THRESHOLD)));
+
+    ModifiableSolrParams solrParams = new ModifiableSolrParams();
+    solrParams.add(CommonParams.Q, query);
+    Metric[] metrics = new Metric[bucketFields.size() + 1];
+    metrics[0] = new CountMetric();
+    for (int i = 0; i < bucketFields.size(); i++) {
+      metrics[i + 1] = new CountDistinctMetric(bucketFields.get(i), true);
+    }
+
+    long groups = 1;
+    try (TupleStream statsStream = new StatsStream(zk, collection, solrParams, metrics)) {
+      StreamContext streamContext = new StreamContext();
+      streamContext.setSolrClientCache(schema.getSolrClientCache());
+      statsStream.setStreamContext(streamContext);
+      statsStream.open();
+      Tuple tuple = statsStream.read();
+      for (int i = 1; i < metrics.length; i++) {
+        Long cardinality = tuple.getLong(metrics[i].getIdentifier());
+        if (cardinality != null && cardinality > 1) {
+          groups = groups > Long.MAX_VALUE / cardinality ? Long.MAX_VALUE : groups * cardinality;
+        }
+      }
+      Long numDocs = tuple.getLong("count(*)");
+      if (numDocs != null) {
+        groups = Math.min(groups, numDocs);
+      }
+    }
+
+    boolean highCardinality = groups > threshold;
+    if (log.isDebugEnabled()) {
+      log.debug(
+          "Estimated {} groups for buckets {} of {}, using {} aggregation",
+          groups,
+          bucketFields,
+          collection,
+          highCardinality ? "map_reduce" : "facet");
+    }
+    return highCardinality;
+  }
+
   private TupleStream handleGroupByFacet(
       String zkHost,
       String collection,
@@ -697,7 +772,9 @@ class SolrTable extends AbstractQueryableTable implements TranslatableTable {
       sorts = getComps(orders);
     }
 
-    int overfetch = (int) (limit * 1.25);
+    // Buckets are filtered by the HAVING clause after they are returned, so the limit can only be
+    // applied to the facet when there is none.
+    int overfetch = havingPredicate == null ? (int) (limit * 1.25) : -1;
 
     TupleStream tupleStream =
         new FacetStream(zkHost, collection, solrParams, buckets, metrics, sorts, overfetch);
@@ -36,6 +36,7 @@ import org.apache.calcite.plan.RelOptCost;
 import org.apache.calcite.plan.RelOptPlanner;
 import org.apache.calcite.plan.RelTraitSet;
 import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.RelWriter;
 import org.apache.calcite.rel.convert.ConverterImpl;
 import org.apache.calcite.rel.metadata.RelMetadataQuery;
 import org.apache.calcite.rel.type.RelDataType;
@@ -59,6 +60,35 @@ class SolrToEnumerableConverter extends ConverterImpl implements EnumerableRel {
     return super.computeSelfCost(planner, mq).multiplyBy(.1);
   }
 
+  /**
+   * Adds what is pushed down to Solr to the terms of this node, so that {@code EXPLAIN PLAN FOR}
+   * shows the query, buckets, metrics, HAVING predicate, sort and limit sent to Solr, while the
+   * parts of the statement that are not pushed down show as the enumerable nodes above it.
+   */
+  @Override
+  public RelWriter explainTerms(RelWriter pw) {
+    super.explainTerms(pw);
+    // while planning the input may be a set of equivalent nodes rather than a Solr node
+    if (getInput() instanceof SolrRel) {
+      final SolrRel.Implementor solrImplementor = new SolrRel.Implementor();
+      solrImplementor.visitChild(0, getInput());
+      pw.item("q", solrImplementor.query == null ? "*:*" : solrImplementor.query)
+          .itemIf("negativeQuery", true, solrImplementor.negativeQuery)
+          .itemIf(
+              "fields",
+              generateFields(SolrRules.solrFieldNames(getRowType()), solrImplementor.fieldMappings),
+              solrImplementor.buckets.isEmpty() && solrImplementor.metricPairs.isEmpty())
+          .itemIf("buckets", solrImplementor.buckets, !solrImplementor.buckets.isEmpty())
+          .itemIf("metrics", solrImplementor.metricPairs, !solrImplementor.metricPairs.isEmpty())
+          .itemIf(
+              "having", solrImplementor.havingPredicate, solrImplementor.havingPredicate != null)
+          .itemIf("sort", solrImplementor.orders, !solrImplementor.orders.isEmpty())
+          .itemIf("limit", solrImplementor.limitValue, solrImplementor.limitValue != null)
+          .itemIf("offset", solrImplementor.offsetValue, solrImplementor.offsetValue != null);
+    }
+    return pw;
+  }
+
   @Override
   public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
     // Generates a call to "query" with the appropriate fields
@@ -40,6 +40,7 @@ import org.apache.solr.cloud.SolrCloudTestCase;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.util.LogListener;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -1675,6 +1676,55 @@ public class TestSQLHandler extends SolrCloudTestCase {
     assertEquals(0, tuples.size());
   }
 
+  @Test
+  public void testAutoAggregationMode() throws Exception {
+
+    new UpdateRequest()
+        .add("id", "1", "str_s", "a", "field_i", "7")
+        .add("id", "2", "str_s", "b", "field_i", "8")
+        .add("id", "3", "str_s", "a", "field_i", "20")
+        .add("id", "4", "str_s", "b", "field_i", "11")
+        .add("id", "5", "str_s", "c", "field_i", "30")
+        .add("id", "6", "str_s", "c", "field_i", "40")
+        .add("id", "7", "str_s", "d", "field_i", "90")
+        .commit(cluster.getSolrClient(), COLLECTIONORALIAS);
+
+    String stmt =
+        "select str_s, count(*), sum(field_i) from collection1 group by str_s "
+            + "order by sum(field_i) asc limit 3";
+
+    // 4 groups, so facet is used below the threshold and map_reduce above it
+    String[][] thresholdsAndModes = {{"1000", "facet"}, {"2", "map_reduce"}};
+    for (String[] thresholdAndMode : thresholdsAndModes) {
+      SolrParams sParams =
+          params(
+              CommonParams.QT,
+              "/sql",
+              "aggregationMode",
+              "auto",
+              "autoAggregationThreshold",
+              thresholdAndMode[0],
+              "stmt",
+              stmt);
+
+      List<Tuple> tuples;
+      try (LogListener listener = LogListener.debug(SolrTable.class).substring(" aggregation")) {
+        tuples = getTuples(sParams, sqlUrl());
+        String message = listener.pollMessage();
+        assertNotNull("no aggregation mode was chosen", message);
+        assertTrue(message, message.endsWith("using " + thresholdAndMode[1] + " aggregation"));
+      }
+      assertEquals(3, tuples.size());
+      assertEquals("b", tuples.get(0).get("str_s"));
+      assertEquals(2, tuples.get(0).getDouble("EXPR$1"), 0.0);
+      assertEquals(19, tuples.get(0).getDouble("EXPR$2"), 0.0);
+      assertEquals("a", tuples.get(1).get("str_s"));
+      assertEquals(27, tuples.get(1).getDouble("EXPR$2"), 0.0);
+      assertEquals("c", tuples.get(2).get("str_s"));
+      assertEquals(70, tuples.get(2).getDouble("EXPR$2"), 0.0);
+    }
+  }
+
   @Test
   public void testAggregatesWithoutGrouping() throws Exception {
 
@@ -2950,6 +3000,32 @@ public class TestSQLHandler extends SolrCloudTestCase {
     assertEquals(maxDocs / 2L, tuples.get(1).getLong("count_per_bucket").longValue());
   }
 
+  @Test
+  public void testHavingWithLimitAndExplain() throws Exception {
+    UpdateRequest updateRequest = new UpdateRequest();
+    String[] values = {"a", "b", "c", "c", "d", "d", "d", "e", "e"};
+    for (int i = 0; i < values.length; i++) {
+      updateRequest.add("id", String.valueOf(i), "str_s", values[i]);
+    }
+    updateRequest.commit(cluster.getSolrClient(), COLLECTIONORALIAS);
+
+    // the first buckets don't match the HAVING clause, so the limit can't be applied to the facet
+    String sql =
+        "SELECT str_s, COUNT(*) AS cnt FROM $ALIAS GROUP BY str_s HAVING COUNT(*) > 1"
+            + " ORDER BY str_s ASC LIMIT 2";
+    List<Tuple> tuples = expectResults(sql, 2);
+    assertEquals("c", tuples.get(0).getString("str_s"));
+    assertEquals(2L, tuples.get(0).getLong("cnt").longValue());
+    assertEquals("d", tuples.get(1).getString("str_s"));
+    assertEquals(3L, tuples.get(1).getLong("cnt").longValue());
+
+    tuples = expectResults("EXPLAIN PLAN FOR " + sql, 1);
+    String plan = tuples.get(0).getString("PLAN");
+    assertTrue(plan, plan.contains("SolrToEnumerableConverter"));
+    assertTrue(plan, plan.contains("buckets=[str_s]"));
+    assertTrue(plan, plan.contains("having="));
+  }
+
   private UpdateRequest addDocForDistinctTests(
       int id, UpdateRequest updateRequest, int cardinality, String padFmt) {
     String country = id % 2 == 0 ? "US" : "CA";
@@ -0,0 +1,12 @@
+[description]
+Dispatch blocking request handling to virtual threads
+(requires Java 21 or later).
+
+[tags]
+threadpool
+
+[depend]
+server
+
+[xml]
+etc/jetty-virtual-threads.xml
@@ -276,6 +276,7 @@ import org.apache.solr.client.solrj.io.stream.GetStream;
 import org.apache.solr.client.solrj.io.stream.HashJoinStream;
 import org.apache.solr.client.solrj.io.stream.HashRollupStream;
 import org.apache.solr.client.solrj.io.stream.HavingStream;
+import org.apache.solr.client.solrj.io.stream.IncrementalRollupStream;
 import org.apache.solr.client.solrj.io.stream.InnerJoinStream;
 import org.apache.solr.client.solrj.io.stream.IntersectStream;
 import org.apache.solr.client.solrj.io.stream.KnnStream;
@@ -393,6 +394,7 @@ public class Lang {
         .withFunctionName("plist", ParallelListStream.class)
         .withFunctionName("zplot", ZplotStream.class)
         .withFunctionName("hashRollup", HashRollupStream.class)
+        .withFunctionName("incrementalRollup", IncrementalRollupStream.class)
         .withFunctionName("noop", NoOpStream.class)
 
         // metrics
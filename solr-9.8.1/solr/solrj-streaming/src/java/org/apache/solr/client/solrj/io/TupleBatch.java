@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A batch of tuples stored column by column: the values of each field are held in one array,
+ * indexed by row, with nulls for the rows that don't have the field. Streams that process many
+ * tuples can read them in batches with {@link
+ * org.apache.solr.client.solrj.io.stream.TupleStream#readBatch(int)}, and work on the columns they
+ * need without building a {@link Tuple} for every row.
+ *
+ * <p>The last batch of a stream holds its EOF tuple, see {@link #getEOF()}.
+ */
+public class TupleBatch {
+
+  public static final int DEFAULT_SIZE = 1024;
+
+  private final Map<String, Object[]> columns = new LinkedHashMap<>();
+  private int capacity;
+  private int size;
+  private Tuple eof;
+
+  private List<String> fieldNames;
+  private Map<String, String> fieldLabels;
+
+  public TupleBatch() {
+    this(DEFAULT_SIZE);
+  }
+
+  /**
+   * @param capacity the number of rows the batch is initially sized for, it grows as needed.
+   */
+  public TupleBatch(int capacity) {
+    this.capacity = Math.max(capacity, 1);
+  }
+
+  /**
+   * Creates a batch from the values of its columns.
+   *
+   * @param size the number of rows
+   * @param columns the values of each field indexed by row, with arrays at least {@code size} long
+   */
+  public static TupleBatch of(int size, Map<String, Object[]> columns) {
+    TupleBatch batch = new TupleBatch(size);
+    for (Map.Entry<String, Object[]> entry : columns.entrySet()) {
+      Object[] values = entry.getValue();
+      if (values.length < size) {
+        throw new IllegalArgumentException(
+            "Column " + entry.getKey() + " has " + values.length + " values for " + size + " rows");
+      }
+      if (values.length < batch.capacity) {
+        values = Arrays.copyOf(values, batch.capacity);
+      }
+      batch.columns.put(entry.getKey(), values);
+    }
+    batch.size = size;
+    return batch;
+  }
+
+  /** The number of rows in this batch, not counting the EOF tuple. */
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** The names of the fields that at least one row of this batch has a value for. */
+  public Set<String> getColumnNames() {
+    return columns.keySet();
+  }
+
+  /**
+   * The values of a field, indexed by row. The array may be longer than {@link #size()}, and is
+   * null if no row has a value for the field.
+   */
+  public Object[] getColumn(String name) {
+    return columns.get(name);
+  }
+
+  public Object get(String name, int row) {
+    Object[] column = columns.get(name);
+    return column == null ? null : column[row];
+  }
+
+  /**
+   * Adds a tuple at the end of this batch. An EOF tuple is not added as a row, but kept as the
+   * {@link #getEOF() EOF tuple} of the batch.
+   */
+  public void add(Tuple tuple) {
+    if (tuple.EOF) {
+      eof = tuple;
+      return;
+    }
+    ensureCapacity(size + 1);
+    for (Map.Entry<String, Object> entry : tuple.getFields().entrySet()) {
+      if (entry.getValue() != null) {
+        columns.computeIfAbsent(entry.getKey(), k -> new Object[capacity])[size] =
+            entry.getValue();
+      }
+    }
+    if (tuple.getFieldNames() != null && fieldNames == null) {
+      fieldNames = tuple.getFieldNames();
+      fieldLabels = tuple.getFieldLabels();
+    }
+    size++;
+  }
+
+  /** Adds the rows, and the EOF tuple if any, of another batch at the end of this batch. */
+  public void addAll(TupleBatch other) {
+    ensureCapacity(size + other.size);
+    for (Map.Entry<String, Object[]> entry : other.columns.entrySet()) {
+      Object[] column = columns.computeIfAbsent(entry.getKey(), k -> new Object[capacity]);
+      System.arraycopy(entry.getValue(), 0, column, size, other.size);
+    }
+    if (fieldNames == null) {
+      fieldNames = other.fieldNames;
+      fieldLabels = other.fieldLabels;
+    }
+    size += other.size;
+    if (other.eof != null) {
+      eof = other.eof;
+    }
+  }
+
+  /** Builds the tuple of a row. */
+  public Tuple getTuple(int row) {
+    if (row < 0 || row >= size) {
+      throw new IndexOutOfBoundsException("row " + row + " of " + size);
+    }
+    Tuple tuple = new Tuple();
+    for (Map.Entry<String, Object[]> entry : columns.entrySet()) {
+      Object value = entry.getValue()[row];
+      if (value != null) {
+        tuple.put(entry.getKey(), value);
+      }
+    }
+    tuple.setFieldNames(fieldNames);
+    tuple.setFieldLabels(fieldLabels);
+    return tuple;
+  }
+
+  /** The EOF tuple, if the stream this batch was read from has ended, or null. */
+  public Tuple getEOF() {
+    return eof;
+  }
+
+  public boolean isEOF() {
+    return eof != null;
+  }
+
+  private void ensureCapacity(int minCapacity) {
+    if (minCapacity <= capacity) {
+      return;
+    }
+    capacity = Math.max(minCapacity, capacity + (capacity >> 1));
+    for (Map.Entry<String, Object[]> entry : columns.entrySet()) {
+      entry.setValue(Arrays.copyOf(entry.getValue(), capacity));
+    }
+  }
+}
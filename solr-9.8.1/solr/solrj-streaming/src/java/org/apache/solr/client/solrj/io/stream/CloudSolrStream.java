@@ -37,6 +37,7 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.apache.solr.client.solrj.impl.CloudSolrClient;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
 import org.apache.solr.client.solrj.io.comp.ComparatorOrder;
 import org.apache.solr.client.solrj.io.comp.FieldComparator;
 import org.apache.solr.client.solrj.io.comp.MultipleFieldComparator;
@@ -470,6 +471,30 @@ public class CloudSolrStream extends TupleStream implements Expressible {
     }
   }
 
+  /**
+   * Reads the tuples a batch at a time from the last shard once the tuples of the other shards have
+   * all been read, since there is nothing left to merge, and one by one otherwise.
+   */
+  @Override
+  public TupleBatch readBatch(int size) throws IOException {
+    // subclasses may post-process the tuples in read()
+    if (getClass() != CloudSolrStream.class || trace || tuples.size() != 1) {
+      return super.readBatch(size);
+    }
+    TupleWrapper tw = tuples.pollFirst();
+    TupleBatch batch = new TupleBatch(size);
+    batch.add(tw.getTuple());
+    TupleBatch rest = tw.stream.readBatch(Math.max(size - 1, 1));
+    batch.addAll(rest);
+    if (rest.isEOF()) {
+      eofTuples.put(tw.stream.getBaseUrl(), rest.getEOF());
+      batch.add(Tuple.EOF());
+    } else if (tw.next()) {
+      tuples.add(tw);
+    }
+    return batch;
+  }
+
   protected class TupleWrapper implements Comparable<TupleWrapper> {
     private Tuple tuple;
     private final SolrStream stream;
@@ -0,0 +1,316 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.client.solrj.io.stream;
+
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.ALL_PRESENT;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.BLOCK_BATCH;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.BLOCK_END;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.BLOCK_FIELDS;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.MAGIC;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.PRESENCE_BITMAP;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.TYPE_BOOLEAN;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.TYPE_DOUBLE;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.TYPE_LONG;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.TYPE_OBJECT;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.TYPE_STRING;
+import static org.apache.solr.client.solrj.io.stream.ColumnarTupleWriter.VERSION;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
+import org.apache.solr.common.params.StreamParams;
+import org.apache.solr.common.util.FastInputStream;
+import org.apache.solr.common.util.JavaBinCodec;
+
+/**
+ * Reads the tuples written by {@link ColumnarTupleWriter}. A whole batch is decoded at once into
+ * per column vectors, and the tuples are then built row by row from them. Values have the same
+ * types as the ones read by {@link JavabinTupleStreamParser} with {@code onlyJsonTypes}: longs,
+ * doubles, booleans, strings, lists and maps.
+ */
+public class ColumnarTupleStreamParser implements TupleStreamParser {
+
+  private final InputStream is;
+  private final FastInputStream fis;
+  private final List<String> fieldNames = new ArrayList<>();
+  private final List<DecodedColumn> batch = new ArrayList<>();
+  private int numRows;
+  private int row;
+  private boolean started;
+  private boolean ended;
+
+  public ColumnarTupleStreamParser(InputStream is) {
+    this.is = is;
+    this.fis = FastInputStream.wrap(is);
+  }
+
+  @Override
+  public Map<String, Object> next() throws IOException {
+    if (row == numRows && !readBatch()) {
+      return null;
+    }
+    Map<String, Object> tuple = new LinkedHashMap<>();
+    for (DecodedColumn column : batch) {
+      if (column.isPresent(row)) {
+        tuple.put(column.name, column.get(row));
+      }
+    }
+    row++;
+    return tuple;
+  }
+
+  /**
+   * Returns the rows of the current batch that have not been read yet, or of the next batch,
+   * without building a map for each of them. A row with an {@link StreamParams#EOF} field is
+   * returned as the {@link TupleBatch#getEOF() EOF tuple} of the batch.
+   *
+   * @return the rows, or null if the response has ended
+   */
+  public TupleBatch nextBatch() throws IOException {
+    if (row == numRows && !readBatch()) {
+      return null;
+    }
+    int end = numRows;
+    for (DecodedColumn column : batch) {
+      if (StreamParams.EOF.equals(column.name)) {
+        for (int i = row; i < end; i++) {
+          if (column.isPresent(i)) {
+            end = i;
+            break;
+          }
+        }
+      }
+    }
+    int size = end - row;
+    Map<String, Object[]> values = new LinkedHashMap<>();
+    for (DecodedColumn column : batch) {
+      Object[] vector = new Object[size];
+      boolean any = false;
+      for (int i = 0; i < size; i++) {
+        if (column.isPresent(row + i)) {
+          vector[i] = column.get(row + i);
+          any = true;
+        }
+      }
+      if (any) {
+        values.put(column.name, vector);
+      }
+    }
+    TupleBatch tupleBatch = TupleBatch.of(size, values);
+    row = end;
+    if (end < numRows) {
+      tupleBatch.add(new Tuple(next()));
+    }
+    return tupleBatch;
+  }
+
+  @Override
+  public void close() throws IOException {
+    is.close();
+  }
+
+  /** Reads up to the next batch, and returns false if the response has ended. */
+  private boolean readBatch() throws IOException {
+    if (ended) {
+      return false;
+    }
+    if (!started) {
+      started = true;
+      if (fis.readInt() != MAGIC) {
+        throw new IOException("Not a " + ColumnarTupleWriter.WT + " response");
+      }
+      byte version = fis.readByte();
+      if (version != VERSION) {
+        throw new IOException("Unsupported " + ColumnarTupleWriter.WT + " version: " + version);
+      }
+    }
+    while (true) {
+      byte block = fis.readByte();
+      switch (block) {
+        case BLOCK_FIELDS:
+          for (int i = JavaBinCodec.readVInt(fis); i > 0; i--) {
+            fieldNames.add(readString());
+          }
+          break;
+        case BLOCK_BATCH:
+          decodeBatch();
+          if (numRows > 0) {
+            return true;
+          }
+          break;
+        case BLOCK_END:
+          ended = true;
+          batch.clear();
+          numRows = row = 0;
+          return false;
+        default:
+          throw new IOException("Unknown block type in " + ColumnarTupleWriter.WT + ": " + block);
+      }
+    }
+  }
+
+  private void decodeBatch() throws IOException {
+    numRows = JavaBinCodec.readVInt(fis);
+    row = 0;
+    batch.clear();
+    int numColumns = JavaBinCodec.readVInt(fis);
+    for (int c = 0; c < numColumns; c++) {
+      int fieldId = JavaBinCodec.readVInt(fis);
+      if (fieldId >= fieldNames.size()) {
+        throw new IOException("Unknown field id in " + ColumnarTupleWriter.WT + ": " + fieldId);
+      }
+      DecodedColumn column = new DecodedColumn(fieldNames.get(fieldId), fis.readByte());
+      byte presence = fis.readByte();
+      if (presence == PRESENCE_BITMAP) {
+        column.present = new byte[(numRows + 7) >>> 3];
+        fis.readFully(column.present);
+      } else if (presence != ALL_PRESENT) {
+        throw new IOException("Unknown presence flag in " + ColumnarTupleWriter.WT);
+      }
+      decodeValues(column);
+      batch.add(column);
+    }
+  }
+
+  private void decodeValues(DecodedColumn column) throws IOException {
+    switch (column.type) {
+      case TYPE_LONG:
+        column.longs = new long[numRows];
+        for (int i = 0; i < numRows; i++) {
+          if (column.isPresent(i)) {
+            long l = JavaBinCodec.readVLong(fis);
+            column.longs[i] = (l >>> 1) ^ -(l & 1);
+          }
+        }
+        break;
+      case TYPE_DOUBLE:
+        column.doubles = new double[numRows];
+        for (int i = 0; i < numRows; i++) {
+          if (column.isPresent(i)) {
+            column.doubles[i] = fis.readDouble();
+          }
+        }
+        break;
+      case TYPE_BOOLEAN:
+        {
+          int count = 0;
+          for (int i = 0; i < numRows; i++) {
+            if (column.isPresent(i)) {
+              count++;
+            }
+          }
+          byte[] bits = new byte[(count + 7) >>> 3];
+          fis.readFully(bits);
+          column.booleans = new boolean[numRows];
+          int n = 0;
+          for (int i = 0; i < numRows; i++) {
+            if (column.isPresent(i)) {
+              column.booleans[i] = (bits[n >>> 3] & (1 << (n & 7))) != 0;
+              n++;
+            }
+          }
+          break;
+        }
+      case TYPE_STRING:
+        {
+          String[] dictionary = new String[JavaBinCodec.readVInt(fis)];
+          for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = readString();
+          }
+          column.objects = new Object[numRows];
+          for (int i = 0; i < numRows; i++) {
+            if (column.isPresent(i)) {
+              int ord = JavaBinCodec.readVInt(fis);
+              if (ord >= dictionary.length) {
+                throw new IOException("Invalid dictionary index in " + ColumnarTupleWriter.WT);
+              }
+              column.objects[i] = dictionary[ord];
+            }
+          }
+          break;
+        }
+      case TYPE_OBJECT:
+        {
+          byte[] bytes = new byte[JavaBinCodec.readVInt(fis)];
+          fis.readFully(bytes);
+          // the javabin tuple parser converts the values to their json types
+          JavabinTupleStreamParser codec =
+              new JavabinTupleStreamParser(new ByteArrayInputStream(bytes), true);
+          List<?> values = (List<?>) codec.readVal(codec.fis);
+          column.objects = new Object[numRows];
+          int n = 0;
+          for (int i = 0; i < numRows; i++) {
+            if (column.isPresent(i)) {
+              column.objects[i] = values.get(n++);
+            }
+          }
+          break;
+        }
+      default:
+        throw new IOException(
+            "Unknown column type in " + ColumnarTupleWriter.WT + ": " + column.type);
+    }
+  }
+
+  private String readString() throws IOException {
+    byte[] bytes = new byte[JavaBinCodec.readVInt(fis)];
+    fis.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /** The values of a column in the current batch, indexed by row. */
+  private static final class DecodedColumn {
+    final String name;
+    final byte type;
+    // null if all rows have a value
+    byte[] present;
+    long[] longs;
+    double[] doubles;
+    boolean[] booleans;
+    Object[] objects;
+
+    DecodedColumn(String name, byte type) {
+      this.name = name;
+      this.type = type;
+    }
+
+    boolean isPresent(int row) {
+      return present == null || (present[row >>> 3] & (1 << (row & 7))) != 0;
+    }
+
+    Object get(int row) {
+      switch (type) {
+        case TYPE_LONG:
+          return longs[row];
+        case TYPE_DOUBLE:
+          return doubles[row];
+        case TYPE_BOOLEAN:
+          return booleans[row];
+        default:
+          return objects[row];
+      }
+    }
+  }
+}
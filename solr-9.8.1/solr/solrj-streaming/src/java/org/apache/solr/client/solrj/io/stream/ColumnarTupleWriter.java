@@ -0,0 +1,400 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.solr.common.IteratorWriter;
+import org.apache.solr.common.MapWriter;
+import org.apache.solr.common.PushWriter;
+import org.apache.solr.common.params.StreamParams;
+import org.apache.solr.common.util.FastOutputStream;
+import org.apache.solr.common.util.JavaBinCodec;
+import org.apache.solr.common.util.NamedList;
+
+/**
+ * Writes the documents or tuples of a response in a columnar, batch oriented binary format (the
+ * response writer type {@value #WT}), which is read by {@link ColumnarTupleStreamParser}.
+ *
+ * <p>Only the rows found under the "docs" keys of the response are written, the rest of the
+ * response (e.g. the response header) is dropped. An "error" in the response is written as a row
+ * with an {@link StreamParams#EXCEPTION} field.
+ *
+ * <p>The format is a header (magic number and version) followed by blocks:
+ *
+ * <ul>
+ *   <li>{@link #BLOCK_FIELDS}: the names of fields not seen before, which are referred to by their
+ *       position in the field dictionary afterwards.
+ *   <li>{@link #BLOCK_BATCH}: the rows of a batch, column by column. Each column has a type, a
+ *       bitmap of the rows it has values for (unless it has values for all rows) and the vector of
+ *       its values: zig-zag encoded variable length longs, doubles, a bitmap of booleans, a
+ *       dictionary of the distinct strings and the index of each value in it, or javabin encoded
+ *       values for other types.
+ *   <li>{@link #BLOCK_END}: the end of the response.
+ * </ul>
+ */
+public class ColumnarTupleWriter implements PushWriter {
+
+  public static final String WT = "columnar";
+  public static final int DEFAULT_BATCH_SIZE = 1024;
+
+  static final int MAGIC = 0x53434f4c; // "SCOL"
+  static final byte VERSION = 1;
+
+  static final byte BLOCK_FIELDS = 1;
+  static final byte BLOCK_BATCH = 2;
+  static final byte BLOCK_END = 3;
+
+  static final byte TYPE_LONG = 1;
+  static final byte TYPE_DOUBLE = 2;
+  static final byte TYPE_BOOLEAN = 3;
+  static final byte TYPE_STRING = 4;
+  static final byte TYPE_OBJECT = 5;
+
+  static final byte ALL_PRESENT = 0;
+  static final byte PRESENCE_BITMAP = 1;
+
+  private static final String DOCS = StreamParams.DOCS;
+  private static final String ERROR = "error";
+
+  private final FastOutputStream out;
+  private final int batchSize;
+  // all the fields written so far, in the order of the field dictionary
+  private final Map<String, Column> columns = new LinkedHashMap<>();
+  private final List<Column> newColumns = new ArrayList<>();
+  private final MapWriter.EntryWriter rowWriter = this::putValue;
+  private int numRows;
+  private boolean started;
+  private boolean finished;
+
+  public ColumnarTupleWriter(OutputStream out) {
+    this(out, DEFAULT_BATCH_SIZE);
+  }
+
+  public ColumnarTupleWriter(OutputStream out, int batchSize) {
+    this.out = FastOutputStream.wrap(out);
+    this.batchSize = batchSize;
+  }
+
+  /** Writes the rows found in the response, and ends it. */
+  @Override
+  public void writeMap(MapWriter mw) throws IOException {
+    start();
+    mw.writeMap(this::putResponseEntry);
+    finish();
+  }
+
+  /** Writes the items as rows, and ends the response. */
+  @Override
+  public void writeIterator(IteratorWriter iw) throws IOException {
+    start();
+    iw.writeIter(this::addRowObject);
+    finish();
+  }
+
+  /** Ends the response if not ended yet. Does not close the underlying stream. */
+  @Override
+  public void close() throws IOException {
+    finish();
+  }
+
+  private IteratorWriter.ItemWriter addRowObject(Object o) throws IOException {
+    if (o instanceof MapWriter) {
+      ((MapWriter) o).writeMap(rowWriter);
+    } else if (o instanceof Map) {
+      for (Map.Entry<?, ?> e : ((Map<?, ?>) o).entrySet()) {
+        putValue(String.valueOf(e.getKey()), e.getValue());
+      }
+    } else {
+      throw new IOException("Can't write " + o.getClass().getName() + " as a row");
+    }
+    if (++numRows == batchSize) {
+      writeBatch();
+    }
+    return this::addRowObject;
+  }
+
+  private MapWriter.EntryWriter putResponseEntry(CharSequence k, Object v) throws IOException {
+    String key = k == null ? null : k.toString();
+    if (DOCS.equals(key)) {
+      if (v instanceof IteratorWriter) {
+        ((IteratorWriter) v).writeIter(this::addRowObject);
+      } else if (v instanceof Iterable) {
+        for (Object o : (Iterable<?>) v) {
+          addRowObject(o);
+        }
+      }
+    } else if (ERROR.equals(key)) {
+      Object msg = null;
+      if (v instanceof NamedList) {
+        msg = ((NamedList<?>) v).get("msg");
+      } else if (v instanceof Map) {
+        msg = ((Map<?, ?>) v).get("msg");
+      }
+      addRowObject(
+          Map.of(StreamParams.EXCEPTION, msg == null ? "Unknown Exception" : msg.toString()));
+    } else if (v instanceof MapWriter) {
+      ((MapWriter) v).writeMap(this::putResponseEntry);
+    } else if (v instanceof Map) {
+      for (Map.Entry<?, ?> e : ((Map<?, ?>) v).entrySet()) {
+        putResponseEntry(String.valueOf(e.getKey()), e.getValue());
+      }
+    }
+    // other values, like numFound, are not part of the rows
+    return this::putResponseEntry;
+  }
+
+  private MapWriter.EntryWriter putValue(CharSequence k, Object v) throws IOException {
+    if (v == null) {
+      return rowWriter;
+    }
+    String name = k.toString();
+    Column column = columns.get(name);
+    if (column == null) {
+      column = new Column(name, columns.size(), batchSize);
+      columns.put(name, column);
+      newColumns.add(column);
+    }
+    column.values[numRows] = toColumnValue(v);
+    column.count++;
+    return rowWriter;
+  }
+
+  private static Object toColumnValue(Object v) {
+    if (v instanceof CharSequence) {
+      return v.toString();
+    } else if (v instanceof Date) {
+      // dates are sent as strings, like in the json and javabin tuple streams
+      return ((Date) v).toInstant().toString();
+    } else if (v instanceof IteratorWriter) {
+      return ((IteratorWriter) v).toList(new ArrayList<>());
+    } else if (v instanceof MapWriter) {
+      return ((MapWriter) v).toMap(new LinkedHashMap<>());
+    }
+    return v;
+  }
+
+  private void start() throws IOException {
+    if (!started) {
+      started = true;
+      out.writeInt(MAGIC);
+      out.writeByte(VERSION);
+    }
+  }
+
+  private void finish() throws IOException {
+    if (finished) {
+      return;
+    }
+    start();
+    writeBatch();
+    out.writeByte(BLOCK_END);
+    out.flushBuffer();
+    finished = true;
+  }
+
+  private void writeBatch() throws IOException {
+    if (numRows == 0) {
+      return;
+    }
+    if (!newColumns.isEmpty()) {
+      out.writeByte(BLOCK_FIELDS);
+      JavaBinCodec.writeVInt(newColumns.size(), out);
+      for (Column column : newColumns) {
+        writeString(column.name);
+      }
+      newColumns.clear();
+    }
+
+    int numColumns = 0;
+    for (Column column : columns.values()) {
+      if (column.count > 0) {
+        numColumns++;
+      }
+    }
+    out.writeByte(BLOCK_BATCH);
+    JavaBinCodec.writeVInt(numRows, out);
+    JavaBinCodec.writeVInt(numColumns, out);
+    for (Column column : columns.values()) {
+      if (column.count > 0) {
+        writeColumn(column);
+        column.clear(numRows);
+      }
+    }
+    numRows = 0;
+  }
+
+  private void writeColumn(Column column) throws IOException {
+    Object[] values = column.values;
+    byte type = column.type(numRows);
+    JavaBinCodec.writeVInt(column.id, out);
+    out.writeByte(type);
+    if (column.count == numRows) {
+      out.writeByte(ALL_PRESENT);
+    } else {
+      out.writeByte(PRESENCE_BITMAP);
+      byte[] bitmap = new byte[(numRows + 7) >>> 3];
+      for (int i = 0; i < numRows; i++) {
+        if (values[i] != null) {
+          bitmap[i >>> 3] |= (byte) (1 << (i & 7));
+        }
+      }
+      out.write(bitmap);
+    }
+
+    switch (type) {
+      case TYPE_LONG:
+        for (int i = 0; i < numRows; i++) {
+          if (values[i] != null) {
+            long l = ((Number) values[i]).longValue();
+            JavaBinCodec.writeVLong((l << 1) ^ (l >> 63), out);
+          }
+        }
+        break;
+      case TYPE_DOUBLE:
+        for (int i = 0; i < numRows; i++) {
+          if (values[i] != null) {
+            out.writeDouble(((Number) values[i]).doubleValue());
+          }
+        }
+        break;
+      case TYPE_BOOLEAN:
+        {
+          byte[] bits = new byte[(column.count + 7) >>> 3];
+          int n = 0;
+          for (int i = 0; i < numRows; i++) {
+            if (values[i] != null) {
+              if ((Boolean) values[i]) {
+                bits[n >>> 3] |= (byte) (1 << (n & 7));
+              }
+              n++;
+            }
+          }
+          out.write(bits);
+          break;
+        }
+      case TYPE_STRING:
+        {
+          Map<String, Integer> dictionary = new HashMap<>();
+          List<String> terms = new ArrayList<>();
+          int[] ords = new int[numRows];
+          for (int i = 0; i < numRows; i++) {
+            if (values[i] != null) {
+              String s = (String) values[i];
+              Integer ord = dictionary.get(s);
+              if (ord == null) {
+                ord = terms.size();
+                dictionary.put(s, ord);
+                terms.add(s);
+              }
+              ords[i] = ord;
+            }
+          }
+          JavaBinCodec.writeVInt(terms.size(), out);
+          for (String term : terms) {
+            writeString(term);
+          }
+          for (int i = 0; i < numRows; i++) {
+            if (values[i] != null) {
+              JavaBinCodec.writeVInt(ords[i], out);
+            }
+          }
+          break;
+        }
+      default:
+        {
+          List<Object> present = new ArrayList<>(column.count);
+          for (int i = 0; i < numRows; i++) {
+            if (values[i] != null) {
+              present.add(values[i]);
+            }
+          }
+          ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+          try (JavaBinCodec codec = new JavaBinCodec()) {
+            codec.marshal(present, bytes);
+          }
+          JavaBinCodec.writeVInt(bytes.size(), out);
+          bytes.writeTo(out);
+        }
+    }
+  }
+
+  private void writeString(String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    JavaBinCodec.writeVInt(bytes.length, out);
+    out.write(bytes);
+  }
+
+  /** The values of a field in the current batch, indexed by row. */
+  private static final class Column {
+    final String name;
+    final int id;
+    final Object[] values;
+    int count;
+
+    Column(String name, int id, int batchSize) {
+      this.name = name;
+      this.id = id;
+      this.values = new Object[batchSize];
+    }
+
+    /** The narrowest type that can hold all values, without changing their json type. */
+    byte type(int numRows) {
+      byte type = 0;
+      for (int i = 0; i < numRows; i++) {
+        Object v = values[i];
+        if (v == null) {
+          continue;
+        }
+        byte t;
+        if (v instanceof Long || v instanceof Integer || v instanceof Short || v instanceof Byte) {
+          t = TYPE_LONG;
+        } else if (v instanceof Double || v instanceof Float) {
+          t = TYPE_DOUBLE;
+        } else if (v instanceof Boolean) {
+          t = TYPE_BOOLEAN;
+        } else if (v instanceof String) {
+          t = TYPE_STRING;
+        } else {
+          return TYPE_OBJECT;
+        }
+        if (type == 0) {
+          type = t;
+        } else if (type != t) {
+          return TYPE_OBJECT;
+        }
+      }
+      return type;
+    }
+
+    void clear(int numRows) {
+      for (int i = 0; i < numRows; i++) {
+        values[i] = null;
+      }
+      count = 0;
+    }
+  }
+}
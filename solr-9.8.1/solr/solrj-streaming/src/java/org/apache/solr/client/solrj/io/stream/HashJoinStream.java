@@ -17,11 +17,16 @@
 package org.apache.solr.client.solrj.io.stream;
 
 import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
 import org.apache.solr.client.solrj.io.comp.StreamComparator;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation.ExpressionType;
@@ -31,6 +36,9 @@ import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionNamedParameter;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionValue;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
+import org.apache.solr.common.util.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Takes two streams (fullStream and hashStream) and joins them similar to an InnerJoinStream. The
@@ -41,12 +49,19 @@ import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
  * being computed on then that tuple will not be considered a match to anything. Ie, all fields
  * which are part of the hash must have a non-null value.
  *
+ * <p>With a {@code maxRamMB} limit, if the hashed tuples take more memory than the limit, both
+ * streams are split into partitions by the hash of their tuples and written to temporary files,
+ * and the partitions are then joined one at a time (a grace hash join). The tuples are then not
+ * returned in the order of the fullStream, so the stream has no sort once it has spilled.
+ *
  * @since 6.0.0
  */
 public class HashJoinStream extends TupleStream implements Expressible {
 
   private static final long serialVersionUID = 1L;
 
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
   protected TupleStream hashStream;
   protected TupleStream fullStream;
   protected List<String> leftHashOn;
@@ -57,9 +72,29 @@ public class HashJoinStream extends TupleStream implements Expressible {
   protected String workingFullHash = null;
   protected int workingHashSetIdx = 0;
 
+  protected long maxRamMB;
+
+  // once the hashed tuples are past maxRamMB, the partitions of both streams left to join
+  private List<TupleSpill> spills;
+  private Deque<SpilledPartition> partitions;
+  private TupleSpill.TupleReader fullReader;
+  private Tuple fullEOF;
+  private long spilledBytes;
+  private transient StreamContext streamContext;
+
   public HashJoinStream(TupleStream fullStream, TupleStream hashStream, List<String> hashOn)
       throws IOException {
-    init(fullStream, hashStream, hashOn);
+    this(fullStream, hashStream, hashOn, 0);
+  }
+
+  /**
+   * @param maxRamMB the memory the hashed tuples may take before they are spilled to disk, or 0
+   *     to keep them all in memory
+   */
+  public HashJoinStream(
+      TupleStream fullStream, TupleStream hashStream, List<String> hashOn, long maxRamMB)
+      throws IOException {
+    init(fullStream, hashStream, hashOn, maxRamMB);
   }
 
   public HashJoinStream(StreamExpression expression, StreamFactory factory) throws IOException {
@@ -70,9 +105,12 @@ public class HashJoinStream extends TupleStream implements Expressible {
     StreamExpressionNamedParameter hashStreamExpression =
         factory.getNamedOperand(expression, "hashed");
     StreamExpressionNamedParameter onExpression = factory.getNamedOperand(expression, "on");
+    StreamExpressionNamedParameter maxRamExpression =
+        factory.getNamedOperand(expression, "maxRamMB");
 
     // validate expression contains only what we want.
-    if (expression.getParameters().size() != streamExpressions.size() + 2) {
+    if (expression.getParameters().size()
+        != streamExpressions.size() + 2 + (null == maxRamExpression ? 0 : 1)) {
       throw new IOException(
           String.format(Locale.ROOT, "Invalid expression %s - unknown operands found", expression));
     }
@@ -110,16 +148,37 @@ public class HashJoinStream extends TupleStream implements Expressible {
       hashOn.add(part.trim());
     }
 
+    long maxRamMB = 0;
+    if (null != maxRamExpression) {
+      String maxRamValue = String.valueOf(maxRamExpression.getParameter());
+      try {
+        maxRamMB = Long.parseLong(maxRamValue);
+      } catch (NumberFormatException e) {
+        maxRamMB = -1;
+      }
+      if (maxRamMB <= 0) {
+        throw new IOException(
+            String.format(
+                Locale.ROOT,
+                "Invalid expression %s - maxRamMB '%s' is not a positive integer",
+                expression,
+                maxRamValue));
+      }
+    }
+
     init(
         factory.constructStream(streamExpressions.get(0)),
         factory.constructStream((StreamExpression) hashStreamExpression.getParameter()),
-        hashOn);
+        hashOn,
+        maxRamMB);
   }
 
-  private void init(TupleStream fullStream, TupleStream hashStream, List<String> hashOn)
+  private void init(
+      TupleStream fullStream, TupleStream hashStream, List<String> hashOn, long maxRamMB)
       throws IOException {
     this.fullStream = fullStream;
     this.hashStream = hashStream;
+    this.maxRamMB = maxRamMB;
     this.hashedTuples = new HashMap<>();
     this.leftHashOn = new ArrayList<>();
     this.rightHashOn = new ArrayList<>();
@@ -190,6 +249,10 @@ public class HashJoinStream extends TupleStream implements Expressible {
     }
 
     expression.addParameter(new StreamExpressionNamedParameter("on", sb.toString()));
+    if (maxRamMB > 0) {
+      expression.addParameter(
+          new StreamExpressionNamedParameter("maxRamMB", Long.toString(maxRamMB)));
+    }
     return expression;
   }
 
@@ -209,6 +272,7 @@ public class HashJoinStream extends TupleStream implements Expressible {
 
   @Override
   public void setStreamContext(StreamContext context) {
+    this.streamContext = context;
     this.hashStream.setStreamContext(context);
     this.fullStream.setStreamContext(context);
   }
@@ -226,20 +290,170 @@ public class HashJoinStream extends TupleStream implements Expressible {
     hashStream.open();
     fullStream.open();
 
-    Tuple tuple = hashStream.read();
+    TupleSpill hashedSpill = null;
+    long ramBytes = 0;
+    TupleBatch batch;
+    do {
+      batch = hashStream.readBatch(TupleBatch.DEFAULT_SIZE);
+      for (int row = 0; row < batch.size(); row++) {
+        String hash = computeHash(batch, row, rightHashOn);
+        if (null == hash) {
+          continue;
+        }
+        Tuple tuple = batch.getTuple(row);
+        if (null != hashedSpill) {
+          hashedSpill.write(hashedSpill.partition(hash), tuple);
+          continue;
+        }
+        hashedTuples.computeIfAbsent(hash, k -> new ArrayList<>()).add(tuple);
+        if (maxRamMB > 0) {
+          ramBytes += TupleSpill.ramBytesUsed(tuple);
+          if (ramBytes > maxRamBytes()) {
+            hashedSpill = newSpill(0);
+            spill(hashedTuples, hashedSpill);
+          }
+        }
+      }
+    } while (!batch.isEOF());
+
+    if (null != hashedSpill) {
+      TupleSpill fullSpill = newSpill(0);
+      spill(fullStream, fullSpill);
+      hashedSpill.finish();
+      spilledBytes += hashedSpill.getBytes();
+      partitions = new ArrayDeque<>();
+      for (int i = 0; i < TupleSpill.NUM_PARTITIONS; i++) {
+        partitions.add(new SpilledPartition(hashedSpill, fullSpill, i));
+      }
+    }
+  }
+
+  private long maxRamBytes() {
+    return maxRamMB * 1024 * 1024;
+  }
+
+  private TupleSpill newSpill(int level) {
+    if (null == spills) {
+      spills = new ArrayList<>();
+    }
+    TupleSpill spill = new TupleSpill("hashJoin", level);
+    spills.add(spill);
+    return spill;
+  }
+
+  private void spill(Map<String, List<Tuple>> tuples, TupleSpill spill) throws IOException {
+    for (Map.Entry<String, List<Tuple>> entry : tuples.entrySet()) {
+      int partition = spill.partition(entry.getKey());
+      for (Tuple tuple : entry.getValue()) {
+        spill.write(partition, tuple);
+      }
+    }
+    tuples.clear();
+  }
+
+  /** Spills the tuples of the fullStream, keeping its EOF tuple for the end. */
+  private void spill(TupleStream stream, TupleSpill spill) throws IOException {
+    Tuple tuple = stream.read();
     while (!tuple.EOF) {
-      String hash = computeHash(tuple, rightHashOn);
+      String hash = computeHash(tuple, leftHashOn);
       if (null != hash) {
-        if (hashedTuples.containsKey(hash)) {
-          hashedTuples.get(hash).add(tuple);
-        } else {
-          ArrayList<Tuple> set = new ArrayList<>();
-          set.add(tuple);
-          hashedTuples.put(hash, set);
+        spill.write(spill.partition(hash), tuple);
+      } else if (isOuterJoin()) {
+        // matches nothing, but is still returned
+        spill.write(0, tuple);
+      }
+      tuple = stream.read();
+    }
+    fullEOF = tuple;
+    spill.finish();
+    spilledBytes += spill.getBytes();
+  }
+
+  /**
+   * Reads the next tuple of the fullStream, or once the hashed tuples have been spilled, of the
+   * partition being joined, loading the hashed tuples of the next partition when it is done.
+   */
+  protected Tuple readFullTuple() throws IOException {
+    if (null == partitions) {
+      return fullStream.read();
+    }
+    while (true) {
+      if (null != fullReader) {
+        Tuple tuple = fullReader.read();
+        if (null != tuple) {
+          return tuple;
+        }
+        fullReader.close();
+        fullReader = null;
+      }
+      SpilledPartition partition = partitions.poll();
+      if (null == partition) {
+        return fullEOF;
+      }
+      if (load(partition)) {
+        fullReader = partition.full.read(partition.partition);
+      }
+    }
+  }
+
+  /**
+   * Loads the hashed tuples of a partition, or splits the partition again if they are still too
+   * big.
+   *
+   * @return whether the tuples of the fullStream in the partition have to be read
+   */
+  private boolean load(SpilledPartition partition) throws IOException {
+    hashedTuples.clear();
+    if (0 == partition.hashed.size(partition.partition)) {
+      return isOuterJoin();
+    }
+    int level = partition.hashed.getLevel();
+    long ramBytes = 0;
+    try (TupleSpill.TupleReader reader = partition.hashed.read(partition.partition)) {
+      for (Tuple tuple = reader.read(); null != tuple; tuple = reader.read()) {
+        hashedTuples
+            .computeIfAbsent(computeHash(tuple, rightHashOn), k -> new ArrayList<>())
+            .add(tuple);
+        ramBytes += TupleSpill.ramBytesUsed(tuple);
+        if (ramBytes > maxRamBytes() && level < TupleSpill.MAX_LEVEL) {
+          break;
         }
       }
-      tuple = hashStream.read();
     }
+    if (ramBytes <= maxRamBytes() || level >= TupleSpill.MAX_LEVEL) {
+      return true;
+    }
+
+    // still too big, split the partition by a different hash
+    hashedTuples.clear();
+    TupleSpill hashedSpill = newSpill(level + 1);
+    TupleSpill fullSpill = newSpill(level + 1);
+    split(partition.hashed, partition.partition, hashedSpill, rightHashOn);
+    split(partition.full, partition.partition, fullSpill, leftHashOn);
+    for (int i = TupleSpill.NUM_PARTITIONS - 1; i >= 0; i--) {
+      partitions.addFirst(new SpilledPartition(hashedSpill, fullSpill, i));
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Split a partition of the hashed tuples at level {}", level + 1);
+    }
+    return false;
+  }
+
+  private void split(TupleSpill from, int partition, TupleSpill to, List<String> hashOn)
+      throws IOException {
+    try (TupleSpill.TupleReader reader = from.read(partition)) {
+      for (Tuple tuple = reader.read(); null != tuple; tuple = reader.read()) {
+        String hash = computeHash(tuple, hashOn);
+        to.write(null == hash ? 0 : to.partition(hash), tuple);
+      }
+    }
+    to.finish();
+    spilledBytes += to.getBytes();
+  }
+
+  /** The number of bytes written to disk because the hashed tuples were past maxRamMB. */
+  public long getSpilledBytes() {
+    return spilledBytes;
   }
 
   protected String computeHash(Tuple tuple, List<String> hashOn) {
@@ -256,10 +470,39 @@ public class HashJoinStream extends TupleStream implements Expressible {
     return sb.toString();
   }
 
+  protected String computeHash(TupleBatch batch, int row, List<String> hashOn) {
+    StringBuilder sb = new StringBuilder();
+    for (String part : hashOn) {
+      Object obj = batch.get(part, row);
+      if (null == obj) {
+        return null;
+      }
+      sb.append(obj.toString());
+      sb.append("::"); // this is here to separate fields
+    }
+
+    return sb.toString();
+  }
+
   @Override
   public void close() throws IOException {
     hashStream.close();
     fullStream.close();
+    if (null != spills) {
+      IOUtils.closeQuietly(fullReader);
+      spills.forEach(IOUtils::closeQuietly);
+      spills = null;
+      partitions = null;
+      fullReader = null;
+      fullEOF = null;
+      hashedTuples.clear();
+      if (null != streamContext && null != streamContext.getSpilledBytes()) {
+        streamContext.getSpilledBytes().add(spilledBytes);
+      }
+      if (log.isInfoEnabled()) {
+        log.info("Spilled {} bytes to disk to join the hashed tuples", spilledBytes);
+      }
+    }
   }
 
   @Override
@@ -267,7 +510,7 @@ public class HashJoinStream extends TupleStream implements Expressible {
 
     findNextWorkingFullTuple:
     while (null == workingFullTuple) {
-      Tuple fullTuple = fullStream.read();
+      Tuple fullTuple = readFullTuple();
 
       // We're at the end of the line
       if (fullTuple.EOF) {
@@ -305,13 +548,73 @@ public class HashJoinStream extends TupleStream implements Expressible {
     return returnTuple;
   }
 
+  /**
+   * Reads the full stream in batches, and only builds the tuples of its rows that have a match in
+   * the hashed tuples.
+   */
+  @Override
+  public TupleBatch readBatch(int size) throws IOException {
+    if (null != partitions) {
+      // the fullStream has already been read into the partitions
+      return super.readBatch(size);
+    }
+    TupleBatch joined = new TupleBatch(size);
+    // first return the remaining matches of the tuple read() was joining
+    while (null != workingFullTuple) {
+      joined.add(read());
+    }
+
+    while (joined.isEmpty() && !joined.isEOF()) {
+      TupleBatch full = fullStream.readBatch(size);
+      for (int row = 0; row < full.size(); row++) {
+        String fullHash = computeHash(full, row, leftHashOn);
+        List<Tuple> matches = null == fullHash ? null : hashedTuples.get(fullHash);
+        if (null == matches) {
+          if (isOuterJoin()) {
+            joined.add(full.getTuple(row));
+          }
+          continue;
+        }
+        Tuple fullTuple = full.getTuple(row);
+        for (Tuple match : matches) {
+          Tuple returnTuple = fullTuple.clone();
+          returnTuple.merge(match);
+          joined.add(returnTuple);
+        }
+      }
+      if (full.isEOF()) {
+        joined.add(full.getEOF());
+      }
+    }
+    return joined;
+  }
+
+  /** Whether the tuples of the full stream that have no match are returned. */
+  protected boolean isOuterJoin() {
+    return false;
+  }
+
   @Override
   public StreamComparator getStreamSort() {
-    return fullStream.getStreamSort();
+    // the order is lost once the tuples are spilled
+    return spilledBytes > 0 ? null : fullStream.getStreamSort();
   }
 
   @Override
   public int getCost() {
     return 0;
   }
+
+  /** A partition of the spilled tuples of both streams. */
+  private static class SpilledPartition {
+    final TupleSpill hashed;
+    final TupleSpill full;
+    final int partition;
+
+    SpilledPartition(TupleSpill hashed, TupleSpill full, int partition) {
+      this.hashed = hashed;
+      this.full = full;
+      this.partition = partition;
+    }
+  }
 }
@@ -17,7 +17,10 @@
 package org.apache.solr.client.solrj.io.stream;
 
 import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -39,19 +42,49 @@ import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionValue;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
 import org.apache.solr.client.solrj.io.stream.metrics.Bucket;
 import org.apache.solr.client.solrj.io.stream.metrics.Metric;
-
+import org.apache.solr.common.util.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Rolls up the tuples of a stream by the values of the buckets, like a {@link RollupStream}, but
+ * without requiring the stream to be sorted by them: the metrics of every bucket are kept in a map
+ * until the end of the stream.
+ *
+ * <p>With a {@code maxRamMB} limit, once the buckets take more memory than the limit, the tuples
+ * of the buckets that are not in the map yet are split into partitions by the hash of their bucket
+ * and written to temporary files, and the partitions are then rolled up one at a time.
+ */
 public class HashRollupStream extends TupleStream implements Expressible {
 
   private static final long serialVersionUID = 1;
 
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
   private PushBackStream tupleStream;
   private Bucket[] buckets;
   private Metric[] metrics;
+  private long maxRamMB;
 
   private Iterator<Tuple> tupleIterator;
+  private Tuple eofTuple;
+  // the partitions of the spilled tuples left to roll up
+  private List<TupleSpill> spills;
+  private Deque<SpilledPartition> partitions;
+  private long spilledBytes;
+  private transient StreamContext streamContext;
 
   public HashRollupStream(TupleStream tupleStream, Bucket[] buckets, Metric[] metrics) {
-    init(tupleStream, buckets, metrics);
+    this(tupleStream, buckets, metrics, 0);
+  }
+
+  /**
+   * @param maxRamMB the memory the buckets may take before the tuples of new buckets are spilled
+   *     to disk, or 0 to keep them all in memory
+   */
+  public HashRollupStream(
+      TupleStream tupleStream, Bucket[] buckets, Metric[] metrics, long maxRamMB) {
+    init(tupleStream, buckets, metrics, maxRamMB);
   }
 
   public HashRollupStream(StreamExpression expression, StreamFactory factory) throws IOException {
@@ -62,10 +95,15 @@ public class HashRollupStream extends TupleStream implements Expressible {
     List<StreamExpression> metricExpressions =
         factory.getExpressionOperandsRepresentingTypes(expression, Expressible.class, Metric.class);
     StreamExpressionNamedParameter overExpression = factory.getNamedOperand(expression, "over");
+    StreamExpressionNamedParameter maxRamExpression =
+        factory.getNamedOperand(expression, "maxRamMB");
 
     // validate expression contains only what we want.
     if (expression.getParameters().size()
-        != streamExpressions.size() + metricExpressions.size() + 1) {
+        != streamExpressions.size()
+            + metricExpressions.size()
+            + 1
+            + (null == maxRamExpression ? 0 : 1)) {
       throw new IOException(
           String.format(Locale.ROOT, "Invalid expression %s - unknown operands found", expression));
     }
@@ -109,7 +147,25 @@ public class HashRollupStream extends TupleStream implements Expressible {
       // while we're using equalitors we don't support the form a=b. Only single field names.
     }
 
-    init(factory.constructStream(streamExpressions.get(0)), buckets, metrics);
+    long maxRamMB = 0;
+    if (null != maxRamExpression) {
+      String maxRamValue = String.valueOf(maxRamExpression.getParameter());
+      try {
+        maxRamMB = Long.parseLong(maxRamValue);
+      } catch (NumberFormatException e) {
+        maxRamMB = -1;
+      }
+      if (maxRamMB <= 0) {
+        throw new IOException(
+            String.format(
+                Locale.ROOT,
+                "Invalid expression %s - maxRamMB '%s' is not a positive integer",
+                expression,
+                maxRamValue));
+      }
+    }
+
+    init(factory.constructStream(streamExpressions.get(0)), buckets, metrics, maxRamMB);
   }
 
   private List<FieldEqualitor> flattenEqualitor(StreamEqualitor equalitor) {
@@ -127,10 +183,11 @@ public class HashRollupStream extends TupleStream implements Expressible {
     return flattenedList;
   }
 
-  private void init(TupleStream tupleStream, Bucket[] buckets, Metric[] metrics) {
+  private void init(TupleStream tupleStream, Bucket[] buckets, Metric[] metrics, long maxRamMB) {
     this.tupleStream = new PushBackStream(tupleStream);
     this.buckets = buckets;
     this.metrics = metrics;
+    this.maxRamMB = maxRamMB;
   }
 
   @Override
@@ -165,6 +222,11 @@ public class HashRollupStream extends TupleStream implements Expressible {
       expression.addParameter(metric.toExpression(factory));
     }
 
+    if (maxRamMB > 0) {
+      expression.addParameter(
+          new StreamExpressionNamedParameter("maxRamMB", Long.toString(maxRamMB)));
+    }
+
     return expression;
   }
 
@@ -188,6 +250,7 @@ public class HashRollupStream extends TupleStream implements Expressible {
 
   @Override
   public void setStreamContext(StreamContext context) {
+    this.streamContext = context;
     this.tupleStream.setStreamContext(context);
   }
 
@@ -207,60 +270,122 @@ public class HashRollupStream extends TupleStream implements Expressible {
   public void close() throws IOException {
     tupleStream.close();
     tupleIterator = null;
+    eofTuple = null;
+    if (null != spills) {
+      spills.forEach(IOUtils::closeQuietly);
+      spills = null;
+      partitions = null;
+      if (null != streamContext && null != streamContext.getSpilledBytes()) {
+        streamContext.getSpilledBytes().add(spilledBytes);
+      }
+      if (log.isInfoEnabled()) {
+        log.info("Spilled {} bytes to disk to roll up the buckets", spilledBytes);
+      }
+    }
   }
 
   @Override
   public Tuple read() throws IOException {
-    // On the first call to read build the tupleIterator.
-    if (tupleIterator == null) {
-      Map<HashKey, Metric[]> metricMap = new HashMap<>();
-      while (true) {
-        Tuple tuple = tupleStream.read();
-        if (tuple.EOF) {
-          List<Tuple> tuples = new ArrayList<>();
-          for (Map.Entry<HashKey, Metric[]> entry : metricMap.entrySet()) {
-            Tuple t = new Tuple();
-            Metric[] finishedMetrics = entry.getValue();
-            for (Metric metric : finishedMetrics) {
-              t.put(metric.getIdentifier(), metric.getValue());
-            }
+    while (tupleIterator == null || !tupleIterator.hasNext()) {
+      if (tupleIterator == null) {
+        // On the first call to read roll up the tuples of the stream.
+        tupleIterator = rollup(tupleStream::read, 0);
+      } else if (null != partitions && !partitions.isEmpty()) {
+        // then the ones that were spilled, a partition at a time
+        SpilledPartition partition = partitions.poll();
+        try (TupleSpill.TupleReader reader = partition.spill.read(partition.partition)) {
+          tupleIterator = rollup(reader, partition.spill.getLevel() + 1);
+        }
+      } else {
+        return eofTuple;
+      }
+    }
+
+    return tupleIterator.next();
+  }
 
-            HashKey hashKey = entry.getKey();
-            for (int i = 0; i < buckets.length; i++) {
-              t.put(buckets[i].toString(), hashKey.getParts()[i]);
+  private Iterator<Tuple> rollup(TupleSpill.TupleReader reader, int level) throws IOException {
+    Map<HashKey, Metric[]> metricMap = new HashMap<>();
+    TupleSpill spill = null;
+    long ramBytes = 0;
+    while (true) {
+      Tuple tuple = reader.read();
+      if (tuple == null || tuple.EOF) {
+        if (tuple != null) {
+          eofTuple = tuple;
+        }
+        break;
+      }
+
+      Object[] bucketValues = new Object[buckets.length];
+      for (int i = 0; i < buckets.length; i++) {
+        bucketValues[i] = buckets[i].getBucketValue(tuple);
+      }
+
+      HashKey hashKey = new HashKey(bucketValues);
+      Metric[] currentMetrics = metricMap.get(hashKey);
+
+      if (currentMetrics != null) {
+        for (Metric bucketMetric : currentMetrics) {
+          bucketMetric.update(tuple);
+        }
+      } else if (spill != null) {
+        spill.write(spill.partition(hashKey), tuple);
+      } else {
+        currentMetrics = new Metric[metrics.length];
+        for (int i = 0; i < metrics.length; i++) {
+          Metric bucketMetric = metrics[i].newInstance();
+          bucketMetric.update(tuple);
+          currentMetrics[i] = bucketMetric;
+        }
+        metricMap.put(hashKey, currentMetrics);
+
+        if (maxRamMB > 0 && level <= TupleSpill.MAX_LEVEL) {
+          // the bucket values, the map entry and the metrics
+          ramBytes += TupleSpill.ramBytesUsed(bucketValues) + 64 + 64L * metrics.length;
+          if (ramBytes > maxRamMB * 1024 * 1024) {
+            spill = new TupleSpill("hashRollup", level);
+            if (null == spills) {
+              spills = new ArrayList<>();
+              partitions = new ArrayDeque<>();
             }
-            tuples.add(t);
+            spills.add(spill);
           }
-          tuples.add(tuple);
-          this.tupleIterator = tuples.iterator();
-          break;
         }
+      }
+    }
 
-        Object[] bucketValues = new Object[buckets.length];
-        for (int i = 0; i < buckets.length; i++) {
-          bucketValues[i] = buckets[i].getBucketValue(tuple);
+    if (spill != null) {
+      spill.finish();
+      spilledBytes += spill.getBytes();
+      // roll up the partitions of this spill before the ones of an earlier spill
+      for (int i = TupleSpill.NUM_PARTITIONS - 1; i >= 0; i--) {
+        if (spill.size(i) > 0) {
+          partitions.addFirst(new SpilledPartition(spill, i));
         }
+      }
+    }
 
-        HashKey hashKey = new HashKey(bucketValues);
-        Metric[] currentMetrics = metricMap.get(hashKey);
+    List<Tuple> tuples = new ArrayList<>();
+    for (Map.Entry<HashKey, Metric[]> entry : metricMap.entrySet()) {
+      Tuple t = new Tuple();
+      Metric[] finishedMetrics = entry.getValue();
+      for (Metric metric : finishedMetrics) {
+        t.put(metric.getIdentifier(), metric.getValue());
+      }
 
-        if (currentMetrics != null) {
-          for (Metric bucketMetric : currentMetrics) {
-            bucketMetric.update(tuple);
-          }
-        } else {
-          currentMetrics = new Metric[metrics.length];
-          for (int i = 0; i < metrics.length; i++) {
-            Metric bucketMetric = metrics[i].newInstance();
-            bucketMetric.update(tuple);
-            currentMetrics[i] = bucketMetric;
-          }
-          metricMap.put(hashKey, currentMetrics);
-        }
+      HashKey hashKey = entry.getKey();
+      for (int i = 0; i < buckets.length; i++) {
+        t.put(buckets[i].toString(), hashKey.getParts()[i]);
       }
+      tuples.add(t);
     }
+    return tuples.iterator();
+  }
 
-    return tupleIterator.next();
+  /** The number of bytes written to disk because the buckets were past maxRamMB. */
+  public long getSpilledBytes() {
+    return spilledBytes;
   }
 
   @Override
@@ -272,4 +397,14 @@ public class HashRollupStream extends TupleStream implements Expressible {
   public StreamComparator getStreamSort() {
     return tupleStream.getStreamSort();
   }
+
+  private static class SpilledPartition {
+    final TupleSpill spill;
+    final int partition;
+
+    SpilledPartition(TupleSpill spill, int partition) {
+      this.spill = spill;
+      this.partition = partition;
+    }
+  }
 }
@@ -0,0 +1,430 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import static org.apache.solr.common.params.CommonParams.ID;
+import static org.apache.solr.common.params.CommonParams.VERSION_FIELD;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.io.SolrClientCache;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.comp.StreamComparator;
+import org.apache.solr.client.solrj.io.stream.expr.Explanation;
+import org.apache.solr.client.solrj.io.stream.expr.Explanation.ExpressionType;
+import org.apache.solr.client.solrj.io.stream.expr.Expressible;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExplanation;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionNamedParameter;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionValue;
+import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
+import org.apache.solr.common.SolrDocument;
+
+/**
+ * Merges partial aggregates into the aggregate documents of a collection, so that a collection of
+ * rollups can be maintained from the new documents only, for example with {@code
+ * daemon(update(aggregates, pruneVersionField=false, incrementalRollup(aggregates,
+ * hashRollup(topic(...), ...), ...)))}.
+ *
+ * <p>The tuples of the underlying stream are partial aggregates of the buckets in the {@code over}
+ * fields. The aggregate document of a bucket has the bucket values joined with ':' as its id. The
+ * current aggregate documents are read with real-time get, and each tuple is emitted merged with
+ * its document: the {@code sum} fields are added to the current values, and the {@code min} and
+ * {@code max} fields keep the smallest and largest values. The tuples of existing documents are
+ * atomic updates, which keep the other fields of the documents, and every tuple carries the
+ * version of the document it was merged with, or -1 for a new document, so that the update fails
+ * instead of losing a concurrent merge. The fields of the tuples which are not in the {@code over},
+ * {@code sum}, {@code min} or {@code max} fields are not written, since they can't be merged.
+ * Averages can be computed from merged sums and counts.
+ *
+ * <p>Syntax: incrementalRollup(collection, stream, over="a,b", sum="c,d", min="e", max="f",
+ * batchSize="250")
+ */
+public class IncrementalRollupStream extends TupleStream implements Expressible {
+
+  private static final long serialVersionUID = 1;
+
+  static final String ID_SEPARATOR = ":";
+
+  protected String zkHost;
+  private TupleStream stream;
+  private StreamContext streamContext;
+  private Iterator<Tuple> tuples;
+  private Tuple eofTuple;
+
+  private String collection;
+  private String[] overFields;
+  private String[] sumFields;
+  private String[] minFields;
+  private String[] maxFields;
+  private int batchSize;
+
+  public IncrementalRollupStream(
+      String zkHost,
+      String collection,
+      TupleStream tupleStream,
+      String[] overFields,
+      String[] sumFields,
+      String[] minFields,
+      String[] maxFields,
+      int batchSize)
+      throws IOException {
+    init(zkHost, collection, tupleStream, overFields, sumFields, minFields, maxFields, batchSize);
+  }
+
+  public IncrementalRollupStream(StreamExpression expression, StreamFactory factory)
+      throws IOException {
+    // grab all parameters out
+    String collectionName = factory.getValueOperand(expression, 0);
+    List<StreamExpression> streamExpressions =
+        factory.getExpressionOperandsRepresentingTypes(
+            expression, Expressible.class, TupleStream.class);
+    StreamExpressionNamedParameter batchSizeParam =
+        factory.getNamedOperand(expression, "batchSize");
+    StreamExpressionNamedParameter zkHostExpression = factory.getNamedOperand(expression, "zkHost");
+
+    String[] over = getFields(expression, factory, "over");
+    if (over.length == 0) {
+      throw new IOException("over parameter cannot be null for the incrementalRollup expression");
+    }
+
+    int batchSize = 250;
+    if (batchSizeParam != null) {
+      batchSize =
+          Integer.parseInt(((StreamExpressionValue) batchSizeParam.getParameter()).getValue());
+    }
+
+    if (1 != streamExpressions.size()) {
+      throw new IOException(
+          String.format(
+              Locale.ROOT,
+              "Invalid expression %s - expecting a single stream but found %d",
+              expression,
+              streamExpressions.size()));
+    }
+
+    TupleStream stream = factory.constructStream(streamExpressions.get(0));
+
+    String zkHost = null;
+    if (null == zkHostExpression) {
+      zkHost = factory.getCollectionZkHost(collectionName);
+      if (zkHost == null) {
+        zkHost = factory.getDefaultZkHost();
+      }
+    } else if (zkHostExpression.getParameter() instanceof StreamExpressionValue) {
+      zkHost = ((StreamExpressionValue) zkHostExpression.getParameter()).getValue();
+    }
+    if (null == zkHost) {
+      throw new IOException(
+          String.format(
+              Locale.ROOT,
+              "invalid expression %s - zkHost not found for collection '%s'",
+              expression,
+              collectionName));
+    }
+
+    init(
+        zkHost,
+        collectionName,
+        stream,
+        over,
+        getFields(expression, factory, "sum"),
+        getFields(expression, factory, "min"),
+        getFields(expression, factory, "max"),
+        batchSize);
+  }
+
+  private static String[] getFields(
+      StreamExpression expression, StreamFactory factory, String name) {
+    StreamExpressionNamedParameter param = factory.getNamedOperand(expression, name);
+    if (param == null) {
+      return new String[0];
+    }
+    String[] fields = ((StreamExpressionValue) param.getParameter()).getValue().split(",");
+    for (int i = 0; i < fields.length; i++) {
+      fields[i] = fields[i].trim();
+    }
+    return fields;
+  }
+
+  private void init(
+      String zkHost,
+      String collection,
+      TupleStream tupleStream,
+      String[] overFields,
+      String[] sumFields,
+      String[] minFields,
+      String[] maxFields,
+      int batchSize)
+      throws IOException {
+    if (sumFields.length + minFields.length + maxFields.length == 0) {
+      throw new IOException(
+          "incrementalRollup needs at least one of the sum, min or max parameters");
+    }
+    if (batchSize <= 0) {
+      throw new IOException("batchSize must be positive: " + batchSize);
+    }
+    this.zkHost = zkHost;
+    this.collection = collection;
+    this.stream = tupleStream;
+    this.overFields = overFields;
+    this.sumFields = sumFields;
+    this.minFields = minFields;
+    this.maxFields = maxFields;
+    this.batchSize = batchSize;
+  }
+
+  @Override
+  public StreamExpression toExpression(StreamFactory factory) throws IOException {
+    return toExpression(factory, true);
+  }
+
+  private StreamExpression toExpression(StreamFactory factory, boolean includeStreams)
+      throws IOException {
+
+    // function name
+    StreamExpression expression = new StreamExpression(factory.getFunctionName(this.getClass()));
+    expression.addParameter(collection);
+    addFields(expression, "over", overFields);
+    addFields(expression, "sum", sumFields);
+    addFields(expression, "min", minFields);
+    addFields(expression, "max", maxFields);
+    expression.addParameter(
+        new StreamExpressionNamedParameter("batchSize", Integer.toString(batchSize)));
+
+    // stream
+    if (includeStreams) {
+      if (stream instanceof Expressible) {
+        expression.addParameter(((Expressible) stream).toExpression(factory));
+      } else {
+        throw new IOException(
+            "The IncrementalRollupStream contains a non-expressible TupleStream - it cannot be converted to an expression");
+      }
+    }
+
+    return expression;
+  }
+
+  private static void addFields(StreamExpression expression, String name, String[] fields) {
+    if (fields.length > 0) {
+      expression.addParameter(new StreamExpressionNamedParameter(name, String.join(",", fields)));
+    }
+  }
+
+  @Override
+  public Explanation toExplanation(StreamFactory factory) throws IOException {
+
+    return new StreamExplanation(getStreamNodeId().toString())
+        .withChildren(new Explanation[] {stream.toExplanation(factory)})
+        .withFunctionName(factory.getFunctionName(this.getClass()))
+        .withImplementingClass(this.getClass().getName())
+        .withExpressionType(ExpressionType.STREAM_DECORATOR)
+        .withExpression(toExpression(factory, false).toString());
+  }
+
+  @Override
+  public void setStreamContext(StreamContext streamContext) {
+    this.streamContext = streamContext;
+    this.stream.setStreamContext(streamContext);
+  }
+
+  @Override
+  public List<TupleStream> children() {
+    List<TupleStream> l = new ArrayList<>();
+    l.add(stream);
+    return l;
+  }
+
+  @Override
+  public void open() throws IOException {
+    tuples = null;
+    eofTuple = null;
+    stream.open();
+  }
+
+  @Override
+  public void close() throws IOException {
+    stream.close();
+  }
+
+  @Override
+  public Tuple read() throws IOException {
+    if (tuples == null) {
+      tuples = merge();
+    }
+    if (eofTuple != null) {
+      return eofTuple;
+    }
+    Tuple tuple = tuples.next();
+    if (tuple.EOF) {
+      eofTuple = tuple;
+    }
+    return tuple;
+  }
+
+  /**
+   * Reads all the partial aggregates of the underlying stream, since a bucket can be in several of
+   * them, and merges them with the current aggregate documents.
+   */
+  private Iterator<Tuple> merge() throws IOException {
+    Map<String, Tuple> partials = new LinkedHashMap<>();
+    Tuple tuple;
+    while (!(tuple = stream.read()).EOF) {
+      String id = getId(tuple);
+      Tuple partial = partials.get(id);
+      if (partial == null) {
+        partials.put(id, tuple);
+      } else {
+        mergeInto(partial, tuple::get);
+      }
+    }
+
+    List<Tuple> merged = new ArrayList<>(partials.size() + 1);
+    List<String> ids = new ArrayList<>(partials.keySet());
+    for (int start = 0; start < ids.size(); start += batchSize) {
+      List<String> batch = ids.subList(start, Math.min(start + batchSize, ids.size()));
+      Map<String, SolrDocument> docs = getDocuments(batch);
+      for (String id : batch) {
+        merged.add(merge(id, partials.get(id), docs.get(id)));
+      }
+    }
+    merged.add(tuple);
+    return merged.iterator();
+  }
+
+  private Tuple merge(String id, Tuple partial, SolrDocument doc) {
+    Tuple update = new Tuple();
+    if (doc == null) {
+      for (String field : overFields) {
+        update.put(field, partial.get(field));
+      }
+      putAggregates(update, partial, false);
+      update.put(ID, id);
+      update.put(VERSION_FIELD, -1L);
+      return update;
+    }
+    mergeInto(partial, doc::getFirstValue);
+
+    putAggregates(update, partial, true);
+    update.put(ID, id);
+    update.put(VERSION_FIELD, doc.getFirstValue(VERSION_FIELD));
+    return update;
+  }
+
+  /** Puts the merged aggregates, as atomic updates when they are merged with a document. */
+  private void putAggregates(Tuple update, Tuple partial, boolean atomic) {
+    for (String[] fields : new String[][] {sumFields, minFields, maxFields}) {
+      for (String field : fields) {
+        Object value = partial.get(field);
+        if (value != null) {
+          update.put(field, atomic ? Collections.singletonMap("set", value) : value);
+        }
+      }
+    }
+  }
+
+  private interface Values {
+    Object get(String field);
+  }
+
+  /** Merges the aggregates of a tuple or document into a partial aggregate. */
+  private void mergeInto(Tuple partial, Values values) {
+    for (String field : sumFields) {
+      Object value = values.get(field);
+      if (value != null) {
+        Object current = partial.get(field);
+        partial.put(field, current == null ? value : add(current, value));
+      }
+    }
+    for (String field : minFields) {
+      Object value = values.get(field);
+      Object current = partial.get(field);
+      if (value != null && (current == null || compare(value, current) < 0)) {
+        partial.put(field, value);
+      }
+    }
+    for (String field : maxFields) {
+      Object value = values.get(field);
+      Object current = partial.get(field);
+      if (value != null && (current == null || compare(value, current) > 0)) {
+        partial.put(field, value);
+      }
+    }
+  }
+
+  private static Object add(Object a, Object b) {
+    if (isIntegral(a) && isIntegral(b)) {
+      return ((Number) a).longValue() + ((Number) b).longValue();
+    }
+    return ((Number) a).doubleValue() + ((Number) b).doubleValue();
+  }
+
+  private static boolean isIntegral(Object value) {
+    return value instanceof Long || value instanceof Integer;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static int compare(Object a, Object b) {
+    if (a instanceof Number && b instanceof Number) {
+      return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+    }
+    return ((Comparable) a).compareTo(b);
+  }
+
+  private String getId(Tuple tuple) {
+    StringBuilder id = new StringBuilder();
+    for (int i = 0; i < overFields.length; i++) {
+      if (i > 0) {
+        id.append(ID_SEPARATOR);
+      }
+      id.append(tuple.getString(overFields[i]));
+    }
+    return id.toString();
+  }
+
+  /** Reads the current aggregate documents with real-time get, which sees uncommitted updates. */
+  private Map<String, SolrDocument> getDocuments(List<String> ids) throws IOException {
+    SolrClientCache clientCache = streamContext.getSolrClientCache();
+    Map<String, SolrDocument> docs = new HashMap<>();
+    try {
+      for (SolrDocument doc : clientCache.getCloudSolrClient(zkHost).getById(collection, ids)) {
+        docs.put(String.valueOf(doc.getFirstValue(ID)), doc);
+      }
+    } catch (SolrServerException e) {
+      throw new IOException(e);
+    }
+    return docs;
+  }
+
+  @Override
+  public StreamComparator getStreamSort() {
+    return null;
+  }
+
+  @Override
+  public int getCost() {
+    return 0;
+  }
+}
@@ -47,6 +47,12 @@ public class OuterHashJoinStream extends HashJoinStream implements Expressible {
     super(fullStream, hashStream, hashOn);
   }
 
+  public OuterHashJoinStream(
+      TupleStream fullStream, TupleStream hashStream, List<String> hashOn, long maxRamMB)
+      throws IOException {
+    super(fullStream, hashStream, hashOn, maxRamMB);
+  }
+
   public OuterHashJoinStream(StreamExpression expression, StreamFactory factory)
       throws IOException {
     super(expression, factory);
@@ -88,15 +94,24 @@ public class OuterHashJoinStream extends HashJoinStream implements Expressible {
       }
     }
     expression.addParameter(new StreamExpressionNamedParameter("on", sb.toString()));
+    if (maxRamMB > 0) {
+      expression.addParameter(
+          new StreamExpressionNamedParameter("maxRamMB", Long.toString(maxRamMB)));
+    }
 
     return expression;
   }
 
+  @Override
+  protected boolean isOuterJoin() {
+    return true;
+  }
+
   @Override
   public Tuple read() throws IOException {
 
     if (null == workingFullTuple) {
-      Tuple fullTuple = fullStream.read();
+      Tuple fullTuple = readFullTuple();
 
       // We're at the end of the line
       if (fullTuple.EOF) {
@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
 import org.apache.solr.client.solrj.io.comp.StreamComparator;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation;
 import org.apache.solr.client.solrj.io.stream.expr.Expressible;
@@ -96,6 +97,20 @@ public class PushBackStream extends TupleStream implements Expressible {
     }
   }
 
+  @Override
+  public TupleBatch readBatch(int size) throws IOException {
+    if (tuple == null) {
+      return stream.readBatch(size);
+    }
+    TupleBatch batch = new TupleBatch(size);
+    batch.add(tuple);
+    tuple = null;
+    if (!batch.isEOF() && size > 1) {
+      batch.addAll(stream.readBatch(size - 1));
+    }
+    return batch;
+  }
+
   /**
    * Return the stream sort - ie, the order in which records are returned This returns the
    * streamSort of the substream
@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
 import org.apache.solr.client.solrj.io.comp.FieldComparator;
 import org.apache.solr.client.solrj.io.comp.MultipleFieldComparator;
 import org.apache.solr.client.solrj.io.comp.StreamComparator;
@@ -254,6 +255,40 @@ public class ReducerStream extends TupleStream implements Expressible {
     }
   }
 
+  /**
+   * Reads the underlying stream in batches, and returns the reduced groups that end in them. The
+   * groups are formed and reduced like in {@link #read()}.
+   */
+  @Override
+  public TupleBatch readBatch(int size) throws IOException {
+    TupleBatch reduced = new TupleBatch();
+    while (reduced.isEmpty() && !reduced.isEOF()) {
+      TupleBatch batch = stream.readBatch(size);
+      for (int row = 0; row < batch.size(); row++) {
+        Tuple t = batch.getTuple(row);
+        if (currentGroupHead != null && !eq.test(currentGroupHead, t)) {
+          reduced.add(op.reduce());
+          currentGroupHead = null;
+        }
+        if (currentGroupHead == null) {
+          currentGroupHead = t;
+        }
+        op.operate(t);
+        needsReduce = true;
+      }
+
+      if (batch.isEOF()) {
+        if (needsReduce) {
+          reduced.add(op.reduce());
+          needsReduce = false;
+        }
+        stream.pushBack(batch.getEOF());
+        reduced.add(batch.getEOF());
+      }
+    }
+    return reduced;
+  }
+
   /** Return the stream sort - ie, the order in which records are returned */
   @Override
   public StreamComparator getStreamSort() {
@@ -16,12 +16,21 @@
  */
 package org.apache.solr.client.solrj.io.stream;
 
+import static org.apache.solr.common.params.CommonParams.DISTRIB;
+
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
+import org.apache.solr.client.solrj.io.comp.FieldComparator;
 import org.apache.solr.client.solrj.io.comp.HashKey;
+import org.apache.solr.client.solrj.io.comp.MultipleFieldComparator;
 import org.apache.solr.client.solrj.io.comp.StreamComparator;
 import org.apache.solr.client.solrj.io.eq.FieldEqualitor;
 import org.apache.solr.client.solrj.io.eq.MultipleFieldEqualitor;
@@ -35,25 +44,49 @@ import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionNamedParamete
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionValue;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
 import org.apache.solr.client.solrj.io.stream.metrics.Bucket;
+import org.apache.solr.client.solrj.io.stream.metrics.CountDistinctMetric;
 import org.apache.solr.client.solrj.io.stream.metrics.Metric;
+import org.apache.solr.common.params.ModifiableSolrParams;
 
 /**
+ * Rolls up the tuples of a stream sorted by the {@code over} fields, one bucket at a time.
+ *
+ * <p>With {@code pushDown=true}, a rollup of a {@code search} runs on one replica of each shard of
+ * the searched collection, next to the data, and only the partial aggregates of the shards are
+ * sent back and rolled up. This needs metrics that can be rolled up from partial aggregates (sum,
+ * min, max, count, and avg along with a count), a search sorted by the {@code over} fields and a
+ * stream factory in the stream context. Otherwise the rollup reads all the tuples of the search.
+ *
  * @since 6.0.0
  */
-public class RollupStream extends TupleStream implements Expressible {
+public class RollupStream extends TupleStream implements Expressible, ParallelMetricsRollup {
 
   private static final long serialVersionUID = 1;
 
   private PushBackStream tupleStream;
   private Bucket[] buckets;
   private Metric[] metrics;
+  private boolean pushDown;
+
+  private transient StreamContext streamContext;
+  // the rollup of the partial aggregates of the shards, when the rollup is pushed down
+  private transient TupleStream pushedDownStream;
 
   private HashKey currentKey = new HashKey("-");
   private Metric[] currentMetrics;
   private boolean finished = false;
 
   public RollupStream(TupleStream tupleStream, Bucket[] buckets, Metric[] metrics) {
+    this(tupleStream, buckets, metrics, false);
+  }
+
+  /**
+   * @param pushDown whether to roll up the tuples of a search on its shards, when possible
+   */
+  public RollupStream(
+      TupleStream tupleStream, Bucket[] buckets, Metric[] metrics, boolean pushDown) {
     init(tupleStream, buckets, metrics);
+    this.pushDown = pushDown;
   }
 
   public RollupStream(StreamExpression expression, StreamFactory factory) throws IOException {
@@ -64,10 +97,15 @@ public class RollupStream extends TupleStream implements Expressible {
     List<StreamExpression> metricExpressions =
         factory.getExpressionOperandsRepresentingTypes(expression, Expressible.class, Metric.class);
     StreamExpressionNamedParameter overExpression = factory.getNamedOperand(expression, "over");
+    StreamExpressionNamedParameter pushDownExpression =
+        factory.getNamedOperand(expression, "pushDown");
 
     // validate expression contains only what we want.
     if (expression.getParameters().size()
-        != streamExpressions.size() + metricExpressions.size() + 1) {
+        != streamExpressions.size()
+            + metricExpressions.size()
+            + 1
+            + (null == pushDownExpression ? 0 : 1)) {
       throw new IOException(
           String.format(Locale.ROOT, "Invalid expression %s - unknown operands found", expression));
     }
@@ -112,6 +150,19 @@ public class RollupStream extends TupleStream implements Expressible {
     }
 
     init(factory.constructStream(streamExpressions.get(0)), buckets, metrics);
+
+    if (null != pushDownExpression) {
+      if (!(pushDownExpression.getParameter() instanceof StreamExpressionValue)) {
+        throw new IOException(
+            String.format(
+                Locale.ROOT,
+                "Invalid expression %s - expecting a true or false pushDown parameter",
+                expression));
+      }
+      pushDown =
+          Boolean.parseBoolean(
+              ((StreamExpressionValue) pushDownExpression.getParameter()).getValue());
+    }
   }
 
   private List<FieldEqualitor> flattenEqualitor(StreamEqualitor equalitor) {
@@ -167,6 +218,10 @@ public class RollupStream extends TupleStream implements Expressible {
       expression.addParameter(metric.toExpression(factory));
     }
 
+    if (pushDown) {
+      expression.addParameter(new StreamExpressionNamedParameter("pushDown", "true"));
+    }
+
     return expression;
   }
 
@@ -190,23 +245,118 @@ public class RollupStream extends TupleStream implements Expressible {
 
   @Override
   public void setStreamContext(StreamContext context) {
+    this.streamContext = context;
     this.tupleStream.setStreamContext(context);
   }
 
   @Override
   public List<TupleStream> children() {
     List<TupleStream> l = new ArrayList<>();
-    l.add(tupleStream);
+    // once pushed down, the tuples are read from the rollup of the partial aggregates of the shards
+    l.add(pushedDownStream != null ? pushedDownStream : tupleStream);
     return l;
   }
 
   @Override
   public void open() throws IOException {
+    if (pushDown) {
+      Optional<TupleStream> maybePushedDown = openPushedDown();
+      if (maybePushedDown.isPresent()) {
+        pushedDownStream = maybePushedDown.get();
+        return;
+      }
+    }
     tupleStream.open();
   }
 
+  private Optional<TupleStream> openPushedDown() throws IOException {
+    TupleStream source = tupleStream.children().get(0);
+    if (!(source instanceof CloudSolrStream)
+        || streamContext == null
+        || streamContext.getStreamFactory() == null
+        // already running on a shard, or on manually set shards that can't run the search alone
+        || streamContext.isLocal()
+        || streamContext.get("shards") != null
+        || getBucketSort() == null) {
+      return Optional.empty();
+    }
+    for (Metric metric : metrics) {
+      // the shards may have the same values, so their distinct counts can't be rolled up
+      if (metric instanceof CountDistinctMetric) {
+        return Optional.empty();
+      }
+    }
+    CloudSolrStream search = (CloudSolrStream) source;
+    List<String> shards =
+        getShards(search.zkHost, search.collection, streamContext, search.params);
+    return openParallelStream(streamContext, shards, metrics);
+  }
+
+  /**
+   * The rollups of the search on each shard, which run on the /stream handler of the given shard
+   * replicas with {@code streamLocalOnly}, so that the search only reads their local index.
+   */
+  @Override
+  public TupleStream[] parallelize(List<String> partitions) throws IOException {
+    RollupStream shardRollup = new RollupStream(tupleStream.children().get(0), buckets, metrics);
+    String expr = shardRollup.toExpression(streamContext.getStreamFactory()).toString();
+
+    TupleStream[] streams = new TupleStream[partitions.size()];
+    for (int i = 0; i < streams.length; i++) {
+      ModifiableSolrParams params = new ModifiableSolrParams();
+      params.set(DISTRIB, "false");
+      params.set("streamLocalOnly", "true");
+      params.set("expr", expr);
+      params.set("qt", "/stream");
+      streams[i] = new SolrStream(partitions.get(i), params);
+    }
+    return streams;
+  }
+
+  @Override
+  public TupleStream getSortedRollupStream(ParallelListStream plist, Metric[] rollupMetrics)
+      throws IOException {
+    HashRollupStream rollup = new HashRollupStream(plist, buckets, rollupMetrics);
+    Map<String, String> selectFields = new HashMap<>();
+    for (Bucket bucket : buckets) {
+      selectFields.put(bucket.toString(), bucket.toString());
+    }
+    for (Metric metric : rollupMetrics) {
+      selectFields.put(metric.getIdentifier(), metric.getColumns()[0]);
+    }
+    return new SortStream(new SelectStream(rollup, selectFields), getBucketSort());
+  }
+
+  /**
+   * The sort of the rolled up tuples, from the leading fields of the stream sort, or null if the
+   * stream is not sorted by the buckets.
+   */
+  private StreamComparator getBucketSort() {
+    StreamComparator sort = tupleStream.getStreamSort();
+    List<StreamComparator> comps =
+        sort instanceof MultipleFieldComparator
+            ? Arrays.asList(((MultipleFieldComparator) sort).getComps())
+            : Arrays.asList(sort);
+    if (comps.size() < buckets.length) {
+      return null;
+    }
+    StreamComparator[] bucketComps = new StreamComparator[buckets.length];
+    for (int i = 0; i < buckets.length; i++) {
+      if (!(comps.get(i) instanceof FieldComparator)
+          || !buckets[i].toString().equals(((FieldComparator) comps.get(i)).getLeftFieldName())) {
+        return null;
+      }
+      bucketComps[i] = comps.get(i);
+    }
+    return bucketComps.length == 1 ? bucketComps[0] : new MultipleFieldComparator(bucketComps);
+  }
+
   @Override
   public void close() throws IOException {
+    if (pushedDownStream != null) {
+      pushedDownStream.close();
+      pushedDownStream = null;
+    }
     tupleStream.close();
     this.currentMetrics = null;
     this.currentKey = new HashKey("-");
@@ -215,6 +365,9 @@ public class RollupStream extends TupleStream implements Expressible {
 
   @Override
   public Tuple read() throws IOException {
+    if (pushedDownStream != null) {
+      return pushedDownStream.read();
+    }
 
     while (true) {
       Tuple tuple = tupleStream.read();
@@ -225,14 +378,7 @@ public class RollupStream extends TupleStream implements Expressible {
             return tuple;
           }
 
-          Tuple t = new Tuple();
-          for (Metric metric : currentMetrics) {
-            t.put(metric.getIdentifier(), metric.getValue());
-          }
-
-          for (int i = 0; i < buckets.length; i++) {
-            t.put(buckets[i].toString(), currentKey.getParts()[i]);
-          }
+          Tuple t = currentBucketTuple();
           tupleStream.pushBack(tuple);
           finished = true;
           return t;
@@ -255,14 +401,7 @@ public class RollupStream extends TupleStream implements Expressible {
       } else {
         Tuple t = null;
         if (currentMetrics != null) {
-          t = new Tuple();
-          for (Metric metric : currentMetrics) {
-            t.put(metric.getIdentifier(), metric.getValue());
-          }
-
-          for (int i = 0; i < buckets.length; i++) {
-            t.put(buckets[i].toString(), currentKey.getParts()[i]);
-          }
+          t = currentBucketTuple();
         }
 
         currentKey = hashKey;
@@ -282,6 +421,88 @@ public class RollupStream extends TupleStream implements Expressible {
     }
   }
 
+  /**
+   * Reads the underlying stream in batches: the bucket values are compared column by column, and
+   * the metrics are updated with the runs of rows that fall in the same bucket. The rollup keeps
+   * its state between calls, so that read() and readBatch() can be mixed.
+   */
+  @Override
+  public TupleBatch readBatch(int size) throws IOException {
+    if (pushedDownStream != null) {
+      return pushedDownStream.readBatch(size);
+    }
+    TupleBatch rolledUp = new TupleBatch();
+    while (rolledUp.isEmpty() && !rolledUp.isEOF()) {
+      if (finished) {
+        rolledUp.add(tupleStream.read());
+        break;
+      }
+      TupleBatch batch = tupleStream.readBatch(size);
+      int start = 0;
+      for (int row = 0; row < batch.size(); row++) {
+        if (currentMetrics != null && isCurrentBucket(batch, row)) {
+          continue;
+        }
+        if (currentMetrics != null) {
+          for (Metric bucketMetric : currentMetrics) {
+            bucketMetric.update(batch, start, row);
+          }
+          rolledUp.add(currentBucketTuple());
+        }
+
+        Object[] bucketValues = new Object[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+          bucketValues[i] = buckets[i].getBucketValue(batch, row);
+        }
+        currentKey = new HashKey(bucketValues);
+        if (metrics != null) {
+          currentMetrics = new Metric[metrics.length];
+          for (int i = 0; i < metrics.length; i++) {
+            currentMetrics[i] = metrics[i].newInstance();
+          }
+        }
+        start = row;
+      }
+      if (currentMetrics != null) {
+        for (Metric bucketMetric : currentMetrics) {
+          bucketMetric.update(batch, start, batch.size());
+        }
+      }
+
+      if (batch.isEOF()) {
+        if (currentMetrics != null) {
+          rolledUp.add(currentBucketTuple());
+          tupleStream.pushBack(batch.getEOF());
+          finished = true;
+        }
+        rolledUp.add(batch.getEOF());
+      }
+    }
+    return rolledUp;
+  }
+
+  private boolean isCurrentBucket(TupleBatch batch, int row) {
+    Object[] parts = currentKey.getParts();
+    for (int i = 0; i < buckets.length; i++) {
+      if (!parts[i].equals(buckets[i].getBucketValue(batch, row))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private Tuple currentBucketTuple() {
+    Tuple t = new Tuple();
+    for (Metric metric : currentMetrics) {
+      t.put(metric.getIdentifier(), metric.getValue());
+    }
+
+    for (int i = 0; i < buckets.length; i++) {
+      t.put(buckets[i].toString(), currentKey.getParts()[i]);
+    }
+    return t;
+  }
+
   @Override
   public int getCost() {
     return 0;
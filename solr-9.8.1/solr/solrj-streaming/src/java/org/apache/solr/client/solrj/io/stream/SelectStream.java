@@ -25,6 +25,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
 import org.apache.solr.client.solrj.io.comp.StreamComparator;
 import org.apache.solr.client.solrj.io.eval.EvaluatorException;
 import org.apache.solr.client.solrj.io.eval.StreamEvaluator;
@@ -311,6 +312,45 @@ public class SelectStream extends TupleStream implements Expressible {
       return original;
     }
 
+    return select(original);
+  }
+
+  /**
+   * Without operations and evaluators the selected columns of the batch are renamed, and no tuple
+   * is built; otherwise each row is selected like in {@link #read()}.
+   */
+  @Override
+  public TupleBatch readBatch(int size) throws IOException {
+    TupleBatch original = stream.readBatch(size);
+    TupleBatch selected;
+    if (operations.isEmpty() && selectedEvaluators.isEmpty()) {
+      Map<String, Object[]> columns = new LinkedHashMap<>();
+      for (String fieldName : original.getColumnNames()) {
+        if (selectedFields.containsKey(fieldName)) {
+          columns.put(selectedFields.get(fieldName), original.getColumn(fieldName));
+        } else {
+          for (String globPattern : selectedFieldGlobPatterns) {
+            if (GlobPatternUtil.matches(globPattern, fieldName)) {
+              columns.put(fieldName, original.getColumn(fieldName));
+              break;
+            }
+          }
+        }
+      }
+      selected = TupleBatch.of(original.size(), columns);
+    } else {
+      selected = new TupleBatch(original.size());
+      for (int row = 0; row < original.size(); row++) {
+        selected.add(select(original.getTuple(row)));
+      }
+    }
+    if (original.isEOF()) {
+      selected.add(original.getEOF());
+    }
+    return selected;
+  }
+
+  private Tuple select(Tuple original) throws IOException {
     // create a copy with the limited set of fields
     Tuple workingToReturn = new Tuple();
     Tuple workingForEvaluators = new Tuple();
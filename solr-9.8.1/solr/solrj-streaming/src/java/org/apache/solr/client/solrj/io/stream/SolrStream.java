@@ -31,6 +31,7 @@ import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.InputStreamResponseParser;
 import org.apache.solr.client.solrj.io.SolrClientCache;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
 import org.apache.solr.client.solrj.io.comp.StreamComparator;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation.ExpressionType;
@@ -171,7 +172,8 @@ public class SolrStream extends TupleStream {
     buf.append(this.numWorkers);
     buf.append(" worker=");
     buf.append(this.workerID);
-    buf.append("}");
+    // all the workers ask for their partition, so they can be computed together
+    buf.append(" share=true}");
     return buf.toString();
   }
 
@@ -237,6 +239,47 @@ public class SolrStream extends TupleStream {
     }
   }
 
+  /**
+   * Reads the tuples a batch at a time from the response when it is in the columnar format, and
+   * one by one otherwise.
+   */
+  @Override
+  public TupleBatch readBatch(int size) throws IOException {
+    if (!(tupleStreamParser instanceof ColumnarTupleStreamParser)
+        || trace
+        || fieldMappings != null) {
+      return super.readBatch(size);
+    }
+    try {
+      TupleBatch batch = ((ColumnarTupleStreamParser) tupleStreamParser).nextBatch();
+      if (batch == null) {
+        batch = new TupleBatch(0);
+        batch.add(Tuple.EOF());
+        return batch;
+      }
+      Object[] exceptions = batch.getColumn(StreamParams.EXCEPTION);
+      if (exceptions != null) {
+        for (int row = 0; row < batch.size(); row++) {
+          if (exceptions[row] != null) {
+            throw new HandledException((String) exceptions[row]);
+          }
+        }
+      }
+      if (batch.isEOF() && batch.getEOF().EXCEPTION) {
+        throw new HandledException(batch.getEOF().getException());
+      }
+      return batch;
+    } catch (HandledException e) {
+      throw new IOException("--> " + this.baseUrl + ":" + e.getMessage());
+    } catch (Exception e) {
+      throw new IOException(
+          "--> "
+              + this.baseUrl
+              + ": An exception has occurred on the server, refer to server log for details.",
+          e);
+    }
+  }
+
   public void setDistrib(boolean distrib) {
     this.distrib = distrib;
   }
@@ -335,6 +378,8 @@ public class SolrStream extends TupleStream {
     this.closeableHttpResponse = httpResponse;
     if (CommonParams.JAVABIN.equals(wt)) {
       return new JavabinTupleStreamParser(stream, true);
+    } else if (ColumnarTupleWriter.WT.equals(wt)) {
+      return new ColumnarTupleStreamParser(stream);
     } else {
       InputStreamReader reader = new InputStreamReader(stream, StandardCharsets.UTF_8);
       return new JSONTupleStream(reader);
@@ -19,6 +19,7 @@ package org.apache.solr.client.solrj.io.stream;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 import org.apache.solr.client.solrj.io.ModelCache;
 import org.apache.solr.client.solrj.io.SolrClientCache;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
@@ -46,6 +47,7 @@ public class StreamContext {
   private boolean local;
   private SolrParams requestParams;
   private RequestReplicaListTransformerGenerator requestReplicaListTransformerGenerator;
+  private LongAdder spilledBytes;
 
   public ConcurrentMap<String, ConcurrentMap<String, Object>> getObjectCache() {
     return this.objectCache;
@@ -128,4 +130,17 @@ public class StreamContext {
   public RequestReplicaListTransformerGenerator getRequestReplicaListTransformerGenerator() {
     return requestReplicaListTransformerGenerator;
   }
+
+  /**
+   * Sets the counter the streams that spill tuples to disk add the number of bytes they wrote to
+   * when they are closed.
+   */
+  public void setSpilledBytes(LongAdder spilledBytes) {
+    this.spilledBytes = spilledBytes;
+  }
+
+  /** The counter of the bytes spilled to disk, or null if they are not counted. */
+  public LongAdder getSpilledBytes() {
+    return spilledBytes;
+  }
 }
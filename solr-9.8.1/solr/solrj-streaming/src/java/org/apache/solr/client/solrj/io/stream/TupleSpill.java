@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.common.util.FastInputStream;
+import org.apache.solr.common.util.FastOutputStream;
+import org.apache.solr.common.util.Hash;
+import org.apache.solr.common.util.IOUtils;
+import org.apache.solr.common.util.JavaBinCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tuples written to temporary files, split into partitions by the hash of a key, for the streams
+ * that hash their tuples and have more of them than fit in their memory limit. The tuples of each
+ * partition are written one after the other in the javabin format, and the files are deleted when
+ * the spill is closed.
+ *
+ * <p>A partition that is still too big can be spilled again at the next level, which splits its
+ * keys differently, up to {@link #MAX_LEVEL}.
+ */
+class TupleSpill implements Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  static final int NUM_PARTITIONS = 16;
+
+  /** The highest level a partition is spilled at, past it the tuples are kept in memory. */
+  static final int MAX_LEVEL = 3;
+
+  /** Reads tuples one at a time, returning null or an EOF tuple at the end. */
+  interface TupleReader extends Closeable {
+    Tuple read() throws IOException;
+
+    @Override
+    default void close() throws IOException {}
+  }
+
+  private final String name;
+  private final int level;
+  private final Path[] files = new Path[NUM_PARTITIONS];
+  private final FastOutputStream[] outs = new FastOutputStream[NUM_PARTITIONS];
+  private final JavaBinCodec[] codecs = new JavaBinCodec[NUM_PARTITIONS];
+  private final long[] counts = new long[NUM_PARTITIONS];
+  private long bytes;
+
+  TupleSpill(String name, int level) {
+    this.name = name;
+    this.level = level;
+  }
+
+  int getLevel() {
+    return level;
+  }
+
+  /** The partition of a key, which depends on the level so that a partition can be split again. */
+  int partition(Object key) {
+    return Math.floorMod(Hash.fmix32(key.hashCode() + level * 0x9E3779B9), NUM_PARTITIONS);
+  }
+
+  void write(int partition, Tuple tuple) throws IOException {
+    JavaBinCodec codec = codecs[partition];
+    if (codec == null) {
+      files[partition] = Files.createTempFile("solr-" + name + "-", ".spill");
+      outs[partition] = FastOutputStream.wrap(Files.newOutputStream(files[partition]));
+      codec = codecs[partition] = new JavaBinCodec();
+      codec.init(outs[partition]);
+    }
+    codec.writeVal(tuple.getFields());
+    counts[partition]++;
+  }
+
+  /** Ends the partitions, after which they can be read but not written. */
+  void finish() throws IOException {
+    for (int i = 0; i < NUM_PARTITIONS; i++) {
+      if (codecs[i] != null) {
+        // a null value marks the end of the partition
+        codecs[i].writeVal(null);
+        outs[i].close();
+        bytes += Files.size(files[i]);
+        codecs[i] = null;
+      }
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("{} spilled {} bytes to disk at level {}", name, bytes, level);
+    }
+  }
+
+  /** The number of tuples written to a partition. */
+  long size(int partition) {
+    return counts[partition];
+  }
+
+  /** The size of the files written, once the spill is finished. */
+  long getBytes() {
+    return bytes;
+  }
+
+  TupleReader read(int partition) throws IOException {
+    if (files[partition] == null) {
+      return () -> null;
+    }
+    FastInputStream in = FastInputStream.wrap(Files.newInputStream(files[partition]));
+    JavaBinCodec codec = new JavaBinCodec();
+    return new TupleReader() {
+      boolean ended;
+
+      @SuppressWarnings("unchecked")
+      @Override
+      public Tuple read() throws IOException {
+        if (ended) {
+          return null;
+        }
+        Object fields = codec.readVal(in);
+        if (fields == null) {
+          ended = true;
+          in.close();
+          return null;
+        }
+        return new Tuple((Map<String, Object>) fields);
+      }
+
+      @Override
+      public void close() throws IOException {
+        in.close();
+      }
+    };
+  }
+
+  @Override
+  public void close() {
+    for (int i = 0; i < NUM_PARTITIONS; i++) {
+      IOUtils.closeQuietly(outs[i]);
+      if (files[i] != null) {
+        try {
+          Files.deleteIfExists(files[i]);
+        } catch (IOException e) {
+          log.warn("Could not delete spill file {}", files[i], e);
+        }
+        files[i] = null;
+      }
+    }
+  }
+
+  /**
+   * A rough estimate of the heap used by a tuple, to decide when the tuples held by a stream go
+   * past its memory limit.
+   */
+  static long ramBytesUsed(Tuple tuple) {
+    return ramBytesUsed(tuple.getFields());
+  }
+
+  static long ramBytesUsed(Object value) {
+    if (value == null) {
+      return 0;
+    } else if (value instanceof CharSequence) {
+      return 40 + 2L * ((CharSequence) value).length();
+    } else if (value instanceof Map) {
+      long size = 48;
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        size += 32 + ramBytesUsed(entry.getKey()) + ramBytesUsed(entry.getValue());
+      }
+      return size;
+    } else if (value instanceof Collection) {
+      long size = 40 + 8L * ((Collection<?>) value).size();
+      for (Object o : (Collection<?>) value) {
+        size += ramBytesUsed(o);
+      }
+      return size;
+    } else if (value instanceof Object[]) {
+      return ramBytesUsed(Arrays.asList((Object[]) value));
+    } else {
+      return 16;
+    }
+  }
+}
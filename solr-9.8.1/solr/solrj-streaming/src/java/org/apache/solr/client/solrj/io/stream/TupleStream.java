@@ -30,6 +30,7 @@ import java.util.stream.Collectors;
 import org.apache.solr.client.solrj.impl.CloudSolrClient;
 import org.apache.solr.client.solrj.io.SolrClientCache;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
 import org.apache.solr.client.solrj.io.comp.StreamComparator;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
@@ -66,6 +67,29 @@ public abstract class TupleStream implements Closeable, Serializable, MapWriter
 
   public abstract Tuple read() throws IOException;
 
+  /**
+   * Reads the next tuples of the stream as a batch of columns. The batch has about {@code size}
+   * rows, possibly fewer or more; the last batch of the stream holds the EOF tuple, and may have no
+   * rows. Calls to this method and to {@link #read()} can be mixed, they read from the same
+   * position of the stream.
+   *
+   * <p>This implementation reads the tuples one by one with {@link #read()}. Streams that can
+   * produce or process whole batches more efficiently override it.
+   *
+   * @param size the number of rows wanted
+   */
+  public TupleBatch readBatch(int size) throws IOException {
+    TupleBatch batch = new TupleBatch(size);
+    do {
+      Tuple tuple = read();
+      batch.add(tuple);
+      if (tuple.EOF) {
+        break;
+      }
+    } while (batch.size() < size);
+    return batch;
+  }
+
   public abstract StreamComparator getStreamSort();
 
   public abstract Explanation toExplanation(StreamFactory factory) throws IOException;
@@ -19,6 +19,7 @@ package org.apache.solr.client.solrj.io.stream.metrics;
 import java.io.IOException;
 import java.util.Locale;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionParameter;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
@@ -76,7 +77,20 @@ public class MaxMetric extends Metric {
 
   @Override
   public void update(Tuple tuple) {
-    Object o = tuple.get(columnName);
+    accumulate(tuple.get(columnName));
+  }
+
+  @Override
+  public void update(TupleBatch batch, int from, int to) {
+    Object[] column = batch.getColumn(columnName);
+    if (column != null) {
+      for (int row = from; row < to; row++) {
+        accumulate(column[row]);
+      }
+    }
+  }
+
+  private void accumulate(Object o) {
     if (o instanceof Double) {
       double d = (double) o;
       if (d > doubleMax) {
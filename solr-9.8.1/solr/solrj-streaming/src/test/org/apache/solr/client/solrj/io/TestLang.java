@@ -326,6 +326,7 @@ public class TestLang extends SolrTestCase {
     "repeat",
     "movingMAD",
     "hashRollup",
+    "incrementalRollup",
     "noop",
     "var",
     "stddev",
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.common.MapWriter;
+import org.apache.solr.common.params.StreamParams;
+import org.apache.solr.common.util.NamedList;
+import org.junit.Test;
+
+public class ColumnarTupleStreamParserTest extends SolrTestCase {
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    List<Tuple> tuples = new ArrayList<>();
+    for (int i = 0; i < 2500; i++) {
+      Tuple tuple = new Tuple();
+      tuple.put("id", "doc" + i);
+      tuple.put("l", (long) i - 1000);
+      tuple.put("i", i);
+      tuple.put("d", i / 3.0);
+      tuple.put("f", i / 4f);
+      tuple.put("b", i % 2 == 0);
+      tuple.put("s", "value" + (i % 7));
+      tuple.put("multi", Arrays.asList((long) i, (long) i + 1));
+      if (i % 10 == 0) {
+        tuple.put("sparse", "only" + i);
+      }
+      if (i >= 2000) {
+        // a field that only shows up in a later batch
+        tuple.put("late", (long) i);
+      }
+      tuples.add(tuple);
+    }
+
+    List<Map<String, Object>> read = roundTrip(tuples, 1000);
+    assertEquals(tuples.size(), read.size());
+    for (int i = 0; i < read.size(); i++) {
+      Map<String, Object> fields = read.get(i);
+      assertEquals("doc" + i, fields.get("id"));
+      assertEquals((long) i - 1000, fields.get("l"));
+      // like the javabin tuple parser, only json types are returned
+      assertEquals((long) i, fields.get("i"));
+      assertEquals(i / 3.0, fields.get("d"));
+      assertEquals((double) (i / 4f), fields.get("f"));
+      assertEquals(i % 2 == 0, fields.get("b"));
+      assertEquals("value" + (i % 7), fields.get("s"));
+      assertEquals(Arrays.asList((long) i, (long) i + 1), fields.get("multi"));
+      assertEquals(i % 10 == 0 ? "only" + i : null, fields.get("sparse"));
+      assertEquals(i >= 2000 ? (Object) (long) i : null, fields.get("late"));
+      assertEquals(i % 10 == 0 ? 9 : 8, fields.size() - (i >= 2000 ? 1 : 0));
+    }
+  }
+
+  @Test
+  public void testMixedTypes() throws IOException {
+    Date date = new Date();
+    List<Tuple> tuples = new ArrayList<>();
+    tuples.add(new Tuple("v", 1L, "dt", date));
+    tuples.add(new Tuple("v", "one"));
+    tuples.add(new Tuple("v", 1.5d, "dt", date));
+    Map<String, Object> nested = new LinkedHashMap<>();
+    nested.put("a", 1);
+    tuples.add(new Tuple("v", nested));
+
+    List<Map<String, Object>> read = roundTrip(tuples, ColumnarTupleWriter.DEFAULT_BATCH_SIZE);
+    assertEquals(4, read.size());
+    assertEquals(1L, read.get(0).get("v"));
+    assertEquals("one", read.get(1).get("v"));
+    assertEquals(1.5d, read.get(2).get("v"));
+    assertEquals(Map.of("a", 1L), read.get(3).get("v"));
+    // dates are read as strings, like with the other tuple parsers
+    assertEquals(date.toInstant().toString(), read.get(0).get("dt"));
+    assertEquals(Instant.parse((String) read.get(2).get("dt")), date.toInstant());
+    assertNull(read.get(1).get("dt"));
+  }
+
+  @Test
+  public void testResponseStructure() throws IOException {
+    // only the docs are written, wherever they are in the response
+    NamedList<Object> rsp = new NamedList<>();
+    rsp.add("responseHeader", Map.of("status", 0));
+    rsp.add(
+        "response",
+        (MapWriter)
+            ew ->
+                ew.put("numFound", 2L)
+                    .put(StreamParams.DOCS, List.of(Map.of("id", "1"), Map.of("id", "2"))));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ColumnarTupleWriter writer = new ColumnarTupleWriter(out)) {
+      writer.writeMap(rsp);
+    }
+    List<Map<String, Object>> read = parse(out.toByteArray());
+    assertEquals(List.of(Map.of("id", "1"), Map.of("id", "2")), read);
+  }
+
+  @Test
+  public void testError() throws IOException {
+    NamedList<Object> error = new NamedList<>();
+    error.add("msg", "boom");
+    NamedList<Object> rsp = new NamedList<>();
+    rsp.add("error", error);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ColumnarTupleWriter writer = new ColumnarTupleWriter(out)) {
+      writer.writeMap(rsp);
+    }
+    List<Map<String, Object>> read = parse(out.toByteArray());
+    assertEquals(List.of(Map.of(StreamParams.EXCEPTION, "boom")), read);
+  }
+
+  @Test
+  public void testEmptyAndTruncated() throws IOException {
+    assertTrue(roundTrip(List.of(), 10).isEmpty());
+
+    List<Tuple> tuples = List.of(new Tuple("id", "1"), new Tuple("id", "2"));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ColumnarTupleWriter writer = new ColumnarTupleWriter(out)) {
+      writer.writeIterator(iw -> tuples.forEach(iw::addNoEx));
+    }
+    byte[] bytes = out.toByteArray();
+    byte[] truncated = Arrays.copyOf(bytes, bytes.length - 1);
+    expectThrows(IOException.class, () -> parse(truncated));
+    expectThrows(IOException.class, () -> parse(new byte[] {'{', '"', '}'}));
+  }
+
+  private static List<Map<String, Object>> roundTrip(List<Tuple> tuples, int batchSize)
+      throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ColumnarTupleWriter writer = new ColumnarTupleWriter(out, batchSize)) {
+      writer.writeMap(ew -> ew.put(StreamParams.DOCS, tuples));
+    }
+    return parse(out.toByteArray());
+  }
+
+  private static List<Map<String, Object>> parse(byte[] bytes) throws IOException {
+    List<Map<String, Object>> read = new ArrayList<>();
+    try (ColumnarTupleStreamParser parser =
+        new ColumnarTupleStreamParser(new ByteArrayInputStream(bytes))) {
+      Map<String, Object> fields;
+      while ((fields = parser.next()) != null) {
+        read.add(fields);
+      }
+    }
+    return read;
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.comp.ComparatorOrder;
+import org.apache.solr.client.solrj.io.comp.FieldComparator;
+import org.apache.solr.client.solrj.io.comp.StreamComparator;
+import org.apache.solr.client.solrj.io.stream.expr.Expressible;
+import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
+import org.apache.solr.client.solrj.io.stream.metrics.Bucket;
+import org.apache.solr.client.solrj.io.stream.metrics.CountMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.Metric;
+import org.apache.solr.client.solrj.io.stream.metrics.SumMetric;
+import org.junit.Test;
+
+/** Checks that the hash streams return the same tuples when they spill them to disk. */
+public class HashStreamSpillTest extends SolrTestCase {
+
+  private static List<Tuple> tuples(int n, int keys, String prefix) {
+    List<Tuple> tuples = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      Tuple tuple = new Tuple();
+      tuple.put("id", prefix + i);
+      if (i % 11 != 0) {
+        tuple.put("key", (long) (i % keys));
+      }
+      tuple.put(prefix + "_s", "value of " + prefix + i);
+      tuple.put(prefix + "_i", (long) i);
+      tuples.add(tuple);
+    }
+    return tuples;
+  }
+
+  @Test
+  public void testHashJoin() throws IOException {
+    List<Tuple> full = tuples(20000, 30000, "full");
+    List<Tuple> hashed = tuples(60000, 30000, "hashed");
+    List<String> on = List.of("key");
+
+    List<Tuple> expected = read(new HashJoinStream(stream(full), stream(hashed), on));
+    StreamComparator sort = new FieldComparator("id", ComparatorOrder.ASCENDING);
+    HashJoinStream join = new HashJoinStream(sortedStream(full, sort), stream(hashed), on, 1);
+    assertEquals(sort, join.getStreamSort());
+    StreamContext context = new StreamContext();
+    context.setSpilledBytes(new LongAdder());
+    List<Tuple> spilled = read(join, context);
+    assertTrue(join.getSpilledBytes() > 0);
+    assertEquals(join.getSpilledBytes(), context.getSpilledBytes().sum());
+    assertSameTuples(expected, spilled);
+    assertNull(join.getStreamSort());
+
+    expected = read(new OuterHashJoinStream(stream(full), stream(hashed), on));
+    join = new OuterHashJoinStream(stream(full), stream(hashed), on, 1);
+    spilled = read(join);
+    assertTrue(join.getSpilledBytes() > 0);
+    assertSameTuples(expected, spilled);
+  }
+
+  @Test
+  public void testHashJoinUnderLimit() throws IOException {
+    List<Tuple> full = tuples(1000, 500, "full");
+    List<Tuple> hashed = tuples(1000, 500, "hashed");
+    StreamComparator sort = new FieldComparator("id", ComparatorOrder.ASCENDING);
+    HashJoinStream join =
+        new HashJoinStream(sortedStream(full, sort), stream(hashed), List.of("key"), 100);
+    List<Tuple> tuples = read(join);
+    assertEquals(0, join.getSpilledBytes());
+    // nothing was spilled, so the tuples are still in the order of the full stream
+    assertEquals(sort, join.getStreamSort());
+    assertSameTuples(
+        read(new HashJoinStream(stream(full), stream(hashed), List.of("key"))), tuples);
+  }
+
+  @Test
+  public void testHashRollup() throws IOException {
+    List<Tuple> tuples = tuples(100000, 40000, "doc");
+    Bucket[] buckets = {new Bucket("key")};
+    Metric[] metrics = {new CountMetric(), new SumMetric("doc_i")};
+
+    List<Tuple> expected = read(new HashRollupStream(stream(tuples), buckets, metrics));
+    HashRollupStream rollup = new HashRollupStream(stream(tuples), buckets, metrics, 1);
+    StreamContext context = new StreamContext();
+    context.setSpilledBytes(new LongAdder());
+    List<Tuple> spilled = read(rollup, context);
+    assertTrue(rollup.getSpilledBytes() > 0);
+    assertEquals(rollup.getSpilledBytes(), context.getSpilledBytes().sum());
+    // plus the bucket of the tuples without a key
+    assertEquals(40001, spilled.size());
+    assertSameTuples(expected, spilled);
+  }
+
+  @Test
+  public void testExpressions() throws IOException {
+    StreamFactory factory =
+        new StreamFactory()
+            .withCollectionZkHost("collection1", "testhost:1234")
+            .withFunctionName("search", CloudSolrStream.class)
+            .withFunctionName("hashJoin", HashJoinStream.class)
+            .withFunctionName("outerHashJoin", OuterHashJoinStream.class)
+            .withFunctionName("hashRollup", HashRollupStream.class)
+            .withFunctionName("count", CountMetric.class);
+    String search = "search(collection1, q=*:*, fl=\"id,key\", sort=\"id asc\")";
+
+    for (String expr :
+        new String[] {
+          "hashJoin(" + search + ", hashed=" + search + ", on=key, maxRamMB=64)",
+          "outerHashJoin(" + search + ", hashed=" + search + ", on=key, maxRamMB=64)",
+          "hashRollup(" + search + ", over=key, count(*), maxRamMB=64)"
+        }) {
+      Expressible stream = (Expressible) factory.constructStream(expr);
+      String expressionString = stream.toExpression(factory).toString();
+      assertTrue(expressionString, expressionString.contains("maxRamMB=64"));
+    }
+
+    expectThrows(
+        IOException.class,
+        () -> factory.constructStream("hashRollup(" + search + ", over=key, maxRamMB=none)"));
+    expectThrows(
+        IOException.class,
+        () ->
+            factory.constructStream(
+                "hashJoin(" + search + ", hashed=" + search + ", on=key, maxRamMB=0)"));
+  }
+
+  private static TupleStream stream(List<Tuple> tuples) {
+    return new TuplesStream(tuples);
+  }
+
+  private static TupleStream sortedStream(List<Tuple> tuples, StreamComparator sort) {
+    return new TuplesStream(tuples) {
+      @Override
+      public StreamComparator getStreamSort() {
+        return sort;
+      }
+    };
+  }
+
+  private static List<Tuple> read(TupleStream stream) throws IOException {
+    return read(stream, new StreamContext());
+  }
+
+  private static List<Tuple> read(TupleStream stream, StreamContext context) throws IOException {
+    List<Tuple> tuples = new ArrayList<>();
+    stream.setStreamContext(context);
+    stream.open();
+    try {
+      for (Tuple tuple = stream.read(); !tuple.EOF; tuple = stream.read()) {
+        tuples.add(tuple);
+      }
+    } finally {
+      stream.close();
+    }
+    return tuples;
+  }
+
+  private static void assertSameTuples(List<Tuple> expected, List<Tuple> actual) {
+    assertEquals(expected.size(), actual.size());
+    assertEquals(sorted(expected), sorted(actual));
+  }
+
+  private static List<Map<String, Object>> sorted(List<Tuple> tuples) {
+    List<Map<String, Object>> fields = new ArrayList<>();
+    for (Tuple tuple : tuples) {
+      fields.add(new TreeMap<>(tuple.getFields()));
+    }
+    fields.sort(Comparator.comparing(Object::toString));
+    return fields;
+  }
+}
@@ -47,6 +47,7 @@ import org.apache.solr.client.solrj.io.eval.RawValueEvaluator;
 import org.apache.solr.client.solrj.io.ops.ConcatOperation;
 import org.apache.solr.client.solrj.io.ops.GroupOperation;
 import org.apache.solr.client.solrj.io.ops.ReplaceOperation;
+import org.apache.solr.client.solrj.io.stream.expr.Expressible;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionParser;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
@@ -1478,6 +1479,102 @@ public class StreamDecoratorTest extends SolrCloudTestCase {
     }
   }
 
+  @Test
+  public void testRollupStreamPushDown() throws Exception {
+
+    UpdateRequest updateRequest = new UpdateRequest();
+    for (int i = 0; i < 100; i++) {
+      updateRequest.add(id, String.valueOf(i), "a_s", "hello" + (i % 7), "a_i", String.valueOf(i));
+    }
+    updateRequest.commit(cluster.getSolrClient(), COLLECTIONORALIAS);
+
+    StreamFactory factory =
+        new StreamFactory()
+            .withCollectionZkHost(COLLECTIONORALIAS, cluster.getZkServer().getZkAddress())
+            .withFunctionName("search", CloudSolrStream.class)
+            .withFunctionName("rollup", RollupStream.class)
+            .withFunctionName("sum", SumMetric.class)
+            .withFunctionName("min", MinMetric.class)
+            .withFunctionName("max", MaxMetric.class)
+            .withFunctionName("avg", MeanMetric.class)
+            .withFunctionName("count", CountMetric.class);
+
+    StreamContext streamContext = new StreamContext();
+    SolrClientCache solrClientCache = new SolrClientCache();
+    streamContext.setSolrClientCache(solrClientCache);
+    // the shard expressions are written with the factory of the context
+    streamContext.setStreamFactory(factory);
+    String expr =
+        "rollup(search("
+            + COLLECTIONORALIAS
+            + ", q=*:*, fl=\"a_s,a_i\", sort=\"a_s desc\", qt=\"/export\"), over=\"a_s\", "
+            + "sum(a_i), min(a_i), max(a_i), avg(a_i), count(*)%s)";
+    try {
+      TupleStream stream = factory.constructStream(String.format(Locale.ROOT, expr, ""));
+      stream.setStreamContext(streamContext);
+      List<Tuple> expected = getRollupTuples(stream, false);
+      assertEquals(7, expected.size());
+
+      stream = factory.constructStream(String.format(Locale.ROOT, expr, ", pushDown=true"));
+      assertTrue(
+          ((Expressible) stream).toExpression(factory).toString().contains("pushDown=true"));
+      stream.setStreamContext(streamContext);
+      List<Tuple> tuples = getRollupTuples(stream, true);
+
+      assertEquals(expected.size(), tuples.size());
+      for (int i = 0; i < tuples.size(); i++) {
+        Tuple tuple = tuples.get(i);
+        assertEquals(expected.get(i).getString("a_s"), tuple.getString("a_s"));
+        for (String metric :
+            new String[] {"sum(a_i)", "min(a_i)", "max(a_i)", "avg(a_i)", "count(*)"}) {
+          assertEquals(
+              metric, expected.get(i).getDouble(metric), tuple.getDouble(metric), 0.0001);
+        }
+      }
+    } finally {
+      solrClientCache.close();
+    }
+  }
+
+  /**
+   * Reads the tuples of a rollup, checking whether it reads the rollups of the shards or the
+   * tuples of the search.
+   */
+  private List<Tuple> getRollupTuples(TupleStream rollup, boolean pushedDown) throws IOException {
+    List<Tuple> tuples = new ArrayList<>();
+    try (rollup) {
+      rollup.open();
+      ParallelListStream shardRollups = findParallelListStream(rollup);
+      if (pushedDown) {
+        assertNotNull("the rollup was not pushed down to the shards", shardRollups);
+        assertFalse(shardRollups.children().isEmpty());
+        for (TupleStream shardRollup : shardRollups.children()) {
+          assertTrue(shardRollup instanceof SolrStream);
+        }
+      } else {
+        assertNull(shardRollups);
+        assertTrue(rollup.children().get(0).children().get(0) instanceof CloudSolrStream);
+      }
+      for (Tuple t = rollup.read(); !t.EOF; t = rollup.read()) {
+        tuples.add(t);
+      }
+    }
+    return tuples;
+  }
+
+  private static ParallelListStream findParallelListStream(TupleStream stream) {
+    if (stream instanceof ParallelListStream) {
+      return (ParallelListStream) stream;
+    }
+    for (TupleStream child : stream.children()) {
+      ParallelListStream found = findParallelListStream(child);
+      if (found != null) {
+        return found;
+      }
+    }
+    return null;
+  }
+
   @Test
   public void testHashRollupStream() throws Exception {
 
@@ -3223,6 +3320,117 @@ public class StreamDecoratorTest extends SolrCloudTestCase {
     }
   }
 
+  @Test
+  public void testIncrementalRollupStream() throws Exception {
+
+    CollectionAdminRequest.createCollection("rollupCollection", "conf", 2, 1)
+        .setPerReplicaState(SolrCloudTestCase.USE_PER_REPLICA_STATE)
+        .process(cluster.getSolrClient());
+    cluster.waitForActiveCollection("rollupCollection", 2, 2);
+
+    new UpdateRequest()
+        .add(id, "0", "a_s", "hello0", "a_i", "0")
+        .add(id, "2", "a_s", "hello0", "a_i", "2")
+        .add(id, "3", "a_s", "hello3", "a_i", "3")
+        .add(id, "4", "a_s", "hello4", "a_i", "4")
+        .add(id, "1", "a_s", "hello0", "a_i", "1")
+        .add(id, "5", "a_s", "hello3", "a_i", "10")
+        .add(id, "6", "a_s", "hello4", "a_i", "11")
+        .add(id, "7", "a_s", "hello3", "a_i", "12")
+        .add(id, "8", "a_s", "hello3", "a_i", "13")
+        .add(id, "9", "a_s", "hello0", "a_i", "14")
+        .commit(cluster.getSolrClient(), COLLECTIONORALIAS);
+
+    StreamContext streamContext = new StreamContext();
+    SolrClientCache solrClientCache = new SolrClientCache();
+    streamContext.setSolrClientCache(solrClientCache);
+
+    StreamFactory factory =
+        new StreamFactory()
+            .withCollectionZkHost(COLLECTIONORALIAS, cluster.getZkServer().getZkAddress())
+            .withCollectionZkHost("rollupCollection", cluster.getZkServer().getZkAddress())
+            .withFunctionName("search", CloudSolrStream.class)
+            .withFunctionName("update", UpdateStream.class)
+            .withFunctionName("select", SelectStream.class)
+            .withFunctionName("hashRollup", HashRollupStream.class)
+            .withFunctionName("incrementalRollup", IncrementalRollupStream.class)
+            .withFunctionName("sum", SumMetric.class)
+            .withFunctionName("min", MinMetric.class)
+            .withFunctionName("max", MaxMetric.class)
+            .withFunctionName("avg", MeanMetric.class)
+            .withFunctionName("count", CountMetric.class);
+
+    // the average can't be merged, so it is not written
+    String rollup =
+        "update(rollupCollection, batchSize=5, pruneVersionField=false, "
+            + "incrementalRollup(rollupCollection, select(hashRollup(search("
+            + COLLECTIONORALIAS
+            + ", q=\"%s\", fl=\"a_s,a_i\", sort=\"a_s asc\"), over=\"a_s\", "
+            + "sum(a_i), count(*), min(a_i), max(a_i), avg(a_i)), "
+            + "a_s, sum(a_i) as sum_l, count(*) as count_l, min(a_i) as min_l, max(a_i) as max_l, "
+            + "avg(a_i) as avg_d), "
+            + "over=\"a_s\", sum=\"sum_l,count_l\", min=\"min_l\", max=\"max_l\"))";
+
+    try {
+      // the second run merges into the uncommitted documents of the first one
+      for (int run = 0; run < 2; run++) {
+        TupleStream stream = factory.constructStream(String.format(Locale.ROOT, rollup, "*:*"));
+        stream.setStreamContext(streamContext);
+        List<Tuple> tuples = getTuples(stream);
+        assertEquals(1, tuples.size());
+        assertEquals(3L, (long) tuples.get(0).getLong("totalIndexed"));
+      }
+
+      new UpdateRequest()
+          .add(id, "10", "a_s", "hello0", "a_i", "-1")
+          .commit(cluster.getSolrClient(), COLLECTIONORALIAS);
+      TupleStream stream = factory.constructStream(String.format(Locale.ROOT, rollup, "id:10"));
+      stream.setStreamContext(streamContext);
+      try (stream) {
+        stream.open();
+        assertEquals(1L, (long) stream.read().getLong("totalIndexed"));
+        assertTrue(stream.read().EOF);
+        // the stream keeps returning EOF
+        assertTrue(stream.read().EOF);
+      }
+      cluster.getSolrClient().commit("rollupCollection");
+
+      stream =
+          factory.constructStream(
+              "search(rollupCollection, q=*:*, fl=\"id,a_s,sum_l,count_l,min_l,max_l,avg_d\", "
+                  + "sort=\"id asc\")");
+      stream.setStreamContext(streamContext);
+      List<Tuple> tuples = getTuples(stream);
+      assertEquals(3, tuples.size());
+
+      Tuple tuple = tuples.get(0);
+      assertEquals("hello0", tuple.getString("id"));
+      assertEquals("hello0", tuple.getString("a_s"));
+      assertEquals(33L, (long) tuple.getLong("sum_l"));
+      assertEquals(9L, (long) tuple.getLong("count_l"));
+      assertEquals(-1L, (long) tuple.getLong("min_l"));
+      assertEquals(14L, (long) tuple.getLong("max_l"));
+      assertNull(tuple.get("avg_d"));
+
+      tuple = tuples.get(1);
+      assertEquals("hello3", tuple.getString("id"));
+      assertEquals(76L, (long) tuple.getLong("sum_l"));
+      assertEquals(8L, (long) tuple.getLong("count_l"));
+      assertEquals(3L, (long) tuple.getLong("min_l"));
+      assertEquals(13L, (long) tuple.getLong("max_l"));
+
+      tuple = tuples.get(2);
+      assertEquals("hello4", tuple.getString("id"));
+      assertEquals(30L, (long) tuple.getLong("sum_l"));
+      assertEquals(4L, (long) tuple.getLong("count_l"));
+      assertEquals(4L, (long) tuple.getLong("min_l"));
+      assertEquals(11L, (long) tuple.getLong("max_l"));
+    } finally {
+      CollectionAdminRequest.deleteCollection("rollupCollection").process(cluster.getSolrClient());
+      solrClientCache.close();
+    }
+  }
+
   @Test
   public void testParallelUpdateStream() throws Exception {
 
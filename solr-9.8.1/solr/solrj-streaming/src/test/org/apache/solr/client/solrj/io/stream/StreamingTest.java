@@ -23,6 +23,7 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
@@ -2816,6 +2817,72 @@ public class StreamingTest extends SolrCloudTestCase {
     }
   }
 
+  @Test
+  public void testColumnarWireFormat() throws Exception {
+    UpdateRequest update = new UpdateRequest();
+    for (int i = 0; i < 20; i++) {
+      update.add(
+          id,
+          Integer.toString(i),
+          "a_i",
+          Integer.toString(i),
+          "a_f",
+          Float.toString(i / 4f),
+          "a_s",
+          "hello" + (i % 3),
+          "b_sing",
+          Boolean.toString(i % 2 == 0),
+          "dt_sing",
+          "1980-01-02T11:11:33.89Z",
+          "l_multi",
+          Long.toString(i),
+          "l_multi",
+          Long.toString(i * 2L));
+      if (i % 5 != 0) {
+        // leave gaps, so that the column is not present for every row
+        update.add(id, Integer.toString(100 + i), "a_i", Integer.toString(100 + i), "a_s", "gap");
+      }
+    }
+    update.commit(cluster.getSolrClient(), COLLECTIONORALIAS);
+
+    // the columnar format should read back the same tuples as javabin, for both handlers
+    for (String which : new String[] {"/export", "/select"}) {
+      StreamContext streamContext = new StreamContext();
+      SolrClientCache solrClientCache = new SolrClientCache();
+      streamContext.setSolrClientCache(solrClientCache);
+      try {
+        List<List<Map<String, Object>>> results = new ArrayList<>();
+        for (String wt : new String[] {"javabin", ColumnarTupleWriter.WT}) {
+          SolrParams sParams =
+              params(
+                  "q",
+                  "*:*",
+                  "qt",
+                  which,
+                  "fl",
+                  "id,a_i,a_f,a_s,b_sing,dt_sing,l_multi",
+                  "sort",
+                  "a_i asc",
+                  "rows",
+                  "100",
+                  "wt",
+                  wt);
+          CloudSolrStream stream = new CloudSolrStream(zkHost, COLLECTIONORALIAS, sParams);
+          stream.setStreamContext(streamContext);
+          List<Map<String, Object>> fields = new ArrayList<>();
+          for (Tuple tuple : getTuples(stream)) {
+            fields.add(new HashMap<>(tuple.getFields()));
+          }
+          results.add(fields);
+        }
+        assertEquals(36, results.get(1).size());
+        assertEquals(which, results.get(0), results.get(1));
+      } finally {
+        solrClientCache.close();
+      }
+    }
+  }
+
   @Test
   public void testTupleStreamGetShardsPreference() throws Exception {
     StreamContext streamContext = new StreamContext();
@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
+import org.apache.solr.client.solrj.io.comp.ComparatorOrder;
+import org.apache.solr.client.solrj.io.comp.FieldComparator;
+import org.apache.solr.client.solrj.io.comp.StreamComparator;
+import org.apache.solr.client.solrj.io.eq.FieldEqualitor;
+import org.apache.solr.client.solrj.io.ops.GroupOperation;
+import org.apache.solr.client.solrj.io.stream.metrics.Bucket;
+import org.apache.solr.client.solrj.io.stream.metrics.CountMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.MaxMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.MeanMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.Metric;
+import org.apache.solr.client.solrj.io.stream.metrics.MinMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.SumMetric;
+import org.junit.Test;
+
+/** Checks that reading streams in batches returns the same tuples as reading them one by one. */
+public class TupleBatchStreamTest extends SolrTestCase {
+
+  private static List<Tuple> docs(int n) {
+    List<Tuple> docs = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      Tuple tuple = new Tuple();
+      tuple.put("id", "doc" + i);
+      tuple.put("bucket", (long) (i / 7));
+      tuple.put("a_i", (long) i);
+      if (i % 3 != 0) {
+        tuple.put("a_f", i / 2.0);
+      }
+      docs.add(tuple);
+    }
+    return docs;
+  }
+
+  @Test
+  public void testDefaultBatches() throws IOException {
+    List<Tuple> docs = docs(2500);
+    TupleStream stream = new TuplesStream(docs);
+    stream.open();
+    List<Integer> sizes = new ArrayList<>();
+    List<Tuple> read = new ArrayList<>();
+    TupleBatch batch;
+    do {
+      batch = stream.readBatch(1000);
+      sizes.add(batch.size());
+      for (int row = 0; row < batch.size(); row++) {
+        read.add(batch.getTuple(row));
+      }
+    } while (!batch.isEOF());
+    stream.close();
+
+    assertEquals(List.of(1000, 1000, 500), sizes);
+    assertEquals(fields(docs), fields(read));
+    assertNull(batch.get("a_f", 0));
+    assertEquals(1.0, batch.get("a_f", 2));
+  }
+
+  @Test
+  public void testRollup() throws IOException {
+    assertSameTuples(
+        () ->
+            new RollupStream(
+                new TuplesStream(docs(1000)),
+                new Bucket[] {new Bucket("bucket")},
+                new Metric[] {
+                  new CountMetric(),
+                  new SumMetric("a_i"),
+                  new MinMetric("a_i"),
+                  new MaxMetric("a_f"),
+                  new MeanMetric("a_f"),
+                  new CountMetric("a_f")
+                }),
+        143);
+  }
+
+  @Test
+  public void testRollupReadsOneTupleAtATime() throws IOException {
+    int[] reads = new int[1];
+    TupleStream source =
+        new TuplesStream(docs(1000)) {
+          @Override
+          public Tuple read() {
+            reads[0]++;
+            return super.read();
+          }
+        };
+    RollupStream rollup =
+        new RollupStream(
+            source, new Bucket[] {new Bucket("bucket")}, new Metric[] {new CountMetric()});
+    rollup.setStreamContext(new StreamContext());
+    rollup.open();
+    // the first bucket is returned once the first tuple of the next one is read, not a whole batch
+    assertEquals(7L, (long) rollup.read().getLong("count(*)"));
+    assertEquals(8, reads[0]);
+    rollup.close();
+  }
+
+  @Test
+  public void testSelect() throws IOException {
+    assertSameTuples(
+        () -> new SelectStream(new TuplesStream(docs(100)), Map.of("id", "id", "a_i", "value")),
+        100);
+    assertSameTuples(
+        () -> new SelectStream(new TuplesStream(docs(100)), List.of("id", "a_*")), 100);
+  }
+
+  @Test
+  public void testHashJoin() throws IOException {
+    List<Tuple> hashed = new ArrayList<>();
+    for (long bucket = 0; bucket < 10; bucket += 2) {
+      hashed.add(new Tuple("bucket", bucket, "name", "bucket" + bucket));
+      hashed.add(new Tuple("bucket", bucket, "name", "again" + bucket));
+    }
+    assertSameTuples(
+        () ->
+            new HashJoinStream(
+                new TuplesStream(docs(100)), new TuplesStream(hashed), List.of("bucket")),
+        70);
+    assertSameTuples(
+        () ->
+            new OuterHashJoinStream(
+                new TuplesStream(docs(100)), new TuplesStream(hashed), List.of("bucket")),
+        135);
+  }
+
+  @Test
+  public void testReducer() throws IOException {
+    StreamComparator sort = new FieldComparator("a_i", ComparatorOrder.DESCENDING);
+    assertSameTuples(
+        () ->
+            new ReducerStream(
+                new TuplesStream(docs(100)),
+                new FieldEqualitor("bucket"),
+                new GroupOperation(sort, 3)),
+        15);
+  }
+
+  private interface StreamSupplier {
+    TupleStream get() throws IOException;
+  }
+
+  private static void assertSameTuples(StreamSupplier supplier, int expectedSize)
+      throws IOException {
+    List<Tuple> rows = new ArrayList<>();
+    TupleStream stream = supplier.get();
+    stream.setStreamContext(new StreamContext());
+    stream.open();
+    for (Tuple tuple = stream.read(); !tuple.EOF; tuple = stream.read()) {
+      rows.add(tuple);
+    }
+    stream.close();
+    assertEquals(expectedSize, rows.size());
+
+    for (int size : new int[] {1, 3, 64, TupleBatch.DEFAULT_SIZE}) {
+      stream = supplier.get();
+      stream.setStreamContext(new StreamContext());
+      stream.open();
+      List<Tuple> batches = new ArrayList<>();
+      TupleBatch batch;
+      do {
+        batch = stream.readBatch(size);
+        for (int row = 0; row < batch.size(); row++) {
+          batches.add(batch.getTuple(row));
+        }
+      } while (!batch.isEOF());
+      stream.close();
+      assertEquals("batch size " + size, fields(rows), fields(batches));
+
+      // alternate between the two
+      stream = supplier.get();
+      stream.setStreamContext(new StreamContext());
+      stream.open();
+      List<Tuple> mixed = new ArrayList<>();
+      while (true) {
+        Tuple tuple = stream.read();
+        if (tuple.EOF) {
+          break;
+        }
+        mixed.add(tuple);
+        batch = stream.readBatch(size);
+        for (int row = 0; row < batch.size(); row++) {
+          mixed.add(batch.getTuple(row));
+        }
+        if (batch.isEOF()) {
+          break;
+        }
+      }
+      stream.close();
+      assertEquals("mixed, batch size " + size, fields(rows), fields(mixed));
+    }
+  }
+
+  private static List<Map<String, Object>> fields(List<Tuple> tuples) {
+    List<Map<String, Object>> fields = new ArrayList<>();
+    for (Tuple tuple : tuples) {
+      fields.add(tuple.getFields());
+    }
+    return fields;
+  }
+}
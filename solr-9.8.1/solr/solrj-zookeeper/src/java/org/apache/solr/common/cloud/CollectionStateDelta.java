@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.common.cloud;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.solr.common.util.Utils;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * The change made by the last write of the state.json of a collection, kept in a {@code
+ * state-delta.json} node next to it, so that the nodes watching the collection can apply it to
+ * the state they have instead of reading and parsing the whole state.json again.
+ *
+ * <p>A delta holds the version of the state.json it applies to and the version it produces, the
+ * properties of the collection, the shards that changed, in full, and the names of the shards that
+ * were removed. It is written in the same transaction as the state.json, so a node whose state is
+ * at the version the delta applies to, and which sees the state.json at the version it produces,
+ * can apply it. Any other node, for instance one that missed an update, reads the state.json.
+ */
+public class CollectionStateDelta {
+
+  public static final String STATE_DELTA_JSON = "state-delta.json";
+
+  /** Whether state.json writes also write their delta, true by default. */
+  public static final String ENABLED_PROP = "solr.cloud.collectionStateDeltas";
+
+  static final String FROM_VERSION = "fromVersion";
+  static final String TO_VERSION = "toVersion";
+  static final String PROPERTIES = "properties";
+  static final String SHARDS = "shards";
+  static final String REMOVED_SHARDS = "removedShards";
+
+  // the delta written when the node is created, which never applies
+  private static final byte[] EMPTY = Utils.toJSON(Map.of(FROM_VERSION, -1, TO_VERSION, -1));
+
+  private CollectionStateDelta() {}
+
+  public static String getDeltaPath(String collection) {
+    return DocCollection.getCollectionPathRoot(collection) + "/" + STATE_DELTA_JSON;
+  }
+
+  /**
+   * Returns the delta from a collection, as written to state.json, to the next version of it. A
+   * shard is considered changed unless it is the same {@link Slice} instance in both, which is the
+   * case for the shards left alone by the cluster state mutators.
+   */
+  public static byte[] diff(DocCollection from, DocCollection to) {
+    Map<String, Object> changed = new LinkedHashMap<>();
+    for (Map.Entry<String, Slice> entry : to.getSlicesMap().entrySet()) {
+      if (from.getSlice(entry.getKey()) != entry.getValue()) {
+        changed.put(entry.getKey(), entry.getValue());
+      }
+    }
+    List<String> removed = new ArrayList<>();
+    for (String shard : from.getSlicesMap().keySet()) {
+      if (to.getSlice(shard) == null) {
+        removed.add(shard);
+      }
+    }
+    Map<String, Object> delta = new LinkedHashMap<>();
+    delta.put(FROM_VERSION, from.getZNodeVersion());
+    delta.put(TO_VERSION, from.getZNodeVersion() + 1);
+    delta.put(PROPERTIES, to.getProperties());
+    delta.put(SHARDS, changed);
+    delta.put(REMOVED_SHARDS, removed);
+    return Utils.toJSON(delta);
+  }
+
+  /**
+   * Writes the state.json of a collection and its delta in one transaction.
+   *
+   * @return the stat of the state.json after the write
+   * @throws KeeperException.BadVersionException if the state.json is not at the expected version
+   */
+  public static Stat write(
+      SolrZkClient zkClient, String collection, byte[] state, int expectedVersion, byte[] delta)
+      throws KeeperException, InterruptedException {
+    List<Op> ops =
+        List.of(
+            Op.setData(DocCollection.getCollectionPath(collection), state, expectedVersion),
+            Op.setData(getDeltaPath(collection), delta, -1));
+    List<OpResult> results = zkClient.multi(ops, true);
+    return ((OpResult.SetDataResult) results.get(0)).getStat();
+  }
+
+  /** Creates the delta node of a collection if it does not exist yet. */
+  public static void ensureExists(SolrZkClient zkClient, String collection)
+      throws KeeperException, InterruptedException {
+    try {
+      zkClient.create(getDeltaPath(collection), EMPTY, CreateMode.PERSISTENT, true);
+    } catch (KeeperException.NodeExistsException e) {
+      // already created
+    }
+  }
+
+  /**
+   * Applies a delta to the state of a collection.
+   *
+   * @param collection the state of the collection the node has
+   * @param data the delta
+   * @param version the version of the state.json, which the delta must produce
+   * @param prsSupplier the per-replica states, for the collections that have them
+   * @return the new state of the collection, or null if the delta does not apply to it
+   */
+  @SuppressWarnings("unchecked")
+  public static DocCollection apply(
+      DocCollection collection, byte[] data, int version, DocCollection.PrsSupplier prsSupplier) {
+    Map<String, Object> delta = (Map<String, Object>) Utils.fromJSON(data);
+    if (!(delta.get(FROM_VERSION) instanceof Number)
+        || !(delta.get(TO_VERSION) instanceof Number)
+        || ((Number) delta.get(FROM_VERSION)).intValue() != collection.getZNodeVersion()
+        || ((Number) delta.get(TO_VERSION)).intValue() != version) {
+      return null;
+    }
+    Map<String, Slice> slices = new LinkedHashMap<>(collection.getSlicesMap());
+    for (Object shard : (List<Object>) delta.get(REMOVED_SHARDS)) {
+      slices.remove((String) shard);
+    }
+    slices.putAll(
+        Slice.loadAllFromMap(collection.getName(), (Map<String, Object>) delta.get(SHARDS)));
+    Map<String, Object> props = new HashMap<>((Map<String, Object>) delta.get(PROPERTIES));
+    return DocCollection.create(
+        collection.getName(),
+        slices,
+        props,
+        collection.getRouter(),
+        version,
+        collection.getCreationTime(),
+        prsSupplier);
+  }
+}
@@ -23,8 +23,12 @@ import java.lang.invoke.MethodHandles;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -40,6 +44,7 @@ import org.apache.solr.common.SolrException;
 import org.apache.solr.common.annotation.JsonProperty;
 import org.apache.solr.common.cloud.ConnectionManager.IsClosed;
 import org.apache.solr.common.util.Compressor;
+import org.apache.solr.common.util.EnvUtils;
 import org.apache.solr.common.util.ExecutorUtil;
 import org.apache.solr.common.util.ObjectReleaseTracker;
 import org.apache.solr.common.util.ReflectMapWriter;
@@ -71,6 +76,13 @@ public class SolrZkClient implements Closeable {
 
   static final String NEWL = System.getProperty("line.separator");
 
+  /**
+   * The comma separated paths under which the data of the nodes read through a client is cached,
+   * e.g. {@code /collections,/aliases.json,/clusterprops.json,/security.json}. Nothing is cached by
+   * default. See {@link ZkNodeCache}.
+   */
+  public static final String READ_CACHE_PATHS_PROP = "solr.zk.readCache.paths";
+
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
   private ConnectionManager connManager;
@@ -84,6 +96,9 @@ public class SolrZkClient implements Closeable {
   private Compressor compressor;
   private int minStateByteLenForCompression;
 
+  // null unless some paths are cached
+  private ZkNodeCache nodeCache;
+
   // Allow method reference to return a reference to a functional interface (Mapwriter),
   // rather than a reference to a ZkMetrics object
   @SuppressWarnings("UnnecessaryMethodReference")
@@ -91,6 +106,20 @@ public class SolrZkClient implements Closeable {
     return metrics::writeMap;
   }
 
+  /**
+   * Records a read of the state of a collection by {@link ZkStateReader}, either of its whole
+   * state.json or of the delta of its last update.
+   */
+  void recordCollectionStateRead(boolean delta, int bytes, long parseNanos) {
+    if (delta) {
+      metrics.collectionStateDeltaReads.increment();
+    } else {
+      metrics.collectionStateFullReads.increment();
+    }
+    metrics.collectionStateBytesRead.add(bytes);
+    metrics.collectionStateParseNanos.add(parseNanos);
+  }
+
   private final ExecutorService zkCallbackExecutor =
       ExecutorUtil.newMDCAwareCachedThreadPool(new SolrNamedThreadFactory("zkCallback"));
   private final ExecutorService zkConnManagerCallbackExecutor =
@@ -236,6 +265,12 @@ public class SolrZkClient implements Closeable {
       this.compressor = compressor;
     }
     this.minStateByteLenForCompression = minStateByteLenForCompression;
+
+    List<String> cachedPaths = EnvUtils.getPropertyAsList(READ_CACHE_PATHS_PROP, List.of());
+    if (!cachedPaths.isEmpty()) {
+      log.info("Caching the data of the ZooKeeper nodes under {}", cachedPaths);
+      nodeCache = new ZkNodeCache(cachedPaths, this::readData, metrics);
+    }
   }
 
   public ConnectionManager getConnectionManager() {
@@ -355,6 +390,8 @@ public class SolrZkClient implements Closeable {
       keeper.delete(path, version);
     }
     metrics.deletes.increment();
+    metrics.forPath(path).deletes.increment();
+    invalidateCache(path);
   }
 
   /**
@@ -385,6 +422,12 @@ public class SolrZkClient implements Closeable {
    */
   public Stat exists(final String path, final Watcher watcher, boolean retryOnConnLoss)
       throws KeeperException, InterruptedException {
+    if (nodeCache != null && nodeCache.isCached(path)) {
+      Stat cached = nodeCache.getStatIfCached(path, wrapWatcher(watcher));
+      if (cached != null) {
+        return cached;
+      }
+    }
     Stat result = null;
     if (retryOnConnLoss) {
       result = zkCmdExecutor.retryOperation(() -> keeper.exists(path, wrapWatcher(watcher)));
@@ -392,12 +435,18 @@ public class SolrZkClient implements Closeable {
       result = keeper.exists(path, wrapWatcher(watcher));
     }
     metrics.existsChecks.increment();
+    metrics.forPath(path).existsChecks.increment();
     return result;
   }
 
   /** Returns true if path exists */
   public Boolean exists(final String path, boolean retryOnConnLoss)
       throws KeeperException, InterruptedException {
+    if (nodeCache != null
+        && nodeCache.isCached(path)
+        && nodeCache.getStatIfCached(path, null) != null) {
+      return true;
+    }
     Boolean result = null;
     if (retryOnConnLoss) {
       result = zkCmdExecutor.retryOperation(() -> keeper.exists(path, null) != null);
@@ -405,6 +454,7 @@ public class SolrZkClient implements Closeable {
       result = keeper.exists(path, null) != null;
     }
     metrics.existsChecks.increment();
+    metrics.forPath(path).existsChecks.increment();
     return result;
   }
 
@@ -419,6 +469,7 @@ public class SolrZkClient implements Closeable {
     }
 
     metrics.childFetches.increment();
+    metrics.forPath(path).childFetches.increment();
     if (result != null) {
       metrics.cumulativeChildrenFetched.add(result.size());
     }
@@ -437,21 +488,34 @@ public class SolrZkClient implements Closeable {
       result = keeper.getChildren(path, wrapWatcher(watcher), stat);
     }
     metrics.childFetches.increment();
+    metrics.forPath(path).childFetches.increment();
     if (result != null) {
       metrics.cumulativeChildrenFetched.add(result.size());
     }
     return result;
   }
 
-  /** Returns node's data */
+  /**
+   * Returns node's data. It is read from the cache of this client if the node is under one of the
+   * {@link #READ_CACHE_PATHS_PROP} paths.
+   */
   public byte[] getData(
       final String path, final Watcher watcher, final Stat stat, boolean retryOnConnLoss)
       throws KeeperException, InterruptedException {
+    if (nodeCache != null && nodeCache.isCached(path)) {
+      return nodeCache.getData(path, wrapWatcher(watcher), stat, retryOnConnLoss);
+    }
+    return readData(path, wrapWatcher(watcher), stat, retryOnConnLoss);
+  }
+
+  private byte[] readData(
+      final String path, final Watcher watcher, final Stat stat, boolean retryOnConnLoss)
+      throws KeeperException, InterruptedException {
     byte[] result = null;
     if (retryOnConnLoss) {
-      result = zkCmdExecutor.retryOperation(() -> keeper.getData(path, wrapWatcher(watcher), stat));
+      result = zkCmdExecutor.retryOperation(() -> keeper.getData(path, watcher, stat));
     } else {
-      result = keeper.getData(path, wrapWatcher(watcher), stat);
+      result = keeper.getData(path, watcher, stat);
     }
     if (compressor.isCompressedBytes(result)) {
       log.debug("Zookeeper data at path {} is compressed", path);
@@ -466,12 +530,19 @@ public class SolrZkClient implements Closeable {
       }
     }
     metrics.reads.increment();
+    metrics.forPath(path).reads.increment();
     if (result != null) {
       metrics.bytesRead.add(result.length);
     }
     return result;
   }
 
+  private void invalidateCache(String path) {
+    if (nodeCache != null && nodeCache.isCached(path)) {
+      nodeCache.invalidate(path);
+    }
+  }
+
   public NodeData getNode(final String path, Watcher watcher, boolean retryOnConnLoss)
       throws KeeperException, InterruptedException {
     Stat stat = new Stat();
@@ -493,9 +564,11 @@ public class SolrZkClient implements Closeable {
       result = keeper.setData(path, data, version);
     }
     metrics.writes.increment();
+    metrics.forPath(path).writes.increment();
     if (data != null) {
       metrics.bytesWritten.add(data.length);
     }
+    invalidateCache(path);
     return result;
   }
 
@@ -549,9 +622,11 @@ public class SolrZkClient implements Closeable {
       result = keeper.create(path, data, acls, createMode);
     }
     metrics.writes.increment();
+    metrics.forPath(path).writes.increment();
     if (data != null) {
       metrics.bytesWritten.add(data.length);
     }
+    invalidateCache(path);
     return result;
   }
 
@@ -688,6 +763,7 @@ public class SolrZkClient implements Closeable {
       throws KeeperException, InterruptedException {
     log.debug("makePath: {}", path);
     metrics.writes.increment();
+    metrics.forPath(path.startsWith("/") ? path : "/" + path).writes.increment();
 
     boolean retry = true;
 
@@ -797,6 +873,12 @@ public class SolrZkClient implements Closeable {
     if (result != null) {
       metrics.cumulativeMultiOps.add(result.size());
     }
+    for (Op op : ops) {
+      if (op.getType() != ZooDefs.OpCode.check) {
+        metrics.forPath(op.getPath()).writes.increment();
+        invalidateCache(op.getPath());
+      }
+    }
     return result;
   }
 
@@ -1148,6 +1230,31 @@ public class SolrZkClient implements Closeable {
 
     @JsonProperty public final LongAdder deletes = new LongAdder();
 
+    @JsonProperty public final LongAdder collectionStateFullReads = new LongAdder();
+
+    @JsonProperty public final LongAdder collectionStateDeltaReads = new LongAdder();
+
+    @JsonProperty public final LongAdder collectionStateBytesRead = new LongAdder();
+
+    @JsonProperty public final LongAdder collectionStateParseNanos = new LongAdder();
+
+    @JsonProperty public final LongAdder readCacheHits = new LongAdder();
+
+    @JsonProperty public final LongAdder readCacheLoads = new LongAdder();
+
+    @JsonProperty public final LongAdder readCacheSharedLoads = new LongAdder();
+
+    @JsonProperty public final LongAdder readCacheInvalidations = new LongAdder();
+
+    // the operations on the nodes under each top level node, e.g. /collections or /overseer
+    private final Map<String, PathMetrics> opsByPathPrefix = new ConcurrentHashMap<>();
+
+    PathMetrics forPath(String path) {
+      int end = path.indexOf('/', 1);
+      String prefix = end < 0 ? path : path.substring(0, end);
+      return opsByPathPrefix.computeIfAbsent(prefix, p -> new PathMetrics());
+    }
+
     @Override
     public void writeMap(EntryWriter ew) throws IOException {
       ReflectMapWriter.super.writeMap(
@@ -1162,6 +1269,29 @@ public class SolrZkClient implements Closeable {
               return this;
             }
           });
+      Map<String, Object> byPathPrefix = new TreeMap<>();
+      opsByPathPrefix.forEach((prefix, ops) -> byPathPrefix.put(prefix, ops.toMap()));
+      ew.put("opsByPathPrefix", byPathPrefix);
+    }
+  }
+
+  static class PathMetrics {
+    final LongAdder reads = new LongAdder();
+    final LongAdder readCacheHits = new LongAdder();
+    final LongAdder writes = new LongAdder();
+    final LongAdder existsChecks = new LongAdder();
+    final LongAdder childFetches = new LongAdder();
+    final LongAdder deletes = new LongAdder();
+
+    Map<String, Object> toMap() {
+      Map<String, Object> map = new LinkedHashMap<>();
+      map.put("reads", reads.longValue());
+      map.put("readCacheHits", readCacheHits.longValue());
+      map.put("writes", writes.longValue());
+      map.put("existsChecks", existsChecks.longValue());
+      map.put("childFetches", childFetches.longValue());
+      map.put("deletes", deletes.longValue());
+      return map;
     }
   }
 
@@ -0,0 +1,282 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.common.cloud;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.cloud.SolrZkClient.NodeData;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.data.Stat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A node wide cache of the data of the ZooKeeper nodes under some paths, shared by everything
+ * reading them through the same {@link SolrZkClient}.
+ *
+ * <p>The data of a node is read with a single ZooKeeper watch, the watchers of the callers are kept
+ * here and all notified when that watch fires, so that components watching the same node (the
+ * state of a collection, aliases, cluster properties...) cost one watch and one read per change
+ * instead of one each. Concurrent reads of a node that isn't cached share the same request. The
+ * data is cached with its {@link Stat}, so callers doing compare and set on the version keep
+ * working, and it is dropped as soon as the watch fires, on any connection event, and when the
+ * node is written through the same client.
+ */
+class ZkNodeCache {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /** Reads data with the given watch, the way {@link SolrZkClient} reads it without the cache */
+  interface Reader {
+    byte[] read(String path, Watcher watcher, Stat stat, boolean retryOnConnLoss)
+        throws KeeperException, InterruptedException;
+  }
+
+  private final List<String> pathPrefixes;
+  private final Reader reader;
+  private final SolrZkClient.ZkMetrics metrics;
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+  ZkNodeCache(List<String> pathPrefixes, Reader reader, SolrZkClient.ZkMetrics metrics) {
+    this.pathPrefixes = List.copyOf(pathPrefixes);
+    this.reader = reader;
+    this.metrics = metrics;
+  }
+
+  /** Whether the data of the node at this path is cached */
+  boolean isCached(String path) {
+    for (String prefix : pathPrefixes) {
+      if (path.startsWith(prefix)
+          && (path.length() == prefix.length()
+              || prefix.endsWith("/")
+              || path.charAt(prefix.length()) == '/')) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** The number of nodes whose data is cached or which are watched */
+  int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the data of the node, from the cache if it is there, and leaves the watcher on it.
+   *
+   * @param watcher the watcher of the caller, already wrapped by {@link
+   *     SolrZkClient#wrapWatcher(Watcher)}, or null
+   */
+  byte[] getData(String path, Watcher watcher, Stat stat, boolean retryOnConnLoss)
+      throws KeeperException, InterruptedException {
+    for (; ; ) {
+      Entry entry = entries.computeIfAbsent(path, Entry::new);
+      CompletableFuture<NodeData> load;
+      boolean loader = false;
+      synchronized (entry) {
+        if (entry.removed) continue;
+        if (watcher != null) {
+          entry.watchers.add(watcher);
+        }
+        if (entry.data != null) {
+          metrics.readCacheHits.increment();
+          metrics.forPath(path).readCacheHits.increment();
+          return copy(entry.data, stat);
+        }
+        if (entry.load == null) {
+          entry.load = new CompletableFuture<>();
+          entry.loadGeneration = entry.generation;
+          loader = true;
+        }
+        load = entry.load;
+      }
+
+      if (loader) {
+        metrics.readCacheLoads.increment();
+        entry.load(load, retryOnConnLoss);
+      } else {
+        metrics.readCacheSharedLoads.increment();
+      }
+      try {
+        return copy(load.get(), stat);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof InterruptedException && !loader) {
+          // the thread reading the node was interrupted, not this one
+          continue;
+        }
+        entry.failed(watcher);
+        if (cause instanceof KeeperException) {
+          throw (KeeperException) cause;
+        } else if (cause instanceof InterruptedException) {
+          throw (InterruptedException) cause;
+        } else if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, cause);
+      }
+    }
+  }
+
+  /**
+   * Returns the stat of the node if its data is cached, and then leaves the watcher on it, returns
+   * null otherwise.
+   */
+  Stat getStatIfCached(String path, Watcher watcher) {
+    Entry entry = entries.get(path);
+    if (entry == null) return null;
+    synchronized (entry) {
+      if (entry.data == null) return null;
+      if (watcher != null) {
+        entry.watchers.add(watcher);
+      }
+      metrics.readCacheHits.increment();
+      metrics.forPath(path).readCacheHits.increment();
+      return copy(entry.data.stat, new Stat());
+    }
+  }
+
+  /** Drops the cached data of a node written through this client, its watchers are kept */
+  void invalidate(String path) {
+    Entry entry = entries.get(path);
+    if (entry == null) return;
+    synchronized (entry) {
+      entry.invalidate();
+    }
+  }
+
+  private static byte[] copy(NodeData nodeData, Stat stat) {
+    if (stat != null) {
+      copy(nodeData.stat, stat);
+    }
+    // callers own the bytes they are given
+    return nodeData.data == null ? null : nodeData.data.clone();
+  }
+
+  private static Stat copy(Stat from, Stat to) {
+    to.setCzxid(from.getCzxid());
+    to.setMzxid(from.getMzxid());
+    to.setCtime(from.getCtime());
+    to.setMtime(from.getMtime());
+    to.setVersion(from.getVersion());
+    to.setCversion(from.getCversion());
+    to.setAversion(from.getAversion());
+    to.setEphemeralOwner(from.getEphemeralOwner());
+    to.setDataLength(from.getDataLength());
+    to.setNumChildren(from.getNumChildren());
+    to.setPzxid(from.getPzxid());
+    return to;
+  }
+
+  /**
+   * The cached data of a node and the watchers of its callers. It is also the only watch the cache
+   * leaves on the node, which is why entries keep the default identity based equality.
+   */
+  private final class Entry implements Watcher {
+    private final String path;
+    // all the fields below are guarded by this
+    private final Set<Watcher> watchers = new HashSet<>();
+    private NodeData data;
+    private CompletableFuture<NodeData> load;
+    // incremented whenever the data may have changed, so that a read which started before isn't
+    // cached
+    private long generation;
+    private long loadGeneration;
+    private boolean removed;
+
+    Entry(String path) {
+      this.path = path;
+    }
+
+    void load(CompletableFuture<NodeData> load, boolean retryOnConnLoss) {
+      NodeData nodeData;
+      try {
+        Stat stat = new Stat();
+        nodeData = new NodeData(stat, reader.read(path, this, stat, retryOnConnLoss));
+      } catch (Exception e) {
+        synchronized (this) {
+          if (this.load == load) {
+            this.load = null;
+          }
+        }
+        load.completeExceptionally(e);
+        return;
+      }
+      synchronized (this) {
+        if (this.load == load) {
+          this.load = null;
+          if (generation == loadGeneration) {
+            data = nodeData;
+          }
+        }
+      }
+      load.complete(nodeData);
+    }
+
+    synchronized void failed(Watcher watcher) {
+      // no watch is left on a node which couldn't be read, unless it was read before
+      if (watcher != null && data == null) {
+        watchers.remove(watcher);
+      }
+      removeIfUnused();
+    }
+
+    void invalidate() {
+      generation++;
+      data = null;
+      load = null;
+      metrics.readCacheInvalidations.increment();
+    }
+
+    private void removeIfUnused() {
+      if (watchers.isEmpty() && data == null && load == null && !removed) {
+        removed = true;
+        entries.remove(path, this);
+      }
+    }
+
+    @Override
+    public void process(WatchedEvent event) {
+      List<Watcher> toNotify;
+      synchronized (this) {
+        invalidate();
+        toNotify = new ArrayList<>(watchers);
+        if (event.getType() != Event.EventType.None
+            || event.getState() == Event.KeeperState.Expired
+            || event.getState() == Event.KeeperState.Closed) {
+          // the watch fired, or it is gone with the session, and so are the ones of the callers
+          watchers.clear();
+        }
+        removeIfUnused();
+      }
+      log.debug("Notifying {} watchers of {}", toNotify.size(), event);
+      // the watchers of the callers are wrapped, they are processed by the callback executor
+      for (Watcher watcher : toNotify) {
+        watcher.process(event);
+      }
+    }
+  }
+}
@@ -1269,7 +1269,13 @@ public class ZkStateReader implements SolrCloseable {
           }
         }
 
-        DocCollection newState = fetchCollectionState(coll, this);
+        DocCollection newState = null;
+        if (eventType == EventType.NodeDataChanged) {
+          newState = fetchCollectionStateDelta(coll, this);
+        }
+        if (newState == null) {
+          newState = fetchCollectionState(coll, this);
+        }
         collectionWatches.updateDocCollection(coll, newState);
         synchronized (getUpdateLock()) {
           constructState(Collections.singleton(coll));
@@ -1413,6 +1419,7 @@ public class ZkStateReader implements SolrCloseable {
         Stat stat = new Stat();
         byte[] data = zkClient.getData(collectionPath, watcher, stat, true);
 
+        long start = System.nanoTime();
         // This factory method can detect a missing configName and supply it by reading it from the
         // old ZK location.
         // TODO in Solr 10 remove that factory method
@@ -1424,6 +1431,7 @@ public class ZkStateReader implements SolrCloseable {
                 coll,
                 zkClient,
                 Instant.ofEpochMilli(stat.getCtime()));
+        zkClient.recordCollectionStateRead(false, data.length, System.nanoTime() - start);
 
         return state.getCollectionOrNull(coll);
       } catch (KeeperException.NoNodeException e) {
@@ -1456,6 +1464,57 @@ public class ZkStateReader implements SolrCloseable {
     }
   }
 
+  /**
+   * Updates the state of a collection that changed with the delta of the change, see {@link
+   * CollectionStateDelta}, and leaves a watch on its state.json.
+   *
+   * @return the new state, or null if the delta does not apply to the state this node has and the
+   *     whole state.json must be read
+   */
+  private DocCollection fetchCollectionStateDelta(String coll, Watcher watcher)
+      throws KeeperException, InterruptedException {
+    DocCollection current = collectionWatches.getDocCollection(coll);
+    if (current == null) {
+      return null;
+    }
+    String collectionPath = DocCollection.getCollectionPath(coll);
+    Stat stat = zkClient.exists(collectionPath, watcher, true);
+    if (stat == null) {
+      return null;
+    }
+    if (stat.getVersion() == current.getZNodeVersion()) {
+      return current;
+    }
+    byte[] data;
+    try {
+      data = zkClient.getData(CollectionStateDelta.getDeltaPath(coll), null, null, true);
+    } catch (KeeperException.NoNodeException e) {
+      return null;
+    }
+    if (data == null) {
+      return null;
+    }
+    long start = System.nanoTime();
+    PerReplicaStates perReplicaStates = current.getPerReplicaStates();
+    DocCollection newState =
+        CollectionStateDelta.apply(
+            current,
+            data,
+            stat.getVersion(),
+            () -> PerReplicaStatesOps.fetch(collectionPath, zkClient, perReplicaStates));
+    if (newState != null) {
+      zkClient.recordCollectionStateRead(true, data.length, System.nanoTime() - start);
+      if (log.isDebugEnabled()) {
+        log.debug(
+            "Applied the delta of {} from version {} to {}",
+            coll,
+            current.getZNodeVersion(),
+            stat.getVersion());
+      }
+    }
+    return newState;
+  }
+
   @Deprecated // see DocCollection
   public static String getCollectionPathRoot(String coll) {
     return DocCollection.getCollectionPathRoot(coll);
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.common.cloud;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.file.PathUtils;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.cloud.ZkTestServer;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.data.Stat;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestZkNodeCache extends SolrTestCaseJ4 {
+
+  protected static ZkTestServer zkServer;
+  private static Path zkDir;
+
+  @BeforeClass
+  public static void setUpClass() throws Exception {
+    zkDir = createTempDir("TestZkNodeCache");
+    zkServer = new ZkTestServer(zkDir);
+    zkServer.run();
+  }
+
+  @AfterClass
+  public static void tearDownClass() throws IOException, InterruptedException {
+    if (zkServer != null) {
+      zkServer.shutdown();
+      zkServer = null;
+    }
+    if (null != zkDir) {
+      PathUtils.deleteDirectory(zkDir);
+      zkDir = null;
+    }
+  }
+
+  private SolrZkClient newClient() {
+    return new SolrZkClient.Builder()
+        .withUrl(zkServer.getZkHost())
+        .withTimeout(10000, TimeUnit.MILLISECONDS)
+        .build();
+  }
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static String string(byte[] bytes) {
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static long getMetric(SolrZkClient zkClient, String name) {
+    return ((Number) zkClient.getMetrics().toMap(new HashMap<>()).get(name)).longValue();
+  }
+
+  @Test
+  public void testCachedReadsAndWatches() throws Exception {
+    System.setProperty(SolrZkClient.READ_CACHE_PATHS_PROP, "/cached");
+    try (SolrZkClient cachingClient = newClient();
+        SolrZkClient writer = newClient()) {
+      String path = "/cached/node";
+      writer.makePath(path, bytes("v1"), true);
+      writer.makePath("/other", bytes("o1"), true);
+
+      CountDownLatch fired = new CountDownLatch(2);
+      Watcher watcher1 = event -> fired.countDown();
+      Watcher watcher2 = event -> fired.countDown();
+      Stat stat = new Stat();
+      assertEquals("v1", string(cachingClient.getData(path, watcher1, stat, true)));
+      assertEquals(0, stat.getVersion());
+      long reads = getMetric(cachingClient, "reads");
+      long existsChecks = getMetric(cachingClient, "existsChecks");
+      stat = new Stat();
+      assertEquals("v1", string(cachingClient.getData(path, watcher2, stat, true)));
+      assertEquals(0, stat.getVersion());
+      assertEquals(0, cachingClient.exists(path, null, true).getVersion());
+      assertTrue(cachingClient.exists(path, true));
+      // served from the cache
+      assertEquals(reads, getMetric(cachingClient, "reads"));
+      assertEquals(existsChecks, getMetric(cachingClient, "existsChecks"));
+      assertEquals(3, getMetric(cachingClient, "readCacheHits"));
+
+      // both watchers are notified by the single watch of the cache
+      writer.setData(path, bytes("v2"), true);
+      assertTrue(fired.await(30, TimeUnit.SECONDS));
+      stat = new Stat();
+      assertEquals("v2", string(cachingClient.getData(path, null, stat, true)));
+      assertEquals(1, stat.getVersion());
+      assertEquals(reads + 1, getMetric(cachingClient, "reads"));
+
+      // writes through the client are seen by its next reads
+      cachingClient.setData(path, bytes("v3"), true);
+      assertEquals("v3", string(cachingClient.getData(path, null, null, true)));
+
+      // other paths are not cached
+      reads = getMetric(cachingClient, "reads");
+      cachingClient.getData("/other", null, null, true);
+      cachingClient.getData("/other", null, null, true);
+      assertEquals(reads + 2, getMetric(cachingClient, "reads"));
+
+      @SuppressWarnings("unchecked")
+      Map<String, Map<String, Object>> byPathPrefix =
+          (Map<String, Map<String, Object>>)
+              cachingClient.getMetrics().toMap(new HashMap<>()).get("opsByPathPrefix");
+      assertEquals(2L, byPathPrefix.get("/other").get("reads"));
+      assertEquals(3L, byPathPrefix.get("/cached").get("readCacheHits"));
+      assertEquals(1L, byPathPrefix.get("/cached").get("writes"));
+    } finally {
+      System.clearProperty(SolrZkClient.READ_CACHE_PATHS_PROP);
+    }
+  }
+
+  @Test
+  public void testConcurrentReads() throws Exception {
+    System.setProperty(SolrZkClient.READ_CACHE_PATHS_PROP, "/concurrent");
+    ExecutorService executor =
+        ExecutorUtil.newMDCAwareFixedThreadPool(8, new SolrNamedThreadFactory("testZkNodeCache"));
+    try (SolrZkClient cachingClient = newClient()) {
+      String path = "/concurrent/node";
+      cachingClient.makePath(path, bytes("data"), true);
+
+      int numReads = 32;
+      List<Future<byte[]>> futures = new ArrayList<>();
+      for (int i = 0; i < numReads; i++) {
+        futures.add(executor.submit(() -> cachingClient.getData(path, null, null, true)));
+      }
+      for (Future<byte[]> future : futures) {
+        assertEquals("data", string(future.get()));
+      }
+      long loads = getMetric(cachingClient, "readCacheLoads");
+      assertTrue("loads: " + loads, loads >= 1);
+      assertEquals(
+          numReads,
+          loads
+              + getMetric(cachingClient, "readCacheSharedLoads")
+              + getMetric(cachingClient, "readCacheHits"));
+    } finally {
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+      System.clearProperty(SolrZkClient.READ_CACHE_PATHS_PROP);
+    }
+  }
+}
@@ -37,6 +37,9 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -46,6 +49,7 @@ import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.apache.solr.client.solrj.ResponseParser;
@@ -402,75 +406,13 @@ public abstract class CloudSolrClient extends SolrClient {
     throw new TimeoutException("Timed out waiting for cluster");
   }
 
-  @SuppressWarnings({"unchecked"})
   private NamedList<Object> directUpdate(AbstractUpdateRequest request, String collection)
       throws SolrServerException {
-    UpdateRequest updateRequest = (UpdateRequest) request;
-    SolrParams params = request.getParams();
-    ModifiableSolrParams routableParams = new ModifiableSolrParams();
     ModifiableSolrParams nonRoutableParams = new ModifiableSolrParams();
-
-    if (params != null) {
-      nonRoutableParams.add(params);
-      routableParams.add(params);
-      for (String param : NON_ROUTABLE_PARAMS) {
-        routableParams.remove(param);
-      }
-    } else {
-      params = new ModifiableSolrParams();
-    }
-
-    if (collection == null) {
-      throw new SolrServerException(
-          "No collection param specified on request and no default collection has been set.");
-    }
-
-    // Check to see if the collection is an alias. Updates to multi-collection aliases are ok as
-    // long as they are routed aliases
-    List<String> aliasedCollections =
-        new ArrayList<>(resolveAliases(Collections.singletonList(collection)));
-    if (aliasedCollections.size() == 1 || getClusterStateProvider().isRoutedAlias(collection)) {
-      collection = aliasedCollections.get(0); // pick 1st (consistent with HttpSolrCall behavior)
-    } else {
-      throw new SolrException(
-          SolrException.ErrorCode.BAD_REQUEST,
-          "Update request to non-routed multi-collection alias not supported: "
-              + collection
-              + " -> "
-              + aliasedCollections);
-    }
-
-    DocCollection col = getDocCollection(collection, null);
-
-    DocRouter router = col.getRouter();
-
-    if (router instanceof ImplicitDocRouter) {
-      // short circuit as optimization
-      return null;
-    }
-
-    ReplicaListTransformer replicaListTransformer =
-        requestRLTGenerator.getReplicaListTransformer(params);
-
-    // Create the URL map, which is keyed on slice name.
-    // The value is a list of URLs for each replica in the slice.
-    // The first value in the list is the leader for the slice.
-    final Map<String, List<String>> urlMap = buildUrlMap(col, replicaListTransformer);
-    String routeField =
-        (col.getRouter().getRouteField(col) == null) ? ID : col.getRouter().getRouteField(col);
     final Map<String, ? extends LBSolrClient.Req> routes =
-        createRoutes(updateRequest, routableParams, col, router, urlMap, routeField);
+        createDirectUpdateRoutes(request, collection, nonRoutableParams);
     if (routes == null) {
-      if (directUpdatesToLeadersOnly && hasInfoToFindLeaders(updateRequest, routeField)) {
-        // we have info (documents with ids and/or ids to delete) with
-        // which to find the leaders, but we could not find (all of) them
-        throw new SolrException(
-            SolrException.ErrorCode.SERVICE_UNAVAILABLE,
-            "directUpdatesToLeadersOnly==true but could not find leader(s)");
-      } else {
-        // we could not find a leader or routes yet - use unoptimized general path
-        return null;
-      }
+      return null;
     }
 
     final NamedList<Throwable> exceptions = new NamedList<>();
@@ -538,8 +480,188 @@ public abstract class CloudSolrClient extends SolrClient {
       }
     }
 
+    UpdateRequest nonRoutableRequest = createNonRoutableRequest(request, nonRoutableParams);
+    if (nonRoutableRequest != null) {
+      List<String> urlList = new ArrayList<>(routes.keySet());
+      Collections.shuffle(urlList, rand);
+      LBSolrClient.Req req = new LBSolrClient.Req(nonRoutableRequest, urlList);
+      try {
+        LBSolrClient.Rsp rsp = getLbClient().request(req);
+        shardResponses.add(urlList.get(0), rsp.getResponse());
+      } catch (Exception e) {
+        throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, urlList.get(0), e);
+      }
+    }
+
+    return createRouteResponse(shardResponses, routes, start);
+  }
+
+  /**
+   * Asynchronous counterpart of {@link #directUpdate(AbstractUpdateRequest, String)}. The routed
+   * sub-requests are always dispatched concurrently, regardless of {@link #isParallelUpdates()},
+   * since doing so does not tie up any threads.
+   *
+   * @return null if the update can't be routed directly and the general path should be used
+   */
+  private CompletableFuture<NamedList<Object>> directUpdateAsync(
+      AbstractUpdateRequest request, String collection) throws SolrServerException {
+    ModifiableSolrParams nonRoutableParams = new ModifiableSolrParams();
+    final Map<String, ? extends LBSolrClient.Req> routes =
+        createDirectUpdateRoutes(request, collection, nonRoutableParams);
+    if (routes == null) {
+      return null;
+    }
+
+    final long start = System.nanoTime();
+    final Map<String, CompletableFuture<LBSolrClient.Rsp>> responseFutures =
+        CollectionUtil.newLinkedHashMap(routes.size());
+    for (final Map.Entry<String, ? extends LBSolrClient.Req> entry : routes.entrySet()) {
+      responseFutures.put(entry.getKey(), getLbClient().requestAsync(entry.getValue()));
+    }
+
+    return CompletableFuture.allOf(responseFutures.values().toArray(new CompletableFuture<?>[0]))
+        .handle(
+            (ignored, t) -> {
+              final NamedList<Throwable> exceptions = new NamedList<>();
+              final NamedList<NamedList<?>> shardResponses =
+                  new NamedList<>(routes.size() + 1); // +1 for deleteQuery
+              for (Map.Entry<String, CompletableFuture<LBSolrClient.Rsp>> entry :
+                  responseFutures.entrySet()) {
+                try {
+                  shardResponses.add(entry.getKey(), entry.getValue().join().getResponse());
+                } catch (CompletionException | CancellationException e) {
+                  exceptions.add(entry.getKey(), unwrapCompletionException(e));
+                }
+              }
+              if (exceptions.size() > 0) {
+                Throwable firstException = exceptions.getVal(0);
+                if (firstException instanceof SolrException) {
+                  SolrException e = (SolrException) firstException;
+                  throw getRouteException(
+                      SolrException.ErrorCode.getErrorCode(e.code()), exceptions, routes);
+                } else {
+                  throw getRouteException(
+                      SolrException.ErrorCode.SERVER_ERROR, exceptions, routes);
+                }
+              }
+              return shardResponses;
+            })
+        .thenCompose(
+            shardResponses -> {
+              UpdateRequest nonRoutableRequest =
+                  createNonRoutableRequest(request, nonRoutableParams);
+              if (nonRoutableRequest == null) {
+                return CompletableFuture.completedFuture(
+                    createRouteResponse(shardResponses, routes, start));
+              }
+              List<String> urlList = new ArrayList<>(routes.keySet());
+              Collections.shuffle(urlList, rand);
+              LBSolrClient.Req req = new LBSolrClient.Req(nonRoutableRequest, urlList);
+              return getLbClient()
+                  .requestAsync(req)
+                  .handle(
+                      (rsp, t) -> {
+                        if (t != null) {
+                          throw new SolrException(
+                              SolrException.ErrorCode.SERVER_ERROR,
+                              urlList.get(0),
+                              unwrapCompletionException(t));
+                        }
+                        shardResponses.add(urlList.get(0), rsp.getResponse());
+                        return createRouteResponse(shardResponses, routes, start);
+                      });
+            });
+  }
+
+  /**
+   * Computes the per-shard-leader routes of an update request, collecting the parameters that
+   * can't be routed into {@code nonRoutableParams}.
+   *
+   * @return null if the update can't be routed directly and the general path should be used
+   */
+  @SuppressWarnings({"unchecked"})
+  private Map<String, ? extends LBSolrClient.Req> createDirectUpdateRoutes(
+      AbstractUpdateRequest request, String collection, ModifiableSolrParams nonRoutableParams)
+      throws SolrServerException {
+    UpdateRequest updateRequest = (UpdateRequest) request;
+    SolrParams params = request.getParams();
+    ModifiableSolrParams routableParams = new ModifiableSolrParams();
+
+    if (params != null) {
+      nonRoutableParams.add(params);
+      routableParams.add(params);
+      for (String param : NON_ROUTABLE_PARAMS) {
+        routableParams.remove(param);
+      }
+    } else {
+      params = new ModifiableSolrParams();
+    }
+
+    if (collection == null) {
+      throw new SolrServerException(
+          "No collection param specified on request and no default collection has been set.");
+    }
+
+    // Check to see if the collection is an alias. Updates to multi-collection aliases are ok as
+    // long as they are routed aliases
+    List<String> aliasedCollections =
+        new ArrayList<>(resolveAliases(Collections.singletonList(collection)));
+    if (aliasedCollections.size() == 1 || getClusterStateProvider().isRoutedAlias(collection)) {
+      collection = aliasedCollections.get(0); // pick 1st (consistent with HttpSolrCall behavior)
+    } else {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST,
+          "Update request to non-routed multi-collection alias not supported: "
+              + collection
+              + " -> "
+              + aliasedCollections);
+    }
+
+    DocCollection col = getDocCollection(collection, null);
+
+    DocRouter router = col.getRouter();
+
+    if (router instanceof ImplicitDocRouter) {
+      // short circuit as optimization
+      return null;
+    }
+
+    ReplicaListTransformer replicaListTransformer =
+        requestRLTGenerator.getReplicaListTransformer(params);
+
+    // Create the URL map, which is keyed on slice name.
+    // The value is a list of URLs for each replica in the slice.
+    // The first value in the list is the leader for the slice.
+    final Map<String, List<String>> urlMap = buildUrlMap(col, replicaListTransformer);
+    String routeField =
+        (col.getRouter().getRouteField(col) == null) ? ID : col.getRouter().getRouteField(col);
+    final Map<String, ? extends LBSolrClient.Req> routes =
+        createRoutes(updateRequest, routableParams, col, router, urlMap, routeField);
+    if (routes == null) {
+      if (directUpdatesToLeadersOnly && hasInfoToFindLeaders(updateRequest, routeField)) {
+        // we have info (documents with ids and/or ids to delete) with
+        // which to find the leaders, but we could not find (all of) them
+        throw new SolrException(
+            SolrException.ErrorCode.SERVICE_UNAVAILABLE,
+            "directUpdatesToLeadersOnly==true but could not find leader(s)");
+      } else {
+        // we could not find a leader or routes yet - use unoptimized general path
+        return null;
+      }
+    }
+    return routes;
+  }
+
+  /**
+   * Builds the request carrying the delete-by-query and the non-routable parameters of a directly
+   * routed update, which is sent to a single (random) route.
+   *
+   * @return null if there is nothing left to send once the routed requests are done
+   */
+  private UpdateRequest createNonRoutableRequest(
+      AbstractUpdateRequest request, ModifiableSolrParams nonRoutableParams) {
     UpdateRequest nonRoutableRequest = null;
-    List<String> deleteQuery = updateRequest.getDeleteQuery();
+    List<String> deleteQuery = ((UpdateRequest) request).getDeleteQuery();
     if (deleteQuery != null && deleteQuery.size() > 0) {
       UpdateRequest deleteQueryRequest = new UpdateRequest();
       deleteQueryRequest.setDeleteQuery(deleteQuery);
@@ -558,23 +680,21 @@ public abstract class CloudSolrClient extends SolrClient {
       nonRoutableRequest.setParams(nonRoutableParams);
       nonRoutableRequest.setBasicAuthCredentials(
           request.getBasicAuthUser(), request.getBasicAuthPassword());
-      List<String> urlList = new ArrayList<>(routes.keySet());
-      Collections.shuffle(urlList, rand);
-      LBSolrClient.Req req = new LBSolrClient.Req(nonRoutableRequest, urlList);
-      try {
-        LBSolrClient.Rsp rsp = getLbClient().request(req);
-        shardResponses.add(urlList.get(0), rsp.getResponse());
-      } catch (Exception e) {
-        throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, urlList.get(0), e);
-      }
     }
+    return nonRoutableRequest;
+  }
 
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private NamedList<Object> createRouteResponse(
+      NamedList<NamedList<?>> shardResponses,
+      Map<String, ? extends LBSolrClient.Req> routes,
+      long startNanos) {
     long end = System.nanoTime();
 
-    @SuppressWarnings({"rawtypes"})
     RouteResponse rr =
         condenseResponse(
-            shardResponses, (int) TimeUnit.MILLISECONDS.convert(end - start, TimeUnit.NANOSECONDS));
+            shardResponses,
+            (int) TimeUnit.MILLISECONDS.convert(end - startNanos, TimeUnit.NANOSECONDS));
     rr.setRouteResponses(shardResponses);
     rr.setRoutes(routes);
     return rr;
@@ -826,6 +946,36 @@ public abstract class CloudSolrClient extends SolrClient {
     return requestWithRetryOnStaleState(request, 0, inputCollections);
   }
 
+  /**
+   * Asynchronous counterpart of {@link #request(SolrRequest, String)}, with the same routing,
+   * direct updates to the shard leaders and retries on stale cluster state. Never throws; failures
+   * are reported through the returned future.
+   *
+   * @param request the request to execute
+   * @param collection the collection to send it to, overridden by the collection of the request
+   *     and defaulting to the default collection of this client
+   */
+  public CompletableFuture<NamedList<Object>> requestAsync(
+      SolrRequest<?> request, String collection) {
+    try {
+      // the collection parameter of the request overrides that of the parameter to this method
+      String requestCollection = request.getCollection();
+      if (requestCollection != null) {
+        collection = requestCollection;
+      } else if (collection == null) {
+        collection = defaultCollection;
+      }
+
+      List<String> inputCollections =
+          collection == null
+              ? Collections.emptyList()
+              : StrUtils.splitSmart(collection, ",", true);
+      return requestWithRetryOnStaleStateAsync(request, 0, inputCollections);
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
   /**
    * As this class doesn't watch external collections on the client side, there's a chance that the
    * request will fail due to cached stale state, which means the state must be refreshed from ZK
@@ -836,21 +986,120 @@ public abstract class CloudSolrClient extends SolrClient {
       throws SolrServerException, IOException {
     connect(); // important to call this before you start working with the ZkStateReader
 
-    // build up a _stateVer_ param to pass to the server containing all the
-    // external collection state versions involved in this request, which allows
-    // the server to notify us that our cached state for one or more of the external
-    // collections is stale and needs to be refreshed ... this code has no impact on internal
-    // collections
-    String stateVerParam = null;
-    List<DocCollection> requestedCollections = null;
-    boolean isCollectionRequestOfV2 = false;
     if (request instanceof V2RequestSupport) {
       request = ((V2RequestSupport) request).getV2Request();
     }
+    boolean isAdmin = ADMIN_PATHS.contains(request.getPath());
+    List<DocCollection> requestedCollections =
+        setStateVersionParam(request, inputCollections, isAdmin);
+
+    NamedList<Object> resp = null;
+    try {
+      resp = sendRequest(request, inputCollections);
+      processStateVersionResponse(resp);
+    } catch (Exception exc) {
+      Exception toThrow =
+          checkRetryOnStaleState(
+              exc, request, retryCount, inputCollections, requestedCollections, isAdmin);
+      if (toThrow == null) {
+        return requestWithRetryOnStaleState(request, retryCount + 1, inputCollections);
+      } else if (toThrow instanceof SolrServerException) {
+        throw (SolrServerException) toThrow;
+      } else if (toThrow instanceof IOException) {
+        throw (IOException) toThrow;
+      } else if (toThrow instanceof RuntimeException) {
+        throw (RuntimeException) toThrow;
+      } else {
+        throw new SolrServerException(toThrow);
+      }
+    }
+
+    return resp;
+  }
+
+  /**
+   * Asynchronous counterpart of {@link #requestWithRetryOnStaleState(SolrRequest, int, List)}. A
+   * retry is issued from the completion of the failed attempt rather than from a waiting thread.
+   */
+  protected CompletableFuture<NamedList<Object>> requestWithRetryOnStaleStateAsync(
+      SolrRequest<?> request, int retryCount, List<String> inputCollections) {
+    final SolrRequest<?> effectiveRequest;
+    final boolean isAdmin;
+    final List<DocCollection> requestedCollections;
+    try {
+      connect(); // important to call this before you start working with the ZkStateReader
+
+      effectiveRequest =
+          request instanceof V2RequestSupport
+              ? ((V2RequestSupport) request).getV2Request()
+              : request;
+      isAdmin = ADMIN_PATHS.contains(effectiveRequest.getPath());
+      requestedCollections = setStateVersionParam(effectiveRequest, inputCollections, isAdmin);
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(e);
+    }
+
+    CompletableFuture<NamedList<Object>> attempt;
+    try {
+      attempt = sendRequestAsync(effectiveRequest, inputCollections);
+    } catch (Exception e) {
+      // subclasses may throw instead of failing the future, which is retried the same way
+      attempt = CompletableFuture.failedFuture(e);
+    }
+    return attempt
+        .handle(
+            (resp, t) -> {
+              Throwable cause = t;
+              if (cause == null) {
+                try {
+                  processStateVersionResponse(resp);
+                  return CompletableFuture.completedFuture(resp);
+                } catch (Exception e) {
+                  cause = e;
+                }
+              }
+              cause = unwrapCompletionException(cause);
+              if (!(cause instanceof Exception)) {
+                return CompletableFuture.<NamedList<Object>>failedFuture(cause);
+              }
+              Exception toThrow;
+              try {
+                toThrow =
+                    checkRetryOnStaleState(
+                        (Exception) cause,
+                        effectiveRequest,
+                        retryCount,
+                        inputCollections,
+                        requestedCollections,
+                        isAdmin);
+              } catch (Exception e) {
+                toThrow = e;
+              }
+              if (toThrow == null) {
+                return requestWithRetryOnStaleStateAsync(
+                    effectiveRequest, retryCount + 1, inputCollections);
+              }
+              return CompletableFuture.<NamedList<Object>>failedFuture(toThrow);
+            })
+        .thenCompose(Function.identity());
+  }
+
+  /**
+   * Builds up a _stateVer_ param to pass to the server containing all the external collection
+   * state versions involved in this request, which allows the server to notify us that our cached
+   * state for one or more of the external collections is stale and needs to be refreshed ... this
+   * code has no impact on internal collections.
+   *
+   * @return the collections whose state version was sent, or null if none
+   */
+  private List<DocCollection> setStateVersionParam(
+      SolrRequest<?> request, List<String> inputCollections, boolean isAdmin) {
+    String stateVerParam = null;
+    List<DocCollection> requestedCollections = null;
+    boolean isCollectionRequestOfV2 = false;
     if (request instanceof V2Request) {
       isCollectionRequestOfV2 = ((V2Request) request).isPerCollectionRequest();
     }
-    boolean isAdmin = ADMIN_PATHS.contains(request.getPath());
     if (!inputCollections.isEmpty()
         && !isAdmin
         && !isCollectionRequestOfV2) { // don't do _stateVer_ checking for admin, v2 api requests
@@ -893,158 +1142,172 @@ public abstract class CloudSolrClient extends SolrClient {
       }
     } // else: ??? how to set this ???
 
-    NamedList<Object> resp = null;
-    try {
-      resp = sendRequest(request, inputCollections);
-      // to avoid an O(n) operation we always add STATE_VERSION to the last and try to read it from
-      // there
-      Object o = resp == null || resp.size() == 0 ? null : resp.get(STATE_VERSION, resp.size() - 1);
-      if (o != null && o instanceof Map) {
-        // remove this because no one else needs this and tests would fail if they are comparing
-        // responses
-        resp.remove(resp.size() - 1);
-        Map<?, ?> invalidStates = (Map<?, ?>) o;
-        for (Map.Entry<?, ?> e : invalidStates.entrySet()) {
-          getDocCollection((String) e.getKey(), (Integer) e.getValue());
-        }
-      }
-    } catch (Exception exc) {
+    return requestedCollections;
+  }
 
-      Throwable rootCause = SolrException.getRootCause(exc);
-      // don't do retry support for admin requests
-      // or if the request doesn't have a collection specified
-      // or request is v2 api and its method is not GET
-      if (inputCollections.isEmpty()
-          || isAdmin
-          || (request.getApiVersion() == SolrRequest.ApiVersion.V2
-              && request.getMethod() != SolrRequest.METHOD.GET)) {
-        if (exc instanceof SolrServerException) {
-          throw (SolrServerException) exc;
-        } else if (exc instanceof IOException) {
-          throw (IOException) exc;
-        } else if (exc instanceof RuntimeException) {
-          throw (RuntimeException) exc;
-        } else {
-          throw new SolrServerException(rootCause);
-        }
+  /** Refreshes the cached state of any collection the server reported as stale in the response. */
+  private void processStateVersionResponse(NamedList<Object> resp) {
+    // to avoid an O(n) operation we always add STATE_VERSION to the last and try to read it from
+    // there
+    Object o = resp == null || resp.size() == 0 ? null : resp.get(STATE_VERSION, resp.size() - 1);
+    if (o != null && o instanceof Map) {
+      // remove this because no one else needs this and tests would fail if they are comparing
+      // responses
+      resp.remove(resp.size() - 1);
+      Map<?, ?> invalidStates = (Map<?, ?>) o;
+      for (Map.Entry<?, ?> e : invalidStates.entrySet()) {
+        getDocCollection((String) e.getKey(), (Integer) e.getValue());
       }
+    }
+  }
 
-      int errorCode =
-          (rootCause instanceof SolrException)
-              ? ((SolrException) rootCause).code()
-              : SolrException.ErrorCode.UNKNOWN.code;
-
-      boolean wasCommError =
-          (rootCause instanceof ConnectException
-              || rootCause instanceof SocketException
-              || wasCommError(rootCause));
-
-      if (wasCommError
-          || (exc instanceof RouteException
-              && (errorCode == 503)) // 404 because the core does not exist 503 service unavailable
-      // TODO there are other reasons for 404. We need to change the solr response format from HTML
-      // to structured data to know that
-      ) {
-        // it was a communication error. it is likely that
-        // the node to which the request to be sent is down . So , expire the state
-        // so that the next attempt would fetch the fresh state
-        // just re-read state for all of them, if it has not been retried
-        // in retryExpiryTime time
-        if (requestedCollections != null) {
-          for (DocCollection ext : requestedCollections) {
-            ExpiringCachedDocCollection cacheEntry = collectionStateCache.get(ext.getName());
-            if (cacheEntry == null) continue;
-            cacheEntry.maybeStale = true;
-          }
-        }
-        if (retryCount < MAX_STALE_RETRIES) { // if it is a communication error , we must try again
-          // may be, we have a stale version of the collection state,
-          // and we could not get any information from the server
-          // it is probably not worth trying again and again because
-          // the state would not have been updated
-          log.info(
-              "Request to collection {} failed due to ({}) {}, retry={} maxRetries={} commError={} errorCode={} - retrying",
-              inputCollections,
-              errorCode,
-              rootCause,
-              retryCount,
-              MAX_STALE_RETRIES,
-              wasCommError,
-              errorCode);
-          return requestWithRetryOnStaleState(request, retryCount + 1, inputCollections);
-        }
+  /**
+   * Inspects a failed request, invalidating cached collection state as needed, and decides whether
+   * it should be retried.
+   *
+   * @return null if the request should be retried, otherwise the exception to report
+   */
+  private Exception checkRetryOnStaleState(
+      Exception exc,
+      SolrRequest<?> request,
+      int retryCount,
+      List<String> inputCollections,
+      List<DocCollection> requestedCollections,
+      boolean isAdmin) {
+    Throwable rootCause = SolrException.getRootCause(exc);
+    // don't do retry support for admin requests
+    // or if the request doesn't have a collection specified
+    // or request is v2 api and its method is not GET
+    if (inputCollections.isEmpty()
+        || isAdmin
+        || (request.getApiVersion() == SolrRequest.ApiVersion.V2
+            && request.getMethod() != SolrRequest.METHOD.GET)) {
+      if (exc instanceof SolrServerException
+          || exc instanceof IOException
+          || exc instanceof RuntimeException) {
+        return exc;
       } else {
-        log.info("request was not communication error it seems");
+        return new SolrServerException(rootCause);
       }
-      log.info(
-          "Request to collection {} failed due to ({}) {}, retry={} maxRetries={} commError={} errorCode={} ",
-          inputCollections,
-          errorCode,
-          rootCause,
-          retryCount,
-          MAX_STALE_RETRIES,
-          wasCommError,
-          errorCode);
-
-      boolean stateWasStale = false;
-      if (retryCount < MAX_STALE_RETRIES
-          && requestedCollections != null
-          && !requestedCollections.isEmpty()
-          && (SolrException.ErrorCode.getErrorCode(errorCode)
-                  == SolrException.ErrorCode.INVALID_STATE
-              || errorCode == 404)) {
-        // cached state for one or more external collections was stale
-        // re-issue request using updated state
-        stateWasStale = true;
-
-        // just re-read state for all of them, which is a little heavy-handed but hopefully a rare
-        // occurrence
+    }
+
+    int errorCode =
+        (rootCause instanceof SolrException)
+            ? ((SolrException) rootCause).code()
+            : SolrException.ErrorCode.UNKNOWN.code;
+
+    boolean wasCommError =
+        (rootCause instanceof ConnectException
+            || rootCause instanceof SocketException
+            || wasCommError(rootCause));
+
+    if (wasCommError
+        || (exc instanceof RouteException
+            && (errorCode == 503)) // 404 because the core does not exist 503 service unavailable
+    // TODO there are other reasons for 404. We need to change the solr response format from HTML
+    // to structured data to know that
+    ) {
+      // it was a communication error. it is likely that
+      // the node to which the request to be sent is down . So , expire the state
+      // so that the next attempt would fetch the fresh state
+      // just re-read state for all of them, if it has not been retried
+      // in retryExpiryTime time
+      if (requestedCollections != null) {
         for (DocCollection ext : requestedCollections) {
-          collectionStateCache.remove(ext.getName());
+          ExpiringCachedDocCollection cacheEntry = collectionStateCache.get(ext.getName());
+          if (cacheEntry == null) continue;
+          cacheEntry.maybeStale = true;
         }
       }
+      if (retryCount < MAX_STALE_RETRIES) { // if it is a communication error , we must try again
+        // may be, we have a stale version of the collection state,
+        // and we could not get any information from the server
+        // it is probably not worth trying again and again because
+        // the state would not have been updated
+        log.info(
+            "Request to collection {} failed due to ({}) {}, retry={} maxRetries={} commError={} errorCode={} - retrying",
+            inputCollections,
+            errorCode,
+            rootCause,
+            retryCount,
+            MAX_STALE_RETRIES,
+            wasCommError,
+            errorCode);
+        return null;
+      }
+    } else {
+      log.info("request was not communication error it seems");
+    }
+    log.info(
+        "Request to collection {} failed due to ({}) {}, retry={} maxRetries={} commError={} errorCode={} ",
+        inputCollections,
+        errorCode,
+        rootCause,
+        retryCount,
+        MAX_STALE_RETRIES,
+        wasCommError,
+        errorCode);
+
+    boolean stateWasStale = false;
+    if (retryCount < MAX_STALE_RETRIES
+        && requestedCollections != null
+        && !requestedCollections.isEmpty()
+        && (SolrException.ErrorCode.getErrorCode(errorCode)
+                == SolrException.ErrorCode.INVALID_STATE
+            || errorCode == 404)) {
+      // cached state for one or more external collections was stale
+      // re-issue request using updated state
+      stateWasStale = true;
+
+      // just re-read state for all of them, which is a little heavy-handed but hopefully a rare
+      // occurrence
+      for (DocCollection ext : requestedCollections) {
+        collectionStateCache.remove(ext.getName());
+      }
+    }
 
-      // if we experienced a communication error, it's worth checking the state
-      // with ZK just to make sure the node we're trying to hit is still part of the collection
-      if (retryCount < MAX_STALE_RETRIES
-          && !stateWasStale
-          && requestedCollections != null
-          && !requestedCollections.isEmpty()
-          && wasCommError) {
-        for (DocCollection ext : requestedCollections) {
-          DocCollection latestStateFromZk = getDocCollection(ext.getName(), null);
-          if (latestStateFromZk.getZNodeVersion() != ext.getZNodeVersion()) {
-            // looks like we couldn't reach the server because the state was stale == retry
-            stateWasStale = true;
-            // we just pulled state from ZK, so update the cache so that the retry uses it
-            collectionStateCache.put(
-                ext.getName(), new ExpiringCachedDocCollection(latestStateFromZk));
-          }
+    // if we experienced a communication error, it's worth checking the state
+    // with ZK just to make sure the node we're trying to hit is still part of the collection
+    if (retryCount < MAX_STALE_RETRIES
+        && !stateWasStale
+        && requestedCollections != null
+        && !requestedCollections.isEmpty()
+        && wasCommError) {
+      for (DocCollection ext : requestedCollections) {
+        DocCollection latestStateFromZk = getDocCollection(ext.getName(), null);
+        if (latestStateFromZk.getZNodeVersion() != ext.getZNodeVersion()) {
+          // looks like we couldn't reach the server because the state was stale == retry
+          stateWasStale = true;
+          // we just pulled state from ZK, so update the cache so that the retry uses it
+          collectionStateCache.put(
+              ext.getName(), new ExpiringCachedDocCollection(latestStateFromZk));
         }
       }
+    }
 
-      if (requestedCollections != null) {
-        requestedCollections.clear(); // done with this
-      }
+    if (requestedCollections != null) {
+      requestedCollections.clear(); // done with this
+    }
 
-      // if the state was stale, then we retry the request once with new state pulled from Zk
-      if (stateWasStale) {
-        log.warn(
-            "Re-trying request to collection(s) {} after stale state error from server.",
-            inputCollections);
-        resp = requestWithRetryOnStaleState(request, retryCount + 1, inputCollections);
+    // if the state was stale, then we retry the request once with new state pulled from Zk
+    if (stateWasStale) {
+      log.warn(
+          "Re-trying request to collection(s) {} after stale state error from server.",
+          inputCollections);
+      return null;
+    } else {
+      if (exc instanceof SolrException
+          || exc instanceof SolrServerException
+          || exc instanceof IOException) {
+        return exc;
       } else {
-        if (exc instanceof SolrException
-            || exc instanceof SolrServerException
-            || exc instanceof IOException) {
-          throw exc;
-        } else {
-          throw new SolrServerException(rootCause);
-        }
+        return new SolrServerException(rootCause);
       }
     }
+  }
 
-    return resp;
+  private static Throwable unwrapCompletionException(Throwable t) {
+    return (t instanceof CompletionException && t.getCause() != null) ? t.getCause() : t;
   }
 
   protected NamedList<Object> sendRequest(SolrRequest<?> request, List<String> inputCollections)
@@ -1058,17 +1321,7 @@ public abstract class CloudSolrClient extends SolrClient {
 
       // Check if we can do a "directUpdate" ...
       if (sendToLeaders && request instanceof UpdateRequest) {
-        if (inputCollections.size() > 1) {
-          throw new SolrException(
-              SolrException.ErrorCode.BAD_REQUEST,
-              "Update request must be sent to a single collection "
-                  + "or an alias: "
-                  + inputCollections);
-        }
-        String collection =
-            inputCollections.isEmpty()
-                ? null
-                : inputCollections.get(0); // getting first mimics HttpSolrCall
+        String collection = getDirectUpdateCollection(inputCollections);
         NamedList<Object> response = directUpdate((AbstractUpdateRequest) request, collection);
         if (response != null) {
           return response;
@@ -1076,6 +1329,62 @@ public abstract class CloudSolrClient extends SolrClient {
       }
     }
 
+    LBSolrClient.Req req = createLbRequest(request, inputCollections, sendToLeaders);
+    LBSolrClient.Rsp rsp = getLbClient().request(req);
+    return rsp.getResponse();
+  }
+
+  /**
+   * Asynchronous counterpart of {@link #sendRequest(SolrRequest, List)}. Never throws; failures
+   * are reported through the returned future.
+   */
+  protected CompletableFuture<NamedList<Object>> sendRequestAsync(
+      SolrRequest<?> request, List<String> inputCollections) {
+    try {
+      connect();
+
+      boolean sendToLeaders = false;
+
+      if (request instanceof IsUpdateRequest) {
+        sendToLeaders = ((IsUpdateRequest) request).isSendToLeaders() && this.isUpdatesToLeaders();
+
+        // Check if we can do a "directUpdate" ...
+        if (sendToLeaders && request instanceof UpdateRequest) {
+          String collection = getDirectUpdateCollection(inputCollections);
+          CompletableFuture<NamedList<Object>> response =
+              directUpdateAsync((AbstractUpdateRequest) request, collection);
+          if (response != null) {
+            return response;
+          }
+        }
+      }
+
+      LBSolrClient.Req req = createLbRequest(request, inputCollections, sendToLeaders);
+      return getLbClient().requestAsync(req).thenApply(LBSolrClient.Rsp::getResponse);
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  private String getDirectUpdateCollection(List<String> inputCollections) {
+    if (inputCollections.size() > 1) {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST,
+          "Update request must be sent to a single collection "
+              + "or an alias: "
+              + inputCollections);
+    }
+    return inputCollections.isEmpty()
+        ? null
+        : inputCollections.get(0); // getting first mimics HttpSolrCall
+  }
+
+  /**
+   * Picks the replicas or nodes that may serve the request, ordered according to the request's
+   * replica preferences, for the load balancer to try in turn.
+   */
+  private LBSolrClient.Req createLbRequest(
+      SolrRequest<?> request, List<String> inputCollections, boolean sendToLeaders) {
     SolrParams reqParams = request.getParams();
     if (reqParams == null) { // TODO fix getParams to never return null!
       reqParams = new ModifiableSolrParams();
@@ -1120,9 +1429,7 @@ public abstract class CloudSolrClient extends SolrClient {
               Utils.getBaseUrlForNodeName(nodeName, urlScheme) + "/" + joinedInputCollections);
         }
         if (!urlList.isEmpty()) {
-          LBSolrClient.Req req = new LBSolrClient.Req(request, urlList);
-          LBSolrClient.Rsp rsp = getLbClient().request(req);
-          return rsp.getResponse();
+          return new LBSolrClient.Req(request, urlList);
         }
       }
 
@@ -1196,9 +1503,7 @@ public abstract class CloudSolrClient extends SolrClient {
       }
     }
 
-    LBSolrClient.Req req = new LBSolrClient.Req(request, theUrlList);
-    LBSolrClient.Rsp rsp = getLbClient().request(req);
-    return rsp.getResponse();
+    return new LBSolrClient.Req(request, theUrlList);
   }
 
   /**
@@ -30,6 +30,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import org.apache.solr.client.solrj.ResponseParser;
 import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrRequest;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.request.IsUpdateRequest;
 import org.apache.solr.client.solrj.request.RequestWriter;
@@ -216,6 +217,7 @@ public class LBHttp2SolrClient extends LBSolrClient {
    * @param req the wrapped request to perform
    * @return a {@link CompletableFuture} that tracks the progress of the async request.
    */
+  @Override
   public CompletableFuture<Rsp> requestAsync(Req req) {
     CompletableFuture<Rsp> apiFuture = new CompletableFuture<>();
     Rsp rsp = new Rsp();
@@ -276,6 +278,18 @@ public class LBHttp2SolrClient extends LBSolrClient {
     return apiFuture;
   }
 
+  @Override
+  protected CompletableFuture<NamedList<Object>> doRequestAsync(
+      String baseUrl, SolrRequest<?> solrRequest, String collection) {
+    try {
+      return solrClient.requestWithBaseUrl(
+          baseUrl, (c) -> c.requestAsync(solrRequest, collection));
+    } catch (SolrServerException | IOException e) {
+      // Unreachable, since 'requestWithBaseUrl' above is running the request asynchronously
+      throw new RuntimeException(e);
+    }
+  }
+
   private interface RetryListener {
     void onSuccess(Rsp rsp);
 
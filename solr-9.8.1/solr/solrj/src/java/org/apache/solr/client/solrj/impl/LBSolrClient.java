@@ -38,6 +38,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -489,6 +492,25 @@ public abstract class LBSolrClient extends SolrClient {
         ex);
   }
 
+  /**
+   * Execute an asynchronous request against one or more hosts, following the same server ordering,
+   * zombie skipping and retry rules as {@link #request(Req)}.
+   *
+   * <p>This default implementation runs the request on the calling thread and returns an already
+   * completed future; implementations backed by a non-blocking transport (such as {@link
+   * LBHttp2SolrClient}) override it so that no thread is held while the request is in flight.
+   *
+   * @param req contains both the request and the list of servers to query
+   * @return a {@link CompletableFuture} that tracks the progress of the async request.
+   */
+  public CompletableFuture<Rsp> requestAsync(Req req) {
+    try {
+      return CompletableFuture.completedFuture(request(req));
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
   /**
    * @return time allowed in nanos, returns -1 if no time_allowed is specified.
    */
@@ -576,6 +598,19 @@ public abstract class LBSolrClient extends SolrClient {
     return solrClient.request(solrRequest, collection);
   }
 
+  /**
+   * Asynchronous counterpart of {@link #doRequest(String, SolrRequest, String)}. The default
+   * implementation performs the request on the calling thread.
+   */
+  protected CompletableFuture<NamedList<Object>> doRequestAsync(
+      String baseUrl, SolrRequest<?> solrRequest, String collection) {
+    try {
+      return CompletableFuture.completedFuture(doRequest(baseUrl, solrRequest, collection));
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
   protected abstract SolrClient getClient(String baseUrl);
 
   protected abstract SolrClient getClient(Endpoint endpoint);
@@ -863,6 +898,183 @@ public abstract class LBSolrClient extends SolrClient {
     }
   }
 
+  /**
+   * Execute an asynchronous request against the live servers of this load balancer. This is the
+   * non-blocking counterpart of {@link #request(SolrRequest, String)}.
+   *
+   * @param request the SolrRequest.
+   * @param collection if null the default collection is used
+   * @return a {@link CompletableFuture} that tracks the progress of the async request.
+   */
+  public CompletableFuture<NamedList<Object>> requestAsync(
+      final SolrRequest<?> request, String collection) {
+    return requestAsync(request, collection, null);
+  }
+
+  /**
+   * Execute an asynchronous request against the live servers of this load balancer. Servers are
+   * picked round-robin; a server failing with an {@link IOException} is moved to the dead pool and
+   * the request is retried on the next one, and once the live servers are exhausted the dead ones
+   * are tried before the returned future fails. The next attempt is only started from the
+   * completion of the previous one, so no thread waits while a request is in flight.
+   *
+   * @param request the SolrRequest.
+   * @param collection if null the default collection is used
+   * @param numServersToTry maximum number of live servers to try, or null to try them all
+   * @return a {@link CompletableFuture} that tracks the progress of the async request. Cancelling
+   *     it aborts the attempt currently in flight.
+   */
+  public CompletableFuture<NamedList<Object>> requestAsync(
+      final SolrRequest<?> request, String collection, final Integer numServersToTry) {
+    if (ClientUtils.shouldApplyDefaultCollection(collection, request)) {
+      collection = defaultCollection;
+    }
+    AsyncRequest asyncRequest = new AsyncRequest(request, collection, numServersToTry);
+    asyncRequest.tryNextAlive();
+    return asyncRequest.future;
+  }
+
+  /**
+   * State of one {@link #requestAsync(SolrRequest, String, Integer)} call. Attempts are strictly
+   * sequential: each one is started from the completion callback of the previous one, which also
+   * makes the fields below safely visible without further synchronization.
+   */
+  private class AsyncRequest {
+    final CompletableFuture<NamedList<Object>> future = new CompletableFuture<>();
+    final SolrRequest<?> request;
+    final String collection;
+    final Integer numServersToTry;
+    final ServerWrapper[] serverList = aliveServerList;
+    final int maxTries;
+    final long timeAllowedNano;
+    final long timeOutTime;
+    final Map<String, ServerWrapper> justFailed = new HashMap<>();
+    volatile CompletableFuture<NamedList<Object>> inFlight;
+    Iterator<ServerWrapper> zombieIterator;
+    int attempts;
+    int numServersTried;
+    boolean timeAllowedExceeded;
+    Exception ex;
+
+    AsyncRequest(SolrRequest<?> request, String collection, Integer numServersToTry) {
+      this.request = request;
+      this.collection = collection;
+      this.numServersToTry = numServersToTry;
+      this.maxTries = (numServersToTry == null ? serverList.length : numServersToTry.intValue());
+      this.timeAllowedNano = getTimeAllowedInNanos(request);
+      this.timeOutTime = System.nanoTime() + timeAllowedNano;
+      future.exceptionally(
+          (error) -> {
+            CompletableFuture<NamedList<Object>> current = inFlight;
+            if (future.isCancelled() && current != null) {
+              current.cancel(true);
+            }
+            return null;
+          });
+    }
+
+    void tryNextAlive() {
+      if (attempts < maxTries) {
+        timeAllowedExceeded = isTimeExceeded(timeAllowedNano, timeOutTime);
+        if (!timeAllowedExceeded) {
+          attempts++;
+          send(pickServer(serverList, request), false);
+          return;
+        }
+      }
+      tryNextZombie();
+    }
+
+    void tryNextZombie() {
+      if (zombieIterator == null) {
+        // try other standard servers that we didn't try just now
+        zombieIterator = zombieServers.values().iterator();
+      }
+      while (!timeAllowedExceeded && zombieIterator.hasNext()) {
+        timeAllowedExceeded = isTimeExceeded(timeAllowedNano, timeOutTime);
+        if (timeAllowedExceeded) {
+          break;
+        }
+        ServerWrapper wrapper = zombieIterator.next();
+        if (wrapper.standard && !justFailed.containsKey(wrapper.getBaseUrl())) {
+          send(wrapper, true);
+          return;
+        }
+      }
+      failNoServers();
+    }
+
+    void send(ServerWrapper wrapper, boolean isZombie) {
+      if (future.isDone()) {
+        return; // cancelled by the caller
+      }
+      ++numServersTried;
+      CompletableFuture<NamedList<Object>> attempt =
+          doRequestAsync(wrapper.getBaseUrl(), request, collection);
+      inFlight = attempt;
+      attempt.whenComplete(
+          (rsp, t) -> {
+            if (t == null) {
+              if (isZombie) {
+                // remove from zombie list *before* adding the alive list to avoid a race that
+                // could lose a server
+                zombieServers.remove(wrapper.getBaseUrl());
+                addToAlive(wrapper);
+              }
+              future.complete(rsp);
+            } else if (!attempt.isCancelled()) {
+              onFailure(wrapper, isZombie, t);
+            }
+          });
+    }
+
+    void onFailure(ServerWrapper wrapper, boolean isZombie, Throwable t) {
+      Throwable cause =
+          (t instanceof CompletionException && t.getCause() != null) ? t.getCause() : t;
+      if (cause instanceof SolrException || cause instanceof CancellationException) {
+        // Server is alive but the request was malformed or invalid
+        future.completeExceptionally(cause);
+      } else if (cause instanceof SolrServerException) {
+        SolrServerException e = (SolrServerException) cause;
+        if (e.getRootCause() instanceof IOException) {
+          ex = e;
+          if (isZombie) {
+            // still dead
+            tryNextZombie();
+          } else {
+            moveAliveToDead(wrapper);
+            justFailed.put(wrapper.getBaseUrl(), wrapper);
+            tryNextAlive();
+          }
+        } else {
+          future.completeExceptionally(e);
+        }
+      } else {
+        future.completeExceptionally(new SolrServerException(cause));
+      }
+    }
+
+    void failNoServers() {
+      final String solrServerExceptionMessage;
+      if (timeAllowedExceeded) {
+        solrServerExceptionMessage = "Time allowed to handle this request exceeded";
+      } else if (numServersToTry != null && numServersTried > numServersToTry.intValue()) {
+        solrServerExceptionMessage =
+            "No live SolrServers available to handle this request:"
+                + " numServersTried="
+                + numServersTried
+                + " numServersToTry="
+                + numServersToTry.intValue();
+      } else {
+        solrServerExceptionMessage = "No live SolrServers available to handle this request";
+      }
+      future.completeExceptionally(
+          ex == null
+              ? new SolrServerException(solrServerExceptionMessage)
+              : new SolrServerException(solrServerExceptionMessage, ex));
+    }
+  }
+
   /**
    * Pick a server from list to execute request. By default, servers are picked in round-robin
    * manner, custom classes can override this method for more advance logic
@@ -101,6 +101,13 @@ public interface ShardParams {
   /** Force a single-pass distributed query? (true/false) */
   String DISTRIB_SINGLE_PASS = "distrib.singlePass";
 
+  /**
+   * Use a single-pass distributed query when {@code start + rows} does not exceed this value and
+   * {@value #DISTRIB_SINGLE_PASS} is not explicitly set. Shards then return the stored fields of
+   * their top documents right away instead of a second round trip. Defaults to 0 (disabled).
+   */
+  String DISTRIB_SINGLE_PASS_MAX_ROWS = "distrib.singlePass.maxRows";
+
   /**
    * Throw an error from search requests when the {@value ShardParams#SHARDS_TOLERANT} param has
    * this value and ZooKeeper is not connected.
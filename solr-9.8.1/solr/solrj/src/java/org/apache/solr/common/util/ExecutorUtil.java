@@ -17,7 +17,9 @@
 package org.apache.solr.common.util;
 
 import java.io.IOException;
+import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -259,6 +261,88 @@ public class ExecutorUtil {
     return executor;
   }
 
+  /**
+   * System property (or {@code SOLR_VIRTUAL_THREADS_ENABLED} env variable) that switches request
+   * handling and shard fan-out executors to virtual threads when the JVM supports them.
+   */
+  public static final String VIRTUAL_THREADS_ENABLED_PROP = "solr.virtual.threads.enabled";
+
+  // Thread.ofVirtual() is Java 21+ API; it is reached reflectively since Solr targets Java 11
+  private static final MethodHandle NEW_VIRTUAL_THREAD_FACTORY = lookupVirtualThreadFactory();
+  private static volatile boolean warnedVirtualThreadsUnsupported = false;
+
+  /** Resolves {@code (String, long) -> Thread.ofVirtual().name(prefix, start).factory()} */
+  private static MethodHandle lookupVirtualThreadFactory() {
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+      Class<?> ofVirtual = Class.forName("java.lang.Thread$Builder$OfVirtual");
+      MethodHandle newBuilder =
+          lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(ofVirtual));
+      MethodHandle name =
+          lookup.findVirtual(
+              ofVirtual, "name", MethodType.methodType(ofVirtual, String.class, long.class));
+      MethodHandle factory =
+          lookup.findVirtual(ofVirtual, "factory", MethodType.methodType(ThreadFactory.class));
+      // factory(name(ofVirtual(), prefix, start))
+      MethodHandle named = MethodHandles.collectArguments(name, 0, newBuilder);
+      return MethodHandles.collectArguments(factory, 0, named);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return null; // JVM without virtual thread support
+    }
+  }
+
+  /** Whether the running JVM can create virtual threads. */
+  public static boolean isVirtualThreadsSupported() {
+    return NEW_VIRTUAL_THREAD_FACTORY != null;
+  }
+
+  /**
+   * Whether virtual threads were requested via {@link #VIRTUAL_THREADS_ENABLED_PROP} and are
+   * supported by the running JVM. Logs a warning once if requested but unsupported.
+   */
+  public static boolean isVirtualThreadsEnabled() {
+    if (!EnvUtils.getPropertyAsBool(VIRTUAL_THREADS_ENABLED_PROP, false)) {
+      return false;
+    }
+    if (!isVirtualThreadsSupported()) {
+      if (!warnedVirtualThreadsUnsupported) {
+        warnedVirtualThreadsUnsupported = true;
+        log.warn(
+            "{} is set but this JVM does not support virtual threads; using platform threads",
+            VIRTUAL_THREADS_ENABLED_PROP);
+      }
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Creates a {@link ThreadFactory} producing virtual threads named {@code namePrefix-N}.
+   *
+   * @throws UnsupportedOperationException if the JVM does not support virtual threads
+   */
+  public static ThreadFactory newVirtualThreadFactory(String namePrefix) {
+    if (NEW_VIRTUAL_THREAD_FACTORY == null) {
+      throw new UnsupportedOperationException("Virtual threads are not supported by this JVM");
+    }
+    try {
+      return (ThreadFactory) NEW_VIRTUAL_THREAD_FACTORY.invoke(namePrefix + "-", 0L);
+    } catch (Throwable t) {
+      throw new UnsupportedOperationException("Unable to create a virtual thread factory", t);
+    }
+  }
+
+  /**
+   * Thread factory for executors that mostly wait on I/O, such as request handling and shard
+   * fan-out. Returns a virtual thread factory when {@link #isVirtualThreadsEnabled()}, otherwise a
+   * {@link SolrNamedThreadFactory}.
+   */
+  public static ThreadFactory newRequestThreadFactory(String name) {
+    return isVirtualThreadsEnabled()
+        ? newVirtualThreadFactory(name)
+        : new SolrNamedThreadFactory(name);
+  }
+
   @SuppressForbidden(reason = "class customizes ThreadPoolExecutor so it can be used instead")
   public static class MDCAwareThreadPoolExecutor extends ThreadPoolExecutor {
 
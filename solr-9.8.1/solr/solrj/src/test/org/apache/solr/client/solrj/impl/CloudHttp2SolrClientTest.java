@@ -33,6 +33,8 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import org.apache.http.impl.client.CloseableHttpClient;
@@ -161,6 +163,48 @@ public class CloudHttp2SolrClientTest extends SolrCloudTestCase {
     assertTrue(response.getQTime() >= 0);
   }
 
+  @Test
+  public void testRequestAsync() throws Exception {
+    String COLLECTION = getSaferTestName();
+    CollectionAdminRequest.createCollection(COLLECTION, "conf", 2, 1)
+        .process(cluster.getSolrClient());
+    cluster.waitForActiveCollection(COLLECTION, 2, 2);
+
+    CloudSolrClient client = getRandomClient();
+    List<CompletableFuture<NamedList<Object>>> updates = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      UpdateRequest req = new UpdateRequest();
+      req.add(new SolrInputDocument(id, String.valueOf(i)));
+      updates.add(client.requestAsync(req, COLLECTION));
+    }
+    CompletableFuture.allOf(updates.toArray(new CompletableFuture<?>[0]))
+        .get(TIMEOUT, TimeUnit.SECONDS);
+    for (CompletableFuture<NamedList<Object>> update : updates) {
+      // directly routed updates are condensed into a RouteResponse, as with request()
+      assertTrue(update.get() instanceof RouteResponse);
+    }
+    client.commit(COLLECTION);
+
+    List<CompletableFuture<NamedList<Object>>> queries = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      queries.add(client.requestAsync(new QueryRequest(params("q", "*:*")), COLLECTION));
+    }
+    for (CompletableFuture<NamedList<Object>> query : queries) {
+      SolrDocumentList results =
+          (SolrDocumentList) query.get(TIMEOUT, TimeUnit.SECONDS).get("response");
+      assertEquals(10, results.getNumFound());
+    }
+
+    ExecutionException e =
+        expectThrows(
+            ExecutionException.class,
+            () ->
+                client
+                    .requestAsync(new QueryRequest(params("q", "*:*")), "nonexistent_collection")
+                    .get(TIMEOUT, TimeUnit.SECONDS));
+    assertTrue(e.getCause() instanceof SolrException);
+  }
+
   @Test
   public void testOverwriteOption() throws Exception {
 
@@ -17,6 +17,7 @@
 package org.apache.solr.client.solrj.impl;
 
 import java.io.IOException;
+import java.net.ConnectException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -159,6 +160,59 @@ public class LBHttp2SolrClientTest extends SolrTestCase {
     }
   }
 
+  @Test
+  public void testRequestAsyncMovesFailedServerToZombies() throws Exception {
+    LBSolrClient.Endpoint ep1 = new LBSolrClient.Endpoint("http://endpoint.one");
+    LBSolrClient.Endpoint ep2 = new LBSolrClient.Endpoint("http://endpoint.two");
+
+    Http2SolrClient.Builder b =
+        new Http2SolrClient.Builder("http://base.url").withConnectionTimeout(10, TimeUnit.SECONDS);
+    try (MockHttp2SolrClient client = new MockHttp2SolrClient("http://base.url", b);
+        LBHttp2SolrClient testClient = new LBHttp2SolrClient.Builder(client, ep1, ep2).build()) {
+      client.basePathToFail = ep1.getBaseUrl();
+      client.failWithIOException = true;
+
+      int limit = 4;
+      for (int i = 0; i < limit; i++) {
+        QueryRequest queryRequest = new QueryRequest(new MapSolrParams(Map.of("q", "" + i)));
+        NamedList<Object> rsp =
+            testClient.requestAsync(queryRequest, "coll1").get(1, TimeUnit.MINUTES);
+        assertEquals("" + i, rsp.get("response"));
+      }
+
+      // round-robin starts with endpoint one, which fails with an IOException and is then taken
+      // out of rotation, so every other attempt goes to endpoint two
+      assertEquals(limit + 1, client.lastBasePaths.size());
+      assertEquals(ep1.getBaseUrl(), client.lastBasePaths.get(0));
+      for (int i = 1; i <= limit; i++) {
+        assertEquals(ep2.getBaseUrl(), client.lastBasePaths.get(i));
+      }
+      assertEquals(Collections.nCopies(limit + 1, "coll1"), client.lastCollections);
+    }
+  }
+
+  @Test
+  public void testRequestAsyncDoesNotRetryInvalidRequest() throws Exception {
+    LBSolrClient.Endpoint ep1 = new LBSolrClient.Endpoint("http://endpoint.one");
+    LBSolrClient.Endpoint ep2 = new LBSolrClient.Endpoint("http://endpoint.two");
+
+    Http2SolrClient.Builder b =
+        new Http2SolrClient.Builder("http://base.url").withConnectionTimeout(10, TimeUnit.SECONDS);
+    try (MockHttp2SolrClient client = new MockHttp2SolrClient("http://base.url", b);
+        LBHttp2SolrClient testClient = new LBHttp2SolrClient.Builder(client, ep1, ep2).build()) {
+      client.basePathToFail = ep1.getBaseUrl();
+
+      QueryRequest queryRequest = new QueryRequest(new MapSolrParams(Map.of("q", "0")));
+      ExecutionException e =
+          expectThrows(
+              ExecutionException.class,
+              () -> testClient.requestAsync(queryRequest, "coll1").get(1, TimeUnit.MINUTES));
+      // the server is alive but rejected the request, so the other server is not tried
+      assertTrue(e.getCause() instanceof SolrException);
+      assertEquals(List.of(ep1.getBaseUrl()), client.lastBasePaths);
+    }
+  }
+
   private void testAsync(boolean useDeprecatedApi) {
     LBSolrClient.Endpoint ep1 = new LBSolrClient.Endpoint("http://endpoint.one");
     LBSolrClient.Endpoint ep2 = new LBSolrClient.Endpoint("http://endpoint.two");
@@ -297,6 +351,8 @@ public class LBHttp2SolrClientTest extends SolrTestCase {
 
     public String basePathToFail = null;
 
+    public boolean failWithIOException = false;
+
     public String tmpBaseUrl = null;
 
     protected MockHttp2SolrClient(String serverBaseUrl, Builder builder) {
@@ -335,8 +391,14 @@ public class LBHttp2SolrClientTest extends SolrTestCase {
       lastBasePaths.add(tmpBaseUrl);
       lastCollections.add(collection);
       if (tmpBaseUrl != null && tmpBaseUrl.equals(basePathToFail)) {
-        cf.completeExceptionally(
-            new SolrException(SolrException.ErrorCode.SERVER_ERROR, "We should retry this."));
+        if (failWithIOException) {
+          cf.completeExceptionally(
+              new SolrServerException(
+                  "Server unreachable", new ConnectException("Connection refused")));
+        } else {
+          cf.completeExceptionally(
+              new SolrException(SolrException.ErrorCode.SERVER_ERROR, "We should retry this."));
+        }
       } else {
         cf.complete(generateResponse(solrRequest));
       }
@@ -25,6 +25,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -162,6 +163,55 @@ public class ExecutorUtilTest extends SolrTestCase {
     assertEquals(5, maxConcurrentTasks.get());
   }
 
+  @Test
+  public void testRequestThreadFactoryUsesPlatformThreadsByDefault() {
+    System.clearProperty(ExecutorUtil.VIRTUAL_THREADS_ENABLED_PROP);
+    assertFalse(ExecutorUtil.isVirtualThreadsEnabled());
+    assertTrue(ExecutorUtil.newRequestThreadFactory("test") instanceof SolrNamedThreadFactory);
+  }
+
+  @Test
+  public void testRequestThreadFactoryWithVirtualThreadsEnabled() throws Exception {
+    System.setProperty(ExecutorUtil.VIRTUAL_THREADS_ENABLED_PROP, "true");
+    try {
+      assertEquals(
+          ExecutorUtil.isVirtualThreadsSupported(), ExecutorUtil.isVirtualThreadsEnabled());
+      ThreadFactory threadFactory = ExecutorUtil.newRequestThreadFactory("vtTest");
+      // falls back to platform threads when the JVM can't create virtual threads
+      assertEquals(
+          ExecutorUtil.isVirtualThreadsSupported(),
+          !(threadFactory instanceof SolrNamedThreadFactory));
+    } finally {
+      System.clearProperty(ExecutorUtil.VIRTUAL_THREADS_ENABLED_PROP);
+    }
+  }
+
+  @Test
+  public void testVirtualThreadPoolPropagatesMDC() throws Exception {
+    assumeTrue("JVM does not support virtual threads", ExecutorUtil.isVirtualThreadsSupported());
+
+    ExecutorService executor =
+        ExecutorUtil.newMDCAwareCachedThreadPool(ExecutorUtil.newVirtualThreadFactory("vtTest"));
+    try {
+      String core = "id_" + random().nextLong();
+      MDCLoggingContext.setCoreName(core);
+      Future<String[]> future =
+          executor.submit(
+              () -> {
+                Thread thread = Thread.currentThread();
+                // virtual threads are always daemon threads
+                assertTrue(thread.isDaemon());
+                return new String[] {thread.getName(), MDC.get("core")};
+              });
+      String[] result = future.get(MAX_SANE_WAIT_DURATION_MS, TimeUnit.MILLISECONDS);
+      assertTrue(result[0], result[0].startsWith("vtTest-"));
+      assertEquals(core, result[1]);
+    } finally {
+      MDCLoggingContext.clear();
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+    }
+  }
+
   private static final class Worker implements Callable<Boolean> {
     // how we communicate out to our caller
     private final CountDownLatch taskStartedLatch = new CountDownLatch(1);